@@ -1,5 +1,6 @@
 const baiduTokenService = require('../utils/baiduToken');
 const baiduSpeechService = require('../utils/baiduSpeechService');
+const imaAdpcm = require('../utils/imaAdpcm');
 const multer = require('multer');
 const path = require('path');
 const fs = require('fs');
@@ -342,7 +343,8 @@ const transcribeAudio = async (req, res) => {
 
     // 读取音频文件并调用阿里云语音识别服务
     console.log('📖 读取音频文件...');
-    const audioBuffer = fs.readFileSync(audioFilePath);
+    // 客户端补传的 IMA-ADPCM WAV 先解码为 PCM
+    const audioBuffer = imaAdpcm.toPcmWav(fs.readFileSync(audioFilePath));
     console.log('✅ 音频文件读取完成，大小:', audioBuffer.length, 'bytes');
     
     console.log('🚀 调用百度语音识别服务...');
@@ -0,0 +1,111 @@
+const STEP_TABLE = [
+  7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+  50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+  337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+  2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+  15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+];
+const INDEX_TABLE = [-1, -1, -1, -1, 2, 4, 6, 8];
+const WAV_FORMAT_IMA_ADPCM = 0x11;
+
+/**
+ * 解析 WAV 中的 fmt、fact、data 块
+ * @param {Buffer} buffer WAV 文件内容
+ * @returns {object|null} 不是 WAV 时返回 null
+ */
+function parseWav(buffer) {
+  if (buffer.length < 12 || buffer.toString('ascii', 0, 4) !== 'RIFF' || buffer.toString('ascii', 8, 12) !== 'WAVE') {
+    return null;
+  }
+  const wav = {};
+  let position = 12;
+  while (position + 8 <= buffer.length) {
+    const id = buffer.toString('ascii', position, position + 4);
+    const size = buffer.readUInt32LE(position + 4);
+    const body = position + 8;
+    if (id === 'fmt ') {
+      wav.formatTag = buffer.readUInt16LE(body);
+      wav.channels = buffer.readUInt16LE(body + 2);
+      wav.sampleRate = buffer.readUInt32LE(body + 4);
+      wav.blockAlign = buffer.readUInt16LE(body + 12);
+    } else if (id === 'fact') {
+      wav.sampleCount = buffer.readUInt32LE(body);
+    } else if (id === 'data') {
+      wav.data = buffer.subarray(body, Math.min(buffer.length, body + size));
+    }
+    position = body + size + (size & 1);
+  }
+  return wav.data ? wav : null;
+}
+
+/**
+ * 生成 16bit 单声道 PCM 的 44 字节 WAV 文件头
+ */
+function pcmWavHeader(sampleRate, dataBytes) {
+  const header = Buffer.alloc(44);
+  header.write('RIFF', 0, 'ascii');
+  header.writeUInt32LE(36 + dataBytes, 4);
+  header.write('WAVEfmt ', 8, 'ascii');
+  header.writeUInt32LE(16, 16);
+  header.writeUInt16LE(1, 20);
+  header.writeUInt16LE(1, 22);
+  header.writeUInt32LE(sampleRate, 24);
+  header.writeUInt32LE(sampleRate * 2, 28);
+  header.writeUInt16LE(2, 32);
+  header.writeUInt16LE(16, 34);
+  header.write('data', 36, 'ascii');
+  header.writeUInt32LE(dataBytes, 40);
+  return header;
+}
+
+/**
+ * 解码单声道 IMA-ADPCM 数据块
+ * @returns {Buffer} 16bit 小端 PCM
+ */
+function decodeBlocks(data, blockAlign, sampleCount) {
+  const samplesPerBlock = (blockAlign - 4) * 2 + 1;
+  const blocks = Math.floor(data.length / blockAlign);
+  const total = Math.min(sampleCount || blocks * samplesPerBlock, blocks * samplesPerBlock);
+  const pcm = Buffer.alloc(total * 2);
+  let n = 0;
+  for (let block = 0; block < blocks * blockAlign && n < total; block += blockAlign) {
+    let predictor = data.readInt16LE(block);
+    let index = Math.min(88, data[block + 2]);
+    pcm.writeInt16LE(predictor, 2 * n++);
+    for (let i = block + 4; i < block + blockAlign && n < total; i++) {
+      for (let shift = 0; shift <= 4 && n < total; shift += 4) {
+        const nibble = (data[i] >> shift) & 0x0f;
+        const step = STEP_TABLE[index];
+        let delta = step >> 3;
+        if (nibble & 4) delta += step;
+        if (nibble & 2) delta += step >> 1;
+        if (nibble & 1) delta += step >> 2;
+        predictor += nibble & 8 ? -delta : delta;
+        predictor = Math.max(-32768, Math.min(32767, predictor));
+        index = Math.max(0, Math.min(88, index + INDEX_TABLE[nibble & 7]));
+        pcm.writeInt16LE(predictor, 2 * n++);
+      }
+    }
+  }
+  return pcm;
+}
+
+/**
+ * 客户端弱网时会上传 IMA-ADPCM 压缩的 WAV，百度接口只接受 PCM，识别前在此解码。
+ * 其他格式原样返回。
+ * @param {Buffer} buffer 上传的音频文件内容
+ * @returns {Buffer}
+ */
+function toPcmWav(buffer) {
+  const wav = parseWav(buffer);
+  if (!wav || wav.formatTag !== WAV_FORMAT_IMA_ADPCM || wav.channels !== 1) {
+    return buffer;
+  }
+  const pcm = decodeBlocks(wav.data, wav.blockAlign, wav.sampleCount);
+  return Buffer.concat([pcmWavHeader(wav.sampleRate, pcm.length), pcm]);
+}
+
+module.exports = {
+  toPcmWav,
+  parseWav
+};
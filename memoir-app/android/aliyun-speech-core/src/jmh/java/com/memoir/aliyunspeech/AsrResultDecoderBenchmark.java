@@ -0,0 +1,68 @@
+package com.memoir.aliyunspeech;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * SDK 回调中 asrResult 的解码，每个中间结果与最终结果各一次：
+ * AsrResultDecoder 单次扫描与 org.json 构建对象树后取字段的对比
+ */
+@State(Scope.Thread)
+public class AsrResultDecoderBenchmark {
+
+    // 录制的 SDK 回调：TranscriptionResultChanged 与带逐字时间的 SentenceEnd
+    private static final String PARTIAL = "{\"header\":{\"namespace\":\"SpeechTranscriber\",\"name\":\"TranscriptionResultChanged\","
+        + "\"status\":20000000,\"message_id\":\"b1c2d3e4f5a6b7c8d9e0f1a2b3c4d5e6\","
+        + "\"task_id\":\"f0e1d2c3b4a5f6e7d8c9b0a1f2e3d4c5\",\"status_text\":\"Gateway:SUCCESS:Success.\"},"
+        + "\"payload\":{\"index\":3,\"time\":7410,\"result\":\"今天下午我们去公园散步，看到了\","
+        + "\"confidence\":0,\"words\":[],\"status\":0,\"fixed_result\":\"\",\"unfixed_result\":\"\"}}";
+    private static final String FINAL = "{\"header\":{\"namespace\":\"SpeechTranscriber\",\"name\":\"SentenceEnd\","
+        + "\"status\":20000000,\"message_id\":\"a0b1c2d3e4f5a6b7c8d9e0f1a2b3c4d5\","
+        + "\"task_id\":\"f0e1d2c3b4a5f6e7d8c9b0a1f2e3d4c5\",\"status_text\":\"Gateway:SUCCESS:Success.\"},"
+        + "\"payload\":{\"index\":3,\"time\":8230,\"result\":\"今天下午我们去公园散步，看到了很多盛开的花。\","
+        + "\"confidence\":0.912,\"words\":["
+        + "{\"text\":\"今天\",\"startTime\":5110,\"endTime\":5400},{\"text\":\"下午\",\"startTime\":5400,\"endTime\":5720},"
+        + "{\"text\":\"我们\",\"startTime\":5720,\"endTime\":5980},{\"text\":\"去\",\"startTime\":5980,\"endTime\":6100},"
+        + "{\"text\":\"公园\",\"startTime\":6100,\"endTime\":6480},{\"text\":\"散步\",\"startTime\":6480,\"endTime\":6900},"
+        + "{\"text\":\"看到了\",\"startTime\":7000,\"endTime\":7410},{\"text\":\"很多\",\"startTime\":7410,\"endTime\":7700},"
+        + "{\"text\":\"盛开的\",\"startTime\":7700,\"endTime\":8000},{\"text\":\"花\",\"startTime\":8000,\"endTime\":8230}],"
+        + "\"status\":0,\"gender\":\"\",\"begin_time\":5110,\"fixed_result\":\"\",\"unfixed_result\":\"\","
+        + "\"stash_result\":{},\"audio_extra_info\":\"\"}}";
+
+    @Param({"partial", "final"})
+    public String payload;
+
+    private String json;
+    private final AsrResultDecoder decoder = new AsrResultDecoder();
+
+    @Setup
+    public void setUp() {
+        json = "partial".equals(payload) ? PARTIAL : FINAL;
+    }
+
+    @Benchmark
+    public void decoder(Blackhole blackhole) {
+        AsrResultDecoder result = decoder;
+        result.decode(json);
+        blackhole.consume(result.getText());
+        blackhole.consume(result.getValidConfidence());
+        blackhole.consume(result.getIndex());
+        blackhole.consume(result.getBeginTimeMs());
+        blackhole.consume(result.getTimeMs());
+    }
+
+    @Benchmark
+    public void orgJson(Blackhole blackhole) {
+        JSONObject payload = new JSONObject(json).getJSONObject("payload");
+        blackhole.consume(payload.getString("result"));
+        blackhole.consume(payload.optDouble("confidence", Double.NaN));
+        blackhole.consume(payload.optLong("index", -1));
+        blackhole.consume(payload.optLong("begin_time", -1));
+        blackhole.consume(payload.optLong("time", -1));
+    }
+}
@@ -0,0 +1,54 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 每 20ms 帧的拷贝开销：麦克风读入池化缓冲区，再写入环形缓冲区
+ */
+@State(Scope.Thread)
+public class FrameCopyBenchmark {
+
+    private AudioPipeline pipeline;
+    private PcmRingBuffer ring;
+    private AudioSource source;
+    private ByteBuffer frame;
+    private byte[] heapFrame;
+    private byte[] nuiBuffer;
+
+    @Setup
+    public void setUp() {
+        ring = PcmRingBuffer.forDuration(500, Signals.SAMPLE_RATE);
+        pipeline = new AudioPipeline(Signals.SAMPLE_RATE, ring);
+        pipeline.startStreaming();
+        source = Signals.loop(Signals.speechLike(Signals.SAMPLE_RATE * 2));
+        frame = Signals.directFrame();
+        heapFrame = Signals.speechLike(Signals.FRAME_BYTES);
+        nuiBuffer = new byte[Signals.FRAME_BYTES];
+    }
+
+    /**
+     * 完整的录音线程热路径（读取、预录/门限分支、写入环形缓冲区），SDK 侧同步取走
+     */
+    @Benchmark
+    public int pipelineFrame() {
+        pipeline.processFrame(source);
+        return ring.read(nuiBuffer, 0, nuiBuffer.length);
+    }
+
+    @Benchmark
+    public int ringWriteDirectBuffer() {
+        ring.write(frame);
+        return ring.read(nuiBuffer, 0, nuiBuffer.length);
+    }
+
+    @Benchmark
+    public int ringWriteByteArray() {
+        ring.write(heapFrame, 0, heapFrame.length);
+        return ring.read(nuiBuffer, 0, nuiBuffer.length);
+    }
+}
@@ -0,0 +1,31 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 每 20ms 帧的 IMA-ADPCM 编码耗时
+ */
+@State(Scope.Thread)
+public class ImaAdpcmEncoderBenchmark {
+
+    private ImaAdpcmEncoder encoder;
+    private ByteBuffer frame;
+    private byte[] out;
+
+    @Setup
+    public void setUp() {
+        encoder = new ImaAdpcmEncoder();
+        frame = Signals.directFrame();
+        out = new byte[encoder.maxEncodedBytes(Signals.FRAME_BYTES)];
+    }
+
+    @Benchmark
+    public int encodeFrame() {
+        return encoder.encode(frame, out, 0);
+    }
+}
@@ -0,0 +1,33 @@
+package com.memoir.aliyunspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 热路径指标的记录开销：录音线程与取数线程每帧各记录一次
+ */
+@State(Scope.Thread)
+public class LatencyHistogramBenchmark {
+
+    private LatencyHistogram histogram;
+    private long value;
+
+    @Setup
+    public void setUp() {
+        histogram = new LatencyHistogram();
+    }
+
+    @Benchmark
+    public void record() {
+        // 在 0–20ms 之间变化，覆盖多个区间
+        value = (value + 7919) % 20000000;
+        histogram.recordNanos(value);
+    }
+
+    @Benchmark
+    public long percentile() {
+        return histogram.getValueAtPercentile(99);
+    }
+}
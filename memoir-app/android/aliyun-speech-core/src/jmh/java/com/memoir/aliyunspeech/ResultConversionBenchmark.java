@@ -0,0 +1,40 @@
+package com.memoir.aliyunspeech;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 识别结果到桥接事件的转换：解析SDK回调中的 JSON，生成事件对象并序列化
+ * （Capacitor 发送事件时会把 JSObject 转为字符串）。JSObject 是 JSONObject 的子类，
+ * 这里直接使用 JSONObject。
+ */
+@State(Scope.Thread)
+public class ResultConversionBenchmark {
+
+    // SDK 在 EVENT_SENTENCE_END 中给出的 asrResult 示例
+    private final String sentenceEnd = "{\"header\":{\"namespace\":\"SpeechTranscriber\",\"name\":\"SentenceEnd\","
+        + "\"status\":20000000,\"message_id\":\"a0b1c2d3e4f5a6b7c8d9e0f1a2b3c4d5\","
+        + "\"task_id\":\"f0e1d2c3b4a5f6e7d8c9b0a1f2e3d4c5\",\"status_text\":\"Gateway:SUCCESS:Success.\"},"
+        + "\"payload\":{\"index\":3,\"time\":8230,\"result\":\"今天下午我们去公园散步，看到了很多盛开的花。\","
+        + "\"confidence\":0.912,\"words\":[],\"status\":0,\"gender\":\"\",\"begin_time\":5110,"
+        + "\"fixed_result\":\"\",\"unfixed_result\":\"\",\"stash_result\":{},\"audio_extra_info\":\"\"}}";
+
+    @Benchmark
+    public String finalResultFromSdkJson() {
+        JSONObject payload = new JSONObject(sentenceEnd).getJSONObject("payload");
+        long begin = payload.getLong("begin_time");
+        long end = payload.getLong("time");
+        SentenceTiming timing = new SentenceTiming(payload.getInt("index") - 1, begin, end,
+            1_700_000_000_000L + begin, 1_700_000_000_000L + end);
+        JSONObject event = SpeechParams.finalResult(new JSONObject(), payload.getString("result"),
+            payload.getDouble("confidence"), payload.getLong("index"), timing);
+        return event.toString();
+    }
+
+    @Benchmark
+    public String partialResultEvent() {
+        return SpeechParams.partialResult(new JSONObject(), 12, "看到了很多", 17, 0.95).toString();
+    }
+}
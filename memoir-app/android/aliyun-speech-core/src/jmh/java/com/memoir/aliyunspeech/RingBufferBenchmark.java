@@ -0,0 +1,44 @@
+package com.memoir.aliyunspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 录音线程与SDK取数线程之间的交接：生产者和消费者各占一个线程，
+ * 分别报告每次写入/读取一帧的耗时
+ */
+@State(Scope.Group)
+public class RingBufferBenchmark {
+
+    private PcmRingBuffer ring;
+    private byte[] frame;
+
+    @State(Scope.Thread)
+    public static class ConsumerBuffer {
+        byte[] buffer = new byte[Signals.FRAME_BYTES];
+    }
+
+    @Setup
+    public void setUp() {
+        ring = PcmRingBuffer.forDuration(500, Signals.SAMPLE_RATE);
+        frame = Signals.speechLike(Signals.FRAME_BYTES);
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(1)
+    public int produce() {
+        return ring.write(frame, 0, frame.length);
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(1)
+    public int consume(ConsumerBuffer consumer) {
+        return ring.read(consumer.buffer, 0, consumer.buffer.length);
+    }
+}
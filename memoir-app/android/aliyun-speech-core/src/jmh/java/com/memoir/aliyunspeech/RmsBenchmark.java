@@ -0,0 +1,59 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 每帧电平（RMS, dBFS）计算，本地 VAD 每帧调用一次；电平表每帧统计窗口峰值与 RMS，
+ * 分发线程每 100ms 取走一批并编码
+ */
+@State(Scope.Thread)
+public class RmsBenchmark {
+
+    private ByteBuffer directFrame;
+    private ByteBuffer heapFrame;
+    private EnergyVad vad;
+    private LevelMeter meter;
+    private final short[] levels = new short[10 * LevelMeter.VALUES_PER_WINDOW];
+
+    @Setup
+    public void setUp() {
+        directFrame = Signals.directFrame();
+        heapFrame = ByteBuffer.wrap(Signals.speechLike(Signals.FRAME_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        vad = new EnergyVad();
+        meter = new LevelMeter(Signals.SAMPLE_RATE);
+    }
+
+    @Benchmark
+    public float levelDbDirect() {
+        return EnergyVad.levelDb(directFrame);
+    }
+
+    @Benchmark
+    public float levelDbHeap() {
+        return EnergyVad.levelDb(heapFrame);
+    }
+
+    @Benchmark
+    public boolean vadDecision() {
+        return vad.isSpeech(directFrame);
+    }
+
+    @Benchmark
+    public void levelMeterFrame() {
+        meter.process(directFrame);
+    }
+
+    @Benchmark
+    public String levelBatch() {
+        for (int i = 0; i < 5; i++) {
+            meter.process(directFrame);
+        }
+        return SpeechParams.int16Base64(levels, meter.drain(levels) * LevelMeter.VALUES_PER_WINDOW);
+    }
+}
@@ -0,0 +1,56 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 基准用的合成音频：几个谐波叠加的类语音信号，结果可复现
+ */
+final class Signals {
+
+    static final int SAMPLE_RATE = 16000;
+    static final int FRAME_BYTES = SAMPLE_RATE * AudioPipeline.FRAME_MS / 1000 * PcmRingBuffer.BYTES_PER_SAMPLE;
+
+    private Signals() {
+    }
+
+    static byte[] speechLike(int bytes) {
+        byte[] pcm = new byte[bytes];
+        ByteBuffer buffer = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < bytes / 2; i++) {
+            double t = (double) i / SAMPLE_RATE;
+            double v = 0.5 * Math.sin(2 * Math.PI * 180 * t)
+                + 0.3 * Math.sin(2 * Math.PI * 720 * t)
+                + 0.15 * Math.sin(2 * Math.PI * 2400 * t);
+            buffer.putShort((short) (v * 6000));
+        }
+        return pcm;
+    }
+
+    static ByteBuffer directFrame() {
+        ByteBuffer frame = ByteBuffer.allocateDirect(FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put(speechLike(FRAME_BYTES));
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * 循环回放一段 PCM 的音频源，与 AudioRecord.read 的行为一致
+     */
+    static AudioSource loop(byte[] pcm) {
+        return new AudioSource() {
+            private int offset;
+
+            @Override
+            public int read(ByteBuffer buffer, int sizeInBytes) {
+                // 与 AudioRecord 一致：从缓冲区开头写入，不移动 position
+                int n = Math.min(sizeInBytes, pcm.length - offset);
+                for (int i = 0; i < n; i++) {
+                    buffer.put(i, pcm[offset + i]);
+                }
+                offset = (offset + n) % pcm.length;
+                return n;
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.memoir.aliyunspeech;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * SDK 参数 JSON 的生成，每次 initialize/startRecording 调用一次
+ */
+@State(Scope.Thread)
+public class SpeechParamsBenchmark {
+
+    private static final int SERVICE_MODE_FULL_CLOUD = 1;
+    private static final int SERVICE_TYPE_TRANSCRIBER = 4;
+
+    private final String token = "a1b2c3d4e5f60718293a4b5c6d7e8f90";
+
+    @Benchmark
+    public String initParams() {
+        return SpeechParams.initParams("appkey-0123456789", token, "device-0123456789abcdef",
+            "/data/user/0/com.memoir.app/files/nui", SERVICE_MODE_FULL_CLOUD);
+    }
+
+    @Benchmark
+    public String recognitionParams() {
+        return SpeechParams.recognitionParams(AudioCodec.PCM, SERVICE_TYPE_TRANSCRIBER);
+    }
+
+    @Benchmark
+    public String dialogParams() {
+        return SpeechParams.dialogParams(token);
+    }
+}
@@ -0,0 +1,415 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 识别结果解码：SDK 回调的 asrResult 是完整的 JSON 信封（header + payload），
+ * 一次扫描取出 payload 中的 result、confidence、index、begin_time、time，
+ * 不构建对象树；header 与其余字段（words、stash_result 等）只跳过不解析。
+ *
+ * 句子文本只记录在原文中的位置，调用 getText 时才生成字符串。
+ * 实例可以复用，decode 之间不分配内存，由识别回调线程单线程使用。
+ */
+public final class AsrResultDecoder {
+
+    private static final int SCOPE_ROOT = 0;
+    private static final int SCOPE_PAYLOAD = 1;
+    private static final int MALFORMED = -1;
+    // 可以精确表示的 10 的幂
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private String source;
+    private int textStart;
+    private int textEnd;
+    private boolean textEscaped;
+    private String text;
+    private long index;
+    private long beginTimeMs;
+    private long timeMs;
+    private double confidence;
+
+    // 最近一次扫描的字符串是否含转义、数字的值
+    private boolean scannedEscape;
+    private long scannedLong;
+    private double scannedDouble;
+    private boolean scannedInteger;
+
+    public AsrResultDecoder() {
+        clear();
+    }
+
+    /**
+     * 解码一条识别结果，之前的字段全部清空
+     *
+     * @return json 是完整的 JSON 对象时返回 true；为 null 或格式错误时返回 false，所有字段为缺省值
+     */
+    public boolean decode(String json) {
+        clear();
+        if (json == null) {
+            return false;
+        }
+        source = json;
+        int i = skipWhitespace(0);
+        if (i >= json.length() || json.charAt(i) != '{') {
+            clear();
+            return false;
+        }
+        i = parseObject(i + 1, SCOPE_ROOT);
+        if (i == MALFORMED || skipWhitespace(i) != json.length()) {
+            clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return 是否有 payload.result（可以为空字符串）
+     */
+    public boolean hasText() {
+        return textStart >= 0;
+    }
+
+    /**
+     * @return payload.result（已反转义），没有时返回 null；第一次调用时生成字符串
+     */
+    public String getText() {
+        if (text == null && textStart >= 0) {
+            text = textEscaped ? unescape(source, textStart, textEnd) : source.substring(textStart, textEnd);
+        }
+        return text;
+    }
+
+    /**
+     * @return payload.index（SDK 从 1 开始的句子序号），没有时返回 -1
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return payload.begin_time，相对本次对话送入音频的毫秒数，没有时返回 -1
+     */
+    public long getBeginTimeMs() {
+        return beginTimeMs;
+    }
+
+    /**
+     * @return payload.time，相对本次对话送入音频的毫秒数，没有时返回 -1
+     */
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * @return payload.confidence，没有时返回 NaN
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return 有效的置信度（大于 0 且不超过 1），否则返回 NaN；
+     * 中间结果的 confidence 通常为 0，表示没有给出
+     */
+    public double getValidConfidence() {
+        return confidence > 0 && confidence <= 1 ? confidence : Double.NaN;
+    }
+
+    private void clear() {
+        source = null;
+        textStart = -1;
+        textEnd = -1;
+        textEscaped = false;
+        text = null;
+        index = -1;
+        beginTimeMs = -1;
+        timeMs = -1;
+        confidence = Double.NaN;
+    }
+
+    // i 位于 '{' 之后，返回 '}' 之后的位置
+    private int parseObject(int i, int scope) {
+        String json = source;
+        i = skipWhitespace(i);
+        if (i < json.length() && json.charAt(i) == '}') {
+            return i + 1;
+        }
+        while (true) {
+            if (i >= json.length() || json.charAt(i) != '"') {
+                return MALFORMED;
+            }
+            int keyStart = i + 1;
+            i = scanString(i);
+            if (i == MALFORMED) {
+                return MALFORMED;
+            }
+            int keyEnd = i - 1;
+            i = skipWhitespace(i);
+            if (i >= json.length() || json.charAt(i) != ':') {
+                return MALFORMED;
+            }
+            i = skipWhitespace(i + 1);
+            if (i >= json.length()) {
+                return MALFORMED;
+            }
+            i = parseValue(i, scope, keyStart, keyEnd - keyStart);
+            if (i == MALFORMED) {
+                return MALFORMED;
+            }
+            i = skipWhitespace(i);
+            if (i >= json.length()) {
+                return MALFORMED;
+            }
+            char c = json.charAt(i);
+            if (c == '}') {
+                return i + 1;
+            }
+            if (c != ',') {
+                return MALFORMED;
+            }
+            i = skipWhitespace(i + 1);
+        }
+    }
+
+    // 按所在对象与键名处理一个值，返回值之后的位置
+    private int parseValue(int i, int scope, int key, int keyLength) {
+        char c = source.charAt(i);
+        switch (scope) {
+            case SCOPE_ROOT:
+                if (c == '{' && keyIs(key, keyLength, "payload")) {
+                    return parseObject(i + 1, SCOPE_PAYLOAD);
+                }
+                break;
+            case SCOPE_PAYLOAD:
+                if (c == '"' && keyIs(key, keyLength, "result")) {
+                    int end = scanString(i);
+                    if (end != MALFORMED) {
+                        textStart = i + 1;
+                        textEnd = end - 1;
+                        textEscaped = scannedEscape;
+                    }
+                    return end;
+                }
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    int end = scanNumber(i);
+                    if (end == MALFORMED) {
+                        return MALFORMED;
+                    }
+                    if (keyIs(key, keyLength, "confidence")) {
+                        confidence = scannedDouble;
+                    } else if (scannedInteger && keyIs(key, keyLength, "index")) {
+                        index = scannedLong;
+                    } else if (scannedInteger && keyIs(key, keyLength, "time")) {
+                        timeMs = scannedLong;
+                    } else if (scannedInteger && keyIs(key, keyLength, "begin_time")) {
+                        beginTimeMs = scannedLong;
+                    }
+                    return end;
+                }
+                break;
+            default:
+                break;
+        }
+        return skipValue(i);
+    }
+
+    private boolean keyIs(int key, int keyLength, String name) {
+        return keyLength == name.length() && source.regionMatches(key, name, 0, keyLength);
+    }
+
+    // 跳过任意值
+    private int skipValue(int i) {
+        String json = source;
+        char c = json.charAt(i);
+        if (c == '"') {
+            return scanString(i);
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return scanNumber(i);
+        }
+        if (c == '{' || c == '[') {
+            return skipContainer(i);
+        }
+        if (json.startsWith("true", i) || json.startsWith("null", i)) {
+            return i + 4;
+        }
+        if (json.startsWith("false", i)) {
+            return i + 5;
+        }
+        return MALFORMED;
+    }
+
+    // 跳过对象或数组，只需要配对括号并跳过字符串
+    private int skipContainer(int i) {
+        String json = source;
+        int depth = 0;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                i = scanString(i);
+                if (i == MALFORMED) {
+                    return MALFORMED;
+                }
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return MALFORMED;
+    }
+
+    // i 位于开头的引号，返回结尾引号之后的位置
+    private int scanString(int i) {
+        String json = source;
+        boolean escaped = false;
+        for (i++; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                scannedEscape = escaped;
+                return i + 1;
+            }
+            if (c == '\\') {
+                escaped = true;
+                i++;
+            }
+        }
+        return MALFORMED;
+    }
+
+    // 解析数字，整数（18 位以内）同时记入 scannedLong。
+    // 有效数字不超过 15 位的小数（置信度等）按 尾数 / 10^n 计算，结果与 Double.parseDouble 相同，其余交给 parseDouble
+    private int scanNumber(int i) {
+        String json = source;
+        int start = i;
+        boolean negative = json.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        for (; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return MALFORMED;
+        }
+        long integer = mantissa;
+        int integerDigits = digits;
+        int fractionDigits = 0;
+        if (i < json.length() && json.charAt(i) == '.') {
+            for (i++; i < json.length(); i++) {
+                char c = json.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                digits++;
+                fractionDigits++;
+            }
+            if (fractionDigits == 0) {
+                return MALFORMED;
+            }
+        }
+        boolean exponent = false;
+        if (i < json.length() && (json.charAt(i) == 'e' || json.charAt(i) == 'E')) {
+            exponent = true;
+            i++;
+            if (i < json.length() && (json.charAt(i) == '+' || json.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < json.length() && json.charAt(i) >= '0' && json.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == exponentStart) {
+                return MALFORMED;
+            }
+        }
+        double value;
+        if (!exponent && digits <= 15 && fractionDigits < POWERS_OF_TEN.length) {
+            value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+            if (negative) {
+                value = -value;
+            }
+        } else {
+            // 识别结果中不会出现
+            value = Double.parseDouble(json.substring(start, i));
+        }
+        scannedInteger = !exponent && fractionDigits == 0 && integerDigits <= 18;
+        scannedLong = negative ? -integer : integer;
+        scannedDouble = value;
+        return i;
+    }
+
+    private int skipWhitespace(int i) {
+        String json = source;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    // 反转义 json 中 [start, end) 的字符串内容
+    private static String unescape(String json, int start, int end) {
+        StringBuilder value = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = json.charAt(i);
+            if (c != '\\' || i + 1 >= end) {
+                value.append(c);
+                continue;
+            }
+            char escaped = json.charAt(++i);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 < end) {
+                        int code = 0;
+                        for (int k = 1; k <= 4 && code >= 0; k++) {
+                            int digit = Character.digit(json.charAt(i + k), 16);
+                            code = digit < 0 ? -1 : code * 16 + digit;
+                        }
+                        if (code >= 0) {
+                            value.append((char) code);
+                        }
+                        i += 4;
+                    }
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 固定大小的直接 ByteBuffer 池。所有缓冲区在构造时分配，
+ * 借出/归还通过 CAS 操作槽位完成，不加锁也不产生新的对象。
+ */
+public class AudioBufferPool {
+
+    private final AtomicReferenceArray<ByteBuffer> slots;
+    private final int bufferSize;
+    private final AtomicLong exhaustedCount = new AtomicLong();
+
+    public AudioBufferPool(int bufferCount, int bufferSize) {
+        if (bufferCount <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("缓冲池参数无效: " + bufferCount + " x " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.slots = new AtomicReferenceArray<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+            // PCM16 为小端序
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            slots.set(i, buffer);
+        }
+    }
+
+    /**
+     * 借出一个已清空的缓冲区，池已耗尽时返回 null
+     */
+    public ByteBuffer acquire() {
+        for (int i = 0; i < slots.length(); i++) {
+            ByteBuffer buffer = slots.get(i);
+            if (buffer != null && slots.compareAndSet(i, buffer, null)) {
+                buffer.clear();
+                return buffer;
+            }
+        }
+        exhaustedCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 归还缓冲区，只接受本池分配的容量
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize) {
+            return;
+        }
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+                return;
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getAvailableCount() {
+        int count = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+}
@@ -0,0 +1,117 @@
+package com.memoir.aliyunspeech;
+
+import java.util.Arrays;
+
+/**
+ * 按采集到的帧推进的会话音频时钟：会话音频（即落盘文件中的 PCM）的字节位置就是时间，
+ * 同时记录环形缓冲区位置（送入识别服务的音频）与会话音频位置的对应关系。
+ *
+ * 语音门限丢弃的静音、背压控制丢弃的音频会让两者错开，每次错开记一个锚点，
+ * 查找时二分定位所在的连续区间，为 O(log n)。录音线程调用 onFrame，其他线程可以随时查询。
+ */
+public class AudioClock {
+
+    private static final int INITIAL_ANCHORS = 16;
+
+    private final int bytesPerMs;
+    private final Clock wallClock;
+
+    // 锚点：从 ringPositions[i] 开始，会话音频位置 = 环形缓冲区位置 + offsets[i]
+    private long[] ringPositions = new long[INITIAL_ANCHORS];
+    private long[] offsets = new long[INITIAL_ANCHORS];
+    private int count;
+    private volatile long sessionBytes;
+    private volatile long wallTimeBase = -1;
+    // 只由录音线程读写
+    private long lastOffset;
+
+    public AudioClock(int sampleRate, Clock wallClock) {
+        this.bytesPerMs = PcmRingBuffer.bytesForDuration(1000, sampleRate) / 1000;
+        this.wallClock = wallClock;
+    }
+
+    /**
+     * 新会话开始，由录音线程在会话的第一帧之前调用
+     */
+    public synchronized void reset() {
+        count = 0;
+        sessionBytes = 0;
+        wallTimeBase = -1;
+    }
+
+    /**
+     * 录音线程每次向会话音频追加数据后调用
+     *
+     * @param ringBefore 写入前环形缓冲区的写位置
+     * @param ringAfter 写入后环形缓冲区的写位置
+     * @param appendedBytes 本次追加到会话音频的字节数
+     * @param backlogBytes 会话音频中已追加、但还没有写入环形缓冲区的最新部分（溢写的积压），
+     *                     新写入环形缓冲区的字节紧接在它之前
+     */
+    public void onFrame(long ringBefore, long ringAfter, int appendedBytes, long backlogBytes) {
+        long total = sessionBytes + appendedBytes;
+        sessionBytes = total;
+        if (wallTimeBase < 0) {
+            // 第一帧在读取返回时采集完毕，之前的音频（预录历史）按时长往前推
+            wallTimeBase = wallClock.currentTimeMillis() - total / bytesPerMs;
+        }
+        long written = ringAfter - ringBefore;
+        if (written <= 0) {
+            return;
+        }
+        long offset = total - backlogBytes - written - ringBefore;
+        if (count == 0 || offset != lastOffset) {
+            lastOffset = offset;
+            addAnchor(ringBefore, offset);
+        }
+    }
+
+    private synchronized void addAnchor(long ringPosition, long offset) {
+        if (count == ringPositions.length) {
+            ringPositions = Arrays.copyOf(ringPositions, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        ringPositions[count] = ringPosition;
+        offsets[count] = offset;
+        count++;
+    }
+
+    /**
+     * @return 环形缓冲区位置对应的会话音频字节位置，限制在已采集的范围内；还没有数据时返回 -1
+     */
+    public synchronized long toSessionPosition(long ringPosition) {
+        if (count == 0) {
+            return -1;
+        }
+        int i = Arrays.binarySearch(ringPositions, 0, count, ringPosition);
+        if (i < 0) {
+            // 插入点的前一个锚点；早于第一个锚点时按第一个计算
+            i = Math.max(0, -i - 2);
+        }
+        long position = ringPosition + offsets[i];
+        return Math.max(0, Math.min(position - position % PcmRingBuffer.BYTES_PER_SAMPLE, sessionBytes));
+    }
+
+    public long toMillis(long sessionPosition) {
+        return sessionPosition / bytesPerMs;
+    }
+
+    /**
+     * @return 会话音频位置对应的墙上时间（毫秒时间戳），还没有数据时返回 -1
+     */
+    public long wallTimeAt(long sessionPosition) {
+        long base = wallTimeBase;
+        return base < 0 ? -1 : base + toMillis(sessionPosition);
+    }
+
+    /**
+     * @return 会话音频已采集的字节数
+     */
+    public long getSessionBytes() {
+        return sessionBytes;
+    }
+
+    public synchronized int getAnchorCount() {
+        return count;
+    }
+}
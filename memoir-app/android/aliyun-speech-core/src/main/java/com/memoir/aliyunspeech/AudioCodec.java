@@ -0,0 +1,59 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 会话音频的传输编码，由 StartRecordingOptions.format 选择。
+ *
+ * PCM：实时流与补传都使用原始 16bit PCM。
+ * OPUS：实时流由 SDK 在本地编码为 Opus（nls_config.sr_format），补传仍为 PCM WAV。
+ * ADPCM：实时流为 PCM（SDK 的实时接口只接受 PCM 与 Opus），补传前转为 IMA-ADPCM WAV，体积约为 1/4。
+ */
+public enum AudioCodec {
+    PCM("pcm", false),
+    OPUS("opus", false),
+    ADPCM("pcm", true);
+
+    private final String streamFormat;
+    private final boolean adpcmUpload;
+
+    AudioCodec(String streamFormat, boolean adpcmUpload) {
+        this.streamFormat = streamFormat;
+        this.adpcmUpload = adpcmUpload;
+    }
+
+    /**
+     * 传给 SDK 的 sr_format
+     */
+    public String getStreamFormat() {
+        return streamFormat;
+    }
+
+    /**
+     * 补传会话音频时是否转为 IMA-ADPCM
+     */
+    public boolean isAdpcmUpload() {
+        return adpcmUpload;
+    }
+
+    /**
+     * 解析 format 参数，为空时使用 PCM，无法识别时抛出 IllegalArgumentException
+     */
+    public static AudioCodec fromFormat(String format) {
+        if (format == null || format.isEmpty()) {
+            return PCM;
+        }
+        switch (format.toLowerCase()) {
+            case "pcm":
+            case "wav":
+                return PCM;
+            case "opus":
+            case "opu":
+                return OPUS;
+            case "adpcm":
+            case "ima-adpcm":
+            case "ima_adpcm":
+                return ADPCM;
+            default:
+                throw new IllegalArgumentException("不支持的音频格式: " + format);
+        }
+    }
+}
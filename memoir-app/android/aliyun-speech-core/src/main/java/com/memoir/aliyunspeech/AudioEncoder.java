@@ -0,0 +1,31 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 音频编码阶段：把 16bit 小端 PCM 帧编码为压缩数据，按帧流式调用
+ */
+public interface AudioEncoder {
+
+    /**
+     * 编码 position 到 limit 之间的 PCM，position 保持不变。
+     * 编码器可以缓存不足一个编码块的数据，留到后续调用或 flush 时输出。
+     *
+     * @return 写入 out 的字节数
+     */
+    int encode(ByteBuffer pcm, byte[] out, int offset);
+
+    /**
+     * 输出缓存中剩余的数据
+     *
+     * @return 写入 out 的字节数
+     */
+    int flush(byte[] out, int offset);
+
+    /**
+     * 编码 pcmBytes 字节 PCM（含之前缓存的数据）最多产生的字节数
+     */
+    int maxEncodedBytes(int pcmBytes);
+
+    void reset();
+}
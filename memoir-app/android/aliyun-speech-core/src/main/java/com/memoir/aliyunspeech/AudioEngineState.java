@@ -0,0 +1,93 @@
+package com.memoir.aliyunspeech;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 录音引擎状态机，所有线程通过 CAS 读写同一个原子状态。
+ *
+ * IDLE → ARMED → CAPTURING → DRAINING → STOPPED
+ *
+ * ARMED：麦克风已打开，只保留预录历史；CAPTURING：向识别输出音频；
+ * DRAINING：已停止采集，SDK 继续取完缓冲区中剩余的音频；STOPPED：麦克风已释放。
+ */
+public class AudioEngineState {
+
+    public enum State {
+        IDLE,
+        ARMED,
+        CAPTURING,
+        DRAINING,
+        STOPPED
+    }
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+
+    public static boolean isAllowed(State from, State to) {
+        switch (from) {
+            case IDLE:
+            case STOPPED:
+                return to == State.ARMED || to == State.CAPTURING || to == State.STOPPED;
+            case ARMED:
+                return to == State.CAPTURING || to == State.STOPPED;
+            case CAPTURING:
+                // 待命中的对话结束后回到 ARMED
+                return to == State.DRAINING || to == State.ARMED || to == State.STOPPED;
+            case DRAINING:
+                return to == State.STOPPED;
+            default:
+                return false;
+        }
+    }
+
+    public State get() {
+        return state.get();
+    }
+
+    /**
+     * 仅当当前状态为 from 时切换到 to
+     *
+     * @return 是否切换成功
+     */
+    public boolean transition(State from, State to) {
+        if (!isAllowed(from, to)) {
+            throw new IllegalStateException("非法的状态切换: " + from + " → " + to);
+        }
+        return state.compareAndSet(from, to);
+    }
+
+    /**
+     * 从当前状态切换到 to，当前状态不允许切换时抛出异常
+     *
+     * @return 切换前的状态
+     */
+    public State moveTo(State to) {
+        while (true) {
+            State from = state.get();
+            if (from == to) {
+                return from;
+            }
+            if (!isAllowed(from, to)) {
+                throw new IllegalStateException("非法的状态切换: " + from + " → " + to);
+            }
+            if (state.compareAndSet(from, to)) {
+                return from;
+            }
+        }
+    }
+
+    /**
+     * 录音线程是否应继续读取麦克风
+     */
+    public boolean isCaptureRunning() {
+        State current = state.get();
+        return current == State.ARMED || current == State.CAPTURING;
+    }
+
+    /**
+     * 麦克风是否处于打开状态（包括排空中）
+     */
+    public boolean isMicOpen() {
+        State current = state.get();
+        return current == State.ARMED || current == State.CAPTURING || current == State.DRAINING;
+    }
+}
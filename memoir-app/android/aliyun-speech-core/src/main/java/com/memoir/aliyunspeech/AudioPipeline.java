@@ -0,0 +1,315 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 录音热路径：从 AudioSource 读取一帧到池化的直接缓冲区，经背压控制写入环形缓冲区后归还。
+ * 稳态下每帧不分配任何对象，由录音线程单线程调用。
+ */
+public class AudioPipeline {
+
+    // 每帧 20ms
+    public static final int FRAME_MS = 20;
+    private static final int POOL_FRAMES = 4;
+    // 预录历史的最大时长
+    public static final int MAX_PRE_ROLL_MS = 2000;
+    // 预录时每次读取的最长时长：唤醒词待命中按更长的块读取，减少录音线程的唤醒次数
+    public static final int MAX_ARMED_FRAME_MS = 100;
+
+    private final AudioBufferPool pool;
+    private final PcmRingBuffer ringBuffer;
+    // 识别服务停顿时的背压控制，所有写入环形缓冲区的数据都经过它
+    private final BackpressureBuffer backpressure;
+    private final int frameBytes;
+    private final int sampleRate;
+    // 预录（未进入流式状态）时每次读取的字节数
+    private volatile int armedFrameBytes;
+
+    // 预录：未进入流式状态前，帧写入历史缓冲区而不是环形缓冲区
+    private final PreRollBuffer preRoll;
+    private volatile boolean streaming = true;
+    private volatile int pendingPreRollBytes = -1;
+    private volatile boolean flushPending;
+
+    // 本地语音门限：关闭期间的帧进入回看缓冲，打开时先输出回看中的起始音节
+    private static final int MAX_LOOKBACK_MS = 1000;
+    private final PreRollBuffer lookback;
+    private volatile VadGate vadGate;
+    private VadGate activeGate;
+
+    // 会话落盘：送往识别前（门限之前）的完整音频
+    private volatile SessionSpool spool;
+
+    // 并行识别：与落盘相同的完整音频写入一次，由各路识别对话分别读取
+    private volatile PcmBroadcast broadcast;
+
+    // 录音界面的电平表，统计采集到的每一帧（包括预录与门限关闭期间）
+    private volatile LevelMeter levelMeter;
+
+    // 唤醒词待命：预录期间的帧经能量门限送入本地唤醒词检测
+    private volatile KeywordArming keywordArming;
+
+    // 会话音频时钟，在录音线程的下一帧重置
+    private final AudioClock clock;
+    private volatile boolean clockResetPending;
+
+    private final AtomicLong framesCaptured = new AtomicLong();
+    private final AtomicLong bytesCaptured = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    public AudioPipeline(int sampleRate, PcmRingBuffer ringBuffer) {
+        this(sampleRate, ringBuffer, Clock.SYSTEM);
+    }
+
+    /**
+     * @param wallClock 会话音频时钟对应墙上时间所用的时钟
+     */
+    public AudioPipeline(int sampleRate, PcmRingBuffer ringBuffer, Clock wallClock) {
+        this.sampleRate = sampleRate;
+        this.clock = new AudioClock(sampleRate, wallClock);
+        this.frameBytes = PcmRingBuffer.bytesForDuration(FRAME_MS, sampleRate);
+        this.armedFrameBytes = frameBytes;
+        this.preRoll = new PreRollBuffer(PcmRingBuffer.bytesForDuration(MAX_PRE_ROLL_MS, sampleRate));
+        this.lookback = new PreRollBuffer(PcmRingBuffer.bytesForDuration(MAX_LOOKBACK_MS, sampleRate));
+        this.pool = new AudioBufferPool(POOL_FRAMES, PcmRingBuffer.bytesForDuration(MAX_ARMED_FRAME_MS, sampleRate));
+        this.ringBuffer = ringBuffer;
+        this.backpressure = new BackpressureBuffer(ringBuffer, sampleRate);
+    }
+
+    /**
+     * 采集并分发一帧
+     *
+     * @return 本帧读取的字节数，小于0为 AudioSource 返回的错误码
+     */
+    public int processFrame(AudioSource source) {
+        ByteBuffer frame = pool.acquire();
+        if (frame == null) {
+            droppedFrames.incrementAndGet();
+            return 0;
+        }
+        try {
+            int bytesRead = source.read(frame, streaming ? frameBytes : armedFrameBytes);
+            if (bytesRead <= 0) {
+                return bytesRead;
+            }
+            // AudioRecord.read(ByteBuffer, int) 不会更新 position/limit
+            frame.limit(bytesRead);
+            LevelMeter meter = levelMeter;
+            if (meter != null) {
+                meter.process(frame);
+            }
+            route(frame);
+            framesCaptured.incrementAndGet();
+            bytesCaptured.addAndGet(bytesRead);
+            return bytesRead;
+        } finally {
+            pool.release(frame);
+        }
+    }
+
+    // 以下预录相关状态只在录音线程上读写 preRoll
+    private void route(ByteBuffer frame) {
+        int preRollBytes = pendingPreRollBytes;
+        if (preRollBytes >= 0) {
+            pendingPreRollBytes = -1;
+            preRoll.setWindow(preRollBytes);
+        }
+        if (!streaming) {
+            preRoll.write(frame);
+            KeywordArming arming = keywordArming;
+            if (arming != null) {
+                arming.process(frame);
+            }
+            // 对话结束后识别服务仍在取完积压
+            backpressure.update();
+            return;
+        }
+        if (clockResetPending) {
+            clockResetPending = false;
+            clock.reset();
+        }
+        long ringBefore = ringBuffer.getWritePosition();
+        int appended = frame.remaining();
+        SessionSpool sessionSpool = spool;
+        PcmBroadcast parallel = broadcast;
+        if (flushPending) {
+            flushPending = false;
+            if (sessionSpool != null) {
+                preRoll.copyTo(sessionSpool);
+            }
+            if (parallel != null) {
+                preRoll.copyTo(parallel);
+            }
+            appended += preRoll.size();
+            preRoll.drainTo(backpressure);
+        }
+        if (sessionSpool != null) {
+            sessionSpool.write(frame);
+        }
+        if (parallel != null) {
+            parallel.write(frame);
+        }
+        stream(frame);
+        backpressure.update();
+        clock.onFrame(ringBefore, ringBuffer.getWritePosition(), appended, backpressure.getBacklogBytes());
+    }
+
+    // 经过语音门限写入环形缓冲区
+    private void stream(ByteBuffer frame) {
+        VadGate gate = vadGate;
+        if (gate != activeGate) {
+            activeGate = gate;
+            if (gate != null) {
+                gate.reset();
+                lookback.setWindow(PcmRingBuffer.bytesForDuration(gate.getLookbackMs(), sampleRate));
+            } else {
+                lookback.clear();
+            }
+        }
+        if (gate != null) {
+            int decision = gate.process(frame);
+            if (decision == VadGate.HOLD) {
+                lookback.write(frame);
+                return;
+            }
+            if (decision == VadGate.OPEN) {
+                lookback.drainTo(backpressure);
+            } else {
+                lookback.clear();
+            }
+        }
+        backpressure.write(frame);
+    }
+
+    /**
+     * 设置语音门限，null 表示关闭，从录音线程的下一帧开始生效
+     */
+    public void setVadGate(VadGate gate) {
+        this.vadGate = gate;
+    }
+
+    public VadGate getVadGate() {
+        return vadGate;
+    }
+
+    /**
+     * 设置电平表，null 表示关闭，从录音线程的下一帧开始生效
+     */
+    public void setLevelMeter(LevelMeter meter) {
+        this.levelMeter = meter;
+    }
+
+    /**
+     * 设置唤醒词待命，null 表示关闭，从录音线程的下一帧开始生效
+     */
+    public void setKeywordArming(KeywordArming arming) {
+        this.keywordArming = arming;
+    }
+
+    /**
+     * 预录时每次读取的时长（FRAME_MS 到 MAX_ARMED_FRAME_MS），从录音线程的下一次读取开始生效
+     *
+     * @throws IllegalArgumentException 超出范围
+     */
+    public void setArmedFrameMs(int frameMs) {
+        if (frameMs < FRAME_MS || frameMs > MAX_ARMED_FRAME_MS) {
+            throw new IllegalArgumentException("预录读取时长需在 " + FRAME_MS + "-" + MAX_ARMED_FRAME_MS + "ms 之间: " + frameMs);
+        }
+        this.armedFrameBytes = PcmRingBuffer.bytesForDuration(frameMs, sampleRate);
+    }
+
+    /**
+     * 设置会话落盘文件，null 表示停止落盘
+     */
+    public void setSpool(SessionSpool spool) {
+        this.spool = spool;
+    }
+
+    /**
+     * 设置并行识别的音频广播，null 表示没有并行识别
+     */
+    public void setBroadcast(PcmBroadcast broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    /**
+     * 新会话开始：会话音频时钟从录音线程输出的下一帧（含预录历史）开始计时
+     */
+    public void resetClock() {
+        clockResetPending = true;
+    }
+
+    public AudioClock getClock() {
+        return clock;
+    }
+
+    public BackpressureBuffer getBackpressure() {
+        return backpressure;
+    }
+
+    /**
+     * 进入预录模式：保留最近 preRollMs 的音频，直到 startStreaming 被调用
+     */
+    public void armPreRoll(int preRollMs) {
+        int ms = Math.max(0, Math.min(preRollMs, MAX_PRE_ROLL_MS));
+        pendingPreRollBytes = PcmRingBuffer.bytesForDuration(ms, sampleRate);
+        flushPending = false;
+        streaming = false;
+    }
+
+    /**
+     * 开始向环形缓冲区输出，先输出预录历史
+     */
+    public void startStreaming() {
+        flushPending = !streaming;
+        streaming = true;
+    }
+
+    /**
+     * 退出预录模式，丢弃历史，之后的帧直接输出
+     */
+    public void disarmPreRoll() {
+        flushPending = false;
+        streaming = true;
+        // 在录音线程的下一帧清空历史
+        pendingPreRollBytes = 0;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    /**
+     * @return 一次读取的最大字节数，即池化缓冲区的大小
+     */
+    public int getMaxFrameBytes() {
+        return pool.getBufferSize();
+    }
+
+    public AudioBufferPool getPool() {
+        return pool;
+    }
+
+    public long getFramesCaptured() {
+        return framesCaptured.get();
+    }
+
+    public long getBytesCaptured() {
+        return bytesCaptured.get();
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public void resetStats() {
+        framesCaptured.set(0);
+        bytesCaptured.set(0);
+        droppedFrames.set(0);
+    }
+}
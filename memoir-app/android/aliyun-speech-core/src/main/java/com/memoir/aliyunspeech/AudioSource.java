@@ -0,0 +1,49 @@
+package com.memoir.aliyunspeech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * PCM 音频来源。签名与 AudioRecord.read(ByteBuffer, int) 一致，
+ * 录音线程可以直接传入 audioRecord::read，测试中可以用合成数据代替麦克风。
+ */
+public interface AudioSource {
+
+    /**
+     * 来源已经结束（例如文件回放完毕），不会再有数据
+     */
+    int END_OF_STREAM = Integer.MIN_VALUE;
+
+    /**
+     * 从缓冲区起始位置写入最多 sizeInBytes 字节的 PCM 数据
+     *
+     * @return 实际读取的字节数，END_OF_STREAM 表示已结束，其他负数为错误码
+     */
+    int read(ByteBuffer buffer, int sizeInBytes);
+
+    /**
+     * 需要打开和关闭的音频设备（麦克风）。SpeechEngine 在进入 ARMED/CAPTURING 时打开，
+     * 释放麦克风时先 stop 让阻塞中的 read 返回，等录音线程退出后再 release。
+     */
+    interface Device extends AudioSource {
+
+        /**
+         * 打开设备并开始录音
+         *
+         * @param frameBytes 每次读取的字节数，设备内部缓冲应至少容纳几帧
+         * @throws IOException 设备不可用
+         */
+        void start(int sampleRate, int frameBytes) throws IOException;
+
+        void stop();
+
+        void release();
+    }
+
+    /**
+     * 暂停读取不会丢失音频的设备（例如文件回放、模拟麦克风）：之后读取时从暂停处继续。
+     * 实时麦克风不是，录音线程停止读取时音频在系统的录音缓冲区中溢出丢失。
+     */
+    interface Pausable extends Device {
+    }
+}
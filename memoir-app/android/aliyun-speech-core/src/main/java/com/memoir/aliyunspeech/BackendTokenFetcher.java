@@ -0,0 +1,81 @@
+package com.memoir.aliyunspeech;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.json.JSONObject;
+
+/**
+ * 通过后端接口 GET /aliyun-speech/token 获取令牌，
+ * 响应为 {"success":true,"data":{"token":"...","appKey":"...","expireAt":"2024-01-01T00:00:00.000Z"}}
+ */
+public class BackendTokenFetcher implements TokenFetcher {
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 15000;
+    // 后端以 Date.toISOString() 给出过期时间
+    private static final String ISO_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+    private final String baseUrl;
+    private final String authToken;
+
+    /**
+     * @param baseUrl 后端 API 地址，例如 https://example.com/api
+     * @param authToken 登录后的 JWT，可以为空
+     */
+    public BackendTokenFetcher(String baseUrl, String authToken) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.authToken = authToken;
+    }
+
+    @Override
+    public SpeechToken fetch() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/aliyun-speech/token").openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestProperty("Accept", "application/json");
+        if (authToken != null && !authToken.isEmpty()) {
+            connection.setRequestProperty("Authorization", "Bearer " + authToken);
+        }
+        try {
+            int status = connection.getResponseCode();
+            InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            JSONObject body = BackendTranscriber.parseBody(stream == null ? "" : BackendTranscriber.readFully(stream));
+            if (status >= 400 || body == null || !body.optBoolean("success", true)) {
+                String message = body != null ? body.optString("message", null) : "响应不是有效的 JSON";
+                throw new IOException("HTTP " + status + (message != null ? ": " + message : ""));
+            }
+            JSONObject data = body.optJSONObject("data");
+            String token = data != null ? data.optString("token", null) : null;
+            if (token == null || token.isEmpty()) {
+                throw new IOException("令牌响应缺少 token");
+            }
+            return new SpeechToken(token, data.optString("appKey", null), parseExpireAt(data.optString("expireAt", null)));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return 毫秒时间戳，缺失或无法解析时返回 0
+     */
+    static long parseExpireAt(String value) {
+        if (value == null) {
+            return 0;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(ISO_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+}
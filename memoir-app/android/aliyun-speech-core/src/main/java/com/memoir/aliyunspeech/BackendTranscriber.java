@@ -0,0 +1,219 @@
+package com.memoir.aliyunspeech;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 通过后端接口识别会话音频：先 POST /speech/upload 上传 WAV，
+ * 再以返回的文件名调用 POST /speech/transcribe。
+ * 后端响应为 {"success":true,"message":"...","data":{...}}，上传返回 data.file.filename，识别返回 data.transcript。
+ *
+ * 后端上传上限为 10MB，识别使用百度短语音接口，每次最长 60 秒，而会话通常有几十分钟。
+ * 因此会话音频按句子索引（没有时按静音处）切成不超过 MAX_PIECE_MS 的多段依次识别，结果按顺序拼接；
+ * 没有语音的段不上传。任一段失败时整个任务失败，重试时从第一段开始。
+ */
+public class BackendTranscriber implements Transcriber {
+
+    // 百度短语音接口每次最长 60 秒，留出余量
+    public static final int MAX_PIECE_MS = 50000;
+    // 后端 multer 的 fileSize 上限
+    public static final long MAX_UPLOAD_BYTES = 10L * 1024 * 1024;
+    // 后端在百度返回空结果时给出的 transcript
+    static final String NO_RESULT = "识别完成但无结果";
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 120000;
+
+    private final String baseUrl;
+    private final String authToken;
+
+    /**
+     * @param baseUrl 后端 API 地址，例如 https://example.com/api
+     * @param authToken 登录后的 JWT，可以为空
+     */
+    public BackendTranscriber(String baseUrl, String authToken) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.authToken = authToken;
+    }
+
+    @Override
+    public String transcribe(File audio, AudioCodec codec) throws IOException {
+        List<SessionSplitter.Piece> pieces;
+        try {
+            pieces = SessionSplitter.plan(audio, readSentences(audio), MAX_PIECE_MS);
+        } catch (FileNotFoundException e) {
+            throw new TranscriptionException("会话音频不存在: " + audio, false);
+        } catch (IOException e) {
+            throw new TranscriptionException(e.getMessage(), false);
+        }
+        if (pieces.isEmpty()) {
+            throw new TranscriptionException("会话音频为空", false);
+        }
+        StringBuilder transcript = new StringBuilder();
+        File piece = File.createTempFile("piece-", ".wav", audio.getParentFile());
+        try {
+            for (SessionSplitter.Piece range : pieces) {
+                if (!SessionSplitter.writePiece(audio, range, piece)) {
+                    continue;
+                }
+                String text = transcribePiece(piece, codec);
+                if (!NO_RESULT.equals(text)) {
+                    transcript.append(text);
+                }
+            }
+        } finally {
+            piece.delete();
+        }
+        return transcript.toString();
+    }
+
+    private String transcribePiece(File audio, AudioCodec codec) throws IOException {
+        JSONObject uploaded;
+        if (codec.isAdpcmUpload()) {
+            // 弱网下先压缩为 IMA-ADPCM 再上传，临时文件与会话音频放在同一目录
+            File encoded = File.createTempFile("upload-", ".wav", audio.getParentFile());
+            try {
+                ImaAdpcmEncoder.transcodeWav(audio, encoded);
+                uploaded = upload(encoded);
+            } finally {
+                encoded.delete();
+            }
+        } else {
+            uploaded = upload(audio);
+        }
+        JSONObject file = uploaded.optJSONObject("file");
+        String filename = file != null ? file.optString("filename", null) : null;
+        if (filename == null) {
+            throw new TranscriptionException("上传响应缺少文件名", false);
+        }
+
+        String body = "{\"filename\":" + JSONObject.quote(filename) + "}";
+        HttpURLConnection connection = open("/speech/transcribe", "application/json; charset=utf-8");
+        try {
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            JSONObject response = readResponse(connection);
+            String transcript = response.optString("transcript", null);
+            if (transcript == null) {
+                throw new TranscriptionException("识别响应缺少 transcript", false);
+            }
+            return transcript;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private JSONObject upload(File audio) throws IOException {
+        if (audio.length() > MAX_UPLOAD_BYTES) {
+            // 后端会以 400 FILE_TOO_LARGE 拒绝，不必上传
+            throw new TranscriptionException("音频超过后端上传上限 " + MAX_UPLOAD_BYTES + " 字节: " + audio.length(), false);
+        }
+        String boundary = "----memoir" + UUID.randomUUID().toString().replace("-", "");
+        HttpURLConnection connection = open("/speech/upload", "multipart/form-data; boundary=" + boundary);
+        try {
+            String head = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"audio\"; filename=\"" + audio.getName() + "\"\r\n"
+                + "Content-Type: audio/wav\r\n\r\n";
+            String tail = "\r\n--" + boundary + "--\r\n";
+            byte[] headBytes = head.getBytes(StandardCharsets.UTF_8);
+            byte[] tailBytes = tail.getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(headBytes.length + audio.length() + tailBytes.length);
+
+            try (OutputStream out = connection.getOutputStream(); InputStream in = new FileInputStream(audio)) {
+                out.write(headBytes);
+                byte[] chunk = new byte[16 * 1024];
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    out.write(chunk, 0, n);
+                }
+                out.write(tailBytes);
+            }
+            return readResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // 句子索引只用来选择切点，缺失或损坏时按静音处切分
+    private static SentenceIndex readSentences(File audio) {
+        String name = audio.getName();
+        String base = name.endsWith(SessionRetention.AUDIO_SUFFIX)
+            ? name.substring(0, name.length() - SessionRetention.AUDIO_SUFFIX.length()) : name;
+        File file = new File(audio.getParentFile(), base + SentenceIndex.FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return SentenceIndex.readFrom(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private HttpURLConnection open(String path, String contentType) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestProperty("Content-Type", contentType);
+        connection.setRequestProperty("Accept", "application/json");
+        if (authToken != null && !authToken.isEmpty()) {
+            connection.setRequestProperty("Authorization", "Bearer " + authToken);
+        }
+        return connection;
+    }
+
+    // 返回响应的 data 字段，没有时为空对象。5xx 与 429 视为可重试，其余 4xx 说明请求本身有问题，不再重试
+    private static JSONObject readResponse(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        InputStream stream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        JSONObject body = parseBody(stream == null ? "" : readFully(stream));
+        if (status >= 400 || body == null || !body.optBoolean("success", true)) {
+            String message = body != null ? body.optString("message", null) : "响应不是有效的 JSON";
+            boolean retryable = status >= 500 || status == 429;
+            throw new TranscriptionException("HTTP " + status + (message != null ? ": " + message : ""), retryable);
+        }
+        JSONObject data = body.optJSONObject("data");
+        return data != null ? data : new JSONObject();
+    }
+
+    /**
+     * @return 解析后的响应，不是 JSON 对象（例如网关返回的错误页）时返回 null
+     */
+    static JSONObject parseBody(String body) {
+        try {
+            return new JSONObject(body);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    static String readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 录音线程与识别服务之间的背压控制：录音线程经它写入环形缓冲区，
+ * 环形缓冲区放不下新数据时按 BackpressurePolicy 处理，并跟踪积压深度。
+ *
+ * 积压 = 环形缓冲区中未取走的数据 + 溢写文件中的数据。积压超过高水位、或者开始阻塞/丢弃/溢写时
+ * 级别升高，回落到低水位以下且溢写文件已取完时回到 NORMAL，每次变化在录音线程上通知 Listener。
+ * 溢写文件是定长的循环文件，只由录音线程读写：新数据在积压取完之前都追加到文件末尾，
+ * 每帧再按环形缓冲区的空闲空间把文件开头的数据搬回，保证识别服务收到的音频顺序不变。
+ * 除 reset、setter 与统计外只由录音线程调用，写入路径不分配内存。
+ */
+public class BackpressureBuffer implements PcmSink {
+
+    public enum Level {
+        NORMAL,
+        // 积压超过高水位
+        HIGH,
+        // 环形缓冲区已满，正在按策略阻塞、丢弃或溢写
+        OVERFLOW
+    }
+
+    /**
+     * 级别变化的回调，在录音线程上调用，不应阻塞
+     */
+    public interface Listener {
+        void onBackpressure(Level level);
+    }
+
+    // 高、低水位占环形缓冲区容量的比例，高水位高于预录历史一次写入的量
+    private static final double HIGH_WATERMARK = 0.75;
+    private static final double LOW_WATERMARK = 0.25;
+    public static final int DEFAULT_BLOCK_TIMEOUT_MS = 1000;
+    // 溢写文件最多保存的音频时长
+    public static final int DEFAULT_MAX_SPILL_MS = 10 * 60 * 1000;
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // 溢写文件与环形缓冲区之间每次搬运的字节数
+    private static final int TRANSFER_BYTES = 8192;
+
+    private final PcmRingBuffer ring;
+    private final int sampleRate;
+    private final int highBytes;
+    private final int lowBytes;
+
+    private volatile BackpressurePolicy policy = BackpressurePolicy.DROP_OLDEST;
+    private volatile long blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BLOCK_TIMEOUT_MS);
+    private volatile long maxSpillBytes;
+    private volatile File spillFile;
+    private volatile Listener listener;
+    // reset 递增，录音线程在下一次写入时切换到新的会话
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // 以下只由录音线程读写
+    private int activeGeneration;
+    private BackpressurePolicy activePolicy = BackpressurePolicy.DROP_OLDEST;
+    private RandomAccessFile spillAccess;
+    private FileChannel spillChannel;
+    private boolean spillFailed;
+    private long spillCapacity;
+    // 溢写数据的绝对位置，文件中的偏移为位置对 spillCapacity 取模
+    private long spillHead;
+    private long spillTail;
+    private final ByteBuffer transfer = ByteBuffer.allocateDirect(TRANSFER_BYTES);
+
+    private volatile Level level = Level.NORMAL;
+    private volatile long spillBytes;
+    private volatile long maxDepthBytes;
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    public BackpressureBuffer(PcmRingBuffer ring, int sampleRate) {
+        this.ring = ring;
+        this.sampleRate = sampleRate;
+        this.highBytes = align(ring.capacity() * HIGH_WATERMARK);
+        this.lowBytes = align(ring.capacity() * LOW_WATERMARK);
+        this.maxSpillBytes = PcmRingBuffer.bytesForDuration(DEFAULT_MAX_SPILL_MS, sampleRate);
+        this.spillCapacity = maxSpillBytes;
+    }
+
+    private static int align(double bytes) {
+        int value = (int) bytes;
+        return value - value % PcmRingBuffer.BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * 新会话开始：清空积压与统计，之后按 policy 处理，从录音线程的下一次写入开始生效
+     */
+    public void reset(BackpressurePolicy policy) {
+        this.policy = policy;
+        droppedBytes.set(0);
+        spilledBytes.set(0);
+        blockedNanos.set(0);
+        overflowCount.set(0);
+        generation.incrementAndGet();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * SPILL_TO_DISK 使用的溢写文件，第一次需要时在录音线程上创建，close 时删除
+     */
+    public void setSpillFile(File spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    /**
+     * BLOCK 策略下等待识别服务取数的最长时间，下一次 reset 后生效
+     */
+    public void setBlockTimeoutMs(int timeoutMs) {
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs));
+    }
+
+    /**
+     * 溢写文件最多保存的音频时长，写满后丢弃其中最旧的部分，下一次 reset 后生效
+     */
+    public void setMaxSpillMs(int maxSpillMs) {
+        this.maxSpillBytes = Math.max(TRANSFER_BYTES, PcmRingBuffer.bytesForDuration(maxSpillMs, sampleRate));
+    }
+
+    @Override
+    public int write(byte[] src, int offset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        if (admit(length)) {
+            if (spill(src, offset, length)) {
+                return length;
+            }
+            makeRoom(length);
+        }
+        return ring.write(src, offset, length);
+    }
+
+    /**
+     * 写入 position 到 limit 之间的数据，position 保持不变
+     */
+    public int write(ByteBuffer src) {
+        int length = src.remaining();
+        if (length <= 0) {
+            return 0;
+        }
+        if (admit(length)) {
+            if (spill(src)) {
+                return length;
+            }
+            makeRoom(length);
+        }
+        return ring.write(src);
+    }
+
+    /**
+     * 录音线程每帧调用一次（不论本帧是否写入）：把溢写的积压搬回环形缓冲区，更新积压深度与级别
+     */
+    public void update() {
+        drainSpill();
+        long depth = ring.available() + spillBytes;
+        if (depth > maxDepthBytes) {
+            maxDepthBytes = depth;
+        }
+        if (level == Level.NORMAL) {
+            if (depth >= highBytes) {
+                setLevel(Level.HIGH);
+            }
+        } else if (depth <= lowBytes && spillBytes == 0) {
+            setLevel(Level.NORMAL);
+        }
+    }
+
+    /**
+     * 按环形缓冲区的空闲空间把溢写文件开头的数据搬回，录音线程停止读取音频源后也用它排空积压
+     *
+     * @return 溢写文件中是否还有数据
+     */
+    public boolean drainSpill() {
+        sync();
+        while (spillTail > spillHead) {
+            long index = spillHead % spillCapacity;
+            long n = Math.min(Math.min(spillTail - spillHead, spillCapacity - index),
+                Math.min(TRANSFER_BYTES, ring.capacity() - ring.available()));
+            if (n <= 0) {
+                break;
+            }
+            transfer.clear();
+            transfer.limit((int) n);
+            try {
+                long at = index;
+                while (transfer.hasRemaining()) {
+                    int read = spillChannel.read(transfer, at);
+                    if (read < 0) {
+                        throw new IOException("溢写文件被截断");
+                    }
+                    at += read;
+                }
+            } catch (IOException e) {
+                failSpill();
+                return false;
+            }
+            transfer.flip();
+            ring.write(transfer);
+            spillHead += n;
+        }
+        if (spillHead == spillTail) {
+            spillHead = 0;
+            spillTail = 0;
+        }
+        spillBytes = spillTail - spillHead;
+        return spillBytes > 0;
+    }
+
+    /**
+     * 关闭并删除溢写文件，在录音线程退出后调用
+     */
+    public void close() {
+        closeSpill();
+        File file = spillFile;
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    // 为 length 字节的新数据做准备：空间不足时按策略阻塞或丢弃最旧的数据
+    // @return true 表示应写入溢写文件
+    private boolean admit(int length) {
+        drainSpill();
+        if (spillTail > spillHead) {
+            // 积压取完之前新数据都排在溢写文件末尾
+            return true;
+        }
+        if (ring.capacity() - ring.available() >= length) {
+            return false;
+        }
+        overflow();
+        switch (activePolicy) {
+            case BLOCK:
+                if (!block(length)) {
+                    makeRoom(length);
+                }
+                return false;
+            case SPILL_TO_DISK:
+                if (openSpill()) {
+                    return true;
+                }
+                makeRoom(length);
+                return false;
+            default:
+                makeRoom(length);
+                return false;
+        }
+    }
+
+    private void makeRoom(int length) {
+        int need = length - (ring.capacity() - ring.available());
+        if (need > 0) {
+            droppedBytes.addAndGet(ring.dropOldest(need));
+        }
+    }
+
+    private boolean block(int length) {
+        long start = System.nanoTime();
+        long deadline = start + blockTimeoutNanos;
+        try {
+            while (ring.capacity() - ring.available() < length) {
+                // stopCapture 等待超时后会中断录音线程
+                if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+            return true;
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void overflow() {
+        if (level != Level.OVERFLOW) {
+            overflowCount.incrementAndGet();
+            setLevel(Level.OVERFLOW);
+        }
+    }
+
+    private void setLevel(Level next) {
+        level = next;
+        Listener current = listener;
+        if (current != null) {
+            current.onBackpressure(next);
+        }
+    }
+
+    private boolean spill(ByteBuffer src) {
+        if (!openSpill()) {
+            return false;
+        }
+        int length = src.remaining();
+        int position = src.position();
+        int limit = src.limit();
+        makeSpillRoom(length);
+        try {
+            appendSpill(src);
+        } catch (IOException e) {
+            failSpill();
+            return false;
+        } finally {
+            src.limit(limit);
+            src.position(position);
+        }
+        onSpilled(length);
+        return true;
+    }
+
+    private boolean spill(byte[] src, int offset, int length) {
+        if (!openSpill()) {
+            return false;
+        }
+        makeSpillRoom(length);
+        try {
+            for (int done = 0; done < length; ) {
+                int n = Math.min(TRANSFER_BYTES, length - done);
+                transfer.clear();
+                transfer.put(src, offset + done, n);
+                transfer.flip();
+                appendSpill(transfer);
+                done += n;
+            }
+        } catch (IOException e) {
+            failSpill();
+            return false;
+        }
+        onSpilled(length);
+        return true;
+    }
+
+    // 溢写文件写满时丢弃其中最旧的数据，剩下的仍是最新的连续音频
+    private void makeSpillRoom(int length) {
+        long excess = spillTail - spillHead + length - spillCapacity;
+        if (excess > 0) {
+            long n = Math.min(excess, spillTail - spillHead);
+            spillHead += n;
+            droppedBytes.addAndGet(n);
+        }
+    }
+
+    // 把 buffer 中剩余的数据追加到溢写文件末尾，会移动 buffer 的 position 与 limit
+    private void appendSpill(ByteBuffer buffer) throws IOException {
+        int end = buffer.limit();
+        while (buffer.position() < end) {
+            long index = spillTail % spillCapacity;
+            int n = (int) Math.min(end - buffer.position(), spillCapacity - index);
+            buffer.limit(buffer.position() + n);
+            long at = index;
+            while (buffer.hasRemaining()) {
+                at += spillChannel.write(buffer, at);
+            }
+            buffer.limit(end);
+            spillTail += n;
+        }
+    }
+
+    private void onSpilled(int length) {
+        spilledBytes.addAndGet(length);
+        spillBytes = spillTail - spillHead;
+    }
+
+    private boolean openSpill() {
+        if (spillChannel != null) {
+            return true;
+        }
+        File file = spillFile;
+        if (file == null || spillFailed) {
+            return false;
+        }
+        try {
+            spillAccess = new RandomAccessFile(file, "rw");
+            spillChannel = spillAccess.getChannel();
+            return true;
+        } catch (IOException e) {
+            spillFailed = true;
+            return false;
+        }
+    }
+
+    // 溢写文件读写失败：积压无法恢复，计为丢弃，本次会话之后按 DROP_OLDEST 处理
+    private void failSpill() {
+        droppedBytes.addAndGet(spillTail - spillHead);
+        spillHead = 0;
+        spillTail = 0;
+        spillBytes = 0;
+        spillFailed = true;
+        closeSpill();
+    }
+
+    private void closeSpill() {
+        RandomAccessFile access = spillAccess;
+        spillAccess = null;
+        spillChannel = null;
+        if (access != null) {
+            try {
+                access.close();
+            } catch (IOException e) {
+                // 只用于临时数据
+            }
+        }
+    }
+
+    // 切换到 reset 之后的会话，上一次会话留下的积压直接丢弃
+    private void sync() {
+        int current = generation.get();
+        if (current == activeGeneration) {
+            return;
+        }
+        activeGeneration = current;
+        activePolicy = policy;
+        spillCapacity = maxSpillBytes;
+        spillHead = 0;
+        spillTail = 0;
+        spillBytes = 0;
+        spillFailed = false;
+        maxDepthBytes = 0;
+        level = Level.NORMAL;
+    }
+
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @return 当前积压：环形缓冲区中未取走的数据与溢写文件中的数据
+     */
+    public long getDepthBytes() {
+        return ring.available() + spillBytes;
+    }
+
+    /**
+     * @return 溢写文件中等待搬回环形缓冲区的字节数，是会话音频中比环形缓冲区最新数据还要新的部分
+     */
+    public long getBacklogBytes() {
+        return spillBytes;
+    }
+
+    public long getMaxDepthBytes() {
+        return maxDepthBytes;
+    }
+
+    /**
+     * @return 本次会话中按策略丢弃、没有送往识别服务的字节数
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    public long getBlockedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(blockedNanos.get());
+    }
+
+    /**
+     * @return 环形缓冲区被写满的次数，积压回落之前只计一次
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    private long toMillis(long bytes) {
+        return bytes * 1000 / ((long) sampleRate * PcmRingBuffer.BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * 填充 onBackpressure 事件与会话指标，时间单位为毫秒，target 可以是 JSObject
+     */
+    public <T extends JSONObject> T toJson(T target) {
+        try {
+            target.put("policy", policy.getName());
+            target.put("level", level.name().toLowerCase());
+            target.put("depthMs", toMillis(getDepthBytes()));
+            target.put("maxDepthMs", toMillis(maxDepthBytes));
+            target.put("capacityMs", toMillis(ring.capacity()));
+            target.put("droppedMs", toMillis(getDroppedBytes()));
+            target.put("spilledMs", toMillis(getSpilledBytes()));
+            target.put("blockedMs", getBlockedMillis());
+            target.put("overflowCount", getOverflowCount());
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+}
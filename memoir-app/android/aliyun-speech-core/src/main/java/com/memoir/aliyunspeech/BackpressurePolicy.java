@@ -0,0 +1,59 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 识别服务取数停顿（例如 SDK 的网络连接卡住，onNuiNeedAudioData 不再被调用）、
+ * 环形缓冲区放不下新录到的音频时的处理方式，由 StartRecordingOptions.backpressure 选择。
+ * 无论哪种方式，会话音频都完整落盘，丢弃的只是送往实时识别的部分。
+ *
+ * BLOCK：录音线程暂停读取音频源，等待识别服务取数，最长 BackpressureBuffer 的阻塞时限，超时后按 DROP_OLDEST 处理。
+ * 只适用于可以暂停的音频源（AudioSource.Pausable）；实时麦克风暂停读取会在系统的录音缓冲区中丢失音频，
+ * 落盘的会话音频也会缺少这一段，因此 SpeechEngine 对实时麦克风改用 SPILL_TO_DISK。
+ * DROP_OLDEST：丢弃环形缓冲区中最旧的音频，识别服务恢复后从最新的音频继续。
+ * SPILL_TO_DISK：新音频按顺序溢写到文件，识别服务恢复后先取完积压，不丢失音频；文件写满后丢弃其中最旧的部分。
+ * DEGRADE_BITRATE：积压超过高水位时，在下一段识别对话改用 Opus 传输以降低上行码率，缓冲区满时按 DROP_OLDEST 处理。
+ */
+public enum BackpressurePolicy {
+    BLOCK("block"),
+    DROP_OLDEST("drop-oldest"),
+    SPILL_TO_DISK("spill"),
+    DEGRADE_BITRATE("degrade");
+
+    private final String name;
+
+    BackpressurePolicy(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 前端使用的名称
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 解析 backpressure 参数，为空时使用 DROP_OLDEST，无法识别时抛出 IllegalArgumentException
+     */
+    public static BackpressurePolicy fromName(String name) {
+        if (name == null || name.isEmpty()) {
+            return DROP_OLDEST;
+        }
+        switch (name.toLowerCase()) {
+            case "block":
+                return BLOCK;
+            case "drop-oldest":
+            case "drop_oldest":
+                return DROP_OLDEST;
+            case "spill":
+            case "spill-to-disk":
+            case "spill_to_disk":
+                return SPILL_TO_DISK;
+            case "degrade":
+            case "degrade-bitrate":
+            case "degrade_bitrate":
+                return DEGRADE_BITRATE;
+            default:
+                throw new IllegalArgumentException("不支持的背压策略: " + name);
+        }
+    }
+}
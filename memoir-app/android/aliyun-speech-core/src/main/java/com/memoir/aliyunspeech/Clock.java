@@ -0,0 +1,11 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 毫秒时钟，测试中可以替换为手动推进的假时钟
+ */
+public interface Clock {
+
+    Clock SYSTEM = System::currentTimeMillis;
+
+    long currentTimeMillis();
+}
@@ -0,0 +1,73 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 基于短时能量的语音检测：帧能量高于固定阈值且高于自适应噪声底一定余量时判为语音。
+ */
+public class EnergyVad implements VoiceActivityDetector {
+
+    public static final float DEFAULT_THRESHOLD_DB = -45f;
+    // 语音需高出噪声底的余量
+    private static final float NOISE_MARGIN_DB = 10f;
+    // 噪声底的平滑系数，只在非语音帧上更新
+    private static final float NOISE_SMOOTHING = 0.05f;
+    private static final float INITIAL_NOISE_FLOOR_DB = -70f;
+
+    private final float thresholdDb;
+    private float noiseFloorDb = INITIAL_NOISE_FLOOR_DB;
+    private float lastLevelDb = -100f;
+
+    public EnergyVad() {
+        this(DEFAULT_THRESHOLD_DB);
+    }
+
+    public EnergyVad(float thresholdDb) {
+        this.thresholdDb = thresholdDb;
+    }
+
+    @Override
+    public boolean isSpeech(ByteBuffer frame) {
+        float levelDb = levelDb(frame);
+        lastLevelDb = levelDb;
+        boolean speech = levelDb > thresholdDb && levelDb > noiseFloorDb + NOISE_MARGIN_DB;
+        if (!speech) {
+            noiseFloorDb += (levelDb - noiseFloorDb) * NOISE_SMOOTHING;
+        }
+        return speech;
+    }
+
+    @Override
+    public void reset() {
+        noiseFloorDb = INITIAL_NOISE_FLOOR_DB;
+        lastLevelDb = -100f;
+    }
+
+    public float getLastLevelDb() {
+        return lastLevelDb;
+    }
+
+    public float getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    /**
+     * 计算一帧小端 PCM16 的 RMS 电平（dBFS），空帧返回 -100
+     */
+    public static float levelDb(ByteBuffer frame) {
+        int start = frame.position();
+        int end = frame.limit() - 1;
+        int samples = 0;
+        double sum = 0;
+        for (int i = start; i < end; i += 2) {
+            int sample = (short) ((frame.get(i) & 0xff) | (frame.get(i + 1) << 8));
+            sum += (double) sample * sample;
+            samples++;
+        }
+        if (samples == 0 || sum == 0) {
+            return -100f;
+        }
+        double rms = Math.sqrt(sum / samples) / 32768.0;
+        return (float) Math.max(-100.0, 20.0 * Math.log10(rms));
+    }
+}
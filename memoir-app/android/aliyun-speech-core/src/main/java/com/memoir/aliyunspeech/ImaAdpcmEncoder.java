@@ -0,0 +1,251 @@
+package com.memoir.aliyunspeech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * IMA-ADPCM 编码器（WAV 格式 0x11，单声道），每个采样 4bit，数据量为 PCM 的约 1/4。
+ * 按 256 字节的块输出，每块以一个原始采样和步长索引开头，后接 504 个 4bit 采样。
+ * 编码只使用预先分配的缓冲区，不在每帧上分配内存。
+ */
+public class ImaAdpcmEncoder implements AudioEncoder {
+
+    public static final int BLOCK_ALIGN = 256;
+    public static final int SAMPLES_PER_BLOCK = (BLOCK_ALIGN - 4) * 2 + 1;
+    public static final int WAV_FORMAT_IMA_ADPCM = 0x11;
+    public static final int HEADER_BYTES = 60;
+
+    static final int[] STEP_TABLE = {
+        7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+        50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+        337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+        2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+        15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    static final int[] INDEX_TABLE = { -1, -1, -1, -1, 2, 4, 6, 8 };
+
+    // 当前块中尚未编码的采样
+    private final short[] block = new short[SAMPLES_PER_BLOCK];
+    private int buffered;
+    private int predictor;
+    private int stepIndex;
+    private long samplesIn;
+
+    @Override
+    public int encode(ByteBuffer pcm, byte[] out, int offset) {
+        int position = pcm.position();
+        int limit = pcm.limit();
+        int written = 0;
+        for (int i = position; i + 1 < limit; i += PcmRingBuffer.BYTES_PER_SAMPLE) {
+            block[buffered++] = (short) ((pcm.get(i) & 0xFF) | (pcm.get(i + 1) << 8));
+            if (buffered == SAMPLES_PER_BLOCK) {
+                written += encodeBlock(out, offset + written);
+            }
+        }
+        samplesIn += (limit - position) / PcmRingBuffer.BYTES_PER_SAMPLE;
+        return written;
+    }
+
+    /**
+     * 不足一块的采样用最后一个采样补齐；WAV 的 fact 块记录真实采样数，解码端据此截断
+     */
+    @Override
+    public int flush(byte[] out, int offset) {
+        if (buffered == 0) {
+            return 0;
+        }
+        short last = block[buffered - 1];
+        while (buffered < SAMPLES_PER_BLOCK) {
+            block[buffered++] = last;
+        }
+        return encodeBlock(out, offset);
+    }
+
+    @Override
+    public int maxEncodedBytes(int pcmBytes) {
+        int samples = buffered + pcmBytes / PcmRingBuffer.BYTES_PER_SAMPLE;
+        return (samples / SAMPLES_PER_BLOCK + 1) * BLOCK_ALIGN;
+    }
+
+    @Override
+    public void reset() {
+        buffered = 0;
+        predictor = 0;
+        stepIndex = 0;
+        samplesIn = 0;
+    }
+
+    /**
+     * 已送入编码器的采样总数（不含 flush 补齐的部分）
+     */
+    public long getSampleCount() {
+        return samplesIn;
+    }
+
+    private int encodeBlock(byte[] out, int offset) {
+        // 块头：首个采样原样保存，预测值从它开始；步长索引沿用上一块
+        predictor = block[0];
+        out[offset] = (byte) predictor;
+        out[offset + 1] = (byte) (predictor >> 8);
+        out[offset + 2] = (byte) stepIndex;
+        out[offset + 3] = 0;
+        int pos = offset + 4;
+        for (int i = 1; i < SAMPLES_PER_BLOCK; i += 2) {
+            int low = encodeSample(block[i]);
+            int high = encodeSample(block[i + 1]);
+            out[pos++] = (byte) (low | (high << 4));
+        }
+        buffered = 0;
+        return BLOCK_ALIGN;
+    }
+
+    private int encodeSample(int sample) {
+        int step = STEP_TABLE[stepIndex];
+        int diff = sample - predictor;
+        int nibble = 0;
+        if (diff < 0) {
+            nibble = 8;
+            diff = -diff;
+        }
+        int delta = step >> 3;
+        if (diff >= step) {
+            nibble |= 4;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 2;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            nibble |= 1;
+            delta += step;
+        }
+        predictor += (nibble & 8) != 0 ? -delta : delta;
+        if (predictor > Short.MAX_VALUE) {
+            predictor = Short.MAX_VALUE;
+        } else if (predictor < Short.MIN_VALUE) {
+            predictor = Short.MIN_VALUE;
+        }
+        stepIndex = Math.max(0, Math.min(STEP_TABLE.length - 1, stepIndex + INDEX_TABLE[nibble & 7]));
+        return nibble;
+    }
+
+    /**
+     * 把 SessionSpool 写出的 16bit PCM WAV 转为 IMA-ADPCM WAV
+     *
+     * @return 输出文件的大小
+     */
+    public static long transcodeWav(File pcmWav, File adpcmWav) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SessionSpool.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder();
+        byte[] pcm = new byte[16 * 1024];
+        ByteBuffer view = ByteBuffer.wrap(pcm);
+        byte[] encoded = new byte[encoder.maxEncodedBytes(pcm.length)];
+        long dataBytes = 0;
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(pcmWav));
+             RandomAccessFile file = new RandomAccessFile(adpcmWav, "rw")) {
+            readFully(in, header.array(), SessionSpool.HEADER_BYTES);
+            if (header.getInt(0) != 0x46464952 || header.getShort(20) != 1 || header.getShort(34) != 16) {
+                throw new IOException("不是 16bit PCM WAV: " + pcmWav);
+            }
+            int sampleRate = header.getInt(24);
+
+            file.setLength(0);
+            file.seek(HEADER_BYTES);
+            OutputStream out = new BufferedOutputStream(new RandomAccessFileOutputStream(file));
+            // 只编码完整的采样，多出的一个字节留到下一次读取
+            int carry = 0;
+            int n;
+            while ((n = in.read(pcm, carry, pcm.length - carry)) > 0) {
+                int total = carry + n;
+                int whole = total - total % PcmRingBuffer.BYTES_PER_SAMPLE;
+                view.limit(whole);
+                view.position(0);
+                int m = encoder.encode(view, encoded, 0);
+                out.write(encoded, 0, m);
+                dataBytes += m;
+                carry = total - whole;
+                if (carry > 0) {
+                    pcm[0] = pcm[whole];
+                }
+            }
+            int m = encoder.flush(encoded, 0);
+            out.write(encoded, 0, m);
+            dataBytes += m;
+            out.flush();
+
+            file.seek(0);
+            file.write(wavHeader(sampleRate, dataBytes, encoder.getSampleCount()).array());
+        }
+        return HEADER_BYTES + dataBytes;
+    }
+
+    /**
+     * IMA-ADPCM 的 60 字节 WAV 文件头（fmt 扩展 + fact 块）
+     */
+    public static ByteBuffer wavHeader(int sampleRate, long dataBytes, long sampleCount) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt((int) (HEADER_BYTES - 8 + dataBytes));
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(20);
+        header.putShort((short) WAV_FORMAT_IMA_ADPCM);
+        header.putShort((short) 1);
+        header.putInt(sampleRate);
+        header.putInt((int) ((long) sampleRate * BLOCK_ALIGN / SAMPLES_PER_BLOCK));
+        header.putShort((short) BLOCK_ALIGN);
+        header.putShort((short) 4);
+        header.putShort((short) 2);
+        header.putShort((short) SAMPLES_PER_BLOCK);
+        header.put(new byte[] { 'f', 'a', 'c', 't' });
+        header.putInt(4);
+        header.putInt((int) sampleCount);
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt((int) dataBytes);
+        header.flip();
+        return header;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new IOException("WAV 文件不完整");
+            }
+            read += n;
+        }
+    }
+
+    private static class RandomAccessFileOutputStream extends OutputStream {
+        private final RandomAccessFile file;
+
+        RandomAccessFileOutputStream(RandomAccessFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            file.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            file.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 唤醒词待命的低占空比前端：录音线程在预录期间按 AudioPipeline.MAX_ARMED_FRAME_MS 的块读取，
+ * 每块先经能量检测，只有语音段（含开始前的一块与结束后 HANGOVER_MS 的拖尾）才送入 KeywordSpotter，
+ * 安静时唤醒词检测完全不运行。
+ *
+ * 同时统计待命期间（不含会话进行中）的录音线程唤醒次数、送入检测的音频比例与进程 CPU 时间，
+ * 用于评估常开待命的功耗。process 只在录音线程上调用，其他方法可以在任意线程调用。
+ */
+public class KeywordArming {
+
+    // 语音结束后继续送入检测的时长，唤醒词中的停顿不会截断
+    public static final int HANGOVER_MS = 1000;
+
+    /**
+     * 进程累计使用的 CPU 时间，Android 上为 android.os.Process.getElapsedCpuTime()
+     */
+    public interface CpuClock {
+        long cpuTimeMillis();
+    }
+
+    private final KeywordSpotter spotter;
+    private final VoiceActivityDetector vad;
+    private final CpuClock cpuClock;
+    private final int bytesPerMs;
+    private final int hangoverBytes;
+
+    // 以下只在录音线程上读写：门限关闭时保留的上一块，语音开始时先送入，唤醒词的开头可能在其中
+    private final ByteBuffer previous;
+    private boolean previousValid;
+    private int hangoverRemaining;
+
+    // 录音线程写入，其他线程读取
+    private volatile long wakeups;
+    private volatile long capturedBytes;
+    private volatile long spottedBytes;
+    private volatile long detections;
+
+    // 待命时长与 CPU 时间，只在持有锁时读写；resumedAtNanos 小于 0 表示暂停中
+    private long armedNanos;
+    private long cpuMillis;
+    private long resumedAtNanos = -1;
+    private long resumedAtCpu;
+
+    /**
+     * @param maxFrameBytes 每次送入的最大字节数
+     * @param cpuClock 进程 CPU 时间，null 表示不统计
+     */
+    public KeywordArming(KeywordSpotter spotter, VoiceActivityDetector vad, int sampleRate, int maxFrameBytes,
+                         CpuClock cpuClock) {
+        this.spotter = spotter;
+        this.vad = vad;
+        this.cpuClock = cpuClock;
+        this.bytesPerMs = PcmRingBuffer.bytesForDuration(1000, sampleRate) / 1000;
+        this.hangoverBytes = HANGOVER_MS * bytesPerMs;
+        this.previous = ByteBuffer.allocate(maxFrameBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 开始检测并开始计时
+     *
+     * @return Recognizer.SUCCESS 或唤醒词检测的错误码
+     */
+    public int start(KeywordSpotter.Listener listener) {
+        int ret = spotter.start(listener);
+        if (ret == Recognizer.SUCCESS) {
+            resume();
+        }
+        return ret;
+    }
+
+    /**
+     * 停止检测与计时，统计保留
+     */
+    public void stop() {
+        pause();
+        spotter.stop();
+    }
+
+    /**
+     * 录音线程送入预录的一块音频
+     */
+    public void process(ByteBuffer frame) {
+        wakeups++;
+        int length = frame.remaining();
+        capturedBytes += length;
+        if (vad.isSpeech(frame)) {
+            if (hangoverRemaining <= 0 && previousValid) {
+                feed(previous);
+            }
+            hangoverRemaining = hangoverBytes;
+        } else if (hangoverRemaining > 0) {
+            hangoverRemaining -= length;
+        } else {
+            int position = frame.position();
+            previous.clear();
+            previous.put(frame);
+            previous.flip();
+            frame.position(position);
+            previousValid = true;
+            return;
+        }
+        previousValid = false;
+        feed(frame);
+    }
+
+    private void feed(ByteBuffer frame) {
+        spottedBytes += frame.remaining();
+        spotter.process(frame);
+    }
+
+    /**
+     * 检测到唤醒词并开始会话
+     */
+    public void markDetection() {
+        detections++;
+    }
+
+    /**
+     * 会话开始，暂停计时；会话进行中的唤醒与 CPU 不计入待命
+     */
+    public synchronized void pause() {
+        if (resumedAtNanos < 0) {
+            return;
+        }
+        armedNanos += System.nanoTime() - resumedAtNanos;
+        if (cpuClock != null) {
+            cpuMillis += cpuClock.cpuTimeMillis() - resumedAtCpu;
+        }
+        resumedAtNanos = -1;
+    }
+
+    /**
+     * 回到待命，继续计时
+     */
+    public synchronized void resume() {
+        if (resumedAtNanos >= 0) {
+            return;
+        }
+        resumedAtNanos = System.nanoTime();
+        if (cpuClock != null) {
+            resumedAtCpu = cpuClock.cpuTimeMillis();
+        }
+    }
+
+    /**
+     * @return 是否在待命计时中（已开始、未停止，且不在会话中）
+     */
+    public synchronized boolean isRunning() {
+        return resumedAtNanos >= 0;
+    }
+
+    /**
+     * @return 累计待命时长（毫秒）
+     */
+    public synchronized long getArmedMs() {
+        long nanos = armedNanos;
+        if (resumedAtNanos >= 0) {
+            nanos += System.nanoTime() - resumedAtNanos;
+        }
+        return nanos / 1000000;
+    }
+
+    /**
+     * @return 待命期间进程使用的 CPU 时间（毫秒），没有 CpuClock 时为 -1
+     */
+    public synchronized long getCpuMs() {
+        if (cpuClock == null) {
+            return -1;
+        }
+        long cpu = cpuMillis;
+        if (resumedAtNanos >= 0) {
+            cpu += cpuClock.cpuTimeMillis() - resumedAtCpu;
+        }
+        return cpu;
+    }
+
+    /**
+     * @return 录音线程在待命期间读取（被唤醒）的次数
+     */
+    public long getWakeups() {
+        return wakeups;
+    }
+
+    public long getCapturedMs() {
+        return capturedBytes / bytesPerMs;
+    }
+
+    /**
+     * @return 送入唤醒词检测的音频时长
+     */
+    public long getSpottedMs() {
+        return spottedBytes / bytesPerMs;
+    }
+
+    public long getDetections() {
+        return detections;
+    }
+
+    /**
+     * 填充待命统计，时长单位为毫秒，target 可以是 JSObject。cpuPercent 为进程 CPU 时间占待命时长的百分比
+     * （多核时可能超过 100），没有 CpuClock 时为 -1
+     */
+    public <T extends JSONObject> T toJson(T target) {
+        long armedMs = getArmedMs();
+        long cpuMs = getCpuMs();
+        long wakeupCount = wakeups;
+        try {
+            target.put("armedMs", armedMs);
+            target.put("wakeups", wakeupCount);
+            target.put("wakeupsPerMinute", armedMs > 0 ? wakeupCount * 60000.0 / armedMs : 0);
+            target.put("capturedMs", getCapturedMs());
+            target.put("spottedMs", getSpottedMs());
+            target.put("detections", detections);
+            target.put("cpuMs", cpuMs);
+            target.put("cpuPercent", cpuMs < 0 ? -1 : armedMs > 0 ? cpuMs * 100.0 / armedMs : 0);
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+}
@@ -0,0 +1,36 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 本地唤醒词检测。唤醒词待命时由录音线程按块送入语音段的音频，实现应只做轻量计算
+ * 或把音频交给自己的线程，不能阻塞录音线程。
+ */
+public interface KeywordSpotter {
+
+    interface Listener {
+        /**
+         * 检测到唤醒词，可以在任意线程上调用
+         */
+        void onKeyword(String keyword);
+    }
+
+    /**
+     * 开始检测
+     *
+     * @return Recognizer.SUCCESS 或错误码
+     */
+    int start(Listener listener);
+
+    /**
+     * 送入 position 到 limit 之间的小端 PCM16，不应修改缓冲区的 position，在录音线程上调用
+     */
+    void process(ByteBuffer frame);
+
+    /**
+     * 停止检测，之后可以再次 start
+     */
+    void stop();
+
+    void release();
+}
@@ -0,0 +1,121 @@
+package com.memoir.aliyunspeech;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 微秒精度的对数-线性直方图（HdrHistogram 的分桶方式）：每个 2 的幂区间再分为 32 个子桶，
+ * 相对误差约 3%。计数数组在构造时一次性分配，record 不分配内存，可以在录音热路径上由多个线程调用。
+ */
+public class LatencyHistogram {
+
+    // 每个区间的子桶数为 2^SUB_BUCKET_BITS
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // 超过上限的值按上限记录
+    public static final long MAX_VALUE_US = TimeUnit.SECONDS.toMicros(60);
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_VALUE_US) + 1);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public void record(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_VALUE_US));
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(value);
+        long max = maxMicros.get();
+        while (value > max && !maxMicros.compareAndSet(max, value)) {
+            max = maxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalMicros.get() / count;
+    }
+
+    /**
+     * @param percentile 0–100
+     * @return 该分位所在子桶的上界（不超过最大值），没有记录时为 0
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /**
+     * 填充 {count, mean, p50, p90, p99, max}，单位为毫秒，target 可以是 JSObject
+     */
+    public <T extends JSONObject> T toJson(T target) {
+        try {
+            target.put("count", getCount());
+            target.put("mean", toMillis(getMeanMicros()));
+            target.put("p50", toMillis(getValueAtPercentile(50)));
+            target.put("p90", toMillis(getValueAtPercentile(90)));
+            target.put("p99", toMillis(getValueAtPercentile(99)));
+            target.put("max", toMillis(getMaxMicros()));
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    // 保留到微秒
+    private static double toMillis(double micros) {
+        return Math.round(micros) / 1000.0;
+    }
+
+    // 小于 2 * SUB_BUCKET_COUNT 的值一一对应；更大的值右移到 [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT) 区间
+    static int indexOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long lowestEquivalentValue(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        return (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        return lowestEquivalentValue(index) + (1L << shift) - 1;
+    }
+}
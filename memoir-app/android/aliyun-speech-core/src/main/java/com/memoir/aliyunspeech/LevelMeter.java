@@ -0,0 +1,154 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 录音界面的电平表：录音线程按固定时长的窗口统计 PCM16 的最小值、最大值与 RMS，
+ * 每个窗口 3 个 short 写入单生产者单消费者的环形数组；分发线程按固定周期一次取走，
+ * 打包为 base64 发给前端。每个采样的开销固定，与设备每次读取的帧长无关，也不分配内存。
+ *
+ * 消费者来不及取走时覆盖最旧的窗口；process 只在录音线程上调用，drain 与 reset 可以在任意线程调用。
+ */
+public class LevelMeter {
+
+    public static final int DEFAULT_WINDOW_MS = 10;
+    // 每个窗口的值：最小值、最大值、RMS
+    public static final int VALUES_PER_WINDOW = 3;
+    // 环形数组保留的时长，取数周期不应超过该值
+    public static final int MAX_INTERVAL_MS = 1000;
+    private static final int CAPACITY_MS = MAX_INTERVAL_MS * 2;
+
+    private final int windowMs;
+    private final int windowSamples;
+    private final int capacity;
+    private final short[] windows;
+    // 已写入的窗口总数，录音线程写入数据后发布
+    private final AtomicLong written = new AtomicLong();
+    // 已取走的窗口总数，只在持有锁时读写
+    private long read;
+    private long overwritten;
+
+    // 当前窗口的累计值，只在录音线程上读写
+    private int samples;
+    private int min;
+    private int max;
+    private long sumSquares;
+    private volatile boolean resetPending;
+
+    public LevelMeter(int sampleRate) {
+        this(sampleRate, DEFAULT_WINDOW_MS);
+    }
+
+    public LevelMeter(int sampleRate, int windowMs) {
+        if (windowMs <= 0 || windowMs > MAX_INTERVAL_MS) {
+            throw new IllegalArgumentException("无效的电平窗口: " + windowMs + "ms");
+        }
+        this.windowMs = windowMs;
+        this.windowSamples = Math.max(1, (int) ((long) sampleRate * windowMs / 1000));
+        this.capacity = CAPACITY_MS / windowMs;
+        this.windows = new short[capacity * VALUES_PER_WINDOW];
+        clearWindow();
+    }
+
+    /**
+     * 统计一帧小端 PCM16（position 到 limit，不改变 position），录音线程调用
+     */
+    public void process(ByteBuffer frame) {
+        if (resetPending) {
+            resetPending = false;
+            clearWindow();
+        }
+        int end = frame.limit() - 1;
+        int n = samples;
+        int low = min;
+        int high = max;
+        long sum = sumSquares;
+        for (int i = frame.position(); i < end; i += 2) {
+            int sample = (short) ((frame.get(i) & 0xff) | (frame.get(i + 1) << 8));
+            if (sample < low) {
+                low = sample;
+            }
+            if (sample > high) {
+                high = sample;
+            }
+            sum += sample * sample;
+            if (++n == windowSamples) {
+                publish(low, high, sum, n);
+                n = 0;
+                low = Short.MAX_VALUE;
+                high = Short.MIN_VALUE;
+                sum = 0;
+            }
+        }
+        samples = n;
+        min = low;
+        max = high;
+        sumSquares = sum;
+    }
+
+    private void publish(int low, int high, long sum, int n) {
+        long index = written.get();
+        int offset = (int) (index % capacity) * VALUES_PER_WINDOW;
+        windows[offset] = (short) low;
+        windows[offset + 1] = (short) high;
+        windows[offset + 2] = (short) Math.min(Short.MAX_VALUE, Math.round(Math.sqrt((double) sum / n)));
+        written.lazySet(index + 1);
+    }
+
+    /**
+     * 取走自上次以来的全部窗口，按时间顺序写入 out（每个窗口 VALUES_PER_WINDOW 个值），
+     * 放不下时只取最新的部分
+     *
+     * @return 写入的窗口数
+     */
+    public synchronized int drain(short[] out) {
+        long end = written.get();
+        long start = Math.max(read, end - capacity);
+        start = Math.max(start, end - out.length / VALUES_PER_WINDOW);
+        overwritten += start - read;
+        int count = 0;
+        for (long i = start; i < end; i++) {
+            int offset = (int) (i % capacity) * VALUES_PER_WINDOW;
+            System.arraycopy(windows, offset, out, count * VALUES_PER_WINDOW, VALUES_PER_WINDOW);
+            count++;
+        }
+        // 复制期间被录音线程覆盖（包括正在写入的下一个窗口所在位置）的窗口不完整，丢弃
+        long torn = written.get() + 1 - capacity - start;
+        if (torn > 0) {
+            int skip = (int) Math.min(torn, count);
+            System.arraycopy(out, skip * VALUES_PER_WINDOW, out, 0, (count - skip) * VALUES_PER_WINDOW);
+            count -= skip;
+            overwritten += skip;
+        }
+        read = end;
+        return count;
+    }
+
+    /**
+     * 丢弃未取走的窗口，录音线程在下一帧清空当前窗口
+     */
+    public synchronized void reset() {
+        read = written.get();
+        overwritten = 0;
+        resetPending = true;
+    }
+
+    public int getWindowMs() {
+        return windowMs;
+    }
+
+    /**
+     * @return 取数不及时被覆盖的窗口数
+     */
+    public synchronized long getOverwrittenWindows() {
+        return overwritten;
+    }
+
+    private void clearWindow() {
+        samples = 0;
+        min = Short.MAX_VALUE;
+        max = Short.MIN_VALUE;
+        sumSquares = 0;
+    }
+}
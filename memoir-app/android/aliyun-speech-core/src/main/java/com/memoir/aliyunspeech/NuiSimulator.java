@@ -0,0 +1,552 @@
+package com.memoir.aliyunspeech;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONObject;
+
+/**
+ * 不依赖设备和云端的 NativeNui 模拟器，用于确定性的延迟与负载测试。
+ *
+ * 实现 Recognizer，可以直接交给 SpeechEngine。startDialog 后模拟器在自己的线程上
+ * 像 SDK 一样通过 onNeedAudioData 拉取音频，并按已取到的音频时长回放脚本中的事件，
+ * 事件内容与 SDK 在 AsrResult.asrResult 中给出的 JSON 格式一致。
+ * 事件经注入的延迟后在 scheduler 上送达；scheduler 必须是单线程的，以保证事件顺序。
+ */
+public class NuiSimulator implements Recognizer {
+
+    public static final int ERROR_INVALID_STATE = -1;
+    // 注入失败时默认的错误码
+    public static final int DEFAULT_FAILURE_CODE = 240068;
+
+    // stopDialog 后，脚本中在已取音频之后这段时间内的事件仍会发出（SDK 会给出最后一句的结果）
+    static final long FINAL_GRACE_MS = 500;
+    // 停止后排空缓冲区时最多再取的音频时长
+    private static final long MAX_DRAIN_MS = 10000;
+
+    /**
+     * 模拟参数，setter 可以链式调用
+     */
+    public static class Options {
+        int sampleRate = 16000;
+        double speed = 1;
+        long latencyMs;
+        long jitterMs;
+        long seed = 1;
+        int startErrorCode;
+        double failureRate;
+        int failureCode = DEFAULT_FAILURE_CODE;
+        long stallAtMs = -1;
+        long stallMs;
+
+        public Options sampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * 回放倍速，只影响取不到数据时的等待间隔；音频本身的节奏由音频源决定
+         */
+        public Options speed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * 每个事件在音频到达后固定延迟 latencyMs，再加上 [0, jitterMs] 的随机抖动
+         */
+        public Options latency(long latencyMs, long jitterMs) {
+            this.latencyMs = latencyMs;
+            this.jitterMs = jitterMs;
+            return this;
+        }
+
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * startDialog 直接返回该错误码
+         */
+        public Options failStart(int errorCode) {
+            this.startErrorCode = errorCode;
+            return this;
+        }
+
+        /**
+         * 每次对话以 rate 的概率在脚本范围内的随机位置发生 EVENT_ASR_ERROR
+         */
+        public Options failureRate(double rate, int errorCode) {
+            this.failureRate = rate;
+            this.failureCode = errorCode;
+            return this;
+        }
+
+        /**
+         * 模拟 SDK 的网络连接停顿：累计取到 atMs 的音频（跨对话计算）后，停止调用 onNeedAudioData
+         * durationMs（墙上时间）。只发生一次，期间 stopDialog 也要等停顿结束后才生效
+         */
+        public Options stall(long atMs, long durationMs) {
+            this.stallAtMs = atMs;
+            this.stallMs = durationMs;
+            return this;
+        }
+    }
+
+    /**
+     * 事件时间线，时间为从对话开始计的音频时长（毫秒）。
+     * 文本格式每行一个事件，# 开头为注释：
+     * <pre>
+     * 0 vad_start
+     * 300 partial 今天
+     * 1300 final 今天天气很好 0.93
+     * 2000 error 240068
+     * </pre>
+     */
+    public static class Script {
+
+        static class Step {
+            final long atMs;
+            final Event event;
+            final String text;
+            final double confidence;
+            final int code;
+
+            Step(long atMs, Event event, String text, double confidence, int code) {
+                this.atMs = atMs;
+                this.event = event;
+                this.text = text;
+                this.confidence = confidence;
+                this.code = code;
+            }
+        }
+
+        private final List<Step> steps = new ArrayList<>();
+
+        public Script vadStart(long atMs) {
+            return add(new Step(atMs, Event.EVENT_VAD_START, null, 0, 0));
+        }
+
+        public Script vadEnd(long atMs) {
+            return add(new Step(atMs, Event.EVENT_VAD_END, null, 0, 0));
+        }
+
+        public Script sentenceStart(long atMs) {
+            return add(new Step(atMs, Event.EVENT_SENTENCE_START, null, 0, 0));
+        }
+
+        public Script partial(long atMs, String text) {
+            return add(new Step(atMs, Event.EVENT_ASR_PARTIAL_RESULT, text, 0, 0));
+        }
+
+        public Script sentenceEnd(long atMs, String text, double confidence) {
+            return add(new Step(atMs, Event.EVENT_SENTENCE_END, text, confidence, 0));
+        }
+
+        public Script error(long atMs, int code) {
+            return add(new Step(atMs, Event.EVENT_ASR_ERROR, null, 0, code));
+        }
+
+        private Script add(Step step) {
+            steps.add(step);
+            return this;
+        }
+
+        /**
+         * 按时间排序的事件，同一时刻保持添加顺序
+         */
+        List<Step> steps() {
+            List<Step> sorted = new ArrayList<>(steps);
+            Collections.sort(sorted, (a, b) -> Long.compare(a.atMs, b.atMs));
+            return sorted;
+        }
+
+        public long getDurationMs() {
+            long max = 0;
+            for (Step step : steps) {
+                max = Math.max(max, step.atMs);
+            }
+            return max;
+        }
+
+        public static Script parse(String text) {
+            Script script = new Script();
+            String[] lines = text.split("\n");
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i].trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+", 3);
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("第 " + (i + 1) + " 行格式错误: " + line);
+                }
+                long atMs = Long.parseLong(parts[0]);
+                String arg = parts.length > 2 ? parts[2] : "";
+                switch (parts[1]) {
+                    case "vad_start":
+                        script.vadStart(atMs);
+                        break;
+                    case "vad_end":
+                        script.vadEnd(atMs);
+                        break;
+                    case "sentence_start":
+                        script.sentenceStart(atMs);
+                        break;
+                    case "partial":
+                        script.partial(atMs, arg);
+                        break;
+                    case "final": {
+                        // 最后一个字段是数字时作为置信度
+                        int space = arg.lastIndexOf(' ');
+                        double confidence = 0.9;
+                        String sentence = arg;
+                        if (space > 0) {
+                            try {
+                                confidence = Double.parseDouble(arg.substring(space + 1));
+                                sentence = arg.substring(0, space);
+                            } catch (NumberFormatException e) {
+                                // 文本中的空格
+                            }
+                        }
+                        script.sentenceEnd(atMs, sentence, confidence);
+                        break;
+                    }
+                    case "error":
+                        script.error(atMs, arg.isEmpty() ? DEFAULT_FAILURE_CODE : Integer.parseInt(arg.trim()));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("第 " + (i + 1) + " 行未知事件: " + parts[1]);
+                }
+            }
+            return script;
+        }
+    }
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final Script script;
+    private final Options options;
+    private final ScheduledExecutorService scheduler;
+    private final Random random;
+    private final int bytesPerSecond;
+    private final int chunkBytes;
+
+    private volatile Callback callback;
+    private volatile AudioCodec codec;
+    private volatile Session session;
+
+    private final AtomicLong consumedBytes = new AtomicLong();
+    private final AtomicLong underruns = new AtomicLong();
+    private final AtomicLong eventsDelivered = new AtomicLong();
+    private final AtomicLong maxDeliveryLagNanos = new AtomicLong();
+    private final AtomicBoolean stalled = new AtomicBoolean();
+
+    public NuiSimulator(Script script, Options options, ScheduledExecutorService scheduler) {
+        this.script = script;
+        this.options = options;
+        this.scheduler = scheduler;
+        this.random = new Random(mixSeed(options.seed));
+        this.bytesPerSecond = options.sampleRate * PcmRingBuffer.BYTES_PER_SAMPLE;
+        this.chunkBytes = PcmRingBuffer.bytesForDuration(AudioPipeline.FRAME_MS, options.sampleRate);
+    }
+
+    // 相邻的小种子在 java.util.Random 中的首个输出几乎相同，先打散
+    private static long mixSeed(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public int initialize(Callback callback, String appkey, String token, String workspace) {
+        this.callback = callback;
+        return SUCCESS;
+    }
+
+    @Override
+    public synchronized int startDialog(AudioCodec codec) {
+        this.codec = codec;
+        if (options.startErrorCode != 0) {
+            return options.startErrorCode;
+        }
+        if (callback == null || (session != null && !session.isClosed())) {
+            return ERROR_INVALID_STATE;
+        }
+        long failureAtMs = -1;
+        if (options.failureRate > 0 && random.nextDouble() < options.failureRate) {
+            failureAtMs = (long) (random.nextDouble() * Math.max(1, script.getDurationMs()));
+        }
+        session = new Session(callback, failureAtMs);
+        Thread thread = new Thread(session, "NuiSimulator-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        return SUCCESS;
+    }
+
+    @Override
+    public int stopDialog() {
+        Session current = session;
+        if (current != null) {
+            current.stopRequested = true;
+        }
+        return SUCCESS;
+    }
+
+    @Override
+    public int release() {
+        stopDialog();
+        callback = null;
+        return SUCCESS;
+    }
+
+    /**
+     * 等待当前对话结束并送达 onAudioStateChanged(false)
+     */
+    public boolean awaitClosed(long timeout, TimeUnit unit) throws InterruptedException {
+        Session current = session;
+        return current == null || current.closed.await(timeout, unit);
+    }
+
+    /**
+     * 最近一次 startDialog 的传输编码
+     */
+    public AudioCodec getCodec() {
+        return codec;
+    }
+
+    public long getConsumedBytes() {
+        return consumedBytes.get();
+    }
+
+    /**
+     * onNeedAudioData 返回不足 len 的次数
+     */
+    public long getUnderruns() {
+        return underruns.get();
+    }
+
+    public long getEventsDelivered() {
+        return eventsDelivered.get();
+    }
+
+    /**
+     * 事件实际送达时间晚于计划时间（音频到达 + 注入延迟）的最大值，反映负载下的调度延迟
+     */
+    public long getMaxDeliveryLagNanos() {
+        return maxDeliveryLagNanos.get();
+    }
+
+    private static class Delivery {
+        final long deliverAt;
+        final Runnable task;
+
+        Delivery(long deliverAt, Runnable task) {
+            this.deliverAt = deliverAt;
+            this.task = task;
+        }
+    }
+
+    private class Session implements Runnable {
+        final Callback callback;
+        final long failureAtMs;
+        final CountDownLatch closed = new CountDownLatch(1);
+        final String taskId = UUID.randomUUID().toString().replace("-", "");
+        volatile boolean stopRequested;
+
+        private final ArrayDeque<Delivery> pending = new ArrayDeque<>();
+        private long sessionBytes;
+        private long lastDeliverAt;
+        private int sentenceIndex = 1;
+        private long sentenceBeginMs = -1;
+
+        Session(Callback callback, long failureAtMs) {
+            this.callback = callback;
+            this.failureAtMs = failureAtMs;
+        }
+
+        boolean isClosed() {
+            return closed.getCount() == 0;
+        }
+
+        @Override
+        public void run() {
+            callback.onAudioStateChanged(true);
+            List<Script.Step> steps = script.steps();
+            byte[] buffer = new byte[chunkBytes];
+            long idleNanos = options.speed > 0
+                ? (long) (TimeUnit.MILLISECONDS.toNanos(AudioPipeline.FRAME_MS) / options.speed)
+                : TimeUnit.MILLISECONDS.toNanos(1);
+            int next = 0;
+            boolean failed = false;
+
+            while (!stopRequested) {
+                stallIfDue();
+                int n = callback.onNeedAudioData(buffer, chunkBytes);
+                if (n > 0) {
+                    addAudio(n);
+                }
+                if (n < chunkBytes) {
+                    underruns.incrementAndGet();
+                    if (n <= 0) {
+                        LockSupport.parkNanos(idleNanos);
+                    }
+                }
+                long audioMs = audioMs();
+                if (failureAtMs >= 0 && audioMs >= failureAtMs) {
+                    emit(Event.EVENT_ASR_ERROR, options.failureCode, null);
+                    failed = true;
+                    break;
+                }
+                next = fireDue(steps, next, audioMs);
+                if (next < 0) {
+                    failed = true;
+                    break;
+                }
+            }
+
+            if (!failed) {
+                // 与 SDK 一样，停止后先取完缓冲区中剩余的音频，再给出最后的结果
+                long drainLimit = sessionBytes + MAX_DRAIN_MS * bytesPerSecond / 1000;
+                int n;
+                while (sessionBytes < drainLimit && (n = callback.onNeedAudioData(buffer, chunkBytes)) > 0) {
+                    addAudio(n);
+                }
+                if (fireDue(steps, next, audioMs() + FINAL_GRACE_MS) >= 0) {
+                    emit(Event.EVENT_TRANSCRIBER_COMPLETE, 0, null);
+                }
+            }
+            deliver(() -> {
+                callback.onAudioStateChanged(false);
+                closed.countDown();
+            });
+        }
+
+        private void stallIfDue() {
+            if (options.stallAtMs < 0 || consumedBytes.get() * 1000 / bytesPerSecond < options.stallAtMs
+                || !stalled.compareAndSet(false, true)) {
+                return;
+            }
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.stallMs);
+            long remaining;
+            while ((remaining = until - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+
+        private void addAudio(int n) {
+            sessionBytes += n;
+            consumedBytes.addAndGet(n);
+        }
+
+        private long audioMs() {
+            return sessionBytes * 1000 / bytesPerSecond;
+        }
+
+        /**
+         * 发出时间不晚于 audioMs 的事件
+         *
+         * @return 下一个未发出事件的下标，脚本中的错误已发出时返回 -1
+         */
+        private int fireDue(List<Script.Step> steps, int next, long audioMs) {
+            while (next < steps.size() && steps.get(next).atMs <= audioMs) {
+                Script.Step step = steps.get(next++);
+                switch (step.event) {
+                    case EVENT_ASR_ERROR:
+                        emit(step.event, step.code, null);
+                        return -1;
+                    case EVENT_SENTENCE_START:
+                        sentenceBeginMs = step.atMs;
+                        emit(step.event, 0, payload("SentenceBegin", step.atMs, "", 0, step.atMs));
+                        break;
+                    case EVENT_ASR_PARTIAL_RESULT:
+                        if (sentenceBeginMs < 0) {
+                            sentenceBeginMs = step.atMs;
+                        }
+                        emit(step.event, 0, payload("TranscriptionResultChanged", step.atMs, step.text, 0, sentenceBeginMs));
+                        break;
+                    case EVENT_SENTENCE_END: {
+                        long begin = sentenceBeginMs < 0 ? step.atMs : sentenceBeginMs;
+                        emit(step.event, 0, payload("SentenceEnd", step.atMs, step.text, step.confidence, begin));
+                        sentenceIndex++;
+                        sentenceBeginMs = -1;
+                        break;
+                    }
+                    default:
+                        emit(step.event, 0, null);
+                        break;
+                }
+            }
+            return next;
+        }
+
+        private void emit(Event event, int resultCode, String asrResult) {
+            deliver(() -> {
+                eventsDelivered.incrementAndGet();
+                callback.onEventCallback(event, resultCode, asrResult);
+            });
+        }
+
+        // 计划送达时间单调不减；scheduler 对相同时间的任务不保证先后，
+        // 因此事件先进入本会话的队列，由定时任务按顺序取出到期的事件
+        private void deliver(Runnable task) {
+            long now = System.nanoTime();
+            long delayMs = options.latencyMs;
+            if (options.jitterMs > 0) {
+                delayMs += (long) (random.nextDouble() * options.jitterMs);
+            }
+            long deliverAt = Math.max(lastDeliverAt, now + TimeUnit.MILLISECONDS.toNanos(delayMs));
+            lastDeliverAt = deliverAt;
+            synchronized (pending) {
+                pending.add(new Delivery(deliverAt, task));
+            }
+            scheduler.schedule(this::pump, deliverAt - now, TimeUnit.NANOSECONDS);
+        }
+
+        private void pump() {
+            while (true) {
+                Delivery delivery;
+                long now = System.nanoTime();
+                synchronized (pending) {
+                    delivery = pending.peek();
+                    if (delivery == null || delivery.deliverAt - now > 0) {
+                        return;
+                    }
+                    pending.poll();
+                }
+                long lag = now - delivery.deliverAt;
+                long max;
+                while (lag > (max = maxDeliveryLagNanos.get()) && !maxDeliveryLagNanos.compareAndSet(max, lag)) {
+                    // 重试
+                }
+                delivery.task.run();
+            }
+        }
+
+        private String payload(String name, long timeMs, String result, double confidence, long beginMs) {
+            StringBuilder json = new StringBuilder(192 + result.length() * 3);
+            json.append("{\"header\":{\"namespace\":\"SpeechTranscriber\",\"name\":\"").append(name)
+                .append("\",\"status\":20000000,\"task_id\":\"").append(taskId)
+                .append("\",\"status_text\":\"Gateway:SUCCESS:Success.\"},\"payload\":{\"index\":").append(sentenceIndex)
+                .append(",\"time\":").append(timeMs)
+                .append(",\"result\":").append(JSONObject.quote(result))
+                .append(",\"confidence\":").append(confidence)
+                .append(",\"begin_time\":").append(beginMs)
+                .append(",\"words\":[]}}");
+            return json.toString();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.memoir.aliyunspeech;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 与主识别对话并行的一路识别：同一段麦克风音频经 PcmBroadcast 送入另一个识别服务实例
+ * （例如方言模型或另一份热词表，参数在创建 Recognizer 时确定）。结果只保存在自己的 Transcript 中，
+ * 不发给前端；对话结束后调用方比较各路的平均置信度，保留更好的一份。
+ *
+ * 每路有自己的读取位置，取数慢不影响录音与其他识别对话，落后的字节数与因落后过多被跳过的音频见 toJson。
+ * 同一时间只能进行一个对话，由 SpeechEngine 在主对话开始后调用 start，会话结束时调用 stop。
+ * SDK 的初始化很慢，Recognizer 应使用 WarmRecognizer 包装，在配置时就开始后台初始化。
+ */
+public class ParallelRecognizer implements Recognizer.Callback {
+
+    // onNeedAudioData 等待数据的最长时间，与主对话相同
+    private static final long NEED_AUDIO_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long NEED_AUDIO_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int BYTES_PER_MS = PcmRingBuffer.bytesForDuration(1000, SpeechEngine.SAMPLE_RATE) / 1000;
+
+    /**
+     * 对话结束的通知，在识别服务的回调线程上调用
+     */
+    public interface Listener {
+        void onClosed(ParallelRecognizer recognizer);
+    }
+
+    private final String name;
+    private final Recognizer recognizer;
+    // 上次初始化使用的凭证，凭证变化（例如 token 刷新）后下次 start 时重新初始化
+    private String credentials;
+
+    private volatile String sessionId;
+    private volatile PcmBroadcast.Cursor cursor;
+    private volatile Listener listener;
+    private volatile Transcript transcript = new Transcript();
+    // 对话已打开、尚未结束
+    private volatile boolean active;
+    // 录音已停止，取完共享缓冲区中剩余的音频后不再等待
+    private volatile boolean inputClosed;
+    private volatile boolean failed;
+    // 识别回调线程独占的结果解码器
+    private final AsrResultDecoder resultDecoder = new AsrResultDecoder();
+
+    /**
+     * @param name 调用方用来区分各路结果的名称
+     */
+    public ParallelRecognizer(String name, Recognizer recognizer) {
+        this.name = name;
+        this.recognizer = recognizer;
+    }
+
+    /**
+     * 凭证与上次相同时不重复初始化
+     *
+     * @return Recognizer.SUCCESS 或识别服务的错误码
+     */
+    public synchronized int initialize(String appkey, String token, String workspace) {
+        String key = appkey + '\n' + token + '\n' + workspace;
+        if (key.equals(credentials)) {
+            return Recognizer.SUCCESS;
+        }
+        int ret = recognizer.initialize(this, appkey, token, workspace);
+        credentials = ret == Recognizer.SUCCESS ? key : null;
+        return ret;
+    }
+
+    /**
+     * 开始对话，从 cursor 读取音频；上一次的文本被丢弃
+     *
+     * @return Recognizer.SUCCESS 或识别服务的错误码
+     * @throws IllegalStateException 上一次对话还没有结束
+     */
+    public synchronized int start(String sessionId, PcmBroadcast.Cursor cursor, AudioCodec codec, Listener listener) {
+        if (active) {
+            throw new IllegalStateException("并行识别 " + name + " 的上一次对话还没有结束");
+        }
+        this.sessionId = sessionId;
+        this.cursor = cursor;
+        this.listener = listener;
+        transcript = new Transcript();
+        failed = false;
+        inputClosed = false;
+        active = true;
+        int ret = recognizer.startDialog(codec);
+        if (ret != Recognizer.SUCCESS) {
+            active = false;
+        }
+        return ret;
+    }
+
+    /**
+     * 录音结束：取完已录制的音频后给出最后的结果并结束对话，可重复调用
+     */
+    public synchronized void stop() {
+        if (inputClosed) {
+            return;
+        }
+        inputClosed = true;
+        if (active) {
+            recognizer.stopDialog();
+        }
+    }
+
+    public synchronized void release() {
+        inputClosed = true;
+        active = false;
+        credentials = null;
+        recognizer.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 最近一次对话所属的会话
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * @return 最近一次对话的文本，下一次 start 前保留
+     */
+    public Transcript getTranscript() {
+        return transcript;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * @return 最近一次对话中是否出现识别错误
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public PcmBroadcast.Cursor getCursor() {
+        return cursor;
+    }
+
+    /**
+     * 填充各路识别的状态，时长单位为毫秒，target 可以是 JSObject
+     */
+    public <T extends JSONObject> T toJson(T target) {
+        Transcript text = transcript;
+        PcmBroadcast.Cursor c = cursor;
+        try {
+            target.put("name", name);
+            target.put("active", active);
+            target.put("failed", failed);
+            target.put("sentences", text.size());
+            target.put("length", text.length());
+            SpeechParams.putConfidence(target, "meanConfidence", text.getMeanConfidence());
+            target.put("lagMs", c != null ? c.getLagBytes() / BYTES_PER_MS : 0);
+            target.put("maxLagMs", c != null ? c.getMaxLagBytes() / BYTES_PER_MS : 0);
+            target.put("droppedMs", c != null ? c.getDroppedBytes() / BYTES_PER_MS : 0);
+            target.put("consumedMs", c != null ? c.getConsumedBytes() / BYTES_PER_MS : 0);
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    @Override
+    public void onAudioStateChanged(boolean open) {
+        if (open || !active) {
+            return;
+        }
+        active = false;
+        Listener l = listener;
+        if (l != null) {
+            l.onClosed(this);
+        }
+    }
+
+    @Override
+    public int onNeedAudioData(byte[] buffer, int len) {
+        PcmBroadcast.Cursor c = cursor;
+        if (c == null) {
+            return 0;
+        }
+        long deadline = System.nanoTime() + NEED_AUDIO_WAIT_NANOS;
+        while (!inputClosed && c.available() < len && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(NEED_AUDIO_PARK_NANOS);
+        }
+        return c.read(buffer, 0, len);
+    }
+
+    @Override
+    public void onEventCallback(Recognizer.Event event, int resultCode, String asrResult) {
+        switch (event) {
+            case EVENT_ASR_PARTIAL_RESULT: {
+                AsrResultDecoder result = resultDecoder;
+                if (result.decode(asrResult) && result.hasText()) {
+                    Transcript text = transcript;
+                    String partial = result.getText();
+                    int keep = PartialResultDispatcher.commonPrefixLength(text.getTail(), partial);
+                    text.replaceTail(keep, partial.substring(keep), result.getValidConfidence());
+                }
+                break;
+            }
+            case EVENT_SENTENCE_END: {
+                AsrResultDecoder result = resultDecoder;
+                if (result.decode(asrResult) && result.hasText()) {
+                    // 句子在会话音频中的位置以主对话为准
+                    transcript.commit(result.getText(), result.getValidConfidence(), result.getIndex(), null);
+                }
+                break;
+            }
+            case EVENT_ASR_ERROR:
+                failed = true;
+                break;
+            default:
+                break;
+        }
+    }
+}
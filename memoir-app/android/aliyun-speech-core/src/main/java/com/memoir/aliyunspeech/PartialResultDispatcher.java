@@ -0,0 +1,177 @@
+package com.memoir.aliyunspeech;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 中间结果的合并分发：每个间隔内只发送最新的一次中间结果，
+ * 并且只发送相对上一次已发送文本的增量（保留前缀长度 + 新增文本）。
+ * 最终结果和错误按调用顺序立即发送，不会被丢弃或排到中间结果之后。
+ */
+public class PartialResultDispatcher {
+
+    public static final int DEFAULT_INTERVAL_MS = 80;
+    public static final int MAX_INTERVAL_MS = 1000;
+
+    public interface PartialSink {
+        /**
+         * 新文本 = 上次文本的前 keep 个字符 + delta，length 为新文本总长度
+         */
+        void onPartial(int keep, String delta, int length);
+    }
+
+    private final Object lock = new Object();
+    private final ScheduledExecutorService scheduler;
+    private final PartialSink sink;
+    private final Runnable flushTask = this::flushPending;
+
+    private long intervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_INTERVAL_MS);
+    private String lastEmitted = "";
+    private String pending;
+    private long lastEmitNanos;
+    private boolean hasEmitted;
+    private boolean flushScheduled;
+
+    private long sessionStartNanos = System.nanoTime();
+    private long submittedPartials;
+    private long deliveredPartials;
+    private long coalescedPartials;
+    private long deliveredImmediate;
+
+    public PartialResultDispatcher(ScheduledExecutorService scheduler, PartialSink sink) {
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    /**
+     * 开始新的会话：清空增量基准与统计，并设置合并间隔
+     */
+    public void reset(int intervalMs) {
+        synchronized (lock) {
+            int ms = Math.max(0, Math.min(intervalMs, MAX_INTERVAL_MS));
+            intervalNanos = TimeUnit.MILLISECONDS.toNanos(ms);
+            lastEmitted = "";
+            pending = null;
+            hasEmitted = false;
+            sessionStartNanos = System.nanoTime();
+            submittedPartials = 0;
+            deliveredPartials = 0;
+            coalescedPartials = 0;
+            deliveredImmediate = 0;
+        }
+    }
+
+    public void submitPartial(String text) {
+        synchronized (lock) {
+            submittedPartials++;
+            if (pending != null) {
+                coalescedPartials++;
+            }
+            pending = text;
+            long now = System.nanoTime();
+            long wait = lastEmitNanos + intervalNanos - now;
+            if (!hasEmitted || wait <= 0) {
+                emitPending(now);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(flushTask, wait, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * 最终结果：未发送的中间结果已被它取代，直接丢弃；下一句的增量从空文本开始
+     */
+    public void submitFinal(Runnable emit) {
+        synchronized (lock) {
+            if (pending != null) {
+                coalescedPartials++;
+                pending = null;
+            }
+            lastEmitted = "";
+            deliveredImmediate++;
+            emit.run();
+        }
+    }
+
+    /**
+     * 错误：先发送尚未发送的中间结果，再发送错误
+     */
+    public void submitError(Runnable emit) {
+        synchronized (lock) {
+            if (pending != null) {
+                emitPending(System.nanoTime());
+            }
+            deliveredImmediate++;
+            emit.run();
+        }
+    }
+
+    private void flushPending() {
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending != null) {
+                emitPending(System.nanoTime());
+            }
+        }
+    }
+
+    private void emitPending(long now) {
+        String text = pending;
+        pending = null;
+        if (text.equals(lastEmitted)) {
+            coalescedPartials++;
+            return;
+        }
+        int keep = commonPrefixLength(lastEmitted, text);
+        lastEmitted = text;
+        lastEmitNanos = now;
+        hasEmitted = true;
+        deliveredPartials++;
+        sink.onPartial(keep, text.substring(keep), text.length());
+    }
+
+    static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // 不在代理对中间截断
+        if (i > 0 && i < b.length() && Character.isHighSurrogate(b.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    public long getSubmittedPartials() {
+        synchronized (lock) {
+            return submittedPartials;
+        }
+    }
+
+    public long getDeliveredPartials() {
+        synchronized (lock) {
+            return deliveredPartials;
+        }
+    }
+
+    public long getCoalescedPartials() {
+        synchronized (lock) {
+            return coalescedPartials;
+        }
+    }
+
+    /**
+     * 本会话平均每秒经桥接发送的事件数（中间结果 + 最终结果/错误）
+     */
+    public double getDeliveriesPerSecond() {
+        synchronized (lock) {
+            double seconds = (System.nanoTime() - sessionStartNanos) / 1e9;
+            if (seconds <= 0) {
+                return 0;
+            }
+            return (deliveredPartials + deliveredImmediate) / seconds;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者/多消费者的 PCM 广播：录音线程把每帧写入一次共享的环形缓冲区，每个识别对话持有自己的 Cursor，
+ * 取数时从共享缓冲区直接复制到 SDK 提供的 buffer。消费者再多，麦克风也只读一次，每帧只写入一次。
+ *
+ * 生产者不等待任何消费者：落后超过容量的 Cursor 在下次读取时跳到仍然有效的最旧数据，跳过的字节计入该 Cursor。
+ * 生产者写入前先发布预留位置，消费者复制后检查预留位置，复制期间被覆盖时重读（即 seqlock）。
+ * 复制本身是普通读写，两边各需要一道屏障，按 JSR-133 的 volatile 规则得到（没有 VarHandle 与 Unsafe 的 fence）：
+ * 生产者在 reservePosition 的 volatile 写之后做一次 volatile 读，之后的写入不会先于预留位置可见（StoreLoad + LoadStore）；
+ * 消费者在复制之后先 volatile 写自己的 position，再读 reservePosition，复制的读取不会推迟到检查之后（LoadStore + StoreLoad）。
+ */
+public class PcmBroadcast implements PcmSink {
+
+    private final byte[] buffer;
+    private final int capacity;
+    private final int mask;
+
+    // 均为单调递增的绝对字节位置：已发布的数据末尾，与正在写入的数据末尾（不小于 writePosition）
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong reservePosition = new AtomicLong();
+
+    public PcmBroadcast(int minCapacityBytes) {
+        if (minCapacityBytes <= 0) {
+            throw new IllegalArgumentException("缓冲区容量必须大于0: " + minCapacityBytes);
+        }
+        int size = Integer.highestOneBit(minCapacityBytes);
+        if (size < minCapacityBytes) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new byte[size];
+    }
+
+    /**
+     * 按时长创建（16bit 单声道 PCM），即消费者最多可以落后的时长
+     */
+    public static PcmBroadcast forDuration(int durationMs, int sampleRate) {
+        return new PcmBroadcast(PcmRingBuffer.bytesForDuration(durationMs, sampleRate));
+    }
+
+    /**
+     * 生产者写入，总是全部写入；超过容量时只有最后 capacity 字节能被读到
+     */
+    @Override
+    public int write(byte[] src, int offset, int length) {
+        int done = 0;
+        while (done < length) {
+            int n = Math.min(length - done, capacity);
+            long write = writePosition.get();
+            reservePosition.set(write + n);
+            // 预留之后的 volatile 读是写入数据前的屏障，单生产者读到的仍是 write
+            int index = (int) (writePosition.get() & mask);
+            int first = Math.min(n, capacity - index);
+            System.arraycopy(src, offset + done, buffer, index, first);
+            if (first < n) {
+                System.arraycopy(src, offset + done + first, buffer, 0, n - first);
+            }
+            writePosition.lazySet(write + n);
+            done += n;
+        }
+        return length;
+    }
+
+    /**
+     * 生产者从 ByteBuffer 写入 position 到 limit 之间的数据，position 保持不变
+     */
+    public int write(ByteBuffer src) {
+        int position = src.position();
+        int length = src.remaining();
+        // 一帧远小于容量，超过时只保留最后 capacity 字节
+        int skip = Math.max(0, length - capacity);
+        int n = length - skip;
+        long write = writePosition.get();
+        reservePosition.set(write + n);
+        src.position(position + skip);
+        // 预留之后的 volatile 读是写入数据前的屏障，单生产者读到的仍是 write
+        int index = (int) (writePosition.get() & mask);
+        int first = Math.min(n, capacity - index);
+        src.get(buffer, index, first);
+        if (first < n) {
+            src.get(buffer, 0, n - first);
+        }
+        src.position(position);
+        writePosition.lazySet(write + n);
+        return length;
+    }
+
+    /**
+     * 新的消费者，从当前写位置开始读取，之后写入的数据都能读到
+     */
+    public Cursor open() {
+        return new Cursor(writePosition.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 已写入的绝对字节位置，只增不减
+     */
+    public long getWritePosition() {
+        return writePosition.get();
+    }
+
+    /**
+     * 一个消费者的读取位置，只能由一个线程（该识别对话的取数线程）读取，统计可以在任意线程读取
+     */
+    public class Cursor {
+
+        private volatile long position;
+        private final long startPosition;
+        private volatile long droppedBytes;
+        private volatile long maxLagBytes;
+
+        Cursor(long position) {
+            this.position = position;
+            this.startPosition = position;
+        }
+
+        /**
+         * 读取，不阻塞
+         *
+         * @return 实际读取的字节数
+         */
+        public int read(byte[] dst, int offset, int length) {
+            long read = position;
+            while (true) {
+                long write = writePosition.get();
+                long oldest = reservePosition.get() - capacity;
+                if (read < oldest) {
+                    // 落后超过容量，未读的数据已被覆盖
+                    droppedBytes += oldest - read;
+                    read = oldest;
+                }
+                long lag = write - read;
+                if (lag > maxLagBytes) {
+                    maxLagBytes = lag;
+                }
+                int n = (int) Math.min(length, lag);
+                if (n <= 0) {
+                    position = read;
+                    return 0;
+                }
+                int index = (int) (read & mask);
+                int first = Math.min(n, capacity - index);
+                System.arraycopy(buffer, index, dst, offset, first);
+                if (first < n) {
+                    System.arraycopy(buffer, 0, dst, offset + first, n - first);
+                }
+                // 复制之后的 volatile 写是检查前的屏障；复制期间生产者预留的位置超过了这段数据时，可能已被覆盖，重读
+                position = read;
+                if (reservePosition.get() - capacity <= read) {
+                    position = read + n;
+                    return n;
+                }
+            }
+        }
+
+        /**
+         * 可读字节数，落后超过容量时包括已被覆盖的部分
+         */
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, writePosition.get() - position);
+        }
+
+        /**
+         * @return 落后于录音的字节数
+         */
+        public long getLagBytes() {
+            return writePosition.get() - position;
+        }
+
+        /**
+         * @return 读取时观察到的最大落后字节数，不超过容量
+         */
+        public long getMaxLagBytes() {
+            return maxLagBytes;
+        }
+
+        /**
+         * @return 因落后过多被覆盖、没有读到的字节数
+         */
+        public long getDroppedBytes() {
+            return droppedBytes;
+        }
+
+        /**
+         * @return 已读取的字节数
+         */
+        public long getConsumedBytes() {
+            return position - startPosition - droppedBytes;
+        }
+    }
+}
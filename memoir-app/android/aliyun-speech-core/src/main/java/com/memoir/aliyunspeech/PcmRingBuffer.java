@@ -0,0 +1,239 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者/单消费者（SPSC）无锁 PCM 环形缓冲区。
+ * 生产者是唯一的录音线程，消费者是SDK调用 onNuiNeedAudioData 的线程。
+ * 缓冲区在构造时一次性分配，读写过程中不再分配内存。
+ * 生产者可以通过 dropOldest 推进读指针丢弃最旧的数据，消费者以 CAS 提交读指针，读取期间被丢弃时重读。
+ */
+public class PcmRingBuffer implements PcmSink {
+
+    // 16bit 单声道，每个采样点 2 字节
+    public static final int BYTES_PER_SAMPLE = 2;
+
+    private final byte[] buffer;
+    private final int capacity;
+    private final int mask;
+
+    // 写指针只由生产者推进，读指针只由消费者推进，均为单调递增的绝对字节位置
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    // 统计：溢出（缓冲区满，新数据被丢弃）与欠载（可读数据不足）
+    private final AtomicLong overrunCount = new AtomicLong();
+    private final AtomicLong overrunBytes = new AtomicLong();
+    private final AtomicLong underrunCount = new AtomicLong();
+    // 生产者主动丢弃的最旧数据
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    public PcmRingBuffer(int minCapacityBytes) {
+        if (minCapacityBytes <= 0) {
+            throw new IllegalArgumentException("缓冲区容量必须大于0: " + minCapacityBytes);
+        }
+        // 容量取 2 的幂，下标计算用位运算代替取模
+        int size = Integer.highestOneBit(minCapacityBytes);
+        if (size < minCapacityBytes) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new byte[size];
+    }
+
+    /**
+     * 按时长创建缓冲区（16bit 单声道 PCM）
+     */
+    public static PcmRingBuffer forDuration(int durationMs, int sampleRate) {
+        return new PcmRingBuffer(bytesForDuration(durationMs, sampleRate));
+    }
+
+    public static int bytesForDuration(int durationMs, int sampleRate) {
+        return (int) ((long) sampleRate * BYTES_PER_SAMPLE * durationMs / 1000);
+    }
+
+    /**
+     * 生产者写入。缓冲区已满时丢弃放不下的部分并计为一次溢出。
+     *
+     * @return 实际写入的字节数
+     */
+    @Override
+    public int write(byte[] src, int offset, int length) {
+        long write = writePosition.get();
+        long read = readPosition.get();
+        int free = capacity - (int) (write - read);
+        int n = Math.min(length, free);
+
+        if (n < length) {
+            overrunCount.incrementAndGet();
+            overrunBytes.addAndGet(length - n);
+        }
+        if (n <= 0) {
+            return 0;
+        }
+
+        int index = (int) (write & mask);
+        int first = Math.min(n, capacity - index);
+        System.arraycopy(src, offset, buffer, index, first);
+        if (first < n) {
+            System.arraycopy(src, offset + first, buffer, 0, n - first);
+        }
+
+        // 有序写：数据拷贝对消费者可见之后再发布新的写指针
+        writePosition.lazySet(write + n);
+        return n;
+    }
+
+    /**
+     * 生产者从 ByteBuffer（通常是池化的直接缓冲区）写入 position 到 limit 之间的数据。
+     * 写入后 position 保持不变，方便后续处理阶段继续使用同一帧。
+     *
+     * @return 实际写入的字节数
+     */
+    public int write(ByteBuffer src) {
+        int length = src.remaining();
+        long write = writePosition.get();
+        long read = readPosition.get();
+        int free = capacity - (int) (write - read);
+        int n = Math.min(length, free);
+
+        if (n < length) {
+            overrunCount.incrementAndGet();
+            overrunBytes.addAndGet(length - n);
+        }
+        if (n <= 0) {
+            return 0;
+        }
+
+        int position = src.position();
+        int index = (int) (write & mask);
+        int first = Math.min(n, capacity - index);
+        src.get(buffer, index, first);
+        if (first < n) {
+            src.get(buffer, 0, n - first);
+        }
+        src.position(position);
+
+        writePosition.lazySet(write + n);
+        return n;
+    }
+
+    /**
+     * 消费者读取，不阻塞。可读数据不足 length 时只返回已有部分并计为一次欠载。
+     *
+     * @return 实际读取的字节数
+     */
+    public int read(byte[] dst, int offset, int length) {
+        while (true) {
+            long read = readPosition.get();
+            long write = writePosition.get();
+            int available = (int) (write - read);
+            int n = Math.min(length, available);
+
+            if (n <= 0) {
+                underrunCount.incrementAndGet();
+                return 0;
+            }
+
+            int index = (int) (read & mask);
+            int first = Math.min(n, capacity - index);
+            System.arraycopy(buffer, index, dst, offset, first);
+            if (first < n) {
+                System.arraycopy(buffer, 0, dst, offset + first, n - first);
+            }
+
+            // 拷贝期间生产者丢弃了这段数据并可能已经覆盖，读指针被移动时重读
+            if (readPosition.compareAndSet(read, read + n)) {
+                if (n < length) {
+                    underrunCount.incrementAndGet();
+                }
+                return n;
+            }
+        }
+    }
+
+    /**
+     * 由生产者调用：丢弃最旧的 bytes 字节未读数据，为新数据腾出空间
+     *
+     * @return 实际丢弃的字节数
+     */
+    public int dropOldest(int bytes) {
+        while (true) {
+            long read = readPosition.get();
+            int n = Math.min(bytes, (int) (writePosition.get() - read));
+            if (n <= 0) {
+                return 0;
+            }
+            if (readPosition.compareAndSet(read, read + n)) {
+                droppedBytes.addAndGet(n);
+                return n;
+            }
+        }
+    }
+
+    /**
+     * 当前可读字节数
+     */
+    public int available() {
+        return (int) (writePosition.get() - readPosition.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 已写入的绝对字节位置，只增不减
+     */
+    public long getWritePosition() {
+        return writePosition.get();
+    }
+
+    /**
+     * 已读取（或被 clear 丢弃）的绝对字节位置，只增不减
+     */
+    public long getReadPosition() {
+        return readPosition.get();
+    }
+
+    /**
+     * 由消费者调用，丢弃所有未读数据
+     */
+    public void clear() {
+        long write = writePosition.get();
+        long read;
+        do {
+            read = readPosition.get();
+            if (read >= write) {
+                return;
+            }
+        } while (!readPosition.compareAndSet(read, write));
+    }
+
+    public long getOverrunCount() {
+        return overrunCount.get();
+    }
+
+    public long getOverrunBytes() {
+        return overrunBytes.get();
+    }
+
+    public long getUnderrunCount() {
+        return underrunCount.get();
+    }
+
+    /**
+     * 生产者通过 dropOldest 丢弃的字节数，只增不减
+     */
+    public long getDroppedBytes() {
+        return droppedBytes.get();
+    }
+
+    public void resetStats() {
+        overrunCount.set(0);
+        overrunBytes.set(0);
+        underrunCount.set(0);
+    }
+}
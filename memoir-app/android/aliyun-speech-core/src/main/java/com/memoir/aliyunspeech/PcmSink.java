@@ -0,0 +1,12 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * PCM 数据的写入端，例如环形缓冲区或会话落盘文件
+ */
+public interface PcmSink {
+
+    /**
+     * @return 实际写入的字节数
+     */
+    int write(byte[] src, int offset, int length);
+}
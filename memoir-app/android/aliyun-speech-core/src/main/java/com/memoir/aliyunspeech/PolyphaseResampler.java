@@ -0,0 +1,218 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 流式多相重采样与混音：把设备原生格式（例如 48kHz/44.1kHz 立体声）的 PCM16 转换为单声道的目标采样率。
+ *
+ * 采样率之比约分为 L/M，原型低通滤波器（Kaiser 窗 sinc）按 L 个相位拆开，每个输出点只计算一个相位的
+ * K 个抽头。多声道先平均为单声道。滤波器与历史缓冲在构造时一次性分配，process 不分配内存，
+ * 由录音线程单线程调用；跨调用保留相位与历史，分块处理与一次处理的结果相同。
+ */
+public class PolyphaseResampler {
+
+    // 每个输出采样对应的滤波器过零点数，降采样时按比例增加抽头
+    private static final int TAPS_PER_RATE = 32;
+    // 截止频率占较低采样率奈奎斯特频率的比例
+    private static final double CUTOFF = 0.9;
+    private static final double KAISER_BETA = 8.0;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int channels;
+    private final int upFactor;
+    private final int downFactor;
+    private final int taps;
+    // 按相位排列的滤波器，每个相位 taps 个系数，与历史缓冲按时间顺序对齐
+    private final float[] coefficients;
+
+    // 最近 taps 个输入采样，写两份以便取连续窗口
+    private final float[] history;
+    private int historyIndex;
+    // 下一个输出点相对最新输入采样的位置，单位为 1/L 个输入采样
+    private int nextOutput;
+
+    public PolyphaseResampler(int inputRate, int outputRate, int channels) {
+        if (inputRate <= 0 || outputRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("无效的音频格式: " + inputRate + "Hz/" + channels + "ch -> " + outputRate + "Hz");
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.channels = channels;
+        int gcd = gcd(inputRate, outputRate);
+        this.upFactor = outputRate / gcd;
+        this.downFactor = inputRate / gcd;
+        if (inputRate == outputRate) {
+            // 只混音
+            this.taps = 1;
+            this.coefficients = new float[] {1f};
+        } else {
+            int ratio = (inputRate + outputRate - 1) / outputRate;
+            this.taps = TAPS_PER_RATE * Math.max(1, ratio);
+            this.coefficients = design(upFactor, taps, CUTOFF * Math.min(inputRate, outputRate) / 2 / ((double) inputRate * upFactor));
+        }
+        this.history = new float[taps * 2];
+        reset();
+    }
+
+    /**
+     * 转换 src 中从下标 0 开始的 srcBytes 字节（交错的 PCM16 多声道帧，不完整的末尾帧被忽略），
+     * 输出写入 dst 从下标 0 开始的位置，两者都按各自的字节序读写，不改变 position。
+     * 输出数为 outputSamplesFor(srcBytes 中的帧数)。
+     *
+     * @return 写入 dst 的字节数
+     */
+    public int process(ByteBuffer src, int srcBytes, ByteBuffer dst) {
+        int frameBytes = channels * PcmRingBuffer.BYTES_PER_SAMPLE;
+        int frames = srcBytes / frameBytes;
+        int out = 0;
+        int up = upFactor;
+        int down = downFactor;
+        int k = taps;
+        float[] h = coefficients;
+        float[] x = history;
+        int position = nextOutput;
+        int index = historyIndex;
+        for (int f = 0; f < frames; f++) {
+            int base = f * frameBytes;
+            float sample;
+            if (channels == 1) {
+                sample = src.getShort(base);
+            } else {
+                int sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    sum += src.getShort(base + c * PcmRingBuffer.BYTES_PER_SAMPLE);
+                }
+                sample = (float) sum / channels;
+            }
+            x[index] = sample;
+            x[index + k] = sample;
+            index = index + 1 == k ? 0 : index + 1;
+
+            // 以当前输入采样为最新采样的所有输出点；x[index..index+k) 为按时间顺序的窗口
+            while (position < up) {
+                int offset = position * k;
+                float acc = 0f;
+                for (int i = 0; i < k; i++) {
+                    acc += h[offset + i] * x[index + i];
+                }
+                int value = Math.round(acc);
+                if (value > Short.MAX_VALUE) {
+                    value = Short.MAX_VALUE;
+                } else if (value < Short.MIN_VALUE) {
+                    value = Short.MIN_VALUE;
+                }
+                dst.putShort(out * PcmRingBuffer.BYTES_PER_SAMPLE, (short) value);
+                out++;
+                position += down;
+            }
+            position -= up;
+        }
+        nextOutput = position;
+        historyIndex = index;
+        return out * PcmRingBuffer.BYTES_PER_SAMPLE;
+    }
+
+    /**
+     * @return 输出不超过 outputSamples 个采样时最多可以送入的输入帧数
+     */
+    public int maxInputFrames(int outputSamples) {
+        return (int) (((long) outputSamples * downFactor + nextOutput) / upFactor);
+    }
+
+    /**
+     * @return 送入 inputFrames 帧后得到的输出采样数
+     */
+    public int outputSamplesFor(int inputFrames) {
+        long span = (long) inputFrames * upFactor - nextOutput;
+        return span <= 0 ? 0 : (int) ((span + downFactor - 1) / downFactor);
+    }
+
+    /**
+     * 清空历史，开始新的流
+     */
+    public void reset() {
+        Arrays.fill(history, 0f);
+        historyIndex = 0;
+        nextOutput = 0;
+    }
+
+    /**
+     * @return 滤波器引入的延迟（输入采样数）
+     */
+    public double getDelayFrames() {
+        return (upFactor * taps - 1) / 2.0 / upFactor;
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getTaps() {
+        return taps;
+    }
+
+    /**
+     * 设计长度为 phases * taps 的原型低通并按相位重排；每个相位单独归一化为单位直流增益
+     *
+     * @param cutoff 截止频率，单位为上采样后采样率的倍数
+     */
+    static float[] design(int phases, int taps, double cutoff) {
+        int length = phases * taps;
+        double center = (length - 1) / 2.0;
+        double[] prototype = new double[length];
+        double i0Beta = besselI0(KAISER_BETA);
+        for (int n = 0; n < length; n++) {
+            double t = n - center;
+            double sinc = t == 0 ? 1 : Math.sin(2 * Math.PI * cutoff * t) / (2 * Math.PI * cutoff * t);
+            double r = length > 1 ? 2.0 * n / (length - 1) - 1 : 0;
+            double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0, 1 - r * r))) / i0Beta;
+            prototype[n] = sinc * window;
+        }
+        // 相位 p 的第 i 个系数乘以窗口中第 i 个（最旧为 0）采样：对应原型中的 p + (taps - 1 - i) * phases
+        float[] coefficients = new float[length];
+        for (int p = 0; p < phases; p++) {
+            double sum = 0;
+            for (int i = 0; i < taps; i++) {
+                sum += prototype[p + (taps - 1 - i) * phases];
+            }
+            for (int i = 0; i < taps; i++) {
+                coefficients[p * taps + i] = (float) (prototype[p + (taps - 1 - i) * phases] / sum);
+            }
+        }
+        return coefficients;
+    }
+
+    // 第一类零阶修正贝塞尔函数，级数展开
+    static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double half = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
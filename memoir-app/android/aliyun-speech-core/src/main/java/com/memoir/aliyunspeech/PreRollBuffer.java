@@ -0,0 +1,122 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 预录缓冲区：保存最近一段时间的麦克风数据，写满后覆盖最旧的数据。
+ * 对话打开时先把这段历史送入识别，避免丢失开头的音节；长时听写中也用它保留最近送出的音频，作为下一段的重叠部分。
+ * 只由一个线程访问（录音线程或识别取数线程），不做同步。
+ */
+public class PreRollBuffer implements PcmSink {
+
+    private final byte[] buffer;
+    private int window;
+    // 下一次写入的位置与当前保存的字节数
+    private int head;
+    private int size;
+
+    public PreRollBuffer(int capacityBytes) {
+        this.buffer = new byte[capacityBytes];
+        this.window = capacityBytes;
+    }
+
+    /**
+     * 设置保留的历史长度（字节），不超过容量，同时清空已有数据
+     */
+    public void setWindow(int windowBytes) {
+        // 保持采样点对齐
+        int bytes = Math.max(0, Math.min(windowBytes, buffer.length));
+        this.window = bytes - bytes % PcmRingBuffer.BYTES_PER_SAMPLE;
+        clear();
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * 写入 position 到 limit 之间的数据，超出窗口的最旧数据被覆盖，position 保持不变
+     */
+    public void write(ByteBuffer src) {
+        if (window == 0) {
+            return;
+        }
+        int position = src.position();
+        int length = src.remaining();
+        // 单次写入超过窗口时只保留最后 window 字节
+        if (length > window) {
+            src.position(position + length - window);
+            length = window;
+        }
+        while (length > 0) {
+            int chunk = Math.min(length, window - head);
+            src.get(buffer, head, chunk);
+            head = (head + chunk) % window;
+            length -= chunk;
+            size = Math.min(window, size + chunk);
+        }
+        src.position(position);
+    }
+
+    /**
+     * 与 write(ByteBuffer) 相同，数据来自数组
+     *
+     * @return length，超出窗口的部分视为已写入后被覆盖
+     */
+    @Override
+    public int write(byte[] src, int offset, int length) {
+        if (window == 0) {
+            return length;
+        }
+        int skip = Math.max(0, length - window);
+        int from = offset + skip;
+        int remaining = length - skip;
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, window - head);
+            System.arraycopy(src, from, buffer, head, chunk);
+            head = (head + chunk) % window;
+            from += chunk;
+            remaining -= chunk;
+            size = Math.min(window, size + chunk);
+        }
+        return length;
+    }
+
+    /**
+     * 按时间顺序把历史数据写入 sink，不清空
+     *
+     * @return 写入的字节数
+     */
+    public int copyTo(PcmSink sink) {
+        if (size == 0) {
+            return 0;
+        }
+        int start = (head - size + window) % window;
+        int first = Math.min(size, window - start);
+        int written = sink.write(buffer, start, first);
+        if (first < size) {
+            written += sink.write(buffer, 0, size - first);
+        }
+        return written;
+    }
+
+    /**
+     * 按时间顺序把历史数据写入 sink 并清空
+     *
+     * @return 写入的字节数
+     */
+    public int drainTo(PcmSink sink) {
+        int written = copyTo(sink);
+        clear();
+        return written;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 流式识别服务。调用顺序与 NativeNui 相同：initialize → startDialog → stopDialog → release，
+ * Callback 与 INativeNuiCallback 一一对应（去掉了 SDK 类型）。
+ * 识别服务在自己的线程上通过 onNeedAudioData 拉取音频，事件中的 asrResult 为 SDK 给出的 JSON。
+ */
+public interface Recognizer {
+
+    int SUCCESS = 0;
+
+    enum Event {
+        EVENT_VAD_START,
+        EVENT_VAD_END,
+        EVENT_SENTENCE_START,
+        EVENT_ASR_PARTIAL_RESULT,
+        EVENT_SENTENCE_END,
+        EVENT_ASR_ERROR,
+        EVENT_MIC_ERROR,
+        EVENT_TRANSCRIBER_COMPLETE
+    }
+
+    interface Callback {
+        /**
+         * 对话开始取音频（true）或已结束、不会再取音频（false）
+         */
+        void onAudioStateChanged(boolean open);
+
+        /**
+         * @return 写入 buffer 的字节数，不超过 len
+         */
+        int onNeedAudioData(byte[] buffer, int len);
+
+        void onEventCallback(Event event, int resultCode, String asrResult);
+    }
+
+    /**
+     * @return SUCCESS 或错误码
+     */
+    int initialize(Callback callback, String appkey, String token, String workspace);
+
+    /**
+     * 按会话的传输编码设置识别参数并开始对话
+     *
+     * @return SUCCESS 或错误码
+     */
+    int startDialog(AudioCodec codec);
+
+    /**
+     * 停止对话，取完剩余音频后给出最后的结果并关闭
+     */
+    int stopDialog();
+
+    int release();
+}
@@ -0,0 +1,81 @@
+package com.memoir.aliyunspeech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 以设备原生格式录音、在录音线程上转换为目标格式的音频设备：
+ * 内部设备按 nativeRate/channels 打开，读取到的数据经 PolyphaseResampler 混音并重采样后交给调用方。
+ * 原生格式与目标格式相同时直接转发。读取过程中不分配内存。
+ */
+public class ResamplingSource implements AudioSource.Device {
+
+    private final AudioSource.Device device;
+    private final int nativeRate;
+    private final int channels;
+
+    private PolyphaseResampler resampler;
+    private ByteBuffer nativeBuffer;
+
+    /**
+     * @param device 按 nativeRate 与 channels 录音的设备，声道数由设备自身配置
+     */
+    public ResamplingSource(AudioSource.Device device, int nativeRate, int channels) {
+        this.device = device;
+        this.nativeRate = nativeRate;
+        this.channels = channels;
+    }
+
+    @Override
+    public void start(int sampleRate, int frameBytes) throws IOException {
+        if (sampleRate == nativeRate && channels == 1) {
+            resampler = null;
+            device.start(sampleRate, frameBytes);
+            return;
+        }
+        PolyphaseResampler converter = new PolyphaseResampler(nativeRate, sampleRate, channels);
+        // 一次读取对应输出一帧的原生数据，多留一帧应对相位
+        int maxFrames = converter.maxInputFrames(frameBytes / PcmRingBuffer.BYTES_PER_SAMPLE) + 1;
+        int nativeFrameBytes = maxFrames * channels * PcmRingBuffer.BYTES_PER_SAMPLE;
+        if (nativeBuffer == null || nativeBuffer.capacity() < nativeFrameBytes) {
+            nativeBuffer = ByteBuffer.allocateDirect(nativeFrameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        resampler = converter;
+        device.start(nativeRate, nativeFrameBytes);
+    }
+
+    @Override
+    public int read(ByteBuffer buffer, int sizeInBytes) {
+        PolyphaseResampler converter = resampler;
+        if (converter == null) {
+            return device.read(buffer, sizeInBytes);
+        }
+        int frameBytes = channels * PcmRingBuffer.BYTES_PER_SAMPLE;
+        int frames = Math.min(converter.maxInputFrames(sizeInBytes / PcmRingBuffer.BYTES_PER_SAMPLE),
+            nativeBuffer.capacity() / frameBytes);
+        int n = device.read(nativeBuffer, frames * frameBytes);
+        if (n <= 0) {
+            return n;
+        }
+        return converter.process(nativeBuffer, n, buffer);
+    }
+
+    @Override
+    public void stop() {
+        device.stop();
+    }
+
+    @Override
+    public void release() {
+        device.release();
+    }
+
+    public int getNativeRate() {
+        return nativeRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+}
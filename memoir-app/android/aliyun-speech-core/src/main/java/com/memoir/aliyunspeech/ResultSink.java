@@ -0,0 +1,87 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+
+/**
+ * SpeechEngine 的输出端，例如 Capacitor 插件把结果转发给前端。
+ * 识别结果、错误与会话结束在识别服务的回调线程上按发生顺序调用，
+ * 合并后的中间结果可能在分发线程上调用；语音门限事件在录音线程上调用。
+ */
+public interface ResultSink {
+
+    /**
+     * 当前句文本 = 上次文本的前 keep 个字符 + delta，length 为新文本总长度；
+     * confidence 为识别结果给出的置信度，没有时为 NaN（中间结果通常没有）
+     */
+    void onPartialResult(int keep, String delta, int length, double confidence);
+
+    /**
+     * @param confidence 识别结果给出的置信度，没有时为 NaN
+     * @param sdkIndex 识别服务在本次对话中从 1 开始的句子序号，没有时为 -1
+     * @param timing 该句在会话音频中的位置与对应的墙上时间
+     */
+    void onFinalResult(String text, double confidence, long sdkIndex, SentenceTiming timing);
+
+    /**
+     * SessionOptions.transcriptPatches 打开时代替 onPartialResult/onFinalResult，调用的线程与之相同
+     */
+    void onTranscriptPatch(String sessionId, TranscriptPatch patch);
+
+    /**
+     * 本地语音门限检测到语音开始
+     */
+    void onSpeechStart(long frameIndex);
+
+    void onSpeechEnd(long frameIndex);
+
+    void onError(String code, String message);
+
+    /**
+     * 会话进行中按 metricsIntervalMs 在分发线程上周期调用，会话结束时在 onSessionClosed 之前再调用一次。
+     * metrics 之后会被复用，需要保留时应在回调中转换
+     */
+    void onMetrics(String sessionId, SpeechMetrics metrics);
+
+    /**
+     * 电平表：按 levelIntervalMs 在分发线程上周期调用，会话结束时报告剩余的窗口。
+     * levels 中依次为每个 windowMs 窗口的最小值、最大值与 RMS（PCM16 刻度），共 windows 个窗口；
+     * 数组之后会被复用，需要保留时应在回调中转换
+     */
+    void onLevels(String sessionId, short[] levels, int windows, int windowMs);
+
+    /**
+     * 背压级别变化：积压超过高水位、环形缓冲区写满开始按策略处理、积压回落到低水位以下，在分发线程上调用。
+     * buffer 之后会被复用，需要保留时应在回调中转换
+     */
+    void onBackpressure(String sessionId, BackpressureBuffer.Level level, BackpressureBuffer buffer);
+
+    /**
+     * 长时听写中一段识别对话结束（包括会话的最后一段），在识别服务的回调线程上调用。
+     * 偏移是相对会话开始、按送入识别服务的音频计算的毫秒数；除第一段外，每段开头包含上一段末尾
+     * SpeechEngine.SEGMENT_OVERLAP_MS 的重叠音频
+     *
+     * @param index 从 0 开始的段序号
+     */
+    void onSegment(String sessionId, int index, long startOffsetMs, long endOffsetMs);
+
+    /**
+     * 唤醒词待命中检测到唤醒词并已开始会话，在分发线程上调用
+     */
+    void onWakeWord(String sessionId, String keyword);
+
+    /**
+     * SessionOptions.parallel 中的一路识别对话结束，在该识别服务的回调线程上调用，可能晚于主对话的 onSessionClosed。
+     * 该路的文本为 recognizer.getTranscript()，可以与主对话的文本按平均置信度比较
+     */
+    void onParallelClosed(String sessionId, ParallelRecognizer recognizer);
+
+    /**
+     * 对话结束，会话音频已保存
+     *
+     * @param audio 会话 WAV 文件，落盘失败时为 null
+     * @param audioBytes 文件中 PCM 数据的字节数
+     * @param codec 会话选择的传输编码
+     * @param failed 会话中是否出现识别错误
+     */
+    void onSessionClosed(String sessionId, File audio, long audioBytes, AudioCodec codec, boolean failed);
+}
@@ -0,0 +1,112 @@
+package com.memoir.aliyunspeech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 句子到会话音频字节位置的索引：按开始位置有序，定位播放位置所在的句子为 O(log n)。
+ * 会话结束时保存在 WAV 文件旁（sessionId + FILE_SUFFIX），编辑时可以重新读取。
+ * 识别回调线程追加，其他线程可以同时查询。
+ */
+public class SentenceIndex {
+
+    public static final String FILE_SUFFIX = ".sentences";
+    private static final int INITIAL_CAPACITY = 64;
+
+    private long[] begins;
+    private long[] ends;
+    private int count;
+
+    public SentenceIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private SentenceIndex(int capacity) {
+        begins = new long[Math.max(1, capacity)];
+        ends = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * 追加一句；开始位置早于上一句时（分段重叠中的重复识别）按上一句的开始位置记录，保持有序
+     *
+     * @return 该句的序号
+     */
+    public synchronized int add(long beginByte, long endByte) {
+        if (count == begins.length) {
+            begins = Arrays.copyOf(begins, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        long begin = count > 0 ? Math.max(beginByte, begins[count - 1]) : beginByte;
+        begins[count] = begin;
+        ends[count] = Math.max(begin, endByte);
+        return count++;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long getBegin(int index) {
+        checkIndex(index);
+        return begins[index];
+    }
+
+    public synchronized long getEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * @return 开始位置不晚于 position 的最后一句的序号，position 在第一句之前时返回 -1
+     */
+    public synchronized int find(long position) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (begins[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    public synchronized void writeTo(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(begins[i]);
+                out.writeLong(ends[i]);
+            }
+        }
+    }
+
+    public static SentenceIndex readFrom(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            if (count < 0 || count > file.length() / 16) {
+                throw new IOException("句子索引已损坏: " + file);
+            }
+            SentenceIndex index = new SentenceIndex(count);
+            for (int i = 0; i < count; i++) {
+                index.add(in.readLong(), in.readLong());
+            }
+            return index;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("句子序号超出范围: " + index);
+        }
+    }
+}
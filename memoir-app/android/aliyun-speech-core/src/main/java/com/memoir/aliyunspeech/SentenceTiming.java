@@ -0,0 +1,24 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 一句最终结果在会话音频中的位置，由会话音频时钟换算
+ */
+public final class SentenceTiming {
+
+    // 在会话中的序号，与 SentenceIndex 中的下标一致
+    public final int index;
+    // 相对会话音频（落盘 WAV 的 PCM 数据）开头的毫秒数
+    public final long beginOffsetMs;
+    public final long endOffsetMs;
+    // 对应的墙上时间（毫秒时间戳）
+    public final long beginTime;
+    public final long endTime;
+
+    public SentenceTiming(int index, long beginOffsetMs, long endOffsetMs, long beginTime, long endTime) {
+        this.index = index;
+        this.beginOffsetMs = beginOffsetMs;
+        this.endOffsetMs = endOffsetMs;
+        this.beginTime = beginTime;
+        this.endTime = endTime;
+    }
+}
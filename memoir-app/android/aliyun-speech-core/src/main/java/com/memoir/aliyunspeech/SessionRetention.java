@@ -0,0 +1,142 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 会话音频目录的保留上限。一个会话包括 <sessionId>.wav 与同名的句子索引、波形文件，约 115MB/小时。
+ * prune 先删除最后修改时间超过保留时长的会话，再从最旧的开始删除，直到总大小不超过上限；
+ * Retainer 保留的会话（例如还在等待重新识别）不删除，但计入总大小。
+ */
+public class SessionRetention {
+
+    public static final String AUDIO_SUFFIX = ".wav";
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+    public static final long DEFAULT_MAX_AGE_MS = 30L * 24 * 60 * 60 * 1000;
+
+    public interface Retainer {
+        boolean isRetained(String sessionId);
+    }
+
+    private static class Session {
+        final String id;
+        final long modified;
+        final long bytes;
+
+        Session(String id, long modified, long bytes) {
+            this.id = id;
+            this.modified = modified;
+            this.bytes = bytes;
+        }
+    }
+
+    private final File directory;
+    private final Clock clock;
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+    private volatile long maxAgeMs = DEFAULT_MAX_AGE_MS;
+    private volatile Retainer retainer;
+
+    public SessionRetention(File directory, Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+    }
+
+    /**
+     * @param maxBytes 会话文件的总大小上限，不大于 0 表示不限
+     * @param maxAgeMs 保留时长，不大于 0 表示不限
+     */
+    public void setLimits(long maxBytes, long maxAgeMs) {
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public void setRetainer(Retainer retainer) {
+        this.retainer = retainer;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+
+    /**
+     * 按上限删除旧会话，在新会话开始前调用
+     *
+     * @param activeId 不删除的会话（正在录音的会话），可以为 null
+     * @return 删除的会话数
+     */
+    public int prune(String activeId) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        List<Session> sessions = new ArrayList<>();
+        long total = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(AUDIO_SUFFIX) || !file.isFile()) {
+                continue;
+            }
+            String id = name.substring(0, name.length() - AUDIO_SUFFIX.length());
+            long bytes = file.length() + sidecar(id, SentenceIndex.FILE_SUFFIX).length()
+                + sidecar(id, WaveformPyramid.FILE_SUFFIX).length();
+            sessions.add(new Session(id, file.lastModified(), bytes));
+            total += bytes;
+        }
+        Collections.sort(sessions, (a, b) -> Long.compare(a.modified, b.modified));
+
+        long limit = maxBytes;
+        long age = maxAgeMs;
+        long expiredBefore = age > 0 ? clock.currentTimeMillis() - age : Long.MIN_VALUE;
+        Retainer keep = retainer;
+        int deleted = 0;
+        for (Session session : sessions) {
+            boolean expired = session.modified < expiredBefore;
+            boolean over = limit > 0 && total > limit;
+            if (!expired && !over) {
+                // 按修改时间排序，之后的会话更新
+                break;
+            }
+            if (session.id.equals(activeId) || (keep != null && keep.isRetained(session.id))) {
+                continue;
+            }
+            if (delete(session.id)) {
+                total -= session.bytes;
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除会话的音频与句子索引、波形文件
+     *
+     * @return 是否删除了会话音频
+     */
+    public boolean delete(String sessionId) {
+        return deleteSession(new File(directory, sessionId + AUDIO_SUFFIX));
+    }
+
+    /**
+     * 删除会话音频文件与同目录下同名的句子索引、波形文件
+     *
+     * @return 是否删除了会话音频
+     */
+    public static boolean deleteSession(File audio) {
+        String name = audio.getName();
+        String base = name.endsWith(AUDIO_SUFFIX) ? name.substring(0, name.length() - AUDIO_SUFFIX.length()) : name;
+        File dir = audio.getParentFile();
+        new File(dir, base + SentenceIndex.FILE_SUFFIX).delete();
+        new File(dir, base + WaveformPyramid.FILE_SUFFIX).delete();
+        return audio.delete();
+    }
+
+    private File sidecar(String id, String suffix) {
+        return new File(directory, id + suffix);
+    }
+}
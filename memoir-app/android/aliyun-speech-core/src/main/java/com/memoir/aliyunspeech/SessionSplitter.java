@@ -0,0 +1,185 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把 SessionSpool 写出的会话 WAV（16bit 单声道 PCM）切成短音频，供只接受短音频的整段识别使用。
+ * 切点优先取句子索引中两句之间的间隙；最后 SEARCH_WINDOW_MS 内没有句子边界时
+ * （例如识别服务没有返回结果的会话），取其中电平最低的 16ms，尽量不切断字词。
+ */
+public class SessionSplitter {
+
+    // 切点只在每段最后这段时间内寻找，每段不短于 maxPieceMs - SEARCH_WINDOW_MS
+    public static final int SEARCH_WINDOW_MS = 10000;
+    // 判断一段是否有语音的帧长
+    private static final int SPEECH_FRAME_MS = 20;
+    private static final int QUIET_BLOCK_SAMPLES = 256;
+    private static final int COPY_CHUNK_BYTES = 64 * 1024;
+
+    /**
+     * 一段音频在会话 WAV 数据区中的字节范围 [start, end)
+     */
+    public static class Piece {
+        public final long start;
+        public final long end;
+
+        Piece(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getBytes() {
+            return end - start;
+        }
+    }
+
+    private SessionSplitter() {
+    }
+
+    /**
+     * @param sentences 会话的句子索引，没有时为 null
+     * @return 按顺序排列、首尾相接的各段，每段不超过 maxPieceMs；没有音频时为空
+     * @throws IOException 读取失败或不是 16bit 单声道 PCM WAV
+     */
+    public static List<Piece> plan(File wav, SentenceIndex sentences, int maxPieceMs) throws IOException {
+        if (maxPieceMs <= SEARCH_WINDOW_MS) {
+            throw new IllegalArgumentException("maxPieceMs 需大于 " + SEARCH_WINDOW_MS);
+        }
+        List<Piece> pieces = new ArrayList<>();
+        try (RandomAccessFile file = new RandomAccessFile(wav, "r")) {
+            int sampleRate = readSampleRate(file, wav);
+            long dataBytes = dataBytes(file);
+            long maxBytes = bytesFor(maxPieceMs, sampleRate);
+            long windowBytes = bytesFor(SEARCH_WINDOW_MS, sampleRate);
+            long position = 0;
+            while (dataBytes - position > maxBytes) {
+                long limit = position + maxBytes;
+                long from = limit - windowBytes;
+                long cut = sentenceGap(sentences, from, limit);
+                if (cut < 0) {
+                    cut = quietestPoint(file, from, (int) windowBytes);
+                }
+                pieces.add(new Piece(position, cut));
+                position = cut;
+            }
+            if (dataBytes > position) {
+                pieces.add(new Piece(position, dataBytes));
+            }
+        }
+        return pieces;
+    }
+
+    /**
+     * 把会话 WAV 中的一段写成单独的 PCM WAV
+     *
+     * @return 这一段中是否有电平高于 EnergyVad.DEFAULT_THRESHOLD_DB 的帧，没有时不必送去识别
+     */
+    public static boolean writePiece(File wav, Piece piece, File out) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(wav, "r");
+             OutputStream target = new FileOutputStream(out)) {
+            int sampleRate = readSampleRate(file, wav);
+            int frameBytes = (int) bytesFor(SPEECH_FRAME_MS, sampleRate);
+            target.write(SessionSpool.wavHeader(sampleRate, piece.getBytes()).array());
+            byte[] chunk = new byte[COPY_CHUNK_BYTES - COPY_CHUNK_BYTES % frameBytes];
+            ByteBuffer view = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+            boolean speech = false;
+            file.seek(SessionSpool.HEADER_BYTES + piece.start);
+            long remaining = piece.getBytes();
+            while (remaining > 0) {
+                int n = (int) Math.min(chunk.length, remaining);
+                file.readFully(chunk, 0, n);
+                target.write(chunk, 0, n);
+                for (int offset = 0; !speech && offset < n; offset += frameBytes) {
+                    view.limit(Math.min(n, offset + frameBytes)).position(offset);
+                    speech = EnergyVad.levelDb(view) > EnergyVad.DEFAULT_THRESHOLD_DB;
+                }
+                view.clear();
+                remaining -= n;
+            }
+            return speech;
+        }
+    }
+
+    // [from, limit] 内最后一个句子间隙的中点；句子首尾相接或重叠时取前一句的结尾。没有时返回 -1
+    private static long sentenceGap(SentenceIndex sentences, long from, long limit) {
+        if (sentences == null) {
+            return -1;
+        }
+        for (int i = sentences.find(limit); i >= 0; i--) {
+            long end = sentences.getEnd(i);
+            if (end < from) {
+                break;
+            }
+            long next = i + 1 < sentences.size() ? sentences.getBegin(i + 1) : Long.MAX_VALUE;
+            if (end > limit || next < end) {
+                // 这一句越过了上限，或与下一句重叠
+                continue;
+            }
+            long cut = evenBytes(Math.min(limit, end + (Math.min(next, limit) - end) / 2));
+            if (cut > from) {
+                return cut;
+            }
+        }
+        return -1;
+    }
+
+    // [from, from + length) 内电平最低的 16ms 的中点，相同时取靠后的
+    private static long quietestPoint(RandomAccessFile file, long from, int length) throws IOException {
+        byte[] window = new byte[length];
+        file.seek(SessionSpool.HEADER_BYTES + from);
+        file.readFully(window);
+        ByteBuffer view = ByteBuffer.wrap(window).order(ByteOrder.LITTLE_ENDIAN);
+        int blockBytes = QUIET_BLOCK_SAMPLES * PcmRingBuffer.BYTES_PER_SAMPLE;
+        int best = length - blockBytes;
+        float bestLevel = Float.MAX_VALUE;
+        for (int offset = 0; offset + blockBytes <= length; offset += blockBytes) {
+            view.limit(offset + blockBytes).position(offset);
+            float level = EnergyVad.levelDb(view);
+            if (level <= bestLevel) {
+                bestLevel = level;
+                best = offset;
+            }
+            view.clear();
+        }
+        return from + best + blockBytes / 2;
+    }
+
+    private static int readSampleRate(RandomAccessFile file, File wav) throws IOException {
+        byte[] header = new byte[SessionSpool.HEADER_BYTES];
+        file.seek(0);
+        if (file.length() < header.length) {
+            throw new IOException("WAV文件不完整: " + wav);
+        }
+        file.readFully(header);
+        ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != 0x46464952 || buffer.getShort(20) != 1 || buffer.getShort(22) != 1
+            || buffer.getShort(34) != 16 || buffer.getInt(24) <= 0) {
+            throw new IOException("不是 16bit 单声道 PCM WAV: " + wav);
+        }
+        return buffer.getInt(24);
+    }
+
+    // 头部的数据长度；录音中途崩溃时头部长度为 0，文件末尾还可能有预先映射、未写入的区域，此时按文件长度计算
+    private static long dataBytes(RandomAccessFile file) throws IOException {
+        long available = file.length() - SessionSpool.HEADER_BYTES;
+        file.seek(40);
+        long declared = Integer.reverseBytes(file.readInt()) & 0xffffffffL;
+        return evenBytes(declared > 0 ? Math.min(declared, available) : available);
+    }
+
+    private static long bytesFor(int durationMs, int sampleRate) {
+        return evenBytes((long) durationMs * sampleRate / 1000 * PcmRingBuffer.BYTES_PER_SAMPLE);
+    }
+
+    private static long evenBytes(long bytes) {
+        return Math.max(0, bytes & ~1L);
+    }
+}
@@ -0,0 +1,212 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 会话音频落盘：录音线程把每帧 PCM 写入内存映射的 WAV 文件，
+ * 写入只是一次内存拷贝；文件头在 close 时按实际数据长度回填。
+ * 映射区按固定大小逐段扩展，每段约 32 秒音频。写入的同时增量计算波形峰值。
+ * 定期在录音线程之外调用 prepare，预先映射下一段并扩充波形容量，录音线程写入时不分配内存。
+ */
+public class SessionSpool implements PcmSink {
+
+    public static final int HEADER_BYTES = 44;
+    private static final int DEFAULT_REGION_BYTES = 1 << 20;
+
+    private final File file;
+    private final int sampleRate;
+    private final int regionBytes;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final WaveformPyramid waveform;
+
+    private MappedByteBuffer region;
+    // 当前映射区在文件中的起始位置
+    private long regionStart;
+    // prepare 预先映射的下一段
+    private MappedByteBuffer nextRegion;
+    private long dataBytes;
+    private boolean closed;
+    private IOException failure;
+
+    public SessionSpool(File file, int sampleRate) throws IOException {
+        this(file, sampleRate, DEFAULT_REGION_BYTES);
+    }
+
+    SessionSpool(File file, int sampleRate, int regionBytes) throws IOException {
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.regionBytes = regionBytes;
+        this.randomAccessFile = new RandomAccessFile(file, "rw");
+        this.channel = randomAccessFile.getChannel();
+        this.waveform = new WaveformPyramid(sampleRate);
+        channel.truncate(0);
+        // 先写入数据长度为 0 的文件头，异常退出时文件仍可识别
+        channel.write(wavHeader(sampleRate, 0), 0);
+        mapRegion(HEADER_BYTES);
+    }
+
+    private void mapRegion(long start) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, regionBytes);
+        regionStart = start;
+    }
+
+    // 写满当前映射区后换到下一段，prepare 没有及时映射时在录音线程上映射
+    private void nextRegion() throws IOException {
+        MappedByteBuffer next = nextRegion;
+        if (next == null) {
+            mapRegion(regionStart + regionBytes);
+            return;
+        }
+        nextRegion = null;
+        region = next;
+        regionStart += regionBytes;
+    }
+
+    /**
+     * 在录音线程之外预先映射下一段映射区，并为之后一段音频扩充波形容量，可重复调用。
+     * 映射失败时不记录错误，录音线程换段时再映射并按写入失败处理
+     */
+    public synchronized void prepare() {
+        if (closed || failure != null) {
+            return;
+        }
+        if (nextRegion == null) {
+            try {
+                nextRegion = channel.map(FileChannel.MapMode.READ_WRITE, regionStart + regionBytes, regionBytes);
+            } catch (IOException e) {
+                // 录音线程换段时再映射
+            }
+        }
+        waveform.reserve(regionBytes / PcmRingBuffer.BYTES_PER_SAMPLE);
+    }
+
+    @Override
+    public synchronized int write(byte[] src, int offset, int length) {
+        if (closed || failure != null) {
+            return 0;
+        }
+        waveform.write(src, offset, length);
+        int written = 0;
+        try {
+            while (written < length) {
+                if (!region.hasRemaining()) {
+                    nextRegion();
+                }
+                int n = Math.min(length - written, region.remaining());
+                region.put(src, offset + written, n);
+                written += n;
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        dataBytes += written;
+        return written;
+    }
+
+    /**
+     * 写入 position 到 limit 之间的数据，position 保持不变
+     */
+    public synchronized int write(ByteBuffer src) {
+        if (closed || failure != null) {
+            return 0;
+        }
+        waveform.write(src);
+        int position = src.position();
+        int limit = src.limit();
+        int written = 0;
+        try {
+            while (src.position() < limit) {
+                if (!region.hasRemaining()) {
+                    nextRegion();
+                }
+                int n = Math.min(limit - src.position(), region.remaining());
+                src.limit(src.position() + n);
+                region.put(src);
+                src.limit(limit);
+                written += n;
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            src.limit(limit);
+            src.position(position);
+        }
+        dataBytes += written;
+        return written;
+    }
+
+    /**
+     * 回填文件头、截掉映射区多余的部分并关闭文件，可重复调用
+     */
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        region = null;
+        nextRegion = null;
+        waveform.finish();
+        try {
+            channel.write(wavHeader(sampleRate, dataBytes), 0);
+            channel.truncate(HEADER_BYTES + dataBytes);
+            channel.force(false);
+        } finally {
+            randomAccessFile.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return 已写入音频的波形峰值，close 时结束
+     */
+    public WaveformPyramid getWaveform() {
+        return waveform;
+    }
+
+    public synchronized long getDataBytes() {
+        return dataBytes;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized long getDurationMs() {
+        return dataBytes * 1000 / ((long) sampleRate * PcmRingBuffer.BYTES_PER_SAMPLE);
+    }
+
+    /**
+     * 16bit 单声道 PCM 的 44 字节 WAV 文件头
+     */
+    public static ByteBuffer wavHeader(int sampleRate, long dataBytes) {
+        int byteRate = sampleRate * PcmRingBuffer.BYTES_PER_SAMPLE;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt((int) (36 + dataBytes));
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(16);
+        header.putShort((short) 1);
+        header.putShort((short) 1);
+        header.putInt(sampleRate);
+        header.putInt(byteRate);
+        header.putShort((short) PcmRingBuffer.BYTES_PER_SAMPLE);
+        header.putShort((short) 16);
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt((int) dataBytes);
+        header.flip();
+        return header;
+    }
+}
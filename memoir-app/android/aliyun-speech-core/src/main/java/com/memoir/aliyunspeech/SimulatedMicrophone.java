@@ -0,0 +1,114 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 回放 PCM 的模拟麦克风，按 speed 倍速限速，行为与 AudioRecord.read 一致：
+ * 从缓冲区开头写入、不移动 position。放完后返回 END_OF_STREAM。
+ * 多次 start 时从上次停下的位置继续回放；暂停读取后按倍速补上落后的部分，不丢失音频。
+ */
+public class SimulatedMicrophone implements AudioSource.Pausable {
+
+    private final byte[] pcm;
+    private final int sampleRate;
+    private final int bytesPerSecond;
+    private final double speed;
+    private int offset;
+    private long startNanos = -1;
+
+    /**
+     * @param speed 回放倍速，1 为实时，0 表示不限速
+     */
+    public SimulatedMicrophone(byte[] pcm, int sampleRate, double speed) {
+        this.pcm = pcm;
+        this.sampleRate = sampleRate;
+        this.bytesPerSecond = sampleRate * PcmRingBuffer.BYTES_PER_SAMPLE;
+        this.speed = speed;
+    }
+
+    /**
+     * 读取 16bit 单声道 PCM WAV 文件
+     */
+    public static SimulatedMicrophone fromWav(File file, double speed) throws IOException {
+        byte[] wav = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.length < SessionSpool.HEADER_BYTES || buffer.getInt(0) != 0x46464952 || buffer.getInt(8) != 0x45564157) {
+            throw new IOException("不是 WAV 文件: " + file);
+        }
+        int sampleRate = 0;
+        int position = 12;
+        while (position + 8 <= wav.length) {
+            int id = buffer.getInt(position);
+            int size = buffer.getInt(position + 4);
+            int body = position + 8;
+            if (id == 0x20746d66) {
+                // "fmt "
+                if (buffer.getShort(body) != 1 || buffer.getShort(body + 2) != 1 || buffer.getShort(body + 14) != 16) {
+                    throw new IOException("只支持 16bit 单声道 PCM: " + file);
+                }
+                sampleRate = buffer.getInt(body + 4);
+            } else if (id == 0x61746164 && sampleRate > 0) {
+                // "data"
+                int length = Math.min(size, wav.length - body);
+                byte[] pcm = new byte[length];
+                System.arraycopy(wav, body, pcm, 0, length);
+                return new SimulatedMicrophone(pcm, sampleRate, speed);
+            }
+            position = body + size + (size & 1);
+        }
+        throw new IOException("缺少 fmt 或 data 块: " + file);
+    }
+
+    @Override
+    public void start(int sampleRate, int frameBytes) throws IOException {
+        if (sampleRate != this.sampleRate) {
+            throw new IOException("采样率不一致: " + this.sampleRate + " != " + sampleRate);
+        }
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void release() {
+    }
+
+    @Override
+    public int read(ByteBuffer buffer, int sizeInBytes) {
+        if (offset >= pcm.length) {
+            return END_OF_STREAM;
+        }
+        if (startNanos < 0) {
+            startNanos = System.nanoTime();
+        }
+        int n = Math.min(sizeInBytes, pcm.length - offset);
+        // 和真实麦克风一样，一帧的数据要等这一帧的时长过去后才能读到
+        if (speed > 0) {
+            long due = startNanos + (long) ((offset + n) * (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond / speed);
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.put(i, pcm[offset + i]);
+        }
+        offset += n;
+        return n;
+    }
+
+    public boolean isFinished() {
+        return offset >= pcm.length;
+    }
+
+    public long getDurationMs() {
+        return pcm.length * 1000L / bytesPerSecond;
+    }
+}
@@ -0,0 +1,1308 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 与平台无关的录音识别引擎：麦克风 → 录音热路径（预录、语音门限、落盘）→ 环形缓冲区 → 识别服务 → ResultSink。
+ * 同一段音频还可以经 PcmBroadcast 同时送入几路 ParallelRecognizer，用不同的参数识别后比较结果。
+ * 预录待命时可以经 KeywordArming 运行本地唤醒词检测，检测到唤醒词后直接开始会话。
+ *
+ * Capacitor 插件只负责参数转换、权限和把结果转发给前端，麦克风与 SDK 通过 AudioSource.Device 和
+ * Recognizer 接入；测试中用 SimulatedMicrophone 和 NuiSimulator 驱动同一套逻辑。
+ * 录音引擎状态见 AudioEngineState：IDLE → ARMED → CAPTURING → DRAINING → STOPPED。
+ */
+public class SpeechEngine implements Recognizer.Callback {
+
+    public static final int SAMPLE_RATE = 16000;
+    public static final int DEFAULT_PRE_ROLL_MS = 1500;
+    public static final int DEFAULT_METRICS_INTERVAL_MS = 1000;
+    // 长时听写中新一段开头重放的上一段末尾音频
+    public static final int SEGMENT_OVERLAP_MS = 300;
+    // 达到分段时长后一直没有静音时，最多再延长的时间，之后直接切分
+    public static final int SEGMENT_GRACE_MS = 30000;
+    // 上一段的对话可能还没有完全结束，新一段打开失败时的重试
+    private static final int SEGMENT_START_ATTEMPTS = 5;
+    private static final long SEGMENT_RETRY_MS = 20;
+    private static final int BYTES_PER_MS = PcmRingBuffer.bytesForDuration(1000, SAMPLE_RATE) / 1000;
+    private static final int OVERLAP_BYTES = PcmRingBuffer.bytesForDuration(SEGMENT_OVERLAP_MS, SAMPLE_RATE);
+
+    // 录音线程与识别取数线程之间的环形缓冲区（500ms），额外预留预录历史的空间
+    private static final int RING_BUFFER_MS = 500;
+    // onNeedAudioData 等待数据的最长时间，约为一次录音读取的周期
+    private static final long NEED_AUDIO_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final long NEED_AUDIO_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // 录音线程与线程池的有限等待时间
+    private static final long CAPTURE_STOP_TIMEOUT_MS = 200;
+    private static final long SHUTDOWN_TIMEOUT_MS = 500;
+    // 并行识别可以落后于录音的时长，超过后跳过最旧的音频
+    private static final int PARALLEL_BUFFER_MS = 5000;
+    // 背压溢写文件，在会话目录下跨会话复用
+    private static final String SPILL_FILE = "backpressure.spill";
+    // 在分发线程上为会话落盘预先准备映射区与波形容量的周期，远小于一段映射区的时长
+    private static final long SPOOL_PREPARE_INTERVAL_MS = 500;
+
+    /**
+     * 单次会话的参数，setter 可以链式调用
+     */
+    public static class SessionOptions {
+        AudioCodec codec = AudioCodec.PCM;
+        int preRollMs;
+        int partialIntervalMs = PartialResultDispatcher.DEFAULT_INTERVAL_MS;
+        VadGate vadGate;
+        int metricsIntervalMs = DEFAULT_METRICS_INTERVAL_MS;
+        int segmentMs;
+        BackpressurePolicy backpressure = BackpressurePolicy.DROP_OLDEST;
+        boolean transcriptPatches;
+        int levelIntervalMs;
+        List<ParallelRecognizer> parallel = Collections.emptyList();
+
+        public SessionOptions codec(AudioCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * 未待命时，在开始识别前提前打开麦克风并保留的历史时长，0 表示不预录
+         */
+        public SessionOptions preRollMs(int preRollMs) {
+            this.preRollMs = preRollMs;
+            return this;
+        }
+
+        public SessionOptions partialIntervalMs(int partialIntervalMs) {
+            this.partialIntervalMs = partialIntervalMs;
+            return this;
+        }
+
+        /**
+         * 本地语音门限，null 表示关闭
+         */
+        public SessionOptions vadGate(VadGate vadGate) {
+            this.vadGate = vadGate;
+            return this;
+        }
+
+        /**
+         * 会话进行中 ResultSink.onMetrics 的周期，0 表示只在会话结束时报告
+         */
+        public SessionOptions metricsIntervalMs(int metricsIntervalMs) {
+            this.metricsIntervalMs = metricsIntervalMs;
+            return this;
+        }
+
+        /**
+         * 长时听写：识别对话超过该时长后，在下一个静音处（句子结束或本地门限检测到语音结束）
+         * 结束当前对话并开始新的一段，录音与落盘不中断。0 表示不分段
+         */
+        public SessionOptions segmentMs(int segmentMs) {
+            this.segmentMs = segmentMs;
+            return this;
+        }
+
+        /**
+         * 识别服务停顿、环形缓冲区写满时的处理方式；麦克风不是 AudioSource.Pausable 时 BLOCK 按 SPILL_TO_DISK 处理
+         */
+        public SessionOptions backpressure(BackpressurePolicy backpressure) {
+            this.backpressure = backpressure;
+            return this;
+        }
+
+        /**
+         * 以 ResultSink.onTranscriptPatch 代替 onPartialResult/onFinalResult 报告识别结果
+         */
+        public SessionOptions transcriptPatches(boolean transcriptPatches) {
+            this.transcriptPatches = transcriptPatches;
+            return this;
+        }
+
+        /**
+         * 会话进行中 ResultSink.onLevels 的周期，最长 LevelMeter.MAX_INTERVAL_MS，0 表示关闭电平表
+         */
+        public SessionOptions levelIntervalMs(int levelIntervalMs) {
+            this.levelIntervalMs = levelIntervalMs;
+            return this;
+        }
+
+        /**
+         * 与主对话同时识别同一段音频的其他识别服务，结果不发给前端，对话结束时通过
+         * ResultSink.onParallelClosed 通知，文本通过 getTranscript(id, name) 读取。空列表表示不并行识别
+         */
+        public SessionOptions parallel(List<ParallelRecognizer> parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+    }
+
+    private final Recognizer recognizer;
+    private final AudioSource.Device microphone;
+    private final ResultSink sink;
+    private final File sessionDir;
+    private final SessionRetention retention;
+
+    private final AudioEngineState engineState = new AudioEngineState();
+    private final PcmRingBuffer ringBuffer;
+    // 池化直接缓冲区的录音热路径，稳态下每帧零分配
+    private final AudioPipeline audioPipeline;
+    private final BackpressureBuffer backpressure;
+    private final ExecutorService captureExecutor;
+    private Future<?> captureTask;
+    private boolean microphoneOpen;
+    // 中间结果合并发送的定时器
+    private final ScheduledExecutorService dispatchScheduler;
+    private final PartialResultDispatcher partialDispatcher;
+    // 本次会话的热路径指标
+    private final SpeechMetrics metrics;
+    private ScheduledFuture<?> metricsTask;
+    // 录音界面的电平表，按固定周期在分发线程上取走并报告
+    private final LevelMeter levelMeter;
+    private final short[] levelBatch;
+    private ScheduledFuture<?> levelsTask;
+    private ScheduledFuture<?> spoolTask;
+    // 并行识别：录音线程写入一次，各路按自己的位置读取
+    private final PcmBroadcast broadcast;
+    // 当前（或最近一次）会话实际开始的并行识别
+    private volatile List<ParallelRecognizer> parallel = Collections.emptyList();
+    private final ParallelRecognizer.Listener parallelListener = new ParallelRecognizer.Listener() {
+        @Override
+        public void onClosed(ParallelRecognizer recognizer) {
+            sink.onParallelClosed(recognizer.getSessionId(), recognizer);
+        }
+    };
+    private volatile long sessionStartNanos;
+    // 当前句第一个中间结果的时间，0 表示还没有
+    private volatile long sentencePartialNanos;
+    private volatile boolean firstPartialPending;
+    // 识别回调线程独占的结果解码器
+    private final AsrResultDecoder resultDecoder = new AsrResultDecoder();
+    // 最近一次中间结果的置信度，合并发送时与最新的文本一起使用；NaN 表示识别结果没有给出
+    private volatile double partialConfidence = Double.NaN;
+
+    private volatile boolean initialized;
+    // 并行识别在会话开始时用同样的凭证初始化
+    private volatile String appkey;
+    private volatile String token;
+    private volatile String workspace;
+    // 对话是否进行中，会在识别回调线程读取
+    private volatile boolean isRecording;
+    // 预录待命：麦克风常开并保留最近一段历史，对话打开时先送入识别
+    private volatile boolean isArmed;
+    private volatile int armedPreRollMs;
+    // 唤醒词待命：检测到唤醒词时按 wakeOptions 开始会话；keywordStats 为最近一次待命的统计，退出后保留
+    private volatile KeywordArming keywordArming;
+    private volatile KeywordArming keywordStats;
+    private volatile SessionOptions wakeOptions;
+    private volatile KeywordArming.CpuClock cpuClock;
+    private final KeywordSpotter.Listener keywordListener;
+
+    private volatile String sessionId;
+    private volatile boolean sessionOpen;
+    private volatile SessionSpool sessionSpool;
+    // 本次会话的句子索引，会话结束时保存在落盘文件旁
+    private volatile SentenceIndex sentenceIndex;
+    // 当前（或最近一次）会话的文本，会话结束后保留到下一次会话开始
+    private volatile Transcript transcript = new Transcript();
+    private volatile boolean transcriptPatches;
+    // 本次会话是否出现识别错误
+    private volatile boolean sessionFailed;
+    private volatile AudioCodec sessionCodec = AudioCodec.PCM;
+    // 识别对话实际使用的传输编码，DEGRADE_BITRATE 可能在后续分段改为 Opus
+    private volatile AudioCodec streamCodec = AudioCodec.PCM;
+
+    // 长时听写分段，位置均为环形缓冲区的读位置，即送入识别服务的音频
+    private volatile long segmentBytes;
+    // 会话第一段与当前段开始的位置，当前段包含开头重放的重叠音频；
+    // 识别结果中的时间相对当前段的对话开始，即 segmentStart
+    private volatile long segmentBase;
+    private volatile long segmentStart;
+    // 当前段开始时背压控制已丢弃的字节数；之后丢弃的音频识别服务没有收到，不计入结果中的时间
+    private volatile long segmentDropped;
+    private volatile int segmentIndex;
+    // 当前段的对话是否打开过且尚未报告
+    private volatile boolean segmentOpen;
+    // 已请求在下一段继续；当前段的对话正在结束，不再取数
+    private volatile boolean rolloverRequested;
+    private volatile boolean segmentClosing;
+    // 新一段的对话正在打开，不改变录音状态
+    private volatile boolean segmentContinuing;
+    // 最近送出的音频，只由识别取数线程写入；上一段结束后复制到 overlapReplay，在新一段开头重放
+    private final PreRollBuffer segmentHistory = new PreRollBuffer(OVERLAP_BYTES);
+    private final byte[] overlapReplay = new byte[OVERLAP_BYTES];
+    private int replayLength;
+    private int replayOffset;
+    private final PcmSink overlapSink = (src, offset, length) -> {
+        System.arraycopy(src, offset, overlapReplay, replayLength, length);
+        replayLength += length;
+        return length;
+    };
+
+    // 本地语音门限的事件回调，在录音线程上触发
+    private final VadGate.Listener vadListener = new VadGate.Listener() {
+        @Override
+        public void onSpeechStart(long frameIndex) {
+            sink.onSpeechStart(frameIndex);
+        }
+
+        @Override
+        public void onSpeechEnd(long frameIndex) {
+            sink.onSpeechEnd(frameIndex);
+            if (isSegmentDue(segmentBytes)) {
+                requestRollover();
+            }
+        }
+    };
+
+    /**
+     * @param sessionDir 会话音频落盘目录
+     * @param audioThreads 录音线程的工厂，Android 上用它提高线程优先级
+     */
+    public SpeechEngine(Recognizer recognizer, AudioSource.Device microphone, ResultSink sink,
+                        File sessionDir, ThreadFactory audioThreads) {
+        this.recognizer = recognizer;
+        this.microphone = microphone;
+        this.sink = sink;
+        this.sessionDir = sessionDir;
+        this.retention = new SessionRetention(sessionDir, Clock.SYSTEM);
+        this.ringBuffer = PcmRingBuffer.forDuration(RING_BUFFER_MS + AudioPipeline.MAX_PRE_ROLL_MS, SAMPLE_RATE);
+        this.audioPipeline = new AudioPipeline(SAMPLE_RATE, ringBuffer);
+        this.backpressure = audioPipeline.getBackpressure();
+        this.captureExecutor = Executors.newSingleThreadExecutor(audioThreads);
+        this.dispatchScheduler = Executors.newSingleThreadScheduledExecutor();
+        this.metrics = new SpeechMetrics(ringBuffer, backpressure);
+        this.levelMeter = new LevelMeter(SAMPLE_RATE);
+        this.levelBatch = new short[LevelMeter.MAX_INTERVAL_MS / levelMeter.getWindowMs() * LevelMeter.VALUES_PER_WINDOW];
+        this.broadcast = PcmBroadcast.forDuration(PARALLEL_BUFFER_MS + AudioPipeline.MAX_PRE_ROLL_MS, SAMPLE_RATE);
+        backpressure.setSpillFile(new File(sessionDir, SPILL_FILE));
+        // 级别变化在录音线程上触发，转到分发线程再通知
+        backpressure.setListener(level -> dispatchScheduler.execute(() -> onBackpressure(level)));
+        // 检测线程可能是 SDK 的回调线程，在分发线程上开始会话
+        this.keywordListener = keyword -> dispatchScheduler.execute(() -> onWakeWord(keyword));
+        this.partialDispatcher = new PartialResultDispatcher(dispatchScheduler, (keep, delta, length) -> {
+            long begin = System.nanoTime();
+            double confidence = partialConfidence;
+            TranscriptPatch patch = transcript.replaceTail(keep, delta, confidence);
+            if (transcriptPatches) {
+                sink.onTranscriptPatch(sessionId, patch);
+            } else {
+                sink.onPartialResult(keep, delta, length, confidence);
+            }
+            metrics.bridgeDispatch.recordNanos(System.nanoTime() - begin);
+        });
+    }
+
+    /**
+     * @return Recognizer.SUCCESS 或识别服务的错误码
+     */
+    public int initialize(String appkey, String token, String workspace) {
+        int ret = recognizer.initialize(this, appkey, token, workspace);
+        initialized = ret == Recognizer.SUCCESS;
+        this.appkey = appkey;
+        this.token = token;
+        this.workspace = workspace;
+        return ret;
+    }
+
+    /**
+     * 开始一次会话
+     *
+     * @return Recognizer.SUCCESS 或识别服务的错误码
+     * @throws IllegalStateException 已经在录音中或尚未初始化
+     */
+    public int start(SessionOptions options) {
+        if (isRecording) {
+            throw new IllegalStateException("已经在录音中");
+        }
+        if (!initialized) {
+            throw new IllegalStateException("SDK未初始化，请先调用initialize方法");
+        }
+
+        // 会话进行中的 CPU 与唤醒不计入待命
+        KeywordArming arming = keywordArming;
+        if (arming != null) {
+            arming.pause();
+        }
+
+        // 未待命时也可以通过 preRollMs 在 startDialog 之前提前打开麦克风
+        boolean openedForPreRoll = false;
+        if (!isArmed && options.preRollMs > 0) {
+            audioPipeline.armPreRoll(options.preRollMs);
+            startCapture(AudioEngineState.State.ARMED);
+            openedForPreRoll = true;
+        }
+
+        partialDispatcher.reset(options.partialIntervalMs);
+        if (options.vadGate != null) {
+            options.vadGate.setListener(vadListener);
+        }
+        audioPipeline.setVadGate(options.vadGate);
+
+        // 每次会话的音频都落盘，网络中断后可以重新识别
+        sessionCodec = options.codec;
+        streamCodec = options.codec;
+        backpressure.reset(effectivePolicy(options.backpressure));
+        transcriptPatches = options.transcriptPatches;
+        openSession();
+        metrics.reset();
+        sessionStartNanos = System.nanoTime();
+        sentencePartialNanos = 0;
+        firstPartialPending = true;
+        partialConfidence = Double.NaN;
+        resetSegments(options.segmentMs);
+        List<PcmBroadcast.Cursor> cursors = openParallel(options.parallel);
+
+        int ret = recognizer.startDialog(options.codec);
+        if (ret == Recognizer.SUCCESS) {
+            // 主对话先开始，各路并行识别的初始化与启动不推迟主对话
+            startParallel(options.parallel, cursors, options.codec);
+            isRecording = true;
+            scheduleMetrics(options.metricsIntervalMs);
+            scheduleLevels(options.levelIntervalMs);
+        } else {
+            audioPipeline.setBroadcast(null);
+            audioPipeline.setVadGate(null);
+            discardSession();
+            if (openedForPreRoll) {
+                audioPipeline.disarmPreRoll();
+                stopCapture();
+            }
+            resumeKeyword();
+        }
+        return ret;
+    }
+
+    /**
+     * 停止对话，识别服务取完缓冲区中剩余的音频后结束会话
+     *
+     * @throws IllegalStateException 当前没有在录音
+     */
+    public void stop() {
+        if (!isRecording) {
+            throw new IllegalStateException("当前没有在录音");
+        }
+        stopDialog();
+    }
+
+    private void stopDialog() {
+        isRecording = false;
+        if (isArmed) {
+            // 待命中：麦克风回到预录，识别服务取完缓冲区中剩余的音频
+            audioPipeline.armPreRoll(armedPreRollMs);
+            engineState.transition(AudioEngineState.State.CAPTURING, AudioEngineState.State.ARMED);
+            resumeKeyword();
+        } else {
+            // 停止采集，识别服务取完缓冲区后在对话关闭时释放麦克风
+            engineState.transition(AudioEngineState.State.CAPTURING, AudioEngineState.State.DRAINING);
+        }
+        stopParallel();
+        recognizer.stopDialog();
+    }
+
+    // 主对话开始前为各路打开广播的读取位置，本次会话的音频（含预录历史）随后写入，
+    // 各路在主对话开始后才启动，不会漏掉开头的音频
+    private List<PcmBroadcast.Cursor> openParallel(List<ParallelRecognizer> recognizers) {
+        List<PcmBroadcast.Cursor> cursors = new ArrayList<>();
+        for (int i = 0; i < recognizers.size(); i++) {
+            cursors.add(broadcast.open());
+        }
+        audioPipeline.setBroadcast(cursors.isEmpty() ? null : broadcast);
+        return cursors;
+    }
+
+    // 某一路启动失败只报告错误，不影响主对话与其他各路。
+    // initialize 在凭据不变时不重复执行；Recognizer 用 WarmRecognizer 包装时只等待后台初始化完成
+    private void startParallel(List<ParallelRecognizer> recognizers, List<PcmBroadcast.Cursor> cursors,
+                               AudioCodec codec) {
+        List<ParallelRecognizer> started = new ArrayList<>();
+        for (int i = 0; i < recognizers.size(); i++) {
+            ParallelRecognizer recognizer = recognizers.get(i);
+            int ret;
+            try {
+                ret = recognizer.initialize(appkey, token, workspace);
+                if (ret == Recognizer.SUCCESS) {
+                    ret = recognizer.start(sessionId, cursors.get(i), codec, parallelListener);
+                }
+            } catch (IllegalStateException e) {
+                sink.onError("PARALLEL_FAILED", e.getMessage());
+                continue;
+            }
+            if (ret == Recognizer.SUCCESS) {
+                started.add(recognizer);
+            } else {
+                sink.onError("PARALLEL_FAILED", "并行识别 " + recognizer.getName() + " 启动失败，错误码: " + ret);
+            }
+        }
+        parallel = Collections.unmodifiableList(started);
+        metrics.setParallel(parallel);
+        audioPipeline.setBroadcast(started.isEmpty() ? null : broadcast);
+    }
+
+    // 录音结束：各路取完已写入广播的音频后结束对话，可重复调用
+    private void stopParallel() {
+        audioPipeline.setBroadcast(null);
+        for (ParallelRecognizer recognizer : parallel) {
+            recognizer.stop();
+        }
+    }
+
+    /**
+     * 预录待命：麦克风常开并保留最近 preRollMs 的音频；录音中待命只影响对话结束后的状态
+     *
+     * @throws IllegalArgumentException preRollMs 超出范围
+     */
+    public void arm(int preRollMs) {
+        checkPreRoll(preRollMs);
+        isArmed = true;
+        armedPreRollMs = preRollMs;
+        if (!isRecording) {
+            audioPipeline.armPreRoll(preRollMs);
+            startCapture(AudioEngineState.State.ARMED);
+        }
+    }
+
+    private static void checkPreRoll(int preRollMs) {
+        if (preRollMs <= 0 || preRollMs > AudioPipeline.MAX_PRE_ROLL_MS) {
+            throw new IllegalArgumentException("preRollMs 需在 1-" + AudioPipeline.MAX_PRE_ROLL_MS + " 之间");
+        }
+    }
+
+    /**
+     * 唤醒词待命：在预录待命的基础上，录音线程按 AudioPipeline.MAX_ARMED_FRAME_MS 的块读取，语音段送入 spotter；
+     * 检测到唤醒词时按 options 开始会话，预录中的音频（包括唤醒词）先送入识别，与按下按钮开始相同。
+     * 会话结束后回到唤醒词待命。待命期间的 CPU 时间与录音线程唤醒次数见 getKeywordArming
+     *
+     * @return Recognizer.SUCCESS 或 spotter 的错误码，失败时不进入待命
+     * @throws IllegalArgumentException preRollMs 超出范围
+     */
+    public int armKeyword(int preRollMs, KeywordSpotter spotter, SessionOptions options) {
+        checkPreRoll(preRollMs);
+        stopKeyword();
+        KeywordArming arming = new KeywordArming(spotter, new EnergyVad(), SAMPLE_RATE,
+            audioPipeline.getMaxFrameBytes(), cpuClock);
+        int ret = arming.start(keywordListener);
+        if (ret != Recognizer.SUCCESS) {
+            return ret;
+        }
+        if (isRecording) {
+            arming.pause();
+        }
+        wakeOptions = options;
+        keywordArming = arming;
+        keywordStats = arming;
+        audioPipeline.setArmedFrameMs(AudioPipeline.MAX_ARMED_FRAME_MS);
+        audioPipeline.setKeywordArming(arming);
+        arm(preRollMs);
+        return Recognizer.SUCCESS;
+    }
+
+    // 在分发线程上调用：待命中检测到唤醒词，开始会话
+    private void onWakeWord(String keyword) {
+        KeywordArming arming = keywordArming;
+        if (arming == null || !isArmed || isRecording) {
+            return;
+        }
+        arming.markDetection();
+        int ret;
+        try {
+            ret = start(wakeOptions);
+        } catch (IllegalStateException e) {
+            sink.onError("WAKE_START_FAILED", e.getMessage());
+            return;
+        }
+        if (ret == Recognizer.SUCCESS) {
+            sink.onWakeWord(sessionId, keyword);
+        } else {
+            sink.onError("WAKE_START_FAILED", "唤醒后开始识别失败，错误码: " + ret);
+        }
+    }
+
+    private void resumeKeyword() {
+        KeywordArming arming = keywordArming;
+        if (arming != null && isArmed) {
+            arming.resume();
+        }
+    }
+
+    // 退出唤醒词待命，保留统计；预录读取恢复为每帧
+    private void stopKeyword() {
+        KeywordArming arming = keywordArming;
+        if (arming == null) {
+            return;
+        }
+        keywordArming = null;
+        wakeOptions = null;
+        audioPipeline.setKeywordArming(null);
+        audioPipeline.setArmedFrameMs(AudioPipeline.FRAME_MS);
+        arming.stop();
+    }
+
+    /**
+     * @return 当前或最近一次唤醒词待命的统计，没有时返回 null
+     */
+    public KeywordArming getKeywordArming() {
+        return keywordStats;
+    }
+
+    /**
+     * 唤醒词待命统计 CPU 占用所用的进程 CPU 时钟，在 armKeyword 之前设置
+     */
+    public void setCpuClock(KeywordArming.CpuClock cpuClock) {
+        this.cpuClock = cpuClock;
+    }
+
+    /**
+     * 退出预录待命（包括唤醒词待命）并关闭麦克风（录音中则在对话结束后关闭）
+     */
+    public void disarm() {
+        stopKeyword();
+        if (isArmed) {
+            isArmed = false;
+            if (!isRecording) {
+                audioPipeline.disarmPreRoll();
+                stopCapture();
+            }
+        }
+    }
+
+    /**
+     * 停止录音与识别并释放识别服务，之后不能再使用。并行识别只停止对话，由创建者释放
+     */
+    public void release() {
+        isRecording = false;
+        isArmed = false;
+        stopKeyword();
+        stopCapture();
+        stopParallel();
+        finishSession();
+        recognizer.release();
+        initialized = false;
+        shutdownExecutor(captureExecutor);
+        shutdownExecutor(dispatchScheduler);
+        backpressure.close();
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    /**
+     * 最近一次 initialize 使用的凭证，唤醒词检测等需要单独初始化 SDK 时使用，没有时为 null
+     */
+    public String getAppkey() {
+        return appkey;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getWorkspace() {
+        return workspace;
+    }
+
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    public boolean isArmed() {
+        return isArmed;
+    }
+
+    public AudioEngineState.State getState() {
+        return engineState.get();
+    }
+
+    public int getSampleRate() {
+        return SAMPLE_RATE;
+    }
+
+    /**
+     * @return 当前识别对话的传输编码
+     */
+    public AudioCodec getStreamCodec() {
+        return streamCodec;
+    }
+
+    /**
+     * @return 最近一次会话的 ID，会话音频保存在 sessionDir/<sessionId>.wav
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public File getSessionAudioFile(String id) {
+        return new File(sessionDir, id + SessionRetention.AUDIO_SUFFIX);
+    }
+
+    /**
+     * 删除会话音频与句子索引、波形文件
+     *
+     * @return 是否删除了会话音频
+     * @throws IllegalStateException 该会话正在录音
+     */
+    public synchronized boolean deleteSessionAudio(String id) {
+        if (sessionOpen && id.equals(sessionId)) {
+            throw new IllegalStateException("会话正在录音中，不能删除");
+        }
+        return retention.delete(id);
+    }
+
+    /**
+     * @return 会话音频目录的保留上限，每次会话开始前按它删除旧会话
+     */
+    public SessionRetention getRetention() {
+        return retention;
+    }
+
+    public File getSentenceIndexFile(String id) {
+        return new File(sessionDir, id + SentenceIndex.FILE_SUFFIX);
+    }
+
+    public File getWaveformFile(String id) {
+        return new File(sessionDir, id + WaveformPyramid.FILE_SUFFIX);
+    }
+
+    /**
+     * @return 会话的波形峰值：正在录音的会话返回随落盘增量计算的波形，否则读取会话结束时保存的文件；
+     * 没有波形文件的旧会话读取一遍 WAV 生成并保存。会话音频不存在时返回 null
+     */
+    public WaveformPyramid getWaveform(String id) throws IOException {
+        SessionSpool spool = getActiveSpool(id);
+        if (spool != null) {
+            return spool.getWaveform();
+        }
+        File file = getWaveformFile(id);
+        if (file.isFile()) {
+            return WaveformPyramid.readFrom(file);
+        }
+        File audio = getSessionAudioFile(id);
+        if (!audio.isFile()) {
+            return null;
+        }
+        WaveformPyramid waveform = WaveformPyramid.fromWav(audio);
+        waveform.writeTo(file);
+        return waveform;
+    }
+
+    /**
+     * @return 会话的句子索引：正在录音的会话返回内存中的索引，否则读取会话结束时保存的文件，没有时返回 null
+     */
+    public SentenceIndex getSentenceIndex(String id) throws IOException {
+        SentenceIndex index = sentenceIndex;
+        if (index != null && id.equals(sessionId)) {
+            return index;
+        }
+        File file = getSentenceIndexFile(id);
+        return file.isFile() ? SentenceIndex.readFrom(file) : null;
+    }
+
+    /**
+     * @return 当前或最近一次会话的文本，id 不是该会话时返回 null。只保存在内存中，历史会话的文本由前端保存
+     */
+    public Transcript getTranscript(String id) {
+        Transcript current = transcript;
+        return current != null && id.equals(sessionId) ? current : null;
+    }
+
+    /**
+     * @return 当前或最近一次会话中名为 name 的并行识别的文本，没有时返回 null
+     */
+    public Transcript getTranscript(String id, String name) {
+        for (ParallelRecognizer recognizer : parallel) {
+            if (recognizer.getName().equals(name) && id.equals(recognizer.getSessionId())) {
+                return recognizer.getTranscript();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 当前或最近一次会话的并行识别
+     */
+    public List<ParallelRecognizer> getParallel() {
+        return parallel;
+    }
+
+    /**
+     * @return id 为正在录音的会话时返回其落盘文件，否则返回 null
+     */
+    public SessionSpool getActiveSpool(String id) {
+        SessionSpool spool = sessionSpool;
+        return spool != null && id.equals(sessionId) ? spool : null;
+    }
+
+    public PcmRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    public AudioPipeline getPipeline() {
+        return audioPipeline;
+    }
+
+    public BackpressureBuffer getBackpressure() {
+        return backpressure;
+    }
+
+    public PartialResultDispatcher getPartialDispatcher() {
+        return partialDispatcher;
+    }
+
+    /**
+     * @return 当前（或最近一次）会话的指标
+     */
+    public SpeechMetrics getMetrics() {
+        return metrics;
+    }
+
+    // 识别服务回调
+    @Override
+    public void onAudioStateChanged(boolean open) {
+        if (open) {
+            segmentOpen = true;
+            if (segmentContinuing) {
+                // 长时听写的下一段：麦克风与落盘一直在进行
+                segmentContinuing = false;
+                return;
+            }
+            if (engineState.get() == AudioEngineState.State.ARMED) {
+                // 麦克风已在预录，先把历史送入识别再接上实时数据
+                ringBuffer.clear();
+                audioPipeline.startStreaming();
+                engineState.transition(AudioEngineState.State.ARMED, AudioEngineState.State.CAPTURING);
+            } else {
+                startCapture(AudioEngineState.State.CAPTURING);
+            }
+            segmentBase = ringBuffer.getReadPosition();
+            segmentStart = segmentBase;
+            segmentDropped = ringBuffer.getDroppedBytes();
+        } else if (segmentClosing && sessionOpen) {
+            // 分段结束：保留重叠音频，在分发线程上开始下一段，不在 SDK 回调中调用 startDialog
+            reportSegment();
+            replayLength = 0;
+            replayOffset = 0;
+            segmentHistory.copyTo(overlapSink);
+            segmentStart = ringBuffer.getReadPosition() - replayLength;
+            segmentDropped = ringBuffer.getDroppedBytes();
+            segmentIndex++;
+            dispatchScheduler.execute(() -> startNextSegment(0));
+        } else {
+            endSession();
+        }
+    }
+
+    // 对话结束：出错时识别服务会自行结束对话，之后可以开始新的会话
+    private void endSession() {
+        isRecording = false;
+        reportSegment();
+        finishSession();
+        if (isArmed) {
+            // 回到待命状态，麦克风保持打开
+            audioPipeline.armPreRoll(armedPreRollMs);
+            if (engineState.get() == AudioEngineState.State.CAPTURING) {
+                engineState.transition(AudioEngineState.State.CAPTURING, AudioEngineState.State.ARMED);
+            }
+            resumeKeyword();
+        } else {
+            stopCapture();
+        }
+    }
+
+    @Override
+    public int onNeedAudioData(byte[] buffer, int len) {
+        if (segmentClosing) {
+            // 当前段正在结束，之后的音频留给下一段
+            return 0;
+        }
+        long waitStart = System.nanoTime();
+        int n;
+        if (replayOffset < replayLength) {
+            // 新一段先重放上一段末尾的音频
+            n = Math.min(len, replayLength - replayOffset);
+            System.arraycopy(overlapReplay, replayOffset, buffer, 0, n);
+            replayOffset += n;
+        } else {
+            // 只从环形缓冲区取数，不直接读取麦克风；数据不足时最多短暂等待一个读取周期，
+            // 停止采集后还有溢写的积压时等待录音线程搬回
+            long deadline = waitStart + NEED_AUDIO_WAIT_NANOS;
+            while ((engineState.get() == AudioEngineState.State.CAPTURING || backpressure.getBacklogBytes() > 0)
+                && ringBuffer.available() < len && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(NEED_AUDIO_PARK_NANOS);
+            }
+            n = ringBuffer.read(buffer, 0, len);
+        }
+        metrics.markConsumed(n, waitStart, System.nanoTime());
+        long limit = segmentBytes;
+        if (limit > 0 && n > 0) {
+            segmentHistory.write(buffer, 0, n);
+            // 一直没有静音时也不能无限延长
+            if (isSegmentDue(limit + PcmRingBuffer.bytesForDuration(SEGMENT_GRACE_MS, SAMPLE_RATE))) {
+                requestRollover();
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void onEventCallback(Recognizer.Event event, int resultCode, String asrResult) {
+        switch (event) {
+            case EVENT_ASR_PARTIAL_RESULT: {
+                // 中间识别结果，按间隔合并后以增量发送
+                AsrResultDecoder result = resultDecoder;
+                if (result.decode(asrResult) && result.hasText()) {
+                    String text = result.getText();
+                    long now = System.nanoTime();
+                    if (firstPartialPending) {
+                        firstPartialPending = false;
+                        metrics.timeToFirstPartial.recordNanos(now - sessionStartNanos);
+                    }
+                    if (sentencePartialNanos == 0) {
+                        sentencePartialNanos = now;
+                    }
+                    partialConfidence = result.getValidConfidence();
+                    partialDispatcher.submitPartial(text);
+                }
+                break;
+            }
+            case EVENT_SENTENCE_END: {
+                // 完整识别结果
+                AsrResultDecoder result = resultDecoder;
+                if (result.decode(asrResult) && result.hasText()) {
+                    String text = result.getText();
+                    double confidence = result.getValidConfidence();
+                    long sdkIndex = result.getIndex();
+                    long partialAt = sentencePartialNanos;
+                    sentencePartialNanos = 0;
+                    if (partialAt != 0) {
+                        metrics.partialToFinal.recordNanos(System.nanoTime() - partialAt);
+                    }
+                    SentenceTiming timing = sentenceTiming(result.getBeginTimeMs(), result.getTimeMs());
+                    partialDispatcher.submitFinal(() -> {
+                        long begin = System.nanoTime();
+                        TranscriptPatch patch = transcript.commit(text, confidence, sdkIndex, timing);
+                        if (transcriptPatches) {
+                            sink.onTranscriptPatch(sessionId, patch);
+                        } else {
+                            sink.onFinalResult(text, confidence, sdkIndex, timing);
+                        }
+                        metrics.bridgeDispatch.recordNanos(System.nanoTime() - begin);
+                    });
+                }
+                if (isSegmentDue(segmentBytes)) {
+                    requestRollover();
+                }
+                break;
+            }
+            case EVENT_ASR_ERROR:
+                // 会话结束时随 onSessionClosed 报告，由调用方决定是否重新识别
+                sessionFailed = true;
+                partialDispatcher.submitError(() -> sink.onError("ASR_ERROR", "识别错误，错误码: " + resultCode));
+                break;
+            case EVENT_MIC_ERROR:
+                partialDispatcher.submitError(() -> sink.onError("MIC_ERROR", "麦克风错误"));
+                break;
+            default:
+                break;
+        }
+    }
+
+    // payload.begin_time 与 payload.time 是相对本次对话送入音频的毫秒数，经会话音频时钟换算到落盘音频中，并记入句子索引。
+    // 背压丢弃的音频识别服务没有收到，按本段已丢弃的总量后移（丢弃之前的句子会有偏差）。
+    // 会话音频时钟还没有数据时返回 null
+    private SentenceTiming sentenceTiming(long beginMs, long endMs) {
+        long origin = segmentStart + (ringBuffer.getDroppedBytes() - segmentDropped);
+        long end = endMs >= 0 ? origin + endMs * BYTES_PER_MS : ringBuffer.getReadPosition();
+        long begin = beginMs >= 0 && beginMs <= endMs ? origin + beginMs * BYTES_PER_MS : end;
+
+        AudioClock clock = audioPipeline.getClock();
+        if (clock.wallTimeAt(0) < 0) {
+            // 还没有采集到音频，无法定位，不报告时间
+            return null;
+        }
+        long beginByte = Math.max(0, clock.toSessionPosition(begin));
+        long endByte = Math.max(0, clock.toSessionPosition(end));
+        SentenceIndex index = sentenceIndex;
+        int i = -1;
+        if (index != null) {
+            i = index.add(beginByte, endByte);
+            beginByte = index.getBegin(i);
+            endByte = index.getEnd(i);
+        }
+        long beginTime = clock.wallTimeAt(beginByte);
+        return new SentenceTiming(i, clock.toMillis(beginByte), clock.toMillis(endByte),
+            beginTime, beginTime + clock.toMillis(endByte - beginByte));
+    }
+
+    // BLOCK 会让录音线程停止读取，实时麦克风的音频在系统缓冲区中丢失，改为溢写到文件，同样不丢失送往识别的音频
+    private BackpressurePolicy effectivePolicy(BackpressurePolicy policy) {
+        if (policy == BackpressurePolicy.BLOCK && !(microphone instanceof AudioSource.Pausable)) {
+            return BackpressurePolicy.SPILL_TO_DISK;
+        }
+        return policy;
+    }
+
+    private void resetSegments(int segmentMs) {
+        segmentBytes = segmentMs > 0 ? PcmRingBuffer.bytesForDuration(segmentMs, SAMPLE_RATE) : 0;
+        segmentIndex = 0;
+        segmentOpen = false;
+        rolloverRequested = false;
+        segmentClosing = false;
+        segmentContinuing = false;
+        // 此时没有进行中的对话，可以在调用线程上清空
+        segmentHistory.clear();
+        replayLength = 0;
+        replayOffset = 0;
+    }
+
+    // 当前段已送出的音频是否达到 limit 字节
+    private boolean isSegmentDue(long limit) {
+        return segmentBytes > 0 && isRecording && !rolloverRequested
+            && ringBuffer.getReadPosition() - segmentStart >= limit;
+    }
+
+    private void requestRollover() {
+        rolloverRequested = true;
+        dispatchScheduler.execute(() -> {
+            if (isRecording) {
+                segmentClosing = true;
+                recognizer.stopDialog();
+            }
+        });
+    }
+
+    // 在分发线程上打开下一段的对话；期间停止了会话时由下一段取完缓冲区中剩余的音频，打开失败时按对话结束处理
+    private void startNextSegment(int attempt) {
+        if (!isRecording && ringBuffer.available() == 0) {
+            endSession();
+            return;
+        }
+        segmentContinuing = true;
+        rolloverRequested = false;
+        segmentClosing = false;
+        int ret = recognizer.startDialog(streamCodec);
+        if (ret != Recognizer.SUCCESS) {
+            segmentContinuing = false;
+            if (attempt + 1 < SEGMENT_START_ATTEMPTS) {
+                rolloverRequested = true;
+                segmentClosing = true;
+                dispatchScheduler.schedule(() -> startNextSegment(attempt + 1), SEGMENT_RETRY_MS, TimeUnit.MILLISECONDS);
+                return;
+            }
+            sink.onError("SEGMENT_FAILED", "开始新的识别分段失败，错误码: " + ret);
+            endSession();
+            return;
+        }
+        if (!isRecording) {
+            // 分段切换期间调用了 stop
+            recognizer.stopDialog();
+        }
+    }
+
+    // 在分发线程上通知背压级别变化；DEGRADE_BITRATE 在积压升高时切换到 Opus 开始新的一段
+    private void onBackpressure(BackpressureBuffer.Level level) {
+        String id = sessionId;
+        if (!sessionOpen || id == null) {
+            return;
+        }
+        sink.onBackpressure(id, level, backpressure);
+        if (level != BackpressureBuffer.Level.NORMAL && backpressure.getPolicy() == BackpressurePolicy.DEGRADE_BITRATE
+            && streamCodec != AudioCodec.OPUS && isRecording && !rolloverRequested) {
+            streamCodec = AudioCodec.OPUS;
+            requestRollover();
+        }
+    }
+
+    private void reportSegment() {
+        if (!segmentOpen || segmentBytes == 0) {
+            return;
+        }
+        segmentOpen = false;
+        sink.onSegment(sessionId, segmentIndex, (segmentStart - segmentBase) / BYTES_PER_MS,
+            (ringBuffer.getReadPosition() - segmentBase) / BYTES_PER_MS);
+    }
+
+    private synchronized void startCapture(AudioEngineState.State target) {
+        // 预录时麦克风已经打开，只切换状态
+        if (engineState.isCaptureRunning()) {
+            engineState.moveTo(target);
+            return;
+        }
+        // 上一次会话还在排空，先释放麦克风
+        if (microphoneOpen) {
+            stopCapture();
+        }
+        try {
+            microphone.start(SAMPLE_RATE, audioPipeline.getMaxFrameBytes());
+        } catch (IOException e) {
+            sink.onError("AUDIO_INIT_FAILED", "音频初始化失败: " + e.getMessage());
+            return;
+        }
+        microphoneOpen = true;
+        ringBuffer.clear();
+        ringBuffer.resetStats();
+        audioPipeline.resetStats();
+        engineState.moveTo(target);
+        // 唯一的录音线程：读取麦克风并写入环形缓冲区，识别服务在 onNeedAudioData 中取数
+        captureTask = captureExecutor.submit(this::captureLoop);
+    }
+
+    private void captureLoop() {
+        while (engineState.isCaptureRunning()) {
+            int n = audioPipeline.processFrame(microphone);
+            if (n < 0) {
+                if (engineState.isCaptureRunning()) {
+                    onCaptureEnded(n);
+                }
+                break;
+            }
+            if (n > 0) {
+                metrics.markWritten(System.nanoTime());
+            }
+        }
+        drainBacklog();
+    }
+
+    // 停止采集后识别服务继续取完缓冲区，溢写到文件的积压只能由录音线程搬回环形缓冲区
+    private void drainBacklog() {
+        while (engineState.get() == AudioEngineState.State.DRAINING && backpressure.drainSpill()) {
+            LockSupport.parkNanos(NEED_AUDIO_PARK_NANOS);
+        }
+    }
+
+    // 麦克风出错或音频来源已结束：结束当前对话，不再回到待命
+    private void onCaptureEnded(int code) {
+        if (code != AudioSource.END_OF_STREAM) {
+            sink.onError("MIC_ERROR", "麦克风读取失败，错误码: " + code);
+        }
+        isArmed = false;
+        stopKeyword();
+        if (isRecording) {
+            stopDialog();
+        } else {
+            // 不能在录音线程上等待自己退出
+            dispatchScheduler.execute(this::stopCapture);
+        }
+    }
+
+    private synchronized void stopCapture() {
+        engineState.moveTo(AudioEngineState.State.STOPPED);
+        if (!microphoneOpen) {
+            return;
+        }
+        microphoneOpen = false;
+        try {
+            // stop 会让阻塞中的 read 返回，等录音线程退出后再释放，避免释放时仍在读取
+            microphone.stop();
+            awaitCaptureExit();
+            microphone.release();
+        } catch (Exception e) {
+            sink.onError("STOP_RECORDING_FAILED", "停止录音失败: " + e.getMessage());
+        }
+    }
+
+    private void awaitCaptureExit() throws InterruptedException {
+        Future<?> task = captureTask;
+        captureTask = null;
+        if (task == null) {
+            return;
+        }
+        try {
+            task.get(CAPTURE_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+        } catch (ExecutionException e) {
+            sink.onError("RECORDING_FAILED", "录音线程异常: " + e.getCause());
+        }
+    }
+
+    private synchronized void openSession() {
+        finishSession();
+        retention.prune(null);
+        sessionId = UUID.randomUUID().toString();
+        sessionOpen = true;
+        sessionFailed = false;
+        sentenceIndex = new SentenceIndex();
+        transcript = new Transcript();
+        audioPipeline.resetClock();
+        File file = getSessionAudioFile(sessionId);
+        try {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("无法创建目录: " + dir);
+            }
+            SessionSpool spool = new SessionSpool(file, SAMPLE_RATE);
+            sessionSpool = spool;
+            audioPipeline.setSpool(spool);
+            spoolTask = dispatchScheduler.scheduleAtFixedRate(spool::prepare,
+                0, SPOOL_PREPARE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            // 落盘失败不影响识别
+            sessionSpool = null;
+            sink.onError("SPOOL_FAILED", "会话音频落盘失败: " + e.getMessage());
+        }
+    }
+
+    // 保存会话音频并通知 ResultSink
+    private synchronized void finishSession() {
+        if (!sessionOpen) {
+            return;
+        }
+        sessionOpen = false;
+        boolean failed = sessionFailed;
+        sessionFailed = false;
+        cancelMetrics();
+        cancelLevels(sessionId);
+        stopParallel();
+        sink.onMetrics(sessionId, metrics);
+        saveSentenceIndex();
+        SessionSpool spool = closeSessionSpool();
+        saveWaveform(spool);
+        sink.onSessionClosed(sessionId, spool != null ? spool.getFile() : null,
+            spool != null ? spool.getDataBytes() : 0, sessionCodec, failed);
+    }
+
+    private synchronized void discardSession() {
+        sessionOpen = false;
+        sentenceIndex = null;
+        cancelMetrics();
+        cancelLevels(null);
+        stopParallel();
+        SessionSpool spool = sessionSpool;
+        closeSessionSpool();
+        if (spool != null) {
+            spool.getFile().delete();
+        }
+        sessionId = null;
+    }
+
+    private void saveSentenceIndex() {
+        SentenceIndex index = sentenceIndex;
+        sentenceIndex = null;
+        if (index == null || sessionSpool == null) {
+            return;
+        }
+        try {
+            index.writeTo(getSentenceIndexFile(sessionId));
+        } catch (IOException e) {
+            sink.onError("SPOOL_FAILED", "句子索引保存失败: " + e.getMessage());
+        }
+    }
+
+    private void saveWaveform(SessionSpool spool) {
+        if (spool == null) {
+            return;
+        }
+        try {
+            spool.getWaveform().writeTo(getWaveformFile(sessionId));
+        } catch (IOException e) {
+            sink.onError("SPOOL_FAILED", "波形保存失败: " + e.getMessage());
+        }
+    }
+
+    private synchronized void scheduleMetrics(int intervalMs) {
+        cancelMetrics();
+        // 对话可能在 startDialog 返回前就已结束
+        if (intervalMs <= 0 || !sessionOpen) {
+            return;
+        }
+        String id = sessionId;
+        metricsTask = dispatchScheduler.scheduleAtFixedRate(() -> sink.onMetrics(id, metrics),
+            intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void cancelMetrics() {
+        if (metricsTask != null) {
+            metricsTask.cancel(false);
+            metricsTask = null;
+        }
+    }
+
+    private synchronized void scheduleLevels(int intervalMs) {
+        cancelLevels(null);
+        if (intervalMs <= 0 || !sessionOpen) {
+            return;
+        }
+        int period = Math.min(intervalMs, LevelMeter.MAX_INTERVAL_MS);
+        String id = sessionId;
+        levelMeter.reset();
+        audioPipeline.setLevelMeter(levelMeter);
+        levelsTask = dispatchScheduler.scheduleAtFixedRate(() -> emitLevels(id),
+            period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止电平表，id 不为 null 时在分发线程上报告剩余的窗口
+     */
+    private synchronized void cancelLevels(String id) {
+        if (levelsTask == null) {
+            return;
+        }
+        levelsTask.cancel(false);
+        levelsTask = null;
+        audioPipeline.setLevelMeter(null);
+        if (id != null) {
+            dispatchScheduler.execute(() -> emitLevels(id));
+        }
+    }
+
+    // 只在分发线程上调用，levelBatch 跨周期复用
+    private void emitLevels(String id) {
+        int windows = levelMeter.drain(levelBatch);
+        if (windows > 0) {
+            sink.onLevels(id, levelBatch, windows, levelMeter.getWindowMs());
+        }
+    }
+
+    /**
+     * @return 已关闭的落盘文件，没有落盘或保存失败时返回 null
+     */
+    private SessionSpool closeSessionSpool() {
+        audioPipeline.setSpool(null);
+        if (spoolTask != null) {
+            spoolTask.cancel(false);
+            spoolTask = null;
+        }
+        SessionSpool spool = sessionSpool;
+        sessionSpool = null;
+        if (spool == null) {
+            return null;
+        }
+        try {
+            spool.close();
+        } catch (IOException e) {
+            sink.onError("SPOOL_FAILED", "会话音频保存失败: " + e.getMessage());
+            return null;
+        }
+        return spool;
+    }
+
+    /**
+     * 有限时间内关闭线程池，超时则中断
+     */
+    public static void shutdownExecutor(ExecutorService executor) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.memoir.aliyunspeech;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 单次会话的热路径指标，记录过程中不分配内存：
+ * <ul>
+ * <li>handoff：一帧写入环形缓冲区到被识别服务取走的时间</li>
+ * <li>needAudioWait：onNeedAudioData 中等待数据的时间</li>
+ * <li>timeToFirstPartial：start 到第一个中间结果</li>
+ * <li>partialToFinal：一句话的第一个中间结果到最终结果</li>
+ * <li>bridgeDispatch：把结果交给 ResultSink（插件中即 notifyListeners）的耗时</li>
+ * </ul>
+ * 以及发送给识别服务的字节数、环形缓冲区的溢出次数和背压控制的积压深度；有并行识别时附带各路的落后时长与置信度。
+ */
+public class SpeechMetrics {
+
+    // 写入时间戳的槽位数，大于环形缓冲区能容纳的帧数
+    private static final int HANDOFF_SLOTS = 256;
+    private static final int HANDOFF_MASK = HANDOFF_SLOTS - 1;
+
+    public final LatencyHistogram handoff = new LatencyHistogram();
+    public final LatencyHistogram needAudioWait = new LatencyHistogram();
+    public final LatencyHistogram timeToFirstPartial = new LatencyHistogram();
+    public final LatencyHistogram partialToFinal = new LatencyHistogram();
+    public final LatencyHistogram bridgeDispatch = new LatencyHistogram();
+
+    private final PcmRingBuffer ringBuffer;
+    private final BackpressureBuffer backpressure;
+    private final AtomicLong bytesSent = new AtomicLong();
+    private volatile long overrunCountBase;
+    private volatile long overrunBytesBase;
+    private volatile long startedAtNanos = System.nanoTime();
+    private volatile List<ParallelRecognizer> parallel = Collections.emptyList();
+
+    // 单生产者（录音线程）/单消费者（识别取数线程）的时间戳队列：写入后的绝对位置与写入时间
+    private final long[] slotPositions = new long[HANDOFF_SLOTS];
+    private final long[] slotNanos = new long[HANDOFF_SLOTS];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    // 只由录音线程读写
+    private long lastWritePosition = -1;
+
+    public SpeechMetrics(PcmRingBuffer ringBuffer, BackpressureBuffer backpressure) {
+        this.ringBuffer = ringBuffer;
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * 会话开始时清零；之前写入、尚未取走的帧不计入本次会话
+     */
+    public void reset() {
+        handoff.reset();
+        needAudioWait.reset();
+        timeToFirstPartial.reset();
+        partialToFinal.reset();
+        bridgeDispatch.reset();
+        bytesSent.set(0);
+        overrunCountBase = ringBuffer.getOverrunCount();
+        overrunBytesBase = ringBuffer.getOverrunBytes();
+        startedAtNanos = System.nanoTime();
+    }
+
+    /**
+     * 录音线程每处理一帧后调用，环形缓冲区有新数据时记下写入时间
+     */
+    public void markWritten(long nanos) {
+        long position = ringBuffer.getWritePosition();
+        if (position == lastWritePosition) {
+            return;
+        }
+        lastWritePosition = position;
+        long h = head.get();
+        if (h - tail.get() >= HANDOFF_SLOTS) {
+            return;
+        }
+        int slot = (int) (h & HANDOFF_MASK);
+        slotPositions[slot] = position;
+        slotNanos[slot] = nanos;
+        head.lazySet(h + 1);
+    }
+
+    /**
+     * 识别取数线程每次读取后调用，记录已被完整取走的帧的交接时间
+     */
+    public void markConsumed(int bytes, long waitStartNanos, long nanos) {
+        needAudioWait.recordNanos(nanos - waitStartNanos);
+        bytesSent.addAndGet(bytes);
+        long position = ringBuffer.getReadPosition();
+        long started = startedAtNanos;
+        long t = tail.get();
+        long h = head.get();
+        while (t < h) {
+            int slot = (int) (t & HANDOFF_MASK);
+            if (slotPositions[slot] > position) {
+                break;
+            }
+            if (slotNanos[slot] >= started) {
+                handoff.recordNanos(nanos - slotNanos[slot]);
+            }
+            t++;
+        }
+        tail.lazySet(t);
+    }
+
+    /**
+     * 本次会话的并行识别，在 reset 之后设置
+     */
+    public void setParallel(List<ParallelRecognizer> parallel) {
+        this.parallel = parallel;
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getOverrunCount() {
+        return ringBuffer.getOverrunCount() - overrunCountBase;
+    }
+
+    public long getOverrunBytes() {
+        return ringBuffer.getOverrunBytes() - overrunBytesBase;
+    }
+
+    /**
+     * 填充 onMetrics 事件，时间单位为毫秒，target 可以是 JSObject
+     */
+    public <T extends JSONObject> T toJson(T target) {
+        try {
+            target.put("durationMs", (System.nanoTime() - startedAtNanos) / 1000000);
+            target.put("bytesSent", getBytesSent());
+            target.put("overrunCount", getOverrunCount());
+            target.put("overrunBytes", getOverrunBytes());
+            target.put("handoff", handoff.toJson(new JSONObject()));
+            target.put("needAudioWait", needAudioWait.toJson(new JSONObject()));
+            target.put("timeToFirstPartial", timeToFirstPartial.toJson(new JSONObject()));
+            target.put("partialToFinal", partialToFinal.toJson(new JSONObject()));
+            target.put("bridgeDispatch", bridgeDispatch.toJson(new JSONObject()));
+            target.put("backpressure", backpressure.toJson(new JSONObject()));
+            List<ParallelRecognizer> recognizers = parallel;
+            if (!recognizers.isEmpty()) {
+                JSONArray array = new JSONArray();
+                for (ParallelRecognizer recognizer : recognizers) {
+                    array.put(recognizer.toJson(new JSONObject()));
+                }
+                target.put("parallel", array);
+            }
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+}
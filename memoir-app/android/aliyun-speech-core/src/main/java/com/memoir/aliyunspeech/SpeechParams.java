@@ -0,0 +1,205 @@
+package com.memoir.aliyunspeech;
+
+import java.util.Iterator;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * SDK 参数 JSON 的生成，与 NativeNui 无关，便于在 JVM 上测试与基准测量。
+ * SDK 常量（服务模式、服务类型）由调用方传入。
+ */
+public final class SpeechParams {
+
+    public static final String GATEWAY_URL = "wss://nls-gateway.cn-shanghai.aliyuncs.com:443/ws/v1";
+
+    private static final char[] BASE64 =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private SpeechParams() {
+    }
+
+    // 生成初始化参数
+    public static String initParams(String appkey, String token, String deviceId, String workspace, int serviceMode) {
+        try {
+            JSONObject object = new JSONObject();
+            object.put("appkey", appkey);
+            object.put("token", token);
+            object.put("device_id", deviceId);
+            object.put("url", GATEWAY_URL);
+            object.put("workspace", workspace);
+            object.put("service_mode", serviceMode);
+            return object.toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+
+    // 生成识别参数
+    public static String recognitionParams(AudioCodec codec, int serviceType) {
+        return recognitionParams(codec, serviceType, null);
+    }
+
+    /**
+     * 生成识别参数，nlsOverrides 中的键（例如 customization_id、vocabulary_id）覆盖 nls_config 的默认值，
+     * sr_format 始终由 codec 决定
+     */
+    public static String recognitionParams(AudioCodec codec, int serviceType, JSONObject nlsOverrides) {
+        try {
+            JSONObject nlsConfig = new JSONObject();
+            nlsConfig.put("enable_intermediate_result", true);
+            nlsConfig.put("enable_punctuation_prediction", true);
+            nlsConfig.put("enable_inverse_text_normalization", true);
+            if (nlsOverrides != null) {
+                Iterator<String> keys = nlsOverrides.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    nlsConfig.put(key, nlsOverrides.get(key));
+                }
+            }
+            // opus 时由SDK在本地压缩上行音频，送入的仍是PCM
+            nlsConfig.put("sr_format", codec.getStreamFormat());
+
+            JSONObject parameters = new JSONObject();
+            parameters.put("nls_config", nlsConfig);
+            parameters.put("service_type", serviceType);
+
+            return parameters.toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+
+    // 生成对话参数
+    public static String dialogParams(String token) {
+        try {
+            JSONObject dialogParam = new JSONObject();
+            dialogParam.put("token", token);
+            return dialogParam.toString();
+        } catch (JSONException e) {
+            return "{}";
+        }
+    }
+
+    /**
+     * 填充 onFinalResult 事件，target 可以是 JSObject
+     */
+    public static <T extends JSONObject> T finalResult(T target, String text, double confidence, long beginTime, long endTime) {
+        putConfidence(target, "confidence", confidence);
+        try {
+            target.put("text", text);
+            target.put("beginTime", beginTime);
+            target.put("endTime", endTime);
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    /**
+     * 填充带会话音频位置的 onFinalResult 事件：beginTime/endTime 为墙上时间，
+     * beginOffsetMs/endOffsetMs 为相对会话音频开头的偏移，sdkIndex 为识别服务的句子序号（没有时省略），
+     * timing 为 null（还没有采集到音频）时省略时间与位置，target 可以是 JSObject
+     */
+    public static <T extends JSONObject> T finalResult(T target, String text, double confidence, long sdkIndex,
+                                                       SentenceTiming timing) {
+        putConfidence(target, "confidence", confidence);
+        try {
+            target.put("text", text);
+            if (sdkIndex >= 0) {
+                target.put("sdkIndex", sdkIndex);
+            }
+            if (timing != null) {
+                target.put("beginTime", timing.beginTime);
+                target.put("endTime", timing.endTime);
+                target.put("index", timing.index);
+                target.put("beginOffsetMs", timing.beginOffsetMs);
+                target.put("endOffsetMs", timing.endOffsetMs);
+            }
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    /**
+     * 写入置信度，NaN（识别结果没有给出）时省略该键，target 可以是 JSObject
+     */
+    public static void putConfidence(JSONObject target, String key, double confidence) {
+        if (Double.isNaN(confidence)) {
+            return;
+        }
+        try {
+            target.put(key, confidence);
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+    }
+
+    /**
+     * 填充增量形式的 onPartialResult 事件，target 可以是 JSObject
+     */
+    public static <T extends JSONObject> T partialResult(T target, int keep, String delta, int length, double confidence) {
+        putConfidence(target, "confidence", confidence);
+        try {
+            target.put("keep", keep);
+            target.put("delta", delta);
+            target.put("length", length);
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    /**
+     * 填充 onTranscriptPatch 事件：op 为 replaceTail 或 commit，commit 时带句子序号、字符偏移与会话音频位置，
+     * target 可以是 JSObject
+     */
+    public static <T extends JSONObject> T transcriptPatch(T target, TranscriptPatch patch) {
+        partialResult(target, patch.keep, patch.delta, patch.length, patch.confidence);
+        try {
+            target.put("op", patch.op == TranscriptPatch.Op.COMMIT ? "commit" : "replaceTail");
+            if (patch.op == TranscriptPatch.Op.COMMIT) {
+                target.put("index", patch.index);
+                target.put("offset", patch.offset);
+                if (patch.sdkIndex >= 0) {
+                    target.put("sdkIndex", patch.sdkIndex);
+                }
+                if (patch.timing != null) {
+                    target.put("beginOffsetMs", patch.timing.beginOffsetMs);
+                    target.put("endOffsetMs", patch.timing.endOffsetMs);
+                    target.put("beginTime", patch.timing.beginTime);
+                    target.put("endTime", patch.timing.endTime);
+                }
+            }
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    /**
+     * 把 values 的前 count 个值按小端 int16 打包为 base64，用于电平与波形这类数组事件
+     */
+    public static String int16Base64(short[] values, int count) {
+        int bytes = count * 2;
+        char[] out = new char[(bytes + 2) / 3 * 4];
+        int o = 0;
+        for (int i = 0; i < bytes; i += 3) {
+            int b0 = byteAt(values, i);
+            int b1 = i + 1 < bytes ? byteAt(values, i + 1) : 0;
+            int b2 = i + 2 < bytes ? byteAt(values, i + 2) : 0;
+            int triple = (b0 << 16) | (b1 << 8) | b2;
+            out[o++] = BASE64[(triple >> 18) & 0x3f];
+            out[o++] = BASE64[(triple >> 12) & 0x3f];
+            out[o++] = i + 1 < bytes ? BASE64[(triple >> 6) & 0x3f] : '=';
+            out[o++] = i + 2 < bytes ? BASE64[triple & 0x3f] : '=';
+        }
+        return new String(out);
+    }
+
+    private static int byteAt(short[] values, int index) {
+        short value = values[index >> 1];
+        return ((index & 1) == 0 ? value : value >> 8) & 0xff;
+    }
+}
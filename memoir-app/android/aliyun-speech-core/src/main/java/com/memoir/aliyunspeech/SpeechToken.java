@@ -0,0 +1,23 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 识别服务的访问令牌与过期时间
+ */
+public class SpeechToken {
+
+    public final String token;
+    // 后端同时下发的 appkey，可以为空
+    public final String appKey;
+    // 过期时间（毫秒时间戳），0 表示未知
+    public final long expiresAt;
+
+    public SpeechToken(String token, String appKey, long expiresAt) {
+        this.token = token;
+        this.appKey = appKey;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return expiresAt > 0 && now >= expiresAt;
+    }
+}
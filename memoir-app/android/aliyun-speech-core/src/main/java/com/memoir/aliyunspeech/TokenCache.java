@@ -0,0 +1,181 @@
+package com.memoir.aliyunspeech;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问令牌缓存：记录过期时间，在过期前由后台 scheduler 通过 TokenFetcher 提前刷新。
+ *
+ * getToken 只读取缓存，不会等待网络；刷新失败时按 TranscriptionQueue.backoffMs 退避重试，
+ * 期间继续提供尚未过期的旧令牌。设备休眠会推迟定时任务，所以 getToken 发现已到刷新时间时也会立即安排刷新。
+ */
+public class TokenCache {
+
+    // 提前于过期时间刷新的时长；有效期很短时改为有效期的一半
+    public static final long REFRESH_AHEAD_MS = 10 * 60 * 1000;
+    // 后端未给出过期时间时按此有效期处理
+    public static final long DEFAULT_LIFETIME_MS = 60 * 60 * 1000;
+
+    /**
+     * 在 scheduler 线程上回调
+     */
+    public interface Listener {
+        void onTokenRefreshed(SpeechToken token);
+
+        /**
+         * @param failures 连续失败次数
+         */
+        void onRefreshFailed(IOException error, int failures);
+    }
+
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private volatile TokenFetcher fetcher;
+    private volatile Listener listener;
+
+    private volatile SpeechToken token;
+    private volatile long nextRefreshAt = -1;
+    private volatile int failures;
+    private volatile int refreshCount;
+    private ScheduledFuture<?> scheduled;
+    // 保证同一时间只有一次 fetch
+    private final Object refreshLock = new Object();
+
+    public TokenCache(Clock clock, ScheduledExecutorService scheduler) {
+        this.clock = clock;
+        this.scheduler = scheduler;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 设置令牌来源并立即在后台刷新一次
+     */
+    public void setFetcher(TokenFetcher fetcher) {
+        this.fetcher = fetcher;
+        failures = 0;
+        refreshNow();
+    }
+
+    /**
+     * @return 尚未过期的令牌，没有时返回 null；不会阻塞
+     */
+    public SpeechToken getToken() {
+        SpeechToken current = token;
+        long now = clock.currentTimeMillis();
+        long due = nextRefreshAt;
+        if (fetcher != null && due >= 0 && now >= due) {
+            schedule(0);
+        }
+        return current != null && !current.isExpired(now) ? current : null;
+    }
+
+    /**
+     * 在后台立即刷新
+     */
+    public void refreshNow() {
+        synchronized (this) {
+            nextRefreshAt = clock.currentTimeMillis();
+        }
+        schedule(0);
+    }
+
+    /**
+     * 到了刷新时间则同步获取新令牌，由 scheduler 调用
+     *
+     * @return 本次是否获取了令牌
+     */
+    public boolean refreshIfDue() {
+        synchronized (refreshLock) {
+            TokenFetcher current = fetcher;
+            long now = clock.currentTimeMillis();
+            if (current == null || nextRefreshAt < 0 || now < nextRefreshAt) {
+                return false;
+            }
+            SpeechToken fresh;
+            try {
+                fresh = current.fetch();
+            } catch (IOException e) {
+                int count = ++failures;
+                nextRefreshAt = clock.currentTimeMillis() + TranscriptionQueue.backoffMs(count);
+                scheduleNext();
+                Listener l = listener;
+                if (l != null) {
+                    l.onRefreshFailed(e, count);
+                }
+                return false;
+            }
+            now = clock.currentTimeMillis();
+            if (fresh.expiresAt <= 0) {
+                fresh = new SpeechToken(fresh.token, fresh.appKey, now + DEFAULT_LIFETIME_MS);
+            }
+            token = fresh;
+            failures = 0;
+            refreshCount++;
+            nextRefreshAt = refreshAt(fresh, now);
+            scheduleNext();
+            Listener l = listener;
+            if (l != null) {
+                l.onTokenRefreshed(fresh);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return 下一次刷新的时间（毫秒时间戳），未设置来源时为 -1
+     */
+    public long getNextRefreshAt() {
+        return nextRefreshAt;
+    }
+
+    public int getConsecutiveFailures() {
+        return failures;
+    }
+
+    public int getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * 取消已安排的刷新；scheduler 由调用方关闭
+     */
+    public synchronized void stop() {
+        fetcher = null;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    static long refreshAt(SpeechToken token, long now) {
+        long lifetime = token.expiresAt - now;
+        if (lifetime <= 0) {
+            // 后端给出的时间已经过期（时钟偏差），退避后再取
+            return now + TranscriptionQueue.BASE_BACKOFF_MS;
+        }
+        return token.expiresAt - Math.min(REFRESH_AHEAD_MS, lifetime / 2);
+    }
+
+    private void scheduleNext() {
+        schedule(Math.max(0, nextRefreshAt - clock.currentTimeMillis()));
+    }
+
+    // 只保留一个等待中的定时任务，已安排得更早时不再改动；已到期的任务可能正在执行（包括调用者自己），不算在内
+    private synchronized void schedule(long delayMs) {
+        if (fetcher == null || scheduler.isShutdown()) {
+            return;
+        }
+        if (scheduled != null && !scheduled.isDone() && scheduled.getDelay(TimeUnit.MILLISECONDS) > 0) {
+            if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+                return;
+            }
+            scheduled.cancel(false);
+        }
+        scheduled = scheduler.schedule(this::refreshIfDue, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
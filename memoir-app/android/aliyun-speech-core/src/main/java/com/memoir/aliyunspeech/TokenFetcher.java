@@ -0,0 +1,14 @@
+package com.memoir.aliyunspeech;
+
+import java.io.IOException;
+
+/**
+ * 获取新的访问令牌，由 TokenCache 在后台线程上同步调用
+ */
+public interface TokenFetcher {
+
+    /**
+     * @throws IOException 网络或服务端错误，TokenCache 会退避后重试
+     */
+    SpeechToken fetch() throws IOException;
+}
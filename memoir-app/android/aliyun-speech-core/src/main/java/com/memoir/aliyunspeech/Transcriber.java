@@ -0,0 +1,33 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 对已落盘的会话音频做整段识别，在后台线程上同步调用
+ */
+public interface Transcriber {
+
+    /**
+     * @param codec 会话选择的编码，决定上传前是否压缩
+     * @return 识别出的文本
+     * @throws TranscriptionException 服务端明确拒绝（不应重试）或可重试的失败
+     * @throws IOException 网络等可重试的失败
+     */
+    String transcribe(File audio, AudioCodec codec) throws IOException;
+
+    class TranscriptionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean retryable;
+
+        public TranscriptionException(String message, boolean retryable) {
+            super(message);
+            this.retryable = retryable;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+    }
+}
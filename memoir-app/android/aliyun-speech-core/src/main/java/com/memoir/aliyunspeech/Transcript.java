@@ -0,0 +1,196 @@
+package com.memoir.aliyunspeech;
+
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 原生维护的会话文本：已确认句子的分片表（piece table）加一段可变的尾部（当前句的中间结果）。
+ *
+ * 已确认的句子只追加、不再修改，按序号取句子为 O(1)，按字符偏移定位为 O(log n)；
+ * 中间结果只替换尾部，代价与会话长度无关。每次变化返回 TranscriptPatch 交给前端，
+ * 前端不需要重建整段文本，需要显示历史时用 toJson 分页读取。
+ * 识别回调线程与分发线程经 PartialResultDispatcher 串行写入，其他线程可以同时读取。
+ */
+public class Transcript {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private String[] sentences = new String[INITIAL_CAPACITY];
+    // 每句在会话文本中的开始字符偏移
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private double[] confidences = new double[INITIAL_CAPACITY];
+    private SentenceTiming[] timings = new SentenceTiming[INITIAL_CAPACITY];
+    private int count;
+    private long committedLength;
+    private String tail = "";
+
+    /**
+     * 新的中间结果：尾部 = 原尾部的前 keep 个字符 + delta
+     */
+    public synchronized TranscriptPatch replaceTail(int keep, String delta, double confidence) {
+        int kept = Math.max(0, Math.min(keep, tail.length()));
+        tail = tail.substring(0, kept) + delta;
+        return new TranscriptPatch(TranscriptPatch.Op.REPLACE_TAIL, kept, delta, tail.length(), confidence, -1, -1, -1, null);
+    }
+
+    /**
+     * 最终结果：取代当前尾部，确认为下一句
+     *
+     * @param confidence 识别结果给出的置信度，没有时为 NaN
+     * @param sdkIndex 识别服务的句子序号，只放入返回的补丁，没有时为 -1
+     * @param timing 该句在会话音频中的位置，可以为 null
+     */
+    public synchronized TranscriptPatch commit(String text, double confidence, long sdkIndex, SentenceTiming timing) {
+        int keep = PartialResultDispatcher.commonPrefixLength(tail, text);
+        if (count == sentences.length) {
+            int capacity = count * 2;
+            sentences = Arrays.copyOf(sentences, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            confidences = Arrays.copyOf(confidences, capacity);
+            timings = Arrays.copyOf(timings, capacity);
+        }
+        int index = count++;
+        long offset = committedLength;
+        sentences[index] = text;
+        offsets[index] = offset;
+        confidences[index] = confidence;
+        timings[index] = timing;
+        committedLength += text.length();
+        tail = "";
+        return new TranscriptPatch(TranscriptPatch.Op.COMMIT, keep, text.substring(keep), text.length(), confidence,
+            index, offset, sdkIndex, timing);
+    }
+
+    /**
+     * @return 已确认的句数
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return 整段文本（已确认的句子 + 尾部）的字符数
+     */
+    public synchronized long length() {
+        return committedLength + tail.length();
+    }
+
+    public synchronized String getTail() {
+        return tail;
+    }
+
+    /**
+     * @return 带置信度的已确认句子按字符数加权的平均置信度，用于比较同一段音频的几份识别结果；
+     * 没有这样的句子时为 NaN
+     */
+    public synchronized double getMeanConfidence() {
+        double sum = 0;
+        long length = 0;
+        for (int i = 0; i < count; i++) {
+            if (!Double.isNaN(confidences[i])) {
+                sum += confidences[i] * sentences[i].length();
+                length += sentences[i].length();
+            }
+        }
+        return length > 0 ? sum / length : Double.NaN;
+    }
+
+    public synchronized String getSentence(int index) {
+        checkIndex(index);
+        return sentences[index];
+    }
+
+    public synchronized long getOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * @return 字符偏移所在的句子序号，落在尾部或超出范围时返回 size()，负数时返回 -1
+     */
+    public synchronized int find(long offset) {
+        if (offset < 0) {
+            return -1;
+        }
+        if (offset >= committedLength) {
+            return count;
+        }
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return 整段文本中 [from, to) 的字符，范围按文本长度截断
+     */
+    public synchronized String getText(long from, long to) {
+        long total = committedLength + tail.length();
+        long start = Math.max(0, from);
+        long end = Math.min(total, to);
+        if (start >= end) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder((int) (end - start));
+        for (int i = Math.max(0, find(start)); i < count && offsets[i] < end; i++) {
+            String sentence = sentences[i];
+            int begin = (int) Math.max(0, start - offsets[i]);
+            int stop = (int) Math.min(sentence.length(), end - offsets[i]);
+            text.append(sentence, begin, stop);
+        }
+        if (end > committedLength) {
+            text.append(tail, (int) Math.max(0, start - committedLength), (int) (end - committedLength));
+        }
+        return text.toString();
+    }
+
+    /**
+     * 分页读取：从第 from 句开始最多 limit 句，以及当前尾部，target 可以是 JSObject
+     */
+    public synchronized <T extends JSONObject> T toJson(T target, int from, int limit) {
+        int start = Math.max(0, Math.min(from, count));
+        int end = (int) Math.min(count, (long) start + Math.max(0, limit));
+        try {
+            JSONArray page = new JSONArray();
+            for (int i = start; i < end; i++) {
+                JSONObject sentence = new JSONObject();
+                sentence.put("index", i);
+                sentence.put("offset", offsets[i]);
+                sentence.put("text", sentences[i]);
+                SpeechParams.putConfidence(sentence, "confidence", confidences[i]);
+                SentenceTiming timing = timings[i];
+                if (timing != null) {
+                    sentence.put("beginOffsetMs", timing.beginOffsetMs);
+                    sentence.put("endOffsetMs", timing.endOffsetMs);
+                    sentence.put("beginTime", timing.beginTime);
+                    sentence.put("endTime", timing.endTime);
+                }
+                page.put(sentence);
+            }
+            target.put("total", count);
+            target.put("length", committedLength + tail.length());
+            target.put("from", start);
+            target.put("sentences", page);
+            target.put("tail", tail);
+        } catch (JSONException e) {
+            // 键非空且数值有限，不会发生
+        }
+        return target;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("句子序号超出范围: " + index);
+        }
+    }
+}
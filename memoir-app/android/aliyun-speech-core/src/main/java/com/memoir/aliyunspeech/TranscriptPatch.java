@@ -0,0 +1,42 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 会话文本的一次变化，前端按顺序应用即可得到完整文本，大小只与当前句有关：
+ * REPLACE_TAIL 把尾部替换为原尾部的前 keep 个字符 + delta；
+ * COMMIT 先同样替换尾部，再把尾部确认为第 index 句并清空尾部。
+ */
+public final class TranscriptPatch {
+
+    public enum Op {
+        REPLACE_TAIL,
+        COMMIT
+    }
+
+    public final Op op;
+    public final int keep;
+    public final String delta;
+    // 替换后尾部的长度
+    public final int length;
+    // 识别结果给出的置信度，没有时为 NaN
+    public final double confidence;
+    // COMMIT 时确认的句子序号与其在会话文本中的字符偏移，REPLACE_TAIL 时为 -1
+    public final int index;
+    public final long offset;
+    // COMMIT 时识别服务在本次对话中从 1 开始的句子序号，没有或 REPLACE_TAIL 时为 -1
+    public final long sdkIndex;
+    // COMMIT 时该句在会话音频中的位置，REPLACE_TAIL 时为 null
+    public final SentenceTiming timing;
+
+    public TranscriptPatch(Op op, int keep, String delta, int length, double confidence,
+                           int index, long offset, long sdkIndex, SentenceTiming timing) {
+        this.op = op;
+        this.keep = keep;
+        this.delta = delta;
+        this.length = length;
+        this.confidence = confidence;
+        this.index = index;
+        this.offset = offset;
+        this.sdkIndex = sdkIndex;
+        this.timing = timing;
+    }
+}
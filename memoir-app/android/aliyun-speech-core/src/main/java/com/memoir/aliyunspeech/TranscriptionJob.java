@@ -0,0 +1,100 @@
+package com.memoir.aliyunspeech;
+
+import java.util.Properties;
+
+/**
+ * 重新识别队列中的一个任务，对应一次失败会话的落盘音频
+ */
+public class TranscriptionJob {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    public final String sessionId;
+    public final String audioPath;
+    public final String reason;
+    public final AudioCodec codec;
+    public final long createdAt;
+
+    // 只由 TranscriptionQueue 在锁内修改，getter 在任意线程无锁读取
+    volatile Status status = Status.PENDING;
+    volatile int attempts;
+    volatile long nextAttemptAt;
+    volatile String lastError;
+    volatile String transcript;
+
+    TranscriptionJob(String sessionId, String audioPath, String reason, AudioCodec codec, long createdAt) {
+        this.sessionId = sessionId;
+        this.audioPath = audioPath;
+        this.reason = reason;
+        this.codec = codec;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public String getTranscript() {
+        return transcript;
+    }
+
+    Properties toProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("sessionId", sessionId);
+        properties.setProperty("audioPath", audioPath);
+        properties.setProperty("reason", reason == null ? "" : reason);
+        properties.setProperty("codec", codec.name());
+        properties.setProperty("createdAt", Long.toString(createdAt));
+        // 进程在识别途中被杀时，重启后重新排队
+        properties.setProperty("status", (status == Status.RUNNING ? Status.PENDING : status).name());
+        properties.setProperty("attempts", Integer.toString(attempts));
+        properties.setProperty("nextAttemptAt", Long.toString(nextAttemptAt));
+        if (lastError != null) {
+            properties.setProperty("lastError", lastError);
+        }
+        if (transcript != null) {
+            properties.setProperty("transcript", transcript);
+        }
+        return properties;
+    }
+
+    static TranscriptionJob fromProperties(Properties properties) {
+        String sessionId = properties.getProperty("sessionId");
+        String audioPath = properties.getProperty("audioPath");
+        if (sessionId == null || audioPath == null) {
+            return null;
+        }
+        try {
+            TranscriptionJob job = new TranscriptionJob(sessionId, audioPath,
+                properties.getProperty("reason", ""),
+                AudioCodec.valueOf(properties.getProperty("codec", AudioCodec.PCM.name())),
+                Long.parseLong(properties.getProperty("createdAt", "0")));
+            job.status = Status.valueOf(properties.getProperty("status", Status.PENDING.name()));
+            job.attempts = Integer.parseInt(properties.getProperty("attempts", "0"));
+            job.nextAttemptAt = Long.parseLong(properties.getProperty("nextAttemptAt", "0"));
+            job.lastError = properties.getProperty("lastError");
+            job.transcript = properties.getProperty("transcript");
+            return job;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 失败会话的重新识别队列。每个任务保存为目录下的一个 .job 文件，应用重启后自动恢复。
+ * runBatch 每次最多处理 batchSize 个到期任务，失败后按指数退避重试，
+ * 达到最大次数或服务端明确拒绝时标记为 FAILED。识别结果保留到调用方 remove 为止；
+ * 识别成功或任务被移除后删除会话音频（连同句子索引、波形文件），失败的任务保留音频以便重试。
+ */
+public class TranscriptionQueue {
+
+    public static final int DEFAULT_BATCH_SIZE = 3;
+    public static final long BASE_BACKOFF_MS = 5000;
+    public static final long MAX_BACKOFF_MS = 10 * 60 * 1000;
+    public static final int MAX_ATTEMPTS = 8;
+
+    public interface Listener {
+        void onJobUpdate(TranscriptionJob job, int pendingCount);
+    }
+
+    private static final String JOB_SUFFIX = ".job";
+
+    private final File directory;
+    private final Clock clock;
+    private final Map<String, TranscriptionJob> jobs = new LinkedHashMap<>();
+    private volatile Transcriber transcriber;
+    private volatile Listener listener;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    public TranscriptionQueue(File directory, Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+        load();
+    }
+
+    public void setTranscriber(Transcriber transcriber) {
+        this.transcriber = transcriber;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    private synchronized void load() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(JOB_SUFFIX)) {
+                continue;
+            }
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                continue;
+            }
+            TranscriptionJob job = TranscriptionJob.fromProperties(properties);
+            if (job != null) {
+                jobs.put(job.sessionId, job);
+            }
+        }
+    }
+
+    /**
+     * 加入队列，同一会话重复加入时忽略
+     */
+    public synchronized TranscriptionJob enqueue(String sessionId, File audio, String reason, AudioCodec codec) throws IOException {
+        TranscriptionJob existing = jobs.get(sessionId);
+        if (existing != null) {
+            return existing;
+        }
+        TranscriptionJob job = new TranscriptionJob(sessionId, audio.getAbsolutePath(), reason, codec, clock.currentTimeMillis());
+        persist(job);
+        jobs.put(sessionId, job);
+        notifyUpdate(job);
+        return job;
+    }
+
+    /**
+     * 处理一批到期的任务，在后台线程上调用
+     *
+     * @return 本批处理的任务数
+     */
+    public int runBatch() {
+        Transcriber current = transcriber;
+        if (current == null) {
+            return 0;
+        }
+        List<TranscriptionJob> batch = takeDue(batchSize);
+        for (TranscriptionJob job : batch) {
+            String transcript = null;
+            IOException error = null;
+            try {
+                File audio = new File(job.audioPath);
+                if (!audio.isFile()) {
+                    throw new Transcriber.TranscriptionException("会话音频不存在", false);
+                }
+                transcript = current.transcribe(audio, job.codec);
+            } catch (IOException e) {
+                error = e;
+            }
+            complete(job, transcript, error);
+        }
+        return batch.size();
+    }
+
+    private synchronized List<TranscriptionJob> takeDue(int limit) {
+        long now = clock.currentTimeMillis();
+        List<TranscriptionJob> due = new ArrayList<>();
+        for (TranscriptionJob job : jobs.values()) {
+            if (due.size() >= limit) {
+                break;
+            }
+            if (job.status == TranscriptionJob.Status.PENDING && job.nextAttemptAt <= now) {
+                job.status = TranscriptionJob.Status.RUNNING;
+                job.attempts++;
+                due.add(job);
+            }
+        }
+        for (TranscriptionJob job : due) {
+            notifyUpdate(job);
+        }
+        return due;
+    }
+
+    private synchronized void complete(TranscriptionJob job, String transcript, IOException error) {
+        if (jobs.get(job.sessionId) != job) {
+            // 处理期间已被移除
+            return;
+        }
+        if (error == null) {
+            job.status = TranscriptionJob.Status.DONE;
+            job.transcript = transcript;
+            job.lastError = null;
+            SessionRetention.deleteSession(new File(job.audioPath));
+        } else {
+            job.lastError = error.getMessage();
+            boolean retryable = !(error instanceof Transcriber.TranscriptionException)
+                || ((Transcriber.TranscriptionException) error).isRetryable();
+            if (retryable && job.attempts < MAX_ATTEMPTS) {
+                job.status = TranscriptionJob.Status.PENDING;
+                job.nextAttemptAt = clock.currentTimeMillis() + backoffMs(job.attempts);
+            } else {
+                job.status = TranscriptionJob.Status.FAILED;
+            }
+        }
+        try {
+            persist(job);
+        } catch (IOException e) {
+            job.lastError = "保存任务失败: " + e.getMessage();
+        }
+        notifyUpdate(job);
+    }
+
+    /**
+     * 第 attempts 次失败后的等待时间：5s、10s、20s……最长 10 分钟
+     */
+    public static long backoffMs(int attempts) {
+        int shift = Math.max(0, Math.min(attempts - 1, 20));
+        return Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << shift);
+    }
+
+    /**
+     * 网络恢复时调用：所有等待中的任务立即到期，已放弃的任务重新排队
+     */
+    public synchronized void retryAll() {
+        long now = clock.currentTimeMillis();
+        for (TranscriptionJob job : jobs.values()) {
+            if (job.status == TranscriptionJob.Status.FAILED) {
+                job.status = TranscriptionJob.Status.PENDING;
+                job.attempts = 0;
+            }
+            if (job.status == TranscriptionJob.Status.PENDING) {
+                job.nextAttemptAt = now;
+                try {
+                    persist(job);
+                } catch (IOException e) {
+                    job.lastError = "保存任务失败: " + e.getMessage();
+                }
+            }
+        }
+    }
+
+    /**
+     * 只让等待退避中的任务立即到期，不影响已放弃的任务
+     */
+    public synchronized void expediteBackoff() {
+        long now = clock.currentTimeMillis();
+        for (TranscriptionJob job : jobs.values()) {
+            if (job.status == TranscriptionJob.Status.PENDING && job.nextAttemptAt > now) {
+                job.nextAttemptAt = now;
+            }
+        }
+    }
+
+    public synchronized boolean remove(String sessionId) {
+        TranscriptionJob job = jobs.remove(sessionId);
+        if (job == null) {
+            return false;
+        }
+        jobFile(sessionId).delete();
+        SessionRetention.deleteSession(new File(job.audioPath));
+        return true;
+    }
+
+    /**
+     * 下一个等待中任务的到期时间，没有则返回 -1
+     */
+    public synchronized long nextDueAt() {
+        long next = -1;
+        for (TranscriptionJob job : jobs.values()) {
+            if (job.status == TranscriptionJob.Status.PENDING && (next < 0 || job.nextAttemptAt < next)) {
+                next = job.nextAttemptAt;
+            }
+        }
+        return next;
+    }
+
+    public synchronized List<TranscriptionJob> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public synchronized TranscriptionJob get(String sessionId) {
+        return jobs.get(sessionId);
+    }
+
+    public synchronized int getPendingCount() {
+        int count = 0;
+        for (TranscriptionJob job : jobs.values()) {
+            if (job.status == TranscriptionJob.Status.PENDING || job.status == TranscriptionJob.Status.RUNNING) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void notifyUpdate(TranscriptionJob job) {
+        Listener current = listener;
+        if (current != null) {
+            current.onJobUpdate(job, getPendingCount());
+        }
+    }
+
+    private File jobFile(String sessionId) {
+        return new File(directory, sessionId + JOB_SUFFIX);
+    }
+
+    // 先写临时文件再改名，进程中途退出不会留下半个任务文件
+    private void persist(TranscriptionJob job) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("无法创建目录: " + directory);
+        }
+        File target = jobFile(job.sessionId);
+        File temp = new File(directory, job.sessionId + JOB_SUFFIX + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            job.toProperties().store(out, null);
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("无法保存任务: " + target);
+        }
+    }
+}
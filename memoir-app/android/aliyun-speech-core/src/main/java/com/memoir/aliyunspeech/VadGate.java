@@ -0,0 +1,143 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 语音门限：根据 VoiceActivityDetector 的逐帧判断决定哪些帧送往识别。
+ * 连续 attack 帧语音才打开，语音结束后保持 hangover 帧再关闭，
+ * 关闭期间的帧被丢弃（GATE），或每隔若干帧保留一帧作为保活（COMPRESS）。
+ * 只在录音线程上调用 process。
+ */
+public class VadGate {
+
+    public enum Mode {
+        OFF,
+        GATE,
+        COMPRESS
+    }
+
+    public interface Listener {
+        void onSpeechStart(long frameIndex);
+
+        void onSpeechEnd(long frameIndex);
+    }
+
+    // 帧处理结果
+    public static final int HOLD = 0;
+    public static final int PASS = 1;
+    // 门限刚打开：先输出回看缓冲中的起始音节，再输出本帧
+    public static final int OPEN = 2;
+
+    public static final int DEFAULT_ATTACK_MS = 60;
+    public static final int DEFAULT_HANGOVER_MS = 400;
+    // 起始回看额外保留的时长，避免切掉辅音
+    public static final int LOOKBACK_PADDING_MS = 200;
+    // COMPRESS 模式下静音每隔多少帧保留一帧
+    private static final int COMPRESS_KEEP_EVERY = 10;
+
+    private final VoiceActivityDetector detector;
+    private final Mode mode;
+    private final int attackFrames;
+    private final int hangoverFrames;
+    private final int lookbackMs;
+    private Listener listener;
+
+    private boolean speaking;
+    private int speechRun;
+    private int silenceRun;
+    private long frameIndex;
+
+    private final AtomicLong passedFrames = new AtomicLong();
+    private final AtomicLong heldFrames = new AtomicLong();
+
+    public VadGate(VoiceActivityDetector detector, Mode mode, int attackMs, int hangoverMs) {
+        this.detector = detector;
+        this.mode = mode;
+        this.attackFrames = Math.max(1, attackMs / AudioPipeline.FRAME_MS);
+        this.hangoverFrames = Math.max(0, hangoverMs / AudioPipeline.FRAME_MS);
+        this.lookbackMs = attackFrames * AudioPipeline.FRAME_MS + LOOKBACK_PADDING_MS;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int process(ByteBuffer frame) {
+        boolean speech = detector.isSpeech(frame);
+        frameIndex++;
+
+        if (speaking) {
+            if (speech) {
+                silenceRun = 0;
+            } else if (++silenceRun > hangoverFrames) {
+                speaking = false;
+                speechRun = 0;
+                if (listener != null) {
+                    listener.onSpeechEnd(frameIndex);
+                }
+                return silent();
+            }
+            passedFrames.incrementAndGet();
+            return PASS;
+        }
+
+        if (speech) {
+            if (++speechRun >= attackFrames) {
+                speaking = true;
+                silenceRun = 0;
+                passedFrames.incrementAndGet();
+                if (listener != null) {
+                    listener.onSpeechStart(frameIndex - speechRun + 1);
+                }
+                return OPEN;
+            }
+            // 尚未确认为语音，先放入回看缓冲
+            heldFrames.incrementAndGet();
+            return HOLD;
+        }
+
+        speechRun = 0;
+        silenceRun++;
+        return silent();
+    }
+
+    private int silent() {
+        if (mode == Mode.COMPRESS && silenceRun % COMPRESS_KEEP_EVERY == 0) {
+            passedFrames.incrementAndGet();
+            return PASS;
+        }
+        heldFrames.incrementAndGet();
+        return HOLD;
+    }
+
+    public void reset() {
+        detector.reset();
+        speaking = false;
+        speechRun = 0;
+        silenceRun = 0;
+        frameIndex = 0;
+        passedFrames.set(0);
+        heldFrames.set(0);
+    }
+
+    public boolean isSpeaking() {
+        return speaking;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getLookbackMs() {
+        return lookbackMs;
+    }
+
+    public long getPassedFrames() {
+        return passedFrames.get();
+    }
+
+    public long getHeldFrames() {
+        return heldFrames.get();
+    }
+}
@@ -0,0 +1,20 @@
+package com.memoir.aliyunspeech;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 本地语音活动检测。对每一帧 PCM16 数据给出是否为语音的判断，
+ * 在录音线程上逐帧调用，实现不应分配内存。
+ */
+public interface VoiceActivityDetector {
+
+    /**
+     * 判断 position 到 limit 之间的一帧是否为语音，不应修改缓冲区的 position
+     */
+    boolean isSpeech(ByteBuffer frame);
+
+    /**
+     * 新会话开始时重置内部状态
+     */
+    void reset();
+}
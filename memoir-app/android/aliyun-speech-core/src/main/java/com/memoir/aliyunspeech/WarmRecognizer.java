@@ -0,0 +1,294 @@
+package com.memoir.aliyunspeech;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保持识别服务常驻初始化的 Recognizer。
+ *
+ * SDK 的 initialize 很慢（加载模型、建立日志、鉴权），这里把它放到单独的后台线程：
+ * prepare/initialize 只登记凭据并立即返回，相同的 appkey/token/workspace 直接复用已初始化的实例，
+ * 凭据变化时才在后台重新初始化；对话进行中不会重新初始化，等对话关闭后再进行。
+ * startDialog 在初始化完成前有限等待，并返回初始化的错误码。
+ */
+public class WarmRecognizer implements Recognizer, Recognizer.Callback {
+
+    // 尚未提供凭据，或等待初始化超时
+    public static final int ERROR_NOT_READY = -2;
+    // startDialog 等待后台初始化的最长时间
+    static final long READY_TIMEOUT_MS = 5000;
+
+    /**
+     * 后台初始化完成时在初始化线程上回调
+     */
+    public interface Listener {
+        /**
+         * @param resultCode SUCCESS 或识别服务的错误码
+         * @param timeToReadyMs 从提交凭据到初始化完成的时长
+         */
+        void onReady(int resultCode, long timeToReadyMs);
+    }
+
+    private static final class Credentials {
+        final String appkey;
+        final String token;
+        final String workspace;
+
+        Credentials(String appkey, String token, String workspace) {
+            this.appkey = appkey;
+            this.token = token;
+            this.workspace = workspace;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Credentials)) {
+                return false;
+            }
+            Credentials other = (Credentials) o;
+            return appkey.equals(other.appkey) && token.equals(other.token) && workspace.equals(other.workspace);
+        }
+
+        @Override
+        public int hashCode() {
+            return (appkey.hashCode() * 31 + token.hashCode()) * 31 + workspace.hashCode();
+        }
+    }
+
+    private final Recognizer target;
+    private final Clock clock;
+    private final ExecutorService initExecutor;
+    private volatile Callback callback;
+    private volatile Listener listener;
+
+    private final Object lock = new Object();
+    // 最近一次提交的凭据与已经用于初始化的凭据，均由 lock 保护
+    private Credentials wanted;
+    private Credentials applied;
+    private int appliedCode = ERROR_NOT_READY;
+    private long requestedAt;
+    private boolean initPending;
+    private boolean dialogActive;
+    private boolean released;
+
+    private volatile long timeToReadyMs = -1;
+    private volatile int initializations;
+    private volatile int reuses;
+
+    public WarmRecognizer(Recognizer target, Clock clock) {
+        this(target, clock, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * @param initThreads 初始化线程的工厂，初始化与释放都在这一个线程上进行
+     */
+    public WarmRecognizer(Recognizer target, Clock clock, ThreadFactory initThreads) {
+        this.target = target;
+        this.clock = clock;
+        this.initExecutor = Executors.newSingleThreadExecutor(initThreads);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 提交凭据并在后台预先初始化，不需要等 initialize 的 Callback；与已初始化的凭据相同时直接复用
+     */
+    public void prepare(String appkey, String token, String workspace) {
+        Credentials credentials = new Credentials(appkey, token, workspace);
+        synchronized (lock) {
+            if (released) {
+                return;
+            }
+            boolean failedBefore = credentials.equals(applied) && appliedCode != SUCCESS;
+            if (credentials.equals(wanted) && !failedBefore) {
+                reuses++;
+                return;
+            }
+            wanted = credentials;
+            requestedAt = clock.currentTimeMillis();
+            scheduleInitLocked();
+        }
+    }
+
+    /**
+     * 只登记回调与凭据，初始化在后台进行
+     *
+     * @return SUCCESS；初始化的结果由 Listener 与 startDialog 给出
+     */
+    @Override
+    public int initialize(Callback callback, String appkey, String token, String workspace) {
+        this.callback = callback;
+        prepare(appkey, token, workspace);
+        return SUCCESS;
+    }
+
+    @Override
+    public int startDialog(AudioCodec codec) {
+        synchronized (lock) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READY_TIMEOUT_MS);
+            while (wanted != null && (initPending || !wanted.equals(applied))) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return ERROR_NOT_READY;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return ERROR_NOT_READY;
+                }
+            }
+            if (wanted == null) {
+                return ERROR_NOT_READY;
+            }
+            if (appliedCode != SUCCESS) {
+                return appliedCode;
+            }
+            dialogActive = true;
+        }
+        int ret = target.startDialog(codec);
+        if (ret != SUCCESS) {
+            onDialogClosed();
+        }
+        return ret;
+    }
+
+    @Override
+    public int stopDialog() {
+        return target.stopDialog();
+    }
+
+    /**
+     * 在初始化线程上释放识别服务，之后不能再使用
+     */
+    @Override
+    public int release() {
+        synchronized (lock) {
+            released = true;
+            wanted = null;
+            applied = null;
+            appliedCode = ERROR_NOT_READY;
+            lock.notifyAll();
+        }
+        int ret = SUCCESS;
+        try {
+            ret = initExecutor.submit(target::release).get(READY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            // 初始化线程卡住时不再等待
+        }
+        SpeechEngine.shutdownExecutor(initExecutor);
+        callback = null;
+        return ret;
+    }
+
+    /**
+     * @return 当前凭据已初始化成功
+     */
+    public boolean isReady() {
+        synchronized (lock) {
+            return wanted != null && wanted.equals(applied) && appliedCode == SUCCESS;
+        }
+    }
+
+    /**
+     * @return 最近一次初始化从提交凭据到完成的时长，还没有初始化过时为 -1
+     */
+    public long getTimeToReadyMs() {
+        return timeToReadyMs;
+    }
+
+    /**
+     * @return 实际执行的初始化次数
+     */
+    public int getInitializations() {
+        return initializations;
+    }
+
+    /**
+     * @return 因凭据相同而复用已有实例的次数
+     */
+    public int getReuses() {
+        return reuses;
+    }
+
+    private void scheduleInitLocked() {
+        if (initPending || dialogActive || released) {
+            return;
+        }
+        initPending = true;
+        initExecutor.execute(this::runInit);
+    }
+
+    private void runInit() {
+        Credentials credentials;
+        synchronized (lock) {
+            credentials = wanted;
+            if (credentials == null || dialogActive || released) {
+                initPending = false;
+                return;
+            }
+        }
+        int code = target.initialize(this, credentials.appkey, credentials.token, credentials.workspace);
+        long elapsed;
+        synchronized (lock) {
+            initPending = false;
+            initializations++;
+            if (released) {
+                return;
+            }
+            applied = credentials;
+            appliedCode = code;
+            elapsed = clock.currentTimeMillis() - requestedAt;
+            timeToReadyMs = elapsed;
+            lock.notifyAll();
+            // 初始化期间凭据又变了
+            if (!credentials.equals(wanted)) {
+                scheduleInitLocked();
+            }
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onReady(code, elapsed);
+        }
+    }
+
+    // 对话结束后补上对话期间推迟的重新初始化
+    private void onDialogClosed() {
+        synchronized (lock) {
+            dialogActive = false;
+            if (wanted != null && !wanted.equals(applied)) {
+                scheduleInitLocked();
+            }
+        }
+    }
+
+    // 识别服务回调，转给 initialize 登记的 Callback
+    @Override
+    public void onAudioStateChanged(boolean open) {
+        Callback current = callback;
+        if (current != null) {
+            current.onAudioStateChanged(open);
+        }
+        if (!open) {
+            onDialogClosed();
+        }
+    }
+
+    @Override
+    public int onNeedAudioData(byte[] buffer, int len) {
+        Callback current = callback;
+        return current != null ? current.onNeedAudioData(buffer, len) : 0;
+    }
+
+    @Override
+    public void onEventCallback(Event event, int resultCode, String asrResult) {
+        Callback current = callback;
+        if (current != null) {
+            current.onEventCallback(event, resultCode, asrResult);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.memoir.aliyunspeech;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 会话音频的多级波形峰值：第 0 级每 256 个采样一对最小值/最大值，之后每级为上一级的 16 倍
+ * （256/4096/65536 个采样）。录音时随落盘逐帧增量计算，会话结束时保存在 WAV 文件旁
+ * （sessionId + FILE_SUFFIX，1 小时约 1MB），任意缩放下的波形从最接近的一级取出，与 PCM 无关。
+ *
+ * 录音线程经 SessionSpool 写入，其他线程可以同时查询。各级容量不足时按倍数扩充，
+ * SessionSpool.prepare 经 reserve 在录音线程之外提前扩充，写入时不分配内存。
+ */
+public class WaveformPyramid {
+
+    public static final String FILE_SUFFIX = ".peaks";
+    public static final int BASE_BLOCK_SAMPLES = 256;
+    public static final int FANOUT = 16;
+    public static final int LEVELS = 3;
+    // 文件头 "PEAK" 与版本
+    private static final int MAGIC = 0x5045414b;
+    private static final int VERSION = 1;
+    private static final int INITIAL_BLOCKS = 1024;
+    private static final int READ_CHUNK_BYTES = 64 * 1024;
+
+    private final int sampleRate;
+    // 每级按块交错存放最小值与最大值
+    private final short[][] peaks = new short[LEVELS][];
+    private final int[] counts = new int[LEVELS];
+    // 每级正在累计的块：第 0 级累计采样，之后累计下一级的块
+    private final int[] pendingMin = new int[LEVELS];
+    private final int[] pendingMax = new int[LEVELS];
+    private final int[] pendingCount = new int[LEVELS];
+    private long samples;
+    private boolean finished;
+
+    public WaveformPyramid(int sampleRate) {
+        this.sampleRate = sampleRate;
+        for (int level = 0; level < LEVELS; level++) {
+            peaks[level] = new short[Math.max(2, (INITIAL_BLOCKS >> (4 * level)) * 2)];
+            clearPending(level);
+        }
+    }
+
+    /**
+     * 追加 position 到 limit 之间的小端 PCM16，position 保持不变
+     */
+    public synchronized void write(ByteBuffer frame) {
+        if (finished) {
+            return;
+        }
+        int end = frame.limit() - 1;
+        for (int i = frame.position(); i < end; i += 2) {
+            addSample((short) ((frame.get(i) & 0xff) | (frame.get(i + 1) << 8)));
+        }
+    }
+
+    /**
+     * 追加小端 PCM16
+     */
+    public synchronized void write(byte[] src, int offset, int length) {
+        if (finished) {
+            return;
+        }
+        int end = offset + length - 1;
+        for (int i = offset; i < end; i += 2) {
+            addSample((short) ((src[i] & 0xff) | (src[i + 1] << 8)));
+        }
+    }
+
+    private void addSample(int sample) {
+        if (sample < pendingMin[0]) {
+            pendingMin[0] = sample;
+        }
+        if (sample > pendingMax[0]) {
+            pendingMax[0] = sample;
+        }
+        samples++;
+        if (++pendingCount[0] == BASE_BLOCK_SAMPLES) {
+            completeBlock(0);
+        }
+    }
+
+    /**
+     * 保证之后 moreSamples 个采样写入时各级不需要扩充
+     */
+    public synchronized void reserve(long moreSamples) {
+        if (finished) {
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            long blocks = (samples + moreSamples) / blockSamples(level) + 1;
+            short[] current = peaks[level];
+            if (blocks * 2 > current.length) {
+                peaks[level] = Arrays.copyOf(current, (int) Math.max(blocks * 2, current.length * 2L));
+            }
+        }
+    }
+
+    // 把 level 级正在累计的块写入该级，并累计到上一级
+    private void completeBlock(int level) {
+        int min = pendingMin[level];
+        int max = pendingMax[level];
+        clearPending(level);
+        short[] blocks = peaks[level];
+        int count = counts[level];
+        if (count * 2 == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blocks.length * 2);
+            peaks[level] = blocks;
+        }
+        blocks[count * 2] = (short) min;
+        blocks[count * 2 + 1] = (short) max;
+        counts[level] = count + 1;
+        int parent = level + 1;
+        if (parent < LEVELS) {
+            pendingMin[parent] = Math.min(pendingMin[parent], min);
+            pendingMax[parent] = Math.max(pendingMax[parent], max);
+            if (++pendingCount[parent] == FANOUT) {
+                completeBlock(parent);
+            }
+        }
+    }
+
+    private void clearPending(int level) {
+        pendingMin[level] = Short.MAX_VALUE;
+        pendingMax[level] = Short.MIN_VALUE;
+        pendingCount[level] = 0;
+    }
+
+    /**
+     * 录音结束：各级未满的块作为最后一块写入，之后的写入被忽略，可重复调用
+     */
+    public synchronized void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        for (int level = 0; level < LEVELS; level++) {
+            if (pendingCount[level] > 0) {
+                completeBlock(level);
+            }
+        }
+    }
+
+    /**
+     * 把 [fromSample, toSample) 均分为 pixels 列，每列的最小值与最大值依次写入 out（长度至少 pixels * 2）。
+     * 使用每列至少一块的最粗一级，每列最多合并约 FANOUT 块，开销与 pixels 成正比；
+     * 放大到一列不足 256 个采样时，各列取所在的第 0 级块。没有音频的列为 0
+     */
+    public synchronized void getPeaks(long fromSample, long toSample, int pixels, short[] out) {
+        if (pixels <= 0) {
+            return;
+        }
+        long span = Math.max(0, toSample - fromSample);
+        int level = 0;
+        while (level + 1 < LEVELS && blockSamples(level + 1) * pixels <= span) {
+            level++;
+        }
+        for (int p = 0; p < pixels; p++) {
+            long start = fromSample + span * p / pixels;
+            long end = Math.max(start + 1, fromSample + span * (p + 1) / pixels);
+            combine(level, start, end, out, p * 2);
+        }
+    }
+
+    // 合并 level 级覆盖 [start, end) 的块；该级还没有覆盖到的部分（录音中尚未写满的块）从更细的一级取
+    private void combine(int level, long start, long end, short[] out, int offset) {
+        int min = Short.MAX_VALUE;
+        int max = Short.MIN_VALUE;
+        while (level >= 0 && start < end) {
+            long size = blockSamples(level);
+            int count = counts[level];
+            short[] blocks = peaks[level];
+            long first = Math.max(0, start) / size;
+            long last = Math.min(count, (end + size - 1) / size);
+            for (long b = first; b < last; b++) {
+                min = Math.min(min, blocks[(int) b * 2]);
+                max = Math.max(max, blocks[(int) b * 2 + 1]);
+            }
+            start = Math.max(start, count * size);
+            level--;
+        }
+        if (min > max) {
+            min = 0;
+            max = 0;
+        }
+        out[offset] = (short) min;
+        out[offset + 1] = (short) max;
+    }
+
+    public static long blockSamples(int level) {
+        return (long) BASE_BLOCK_SAMPLES << (4 * level);
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    public synchronized int getBlockCount(int level) {
+        return counts[level];
+    }
+
+    public synchronized long getDurationMs() {
+        return samples * 1000 / sampleRate;
+    }
+
+    public synchronized void writeTo(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sampleRate);
+            out.writeLong(samples);
+            out.writeInt(LEVELS);
+            for (int level = 0; level < LEVELS; level++) {
+                out.writeInt(counts[level]);
+                short[] blocks = peaks[level];
+                for (int i = 0; i < counts[level] * 2; i++) {
+                    out.writeShort(blocks[i]);
+                }
+            }
+        }
+    }
+
+    public static WaveformPyramid readFrom(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("不支持的波形文件: " + file);
+            }
+            WaveformPyramid pyramid = new WaveformPyramid(in.readInt());
+            pyramid.samples = in.readLong();
+            if (pyramid.sampleRate <= 0 || pyramid.samples < 0 || in.readInt() != LEVELS) {
+                throw new IOException("波形文件已损坏: " + file);
+            }
+            for (int level = 0; level < LEVELS; level++) {
+                int count = in.readInt();
+                if (count < 0 || count > file.length() / 4) {
+                    throw new IOException("波形文件已损坏: " + file);
+                }
+                short[] blocks = new short[Math.max(2, count * 2)];
+                for (int i = 0; i < count * 2; i++) {
+                    blocks[i] = in.readShort();
+                }
+                pyramid.peaks[level] = blocks;
+                pyramid.counts[level] = count;
+            }
+            pyramid.finished = true;
+            return pyramid;
+        }
+    }
+
+    /**
+     * 读取一遍会话 WAV（16bit 单声道，44 字节文件头）生成波形，用于没有波形文件的旧会话
+     */
+    public static WaveformPyramid fromWav(File wav) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(wav))) {
+            byte[] header = new byte[SessionSpool.HEADER_BYTES];
+            if (readFully(in, header) < header.length) {
+                throw new IOException("WAV文件不完整: " + wav);
+            }
+            int sampleRate = ByteBuffer.wrap(header, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (sampleRate <= 0) {
+                throw new IOException("WAV文件头无效: " + wav);
+            }
+            WaveformPyramid pyramid = new WaveformPyramid(sampleRate);
+            byte[] chunk = new byte[READ_CHUNK_BYTES];
+            int n;
+            while ((n = readFully(in, chunk)) > 0) {
+                pyramid.write(chunk, 0, n & ~1);
+            }
+            pyramid.finish();
+            return pyramid;
+        }
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int n = in.read(buffer, total, buffer.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,100 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class AsrResultDecoderTest {
+
+    // SDK 在 EVENT_SENTENCE_END 中给出的 asrResult
+    private static final String SENTENCE_END = "{\"header\":{\"namespace\":\"SpeechTranscriber\",\"name\":\"SentenceEnd\","
+        + "\"status\":20000000,\"message_id\":\"a0b1c2d3e4f5a6b7c8d9e0f1a2b3c4d5\","
+        + "\"task_id\":\"f0e1d2c3b4a5f6e7d8c9b0a1f2e3d4c5\",\"status_text\":\"Gateway:SUCCESS:Success.\"},"
+        + "\"payload\":{\"index\":3,\"time\":8230,\"result\":\"今天下午我们去公园散步，看到了很多盛开的花。\","
+        + "\"confidence\":0.912,\"words\":[{\"text\":\"今天\",\"startTime\":5110,\"endTime\":5400}],"
+        + "\"status\":0,\"gender\":\"\",\"begin_time\":5110,"
+        + "\"fixed_result\":\"\",\"unfixed_result\":\"\",\"stash_result\":{\"index\":4,\"text\":\"\"},\"audio_extra_info\":\"\"}}";
+
+    @Test
+    public void decodesTheSentenceEndEnvelope() {
+        AsrResultDecoder decoder = new AsrResultDecoder();
+        assertTrue(decoder.decode(SENTENCE_END));
+        assertEquals("今天下午我们去公园散步，看到了很多盛开的花。", decoder.getText());
+        assertEquals(0.912, decoder.getConfidence(), 1e-12);
+        assertEquals(0.912, decoder.getValidConfidence(), 1e-12);
+        // header.status、words 与 stash_result 中的同名字段不影响 payload 的字段
+        assertEquals(3, decoder.getIndex());
+        assertEquals(5110, decoder.getBeginTimeMs());
+        assertEquals(8230, decoder.getTimeMs());
+    }
+
+    @Test
+    public void agreesWithOrgJson() {
+        AsrResultDecoder decoder = new AsrResultDecoder();
+        String[] payloads = {
+            SENTENCE_END,
+            "{\"header\":{\"name\":\"TranscriptionResultChanged\",\"status\":20000000},"
+                + "\"payload\":{\"index\":1,\"time\":700,\"result\":\"今天\",\"confidence\":0,\"begin_time\":500,\"words\":[]}}",
+            " { \"payload\" : { \"result\" : \"引号\\\"与\\\\反斜杠\\n换行\\u4f60\\u597d\" , \"confidence\" : 1.0 , \"time\" : -1 } } ",
+            "{\"payload\":{\"result\":\"\",\"confidence\":9.5e-1,\"index\":12345678901}}",
+        };
+        for (String json : payloads) {
+            assertTrue(json, decoder.decode(json));
+            JSONObject payload = new JSONObject(json).getJSONObject("payload");
+            assertEquals(payload.getString("result"), decoder.getText());
+            assertEquals(payload.getDouble("confidence"), decoder.getConfidence(), 1e-12);
+            assertEquals(payload.optLong("index", -1), decoder.getIndex());
+            assertEquals(payload.optLong("time", -1), decoder.getTimeMs());
+        }
+    }
+
+    @Test
+    public void decimalsMatchDoubleParseDouble() {
+        AsrResultDecoder decoder = new AsrResultDecoder();
+        java.util.Random random = new java.util.Random(21);
+        for (int n = 0; n < 10000; n++) {
+            String number = String.valueOf(random.nextInt(1000000) / Math.pow(10, random.nextInt(8)));
+            assertTrue(decoder.decode("{\"payload\":{\"confidence\":" + number + "}}"));
+            assertEquals(number, Double.parseDouble(number), decoder.getConfidence(), 0);
+        }
+    }
+
+    @Test
+    public void missingFieldsUseDefaults() {
+        AsrResultDecoder decoder = new AsrResultDecoder();
+        assertTrue(decoder.decode("{\"header\":{\"name\":\"SentenceBegin\"},\"payload\":{}}"));
+        assertFalse(decoder.hasText());
+        assertNull(decoder.getText());
+        assertTrue(Double.isNaN(decoder.getConfidence()));
+        assertTrue(Double.isNaN(decoder.getValidConfidence()));
+        assertEquals(-1, decoder.getIndex());
+        assertEquals(-1, decoder.getBeginTimeMs());
+
+        // 中间结果的置信度为 0，视为没有
+        assertTrue(decoder.decode("{\"payload\":{\"result\":\"好\",\"confidence\":0}}"));
+        assertEquals(0, decoder.getConfidence(), 0);
+        assertTrue(Double.isNaN(decoder.getValidConfidence()));
+    }
+
+    @Test
+    public void rejectsMalformedInputAndClearsFields() {
+        AsrResultDecoder decoder = new AsrResultDecoder();
+        assertTrue(decoder.decode(SENTENCE_END));
+        String[] malformed = {
+            null,
+            "",
+            "result",
+            "{\"payload\":{\"result\":\"未结束}}",
+            "{\"payload\":{\"result\":\"好\",}}",
+            "{\"payload\":{\"words\":[{\"text\":\"好\"}}}",
+            SENTENCE_END.substring(0, SENTENCE_END.length() - 1),
+            SENTENCE_END + "x",
+        };
+        for (String json : malformed) {
+            assertFalse(json, decoder.decode(json));
+            assertFalse(decoder.hasText());
+            assertEquals(-1, decoder.getTimeMs());
+        }
+    }
+}
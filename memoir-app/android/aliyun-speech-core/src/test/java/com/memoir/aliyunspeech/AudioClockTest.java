@@ -0,0 +1,105 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * AudioClock 纯JVM测试：直接构造锚点，检查环形缓冲区位置到会话音频位置与墙上时间的换算。
+ */
+public class AudioClockTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    // 20ms 的帧
+    private static final int FRAME_BYTES = 640;
+
+    @Test
+    public void nothingIsMappedBeforeTheFirstFrame() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE, () -> 1_000_000);
+        assertEquals(-1, clock.toSessionPosition(0));
+        assertEquals(-1, clock.wallTimeAt(0));
+        assertEquals(0, clock.getAnchorCount());
+    }
+
+    @Test
+    public void contiguousFramesNeedASingleAnchor() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE, () -> 1_000_000);
+        for (int i = 0; i < 10; i++) {
+            clock.onFrame(i * FRAME_BYTES, (i + 1) * FRAME_BYTES, FRAME_BYTES, 0);
+        }
+        assertEquals(1, clock.getAnchorCount());
+        assertEquals(10 * FRAME_BYTES, clock.getSessionBytes());
+        assertEquals(1234, clock.toSessionPosition(1234));
+        // 第一帧在 1000000 采集完毕，会话音频从 20ms 之前开始
+        assertEquals(1_000_000 - 20, clock.wallTimeAt(0));
+        assertEquals(1_000_000 - 20 + 100, clock.wallTimeAt(3200));
+        assertEquals(100, clock.toMillis(3200));
+    }
+
+    @Test
+    public void droppedAudioShiftsLaterPositions() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE, () -> 1_000_000);
+        clock.onFrame(0, FRAME_BYTES, FRAME_BYTES, 0);
+        clock.onFrame(FRAME_BYTES, 2 * FRAME_BYTES, FRAME_BYTES, 0);
+        // 门限丢弃一帧：会话音频增加，环形缓冲区不变
+        clock.onFrame(2 * FRAME_BYTES, 2 * FRAME_BYTES, FRAME_BYTES, 0);
+        clock.onFrame(2 * FRAME_BYTES, 3 * FRAME_BYTES, FRAME_BYTES, 0);
+        assertEquals(2, clock.getAnchorCount());
+
+        // 丢弃之前的位置不变，之后的位置后移一帧
+        assertEquals(FRAME_BYTES, clock.toSessionPosition(FRAME_BYTES));
+        assertEquals(3 * FRAME_BYTES, clock.toSessionPosition(2 * FRAME_BYTES));
+        assertEquals(3 * FRAME_BYTES + 100, clock.toSessionPosition(2 * FRAME_BYTES + 100));
+        // 对齐到采样点
+        assertEquals(100, clock.toSessionPosition(101));
+        // 限制在已采集的范围内
+        assertEquals(4 * FRAME_BYTES, clock.toSessionPosition(10 * FRAME_BYTES));
+    }
+
+    @Test
+    public void spilledBacklogIsPlacedBeforeItsNewerAudio() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE, () -> 1_000_000);
+        clock.onFrame(0, FRAME_BYTES, FRAME_BYTES, 0);
+        // 识别服务阻塞：两帧追加到会话音频，积压在溢写文件中
+        clock.onFrame(FRAME_BYTES, FRAME_BYTES, FRAME_BYTES, FRAME_BYTES);
+        clock.onFrame(FRAME_BYTES, FRAME_BYTES, FRAME_BYTES, 2 * FRAME_BYTES);
+        // 积压的第一帧写入环形缓冲区，另一帧与新的一帧仍在积压中
+        clock.onFrame(FRAME_BYTES, 2 * FRAME_BYTES, FRAME_BYTES, 2 * FRAME_BYTES);
+        assertEquals(1, clock.getAnchorCount());
+        assertEquals(FRAME_BYTES, clock.toSessionPosition(FRAME_BYTES));
+    }
+
+    @Test
+    public void manyAnchorsAreFoundByBinarySearch() {
+        AudioClock clock = new AudioClock(SAMPLE_RATE, () -> 1_000_000);
+        long ring = 0;
+        // 每送入一帧就丢弃一帧，锚点数超过初始容量
+        for (int i = 0; i < 40; i++) {
+            clock.onFrame(ring, ring + FRAME_BYTES, FRAME_BYTES, 0);
+            ring += FRAME_BYTES;
+            clock.onFrame(ring, ring, FRAME_BYTES, 0);
+        }
+        assertEquals(40, clock.getAnchorCount());
+        for (int i = 0; i < 40; i++) {
+            long position = (long) i * FRAME_BYTES + 10;
+            assertEquals("frame " + i, 2L * i * FRAME_BYTES + 10, clock.toSessionPosition(position));
+        }
+    }
+
+    @Test
+    public void resetStartsANewSession() {
+        long[] now = {1_000_000};
+        AudioClock clock = new AudioClock(SAMPLE_RATE, () -> now[0]);
+        clock.onFrame(0, FRAME_BYTES, FRAME_BYTES, 0);
+        clock.reset();
+        assertEquals(-1, clock.toSessionPosition(0));
+        assertEquals(-1, clock.wallTimeAt(0));
+        assertEquals(0, clock.getSessionBytes());
+
+        now[0] = 2_000_000;
+        // 新会话的环形缓冲区位置接着上一个会话
+        clock.onFrame(FRAME_BYTES, 2 * FRAME_BYTES, FRAME_BYTES, 0);
+        assertEquals(0, clock.toSessionPosition(FRAME_BYTES));
+        assertEquals(2_000_000 - 20, clock.wallTimeAt(0));
+    }
+}
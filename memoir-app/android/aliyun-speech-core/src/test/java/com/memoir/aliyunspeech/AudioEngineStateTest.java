@@ -0,0 +1,96 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import com.memoir.aliyunspeech.AudioEngineState.State;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AudioEngineStateTest {
+
+    @Test
+    public void followsTheDictationLifecycle() {
+        AudioEngineState state = new AudioEngineState();
+        assertEquals(State.IDLE, state.get());
+        assertFalse(state.isCaptureRunning());
+
+        assertEquals(State.IDLE, state.moveTo(State.ARMED));
+        assertTrue(state.isCaptureRunning());
+        assertTrue(state.transition(State.ARMED, State.CAPTURING));
+        assertTrue(state.transition(State.CAPTURING, State.DRAINING));
+        // 排空中不再读麦克风，但麦克风尚未释放
+        assertFalse(state.isCaptureRunning());
+        assertTrue(state.isMicOpen());
+        assertEquals(State.DRAINING, state.moveTo(State.STOPPED));
+        assertFalse(state.isMicOpen());
+
+        // 停止后可以开始新的会话
+        assertEquals(State.STOPPED, state.moveTo(State.CAPTURING));
+    }
+
+    @Test
+    public void armedDialogReturnsToArmed() {
+        AudioEngineState state = new AudioEngineState();
+        state.moveTo(State.ARMED);
+        state.moveTo(State.CAPTURING);
+        assertTrue(state.transition(State.CAPTURING, State.ARMED));
+        assertTrue(state.isCaptureRunning());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsCapturingWithoutOpeningFirst() {
+        AudioEngineState state = new AudioEngineState();
+        state.moveTo(State.DRAINING);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsResumingFromDraining() {
+        AudioEngineState state = new AudioEngineState();
+        state.moveTo(State.CAPTURING);
+        state.moveTo(State.DRAINING);
+        state.moveTo(State.CAPTURING);
+    }
+
+    @Test
+    public void transitionFailsWhenStateHasMoved() {
+        AudioEngineState state = new AudioEngineState();
+        state.moveTo(State.CAPTURING);
+        state.moveTo(State.STOPPED);
+        // SDK 回调晚到：对话已停止，不应再进入排空
+        assertFalse(state.transition(State.CAPTURING, State.DRAINING));
+        assertEquals(State.STOPPED, state.get());
+    }
+
+    @Test
+    public void onlyOneThreadWinsAConcurrentTransition() throws Exception {
+        for (int round = 0; round < 200; round++) {
+            final AudioEngineState state = new AudioEngineState();
+            state.moveTo(State.CAPTURING);
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger winners = new AtomicInteger();
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                final State target = i % 2 == 0 ? State.DRAINING : State.ARMED;
+                threads[i] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (state.transition(State.CAPTURING, target)) {
+                        winners.incrementAndGet();
+                    }
+                });
+                threads[i].start();
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(1, winners.get());
+        }
+    }
+}
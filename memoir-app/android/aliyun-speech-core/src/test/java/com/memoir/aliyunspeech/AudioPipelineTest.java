@@ -0,0 +1,452 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+
+/**
+ * 录音热路径的纯JVM测试：校验数据完整性，并用线程分配计数器确认稳态零分配，
+ * 包括完整配置的 SpeechEngine 会话中的录音线程与 onNeedAudioData。
+ */
+public class AudioPipelineTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    // 合成的正弦波音频源，直接写入池化缓冲区
+    private static class SineSource implements AudioSource {
+        private long sample;
+
+        @Override
+        public int read(ByteBuffer buffer, int sizeInBytes) {
+            for (int i = 0; i + 1 < sizeInBytes; i += 2) {
+                short value = (short) (Math.sin(sample++ * 0.05) * 8000);
+                buffer.put(i, (byte) value);
+                buffer.put(i + 1, (byte) (value >> 8));
+            }
+            return sizeInBytes;
+        }
+    }
+
+    @Test
+    public void framesReachRingBufferIntact() {
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(200, SAMPLE_RATE);
+        AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring);
+        assertEquals(640, pipeline.getFrameBytes());
+
+        assertEquals(640, pipeline.processFrame(new SineSource()));
+        byte[] out = new byte[640];
+        assertEquals(640, ring.read(out, 0, out.length));
+
+        ByteBuffer expected = ByteBuffer.allocate(640);
+        new SineSource().read(expected, 640);
+        assertArrayEquals(expected.array(), out);
+        assertEquals(1, pipeline.getFramesCaptured());
+        assertEquals(4, pipeline.getPool().getAvailableCount());
+    }
+
+    @Test
+    public void errorCodesFromSourceAreReturnedAndBufferIsReleased() {
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(200, SAMPLE_RATE);
+        AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring);
+        assertEquals(-3, pipeline.processFrame((buffer, size) -> -3));
+        assertEquals(0, ring.available());
+        assertEquals(4, pipeline.getPool().getAvailableCount());
+    }
+
+    @Test
+    public void poolHandsOutEachBufferOnce() {
+        AudioBufferPool pool = new AudioBufferPool(2, 640);
+        ByteBuffer a = pool.acquire();
+        ByteBuffer b = pool.acquire();
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNotSame(a, b);
+        assertTrue(a.isDirect());
+        assertNull(pool.acquire());
+        assertEquals(1, pool.getExhaustedCount());
+        pool.release(a);
+        assertSame(a, pool.acquire());
+    }
+
+    // 递增计数的音频源，便于校验预录历史与实时数据的衔接
+    private static class CounterSource implements AudioSource {
+        private short sample;
+
+        @Override
+        public int read(ByteBuffer buffer, int sizeInBytes) {
+            for (int i = 0; i + 1 < sizeInBytes; i += 2) {
+                buffer.putShort(i, sample++);
+            }
+            return sizeInBytes;
+        }
+    }
+
+    @Test
+    public void preRollHistoryIsFlushedBeforeLiveAudio() {
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(2500, SAMPLE_RATE);
+        AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring);
+        CounterSource source = new CounterSource();
+
+        // 100ms 历史 = 1600 个采样点，预录 10 帧（3200 个采样点）只保留最后 1600 个
+        pipeline.armPreRoll(100);
+        for (int i = 0; i < 10; i++) {
+            pipeline.processFrame(source);
+        }
+        assertEquals(0, ring.available());
+
+        pipeline.startStreaming();
+        pipeline.processFrame(source);
+        assertEquals(3200 + 640, ring.available());
+
+        byte[] out = new byte[ring.available()];
+        ring.read(out, 0, out.length);
+        ByteBuffer samples = ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < out.length / 2; i++) {
+            assertEquals((short) (1600 + i), samples.getShort());
+        }
+    }
+
+    @Test
+    public void disarmDiscardsHistory() {
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(2500, SAMPLE_RATE);
+        AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring);
+        CounterSource source = new CounterSource();
+
+        pipeline.armPreRoll(100);
+        pipeline.processFrame(source);
+        pipeline.disarmPreRoll();
+        pipeline.startStreaming();
+        pipeline.processFrame(source);
+        assertEquals(640, ring.available());
+    }
+
+    @Test
+    public void audioClockMapsGatedStreamBackToSessionAudio() {
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(5000, SAMPLE_RATE);
+        long[] now = {1_000_000};
+        AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring, () -> now[0]);
+        // 每 25 帧交替一次语音与静音，门限丢弃静音，送入识别的音频与会话音频错开
+        int[] frame = {0};
+        pipeline.setVadGate(new VadGate(new VoiceActivityDetector() {
+            @Override
+            public boolean isSpeech(ByteBuffer buffer) {
+                return (frame[0] / 25) % 2 == 1;
+            }
+
+            @Override
+            public void reset() {
+            }
+        }, VadGate.Mode.GATE, 20, 0));
+        CounterSource source = new CounterSource();
+        pipeline.resetClock();
+        for (; frame[0] < 200; frame[0]++) {
+            pipeline.processFrame(source);
+            now[0] += AudioPipeline.FRAME_MS;
+        }
+
+        AudioClock clock = pipeline.getClock();
+        assertEquals(200 * 640, clock.getSessionBytes());
+        // 第一帧在 1000000 采集完毕
+        assertEquals(1_000_000 - AudioPipeline.FRAME_MS, clock.wallTimeAt(0));
+        assertEquals(1_000_000 - AudioPipeline.FRAME_MS + 2000, clock.wallTimeAt(clock.getSessionBytes() / 2));
+        assertTrue(clock.getAnchorCount() <= 5);
+
+        // 环形缓冲区中每个采样点都能换算回会话音频中的同一个采样点
+        byte[] streamed = new byte[ring.available()];
+        assertTrue(streamed.length < 200 * 640);
+        ring.read(streamed, 0, streamed.length);
+        ByteBuffer samples = ByteBuffer.wrap(streamed).order(ByteOrder.LITTLE_ENDIAN);
+        for (int p = 0; p < streamed.length; p += 2) {
+            long sessionPosition = clock.toSessionPosition(p);
+            assertEquals("ring " + p, samples.getShort(p), (short) (sessionPosition / 2));
+        }
+    }
+
+    @Test
+    public void audioClockFollowsAudioSpilledDuringAStall() throws Exception {
+        java.io.File spill = java.io.File.createTempFile("backpressure", ".spill");
+        try {
+            PcmRingBuffer ring = new PcmRingBuffer(8192);
+            AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring);
+            pipeline.getBackpressure().setSpillFile(spill);
+            pipeline.getBackpressure().reset(BackpressurePolicy.SPILL_TO_DISK);
+            CounterSource source = new CounterSource();
+            pipeline.resetClock();
+
+            // 识别服务停顿 60 帧，之后每帧取两帧的量追上积压
+            for (int i = 0; i < 60; i++) {
+                pipeline.processFrame(source);
+            }
+            assertTrue(pipeline.getBackpressure().getBacklogBytes() > 0);
+            ByteBuffer streamed = ByteBuffer.allocate(200 * 640).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] chunk = new byte[1280];
+            for (int i = 0; i < 100; i++) {
+                streamed.put(chunk, 0, ring.read(chunk, 0, chunk.length));
+                pipeline.processFrame(source);
+            }
+            streamed.put(chunk, 0, ring.read(chunk, 0, chunk.length));
+
+            // 没有丢弃，环形缓冲区中每个采样点都能换算回会话音频中的同一个采样点
+            assertEquals(0, pipeline.getBackpressure().getDroppedBytes());
+            assertEquals(0, pipeline.getBackpressure().getBacklogBytes());
+            AudioClock clock = pipeline.getClock();
+            assertEquals(160 * 640, clock.getSessionBytes());
+            for (int p = 0; p < streamed.position(); p += 2) {
+                assertEquals("ring " + p, streamed.getShort(p), (short) (clock.toSessionPosition(p) / 2));
+                assertEquals((short) (p / 2), streamed.getShort(p));
+            }
+        } finally {
+            spill.delete();
+        }
+    }
+
+    @Test
+    public void steadyStateCaptureAndHandOffDoNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(200, SAMPLE_RATE);
+        AudioPipeline pipeline = new AudioPipeline(SAMPLE_RATE, ring);
+        AudioSource source = new SineSource();
+        // 模拟SDK在 onNuiNeedAudioData 中提供的缓冲区
+        byte[] nuiBuffer = new byte[pipeline.getFrameBytes()];
+
+        // 预热，让 JIT 完成编译
+        for (int i = 0; i < 20000; i++) {
+            pipeline.processFrame(source);
+            ring.read(nuiBuffer, 0, nuiBuffer.length);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 50000; i++) {
+            pipeline.processFrame(source);
+            ring.read(nuiBuffer, 0, nuiBuffer.length);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals("稳态下每帧不应分配内存", 0, allocated);
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(0, pipeline.getDroppedFrames());
+    }
+
+    // 48kHz 立体声正弦波设备，每个许可产生一次读取，由测试线程控制录音节奏；停止后不再等待
+    private static class PacedStereoDevice implements AudioSource.Device {
+        final AtomicLong permits = new AtomicLong();
+        private volatile boolean running;
+        private long sample;
+
+        @Override
+        public void start(int sampleRate, int frameBytes) {
+            running = true;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer, int sizeInBytes) {
+            while (permits.get() <= 0) {
+                if (!running) {
+                    return 0;
+                }
+                LockSupport.parkNanos(20_000);
+            }
+            permits.decrementAndGet();
+            int bytes = sizeInBytes - sizeInBytes % 4;
+            for (int i = 0; i < bytes; i += 4) {
+                short value = (short) (Math.sin(sample++ * 0.05 / 3) * 8000);
+                buffer.putShort(i, value);
+                buffer.putShort(i + 2, value);
+            }
+            return bytes;
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+        }
+
+        @Override
+        public void release() {
+            running = false;
+        }
+    }
+
+    // startDialog 时打开对话、stopDialog 时关闭，不启动取数线程，由测试线程调用 onNeedAudioData
+    private static class ManualRecognizer implements Recognizer {
+        private Callback callback;
+
+        @Override
+        public int initialize(Callback callback, String appkey, String token, String workspace) {
+            this.callback = callback;
+            return SUCCESS;
+        }
+
+        @Override
+        public int startDialog(AudioCodec codec) {
+            callback.onAudioStateChanged(true);
+            return SUCCESS;
+        }
+
+        @Override
+        public int stopDialog() {
+            callback.onAudioStateChanged(false);
+            return SUCCESS;
+        }
+
+        @Override
+        public int release() {
+            return SUCCESS;
+        }
+    }
+
+    // 只记录错误
+    private static class ErrorSink implements ResultSink {
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onPartialResult(int keep, String delta, int length, double confidence) {
+        }
+
+        @Override
+        public void onFinalResult(String text, double confidence, long sdkIndex, SentenceTiming timing) {
+        }
+
+        @Override
+        public void onTranscriptPatch(String sessionId, TranscriptPatch patch) {
+        }
+
+        @Override
+        public void onSpeechStart(long frameIndex) {
+        }
+
+        @Override
+        public void onSpeechEnd(long frameIndex) {
+        }
+
+        @Override
+        public void onError(String code, String message) {
+            errors.add(code + " " + message);
+        }
+
+        @Override
+        public void onMetrics(String sessionId, SpeechMetrics metrics) {
+        }
+
+        @Override
+        public void onLevels(String sessionId, short[] levels, int windows, int windowMs) {
+        }
+
+        @Override
+        public void onBackpressure(String sessionId, BackpressureBuffer.Level level, BackpressureBuffer buffer) {
+        }
+
+        @Override
+        public void onSegment(String sessionId, int index, long startOffsetMs, long endOffsetMs) {
+        }
+
+        @Override
+        public void onWakeWord(String sessionId, String keyword) {
+        }
+
+        @Override
+        public void onParallelClosed(String sessionId, ParallelRecognizer recognizer) {
+        }
+
+        @Override
+        public void onSessionClosed(String sessionId, File audio, long audioBytes, AudioCodec codec, boolean failed) {
+        }
+    }
+
+    @Test
+    public void fullyConfiguredSessionDoesNotAllocatePerFrame() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        File dir = Files.createTempDirectory("sessions").toFile();
+        PacedStereoDevice device = new PacedStereoDevice();
+        AtomicReference<Thread> captureThread = new AtomicReference<>();
+        ErrorSink sink = new ErrorSink();
+        // 重采样设备、语音门限、会话落盘、电平表、分段、溢写背压与一路并行识别都打开
+        SpeechEngine engine = new SpeechEngine(new ManualRecognizer(), new ResamplingSource(device, 48000, 2), sink,
+            dir, r -> {
+                Thread thread = new Thread(r, "capture");
+                captureThread.set(thread);
+                return thread;
+            });
+        ParallelRecognizer parallel = new ParallelRecognizer("dialect", new ManualRecognizer());
+        try {
+            engine.initialize("appkey", "token", "workspace");
+            assertEquals(Recognizer.SUCCESS, engine.start(new SpeechEngine.SessionOptions()
+                .vadGate(new VadGate(new EnergyVad(), VadGate.Mode.GATE,
+                    VadGate.DEFAULT_ATTACK_MS, VadGate.DEFAULT_HANGOVER_MS))
+                .levelIntervalMs(100)
+                .segmentMs(60 * 60 * 1000)
+                .backpressure(BackpressurePolicy.SPILL_TO_DISK)
+                .parallel(Collections.singletonList(parallel))));
+            assertTrue(parallel.isActive());
+
+            // 模拟 SDK 在 onNuiNeedAudioData 中提供的缓冲区；录音领先几帧，取数时不需要等待
+            int frameBytes = PcmRingBuffer.bytesForDuration(AudioPipeline.FRAME_MS, SAMPLE_RATE);
+            byte[] nuiBuffer = new byte[frameBytes];
+            byte[] parallelBuffer = new byte[frameBytes];
+            device.permits.addAndGet(10);
+
+            // 预热，让 JIT 完成编译
+            for (int i = 0; i < 20000; i++) {
+                device.permits.incrementAndGet();
+                engine.onNeedAudioData(nuiBuffer, frameBytes);
+                parallel.onNeedAudioData(parallelBuffer, frameBytes);
+            }
+
+            // 之后按 25 倍速录音，分发线程来得及预先准备会话落盘的映射区与波形容量（每段约 32 秒音频）
+            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            long frameNanos = TimeUnit.MILLISECONDS.toNanos(AudioPipeline.FRAME_MS) / 25;
+            long captureId = captureThread.get().getId();
+            long sdkId = Thread.currentThread().getId();
+            long captureBefore = threads.getThreadAllocatedBytes(captureId);
+            long sdkBefore = threads.getThreadAllocatedBytes(sdkId);
+            long sent = 0;
+            long due = System.nanoTime();
+            for (int i = 0; i < 5000; i++) {
+                due += frameNanos;
+                while (System.nanoTime() < due) {
+                    LockSupport.parkNanos(due - System.nanoTime());
+                }
+                device.permits.incrementAndGet();
+                sent += engine.onNeedAudioData(nuiBuffer, frameBytes);
+                parallel.onNeedAudioData(parallelBuffer, frameBytes);
+            }
+            long sdkAllocated = threads.getThreadAllocatedBytes(sdkId) - sdkBefore;
+            long captureAllocated = threads.getThreadAllocatedBytes(captureId) - captureBefore;
+
+            assertEquals("录音线程稳态下每帧不应分配内存", 0, captureAllocated);
+            assertEquals("onNeedAudioData 稳态下不应分配内存", 0, sdkAllocated);
+            assertEquals(5000L * frameBytes, sent);
+            assertEquals(0, engine.getMetrics().getOverrunCount());
+            assertEquals(0, parallel.getCursor().getDroppedBytes());
+            assertTrue(sink.errors.toString(), sink.errors.isEmpty());
+            engine.stop();
+        } finally {
+            engine.release();
+            parallel.release();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * BackpressureBuffer 纯JVM测试：录音线程照常写入、识别服务不取数（停顿）时各策略的行为。
+ */
+public class BackpressureBufferTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int FRAME_BYTES = 640;
+
+    private File spillFile;
+    private final List<BackpressureBuffer.Level> levels = Collections.synchronizedList(new ArrayList<>());
+    private int nextSample;
+
+    @Before
+    public void setUp() throws Exception {
+        spillFile = File.createTempFile("backpressure", ".spill");
+    }
+
+    @After
+    public void tearDown() {
+        spillFile.delete();
+    }
+
+    private BackpressureBuffer buffer(PcmRingBuffer ring, BackpressurePolicy policy) {
+        BackpressureBuffer buffer = new BackpressureBuffer(ring, SAMPLE_RATE);
+        buffer.setSpillFile(spillFile);
+        buffer.setListener(levels::add);
+        buffer.reset(policy);
+        return buffer;
+    }
+
+    // 写入一帧递增计数的 PCM，和录音线程一样写入后调用 update
+    private void writeFrames(BackpressureBuffer buffer, int frames) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int f = 0; f < frames; f++) {
+            for (int i = 0; i < FRAME_BYTES; i += 2) {
+                frame.putShort(i, (short) nextSample++);
+            }
+            buffer.write(frame);
+            assertEquals(0, frame.position());
+            buffer.update();
+        }
+    }
+
+    // 像识别服务一样按帧取完全部积压
+    private short[] drain(PcmRingBuffer ring, BackpressureBuffer buffer) {
+        byte[] chunk = new byte[FRAME_BYTES];
+        ByteBuffer out = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.getDepthBytes() > 0) {
+            int n = ring.read(chunk, 0, chunk.length);
+            out.put(chunk, 0, n);
+            buffer.update();
+        }
+        short[] samples = new short[out.position() / 2];
+        out.flip();
+        out.asShortBuffer().get(samples);
+        return samples;
+    }
+
+    private static void assertCounting(short[] samples, int from, int to, int firstValue) {
+        for (int i = from; i < to; i++) {
+            assertEquals("sample " + i, (short) (firstValue + i - from), samples[i]);
+        }
+    }
+
+    @Test
+    public void dropOldestKeepsTheNewestAudio() {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        BackpressureBuffer buffer = buffer(ring, BackpressurePolicy.DROP_OLDEST);
+        writeFrames(buffer, 20);
+
+        int total = 20 * FRAME_BYTES;
+        assertEquals(4096, ring.available());
+        assertEquals(total - 4096, buffer.getDroppedBytes());
+        assertEquals(total - 4096, ring.getDroppedBytes());
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(1, buffer.getOverflowCount());
+
+        short[] samples = drain(ring, buffer);
+        assertEquals(2048, samples.length);
+        assertCounting(samples, 0, samples.length, total / 2 - 2048);
+        assertEquals(Arrays.asList(BackpressureBuffer.Level.HIGH, BackpressureBuffer.Level.OVERFLOW,
+            BackpressureBuffer.Level.NORMAL), levels);
+        assertEquals(4096, buffer.getMaxDepthBytes());
+    }
+
+    @Test
+    public void spillToDiskPreservesEveryByteInOrder() {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        BackpressureBuffer buffer = buffer(ring, BackpressurePolicy.SPILL_TO_DISK);
+        writeFrames(buffer, 50);
+
+        int total = 50 * FRAME_BYTES;
+        assertEquals(total, buffer.getDepthBytes());
+        assertEquals(total - 4096, buffer.getBacklogBytes());
+        assertEquals(0, buffer.getDroppedBytes());
+
+        // 取数恢复后录音继续，新数据排在积压之后
+        byte[] chunk = new byte[FRAME_BYTES * 2];
+        ByteBuffer out = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 40; i++) {
+            out.put(chunk, 0, ring.read(chunk, 0, chunk.length));
+            writeFrames(buffer, 1);
+        }
+        short[] tail = drain(ring, buffer);
+        short[] head = new short[out.position() / 2];
+        out.flip();
+        out.asShortBuffer().get(head);
+        short[] samples = Arrays.copyOf(head, head.length + tail.length);
+        System.arraycopy(tail, 0, samples, head.length, tail.length);
+
+        assertEquals(90 * FRAME_BYTES / 2, samples.length);
+        assertCounting(samples, 0, samples.length, 0);
+        assertEquals(0, buffer.getDroppedBytes());
+        assertEquals(0, buffer.getBacklogBytes());
+        assertEquals(BackpressureBuffer.Level.NORMAL, buffer.getLevel());
+        assertTrue(buffer.getSpilledBytes() >= total - 4096);
+    }
+
+    @Test
+    public void fullSpillFileDropsItsOldestAudio() {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        BackpressureBuffer buffer = new BackpressureBuffer(ring, SAMPLE_RATE);
+        buffer.setSpillFile(spillFile);
+        // 8192 字节
+        buffer.setMaxSpillMs(256);
+        buffer.reset(BackpressurePolicy.SPILL_TO_DISK);
+        writeFrames(buffer, 40);
+
+        int total = 40 * FRAME_BYTES;
+        assertEquals(8192, buffer.getBacklogBytes());
+        assertEquals(total - 4096 - 8192, buffer.getDroppedBytes());
+
+        // 环形缓冲区中是停顿前最早的音频，溢写文件中是最新的连续音频
+        short[] samples = drain(ring, buffer);
+        assertEquals((4096 + 8192) / 2, samples.length);
+        assertCounting(samples, 0, 2048, 0);
+        assertCounting(samples, 2048, samples.length, total / 2 - 4096);
+    }
+
+    @Test
+    public void spillFallsBackToDropOldestWhenTheFileCannotBeCreated() {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        BackpressureBuffer buffer = new BackpressureBuffer(ring, SAMPLE_RATE);
+        buffer.setSpillFile(new File(spillFile, "missing/backpressure.spill"));
+        buffer.reset(BackpressurePolicy.SPILL_TO_DISK);
+        writeFrames(buffer, 20);
+
+        assertEquals(0, buffer.getBacklogBytes());
+        assertEquals(20 * FRAME_BYTES - 4096, buffer.getDroppedBytes());
+        assertEquals(4096, ring.available());
+    }
+
+    @Test
+    public void blockWaitsForTheRecognizerThenTimesOut() throws Exception {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        BackpressureBuffer buffer = buffer(ring, BackpressurePolicy.BLOCK);
+        buffer.setBlockTimeoutMs(300);
+        buffer.reset(BackpressurePolicy.BLOCK);
+        writeFrames(buffer, 6);
+
+        // 识别服务 100ms 后取走一帧，写入等到有空间后完成
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            ring.read(new byte[FRAME_BYTES], 0, FRAME_BYTES);
+        });
+        consumer.start();
+        long start = System.nanoTime();
+        writeFrames(buffer, 1);
+        long waitedMs = (System.nanoTime() - start) / 1000000;
+        consumer.join();
+        assertTrue("waited " + waitedMs, waitedMs >= 80);
+        assertEquals(0, buffer.getDroppedBytes());
+        assertEquals(6 * FRAME_BYTES, ring.available());
+
+        // 一直没有取数时超时，之后按丢弃最旧的数据处理
+        start = System.nanoTime();
+        writeFrames(buffer, 1);
+        waitedMs = (System.nanoTime() - start) / 1000000;
+        assertTrue("waited " + waitedMs, waitedMs >= 280);
+        assertTrue(buffer.getBlockedMillis() >= 380);
+        assertEquals(FRAME_BYTES - (4096 - 6 * FRAME_BYTES), buffer.getDroppedBytes());
+        assertEquals(BackpressureBuffer.Level.OVERFLOW, buffer.getLevel());
+    }
+
+    @Test
+    public void resetDiscardsTheBacklogOfThePreviousSession() throws Exception {
+        PcmRingBuffer ring = new PcmRingBuffer(4096);
+        BackpressureBuffer buffer = buffer(ring, BackpressurePolicy.SPILL_TO_DISK);
+        writeFrames(buffer, 20);
+        assertTrue(buffer.getBacklogBytes() > 0);
+
+        buffer.reset(BackpressurePolicy.DROP_OLDEST);
+        ring.clear();
+        writeFrames(buffer, 1);
+        assertEquals(0, buffer.getBacklogBytes());
+        assertEquals(0, buffer.getSpilledBytes());
+        assertEquals(FRAME_BYTES, buffer.getDepthBytes());
+        assertEquals(BackpressureBuffer.Level.NORMAL, buffer.getLevel());
+
+        org.json.JSONObject json = buffer.toJson(new org.json.JSONObject());
+        assertEquals("drop-oldest", json.getString("policy"));
+        assertEquals("normal", json.getString("level"));
+        assertEquals(20, json.getLong("depthMs"));
+        assertEquals(128, json.getLong("capacityMs"));
+
+        buffer.close();
+        assertFalse(spillFile.exists());
+    }
+}
@@ -0,0 +1,206 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+public class ImaAdpcmEncoderTest {
+
+    private static final int FRAME_BYTES = 640;
+
+    /**
+     * 参考解码器，按标准 IMA-ADPCM 块格式还原 16bit 采样
+     */
+    static short[] decode(byte[] data, int offset, int length, int sampleCount) {
+        short[] out = new short[sampleCount];
+        int n = 0;
+        for (int block = offset; block < offset + length && n < sampleCount; block += ImaAdpcmEncoder.BLOCK_ALIGN) {
+            int predictor = (short) ((data[block] & 0xFF) | (data[block + 1] << 8));
+            int index = data[block + 2];
+            out[n++] = (short) predictor;
+            for (int i = block + 4; i < block + ImaAdpcmEncoder.BLOCK_ALIGN && n < sampleCount; i++) {
+                for (int shift = 0; shift <= 4 && n < sampleCount; shift += 4) {
+                    int nibble = (data[i] >> shift) & 0x0F;
+                    int step = ImaAdpcmEncoder.STEP_TABLE[index];
+                    int delta = step >> 3;
+                    if ((nibble & 4) != 0) delta += step;
+                    if ((nibble & 2) != 0) delta += step >> 1;
+                    if ((nibble & 1) != 0) delta += step >> 2;
+                    predictor += (nibble & 8) != 0 ? -delta : delta;
+                    predictor = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predictor));
+                    index = Math.max(0, Math.min(88, index + ImaAdpcmEncoder.INDEX_TABLE[nibble & 7]));
+                    out[n++] = (short) predictor;
+                }
+            }
+        }
+        return out;
+    }
+
+    private static byte[] encodeByFrames(ImaAdpcmEncoder encoder, byte[] pcm) {
+        byte[] out = new byte[encoder.maxEncodedBytes(pcm.length)];
+        ByteBuffer frame = ByteBuffer.allocateDirect(FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int written = 0;
+        for (int offset = 0; offset < pcm.length; offset += FRAME_BYTES) {
+            frame.clear();
+            frame.put(pcm, offset, Math.min(FRAME_BYTES, pcm.length - offset));
+            frame.flip();
+            written += encoder.encode(frame, out, written);
+            assertEquals(0, frame.position());
+        }
+        written += encoder.flush(out, written);
+        byte[] result = new byte[written];
+        System.arraycopy(out, 0, result, 0, written);
+        return result;
+    }
+
+    private static double snrDb(byte[] pcm, short[] decoded) {
+        ByteBuffer source = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        double signal = 0;
+        double noise = 0;
+        for (int i = 0; i < decoded.length; i++) {
+            int s = source.getShort(i * 2);
+            signal += (double) s * s;
+            noise += (double) (s - decoded[i]) * (s - decoded[i]);
+        }
+        return 10 * Math.log10(signal / Math.max(noise, 1));
+    }
+
+    @Test
+    public void speechRoundTripsWithReasonableQuality() throws Exception {
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder();
+        byte[] encoded = encodeByFrames(encoder, wav.pcm);
+
+        int samples = wav.pcm.length / 2;
+        assertEquals(samples, encoder.getSampleCount());
+        // 4bit 每采样，加上块头与最后一块的补齐
+        int blocks = (samples + ImaAdpcmEncoder.SAMPLES_PER_BLOCK - 1) / ImaAdpcmEncoder.SAMPLES_PER_BLOCK;
+        assertEquals(blocks * ImaAdpcmEncoder.BLOCK_ALIGN, encoded.length);
+        assertTrue(encoded.length * 3.9 < wav.pcm.length);
+
+        // 夹具中的语音为合成宽带信号，4bit 量化下信噪比低于纯音
+        short[] decoded = decode(encoded, 0, encoded.length, samples);
+        double snr = snrDb(wav.pcm, decoded);
+        assertTrue("SNR " + snr, snr > 12);
+    }
+
+    @Test
+    public void toneRoundTripsCleanly() {
+        byte[] pcm = new byte[32000];
+        ByteBuffer buffer = ByteBuffer.wrap(pcm).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < pcm.length / 2; i++) {
+            buffer.putShort((short) (8000 * Math.sin(2 * Math.PI * 440 * i / 16000)));
+        }
+        byte[] encoded = encodeByFrames(new ImaAdpcmEncoder(), pcm);
+        double snr = snrDb(pcm, decode(encoded, 0, encoded.length, pcm.length / 2));
+        assertTrue("SNR " + snr, snr > 30);
+    }
+
+    @Test
+    public void frameSizeDoesNotChangeTheBitstream() throws Exception {
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        byte[] byFrames = encodeByFrames(new ImaAdpcmEncoder(), wav.pcm);
+
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder();
+        byte[] whole = new byte[encoder.maxEncodedBytes(wav.pcm.length)];
+        int n = encoder.encode(ByteBuffer.wrap(wav.pcm), whole, 0);
+        n += encoder.flush(whole, n);
+        assertEquals(byFrames.length, n);
+        for (int i = 0; i < n; i++) {
+            assertEquals("byte " + i, byFrames[i], whole[i]);
+        }
+    }
+
+    @Test
+    public void resetStartsANewStream() throws Exception {
+        WavFixture wav = WavFixture.load("room_noise_16k.wav");
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder();
+        byte[] first = encodeByFrames(encoder, wav.pcm);
+        encoder.reset();
+        assertEquals(0, encoder.getSampleCount());
+        byte[] second = encodeByFrames(encoder, wav.pcm);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void transcodedWavHasImaAdpcmHeader() throws Exception {
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        File pcmFile = File.createTempFile("pcm", ".wav");
+        File adpcmFile = File.createTempFile("adpcm", ".wav");
+        try {
+            SessionSpool spool = new SessionSpool(pcmFile, wav.sampleRate);
+            // 奇数长度的写入跨越读取块边界
+            spool.write(wav.pcm, 0, 16385);
+            spool.write(wav.pcm, 16385, wav.pcm.length - 16385);
+            spool.close();
+
+            long size = ImaAdpcmEncoder.transcodeWav(pcmFile, adpcmFile);
+            byte[] bytes = Files.readAllBytes(adpcmFile.toPath());
+            assertEquals(size, bytes.length);
+
+            ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(0x46464952, header.getInt(0));
+            assertEquals(bytes.length - 8, header.getInt(4));
+            assertEquals(ImaAdpcmEncoder.WAV_FORMAT_IMA_ADPCM, header.getShort(20));
+            assertEquals(wav.sampleRate, header.getInt(24));
+            assertEquals(ImaAdpcmEncoder.BLOCK_ALIGN, header.getShort(32));
+            assertEquals(4, header.getShort(34));
+            assertEquals(ImaAdpcmEncoder.SAMPLES_PER_BLOCK, header.getShort(38));
+            assertEquals(wav.pcm.length / 2, header.getInt(48));
+            int dataBytes = header.getInt(56);
+            assertEquals(bytes.length - ImaAdpcmEncoder.HEADER_BYTES, dataBytes);
+
+            byte[] direct = encodeByFrames(new ImaAdpcmEncoder(), wav.pcm);
+            assertEquals(direct.length, dataBytes);
+            for (int i = 0; i < dataBytes; i++) {
+                assertEquals(direct[i], bytes[ImaAdpcmEncoder.HEADER_BYTES + i]);
+            }
+        } finally {
+            pcmFile.delete();
+            adpcmFile.delete();
+        }
+    }
+
+    @Test
+    public void encodingFramesDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder();
+        ByteBuffer frame = ByteBuffer.allocateDirect(FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        frame.put(wav.pcm, 32000, FRAME_BYTES);
+        frame.flip();
+        byte[] out = new byte[encoder.maxEncodedBytes(FRAME_BYTES)];
+
+        for (int i = 0; i < 20000; i++) {
+            encoder.encode(frame, out, 0);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 20000; i++) {
+            encoder.encode(frame, out, 0);
+        }
+        assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+    }
+
+    @Test
+    public void formatNamesMapToCodecs() {
+        assertEquals(AudioCodec.PCM, AudioCodec.fromFormat(null));
+        assertEquals(AudioCodec.PCM, AudioCodec.fromFormat("wav"));
+        assertEquals(AudioCodec.OPUS, AudioCodec.fromFormat("Opus"));
+        assertEquals("opus", AudioCodec.OPUS.getStreamFormat());
+        assertEquals(AudioCodec.ADPCM, AudioCodec.fromFormat("ima-adpcm"));
+        assertEquals("pcm", AudioCodec.ADPCM.getStreamFormat());
+        assertTrue(AudioCodec.ADPCM.isAdpcmUpload());
+        try {
+            AudioCodec.fromFormat("mp3");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
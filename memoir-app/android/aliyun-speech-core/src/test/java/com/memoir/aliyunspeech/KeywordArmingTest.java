@@ -0,0 +1,161 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * KeywordArming 纯JVM测试：能量门限只把语音段送入唤醒词检测，并统计待命期间的唤醒与 CPU。
+ */
+public class KeywordArmingTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    // 100ms 的块
+    private static final int CHUNK_BYTES = 3200;
+
+    // 记录送入的字节数与收到的第一块的第一个样本
+    private static class CountingSpotter implements KeywordSpotter {
+        long bytes;
+        int chunks;
+        short firstSample;
+        int startResult = Recognizer.SUCCESS;
+        boolean started;
+
+        @Override
+        public int start(Listener listener) {
+            started = startResult == Recognizer.SUCCESS;
+            return startResult;
+        }
+
+        @Override
+        public void process(ByteBuffer frame) {
+            if (chunks++ == 0) {
+                firstSample = frame.getShort(frame.position());
+            }
+            bytes += frame.remaining();
+        }
+
+        @Override
+        public void stop() {
+            started = false;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    private static ByteBuffer silence(short marker) {
+        ByteBuffer frame = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        frame.putShort(0, marker);
+        return frame;
+    }
+
+    private static ByteBuffer tone() {
+        ByteBuffer frame = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < CHUNK_BYTES / 2; i++) {
+            frame.putShort(i * 2, (short) (Math.sin(i * 0.1) * 8000));
+        }
+        return frame;
+    }
+
+    @Test
+    public void onlySpeechAndItsSurroundingsReachTheSpotter() {
+        CountingSpotter spotter = new CountingSpotter();
+        KeywordArming arming = new KeywordArming(spotter, new EnergyVad(), SAMPLE_RATE, CHUNK_BYTES, null);
+        assertEquals(Recognizer.SUCCESS, arming.start(keyword -> { }));
+        assertTrue(spotter.started);
+        assertTrue(arming.isRunning());
+
+        // 安静时完全不运行检测
+        for (int i = 0; i < 3; i++) {
+            arming.process(silence((short) (i + 1)));
+        }
+        assertEquals(0, spotter.bytes);
+
+        // 语音开始时先送入上一块安静的音频，唤醒词的开头可能在其中
+        ByteBuffer speech = tone();
+        arming.process(speech);
+        assertEquals(2, spotter.chunks);
+        assertEquals(2 * CHUNK_BYTES, spotter.bytes);
+        assertEquals(0, speech.position());
+
+        // 语音结束后继续送入 HANGOVER_MS，之后再次停止
+        int hangoverChunks = KeywordArming.HANGOVER_MS / 100;
+        for (int i = 0; i < hangoverChunks + 3; i++) {
+            arming.process(silence((short) 0));
+        }
+        assertEquals((2 + hangoverChunks) * CHUNK_BYTES, spotter.bytes);
+
+        assertEquals(3 + 1 + hangoverChunks + 3, arming.getWakeups());
+        assertEquals((3 + 1 + hangoverChunks + 3) * 100, arming.getCapturedMs());
+        assertEquals((2 + hangoverChunks) * 100, arming.getSpottedMs());
+        assertEquals(-1, arming.getCpuMs());
+
+        arming.stop();
+        assertFalse(spotter.started);
+        assertFalse(arming.isRunning());
+    }
+
+    @Test
+    public void previousChunkIsTheLastSilentOne() {
+        CountingSpotter spotter = new CountingSpotter();
+        KeywordArming arming = new KeywordArming(spotter, new EnergyVad(), SAMPLE_RATE, CHUNK_BYTES, null);
+        arming.start(keyword -> { });
+        arming.process(silence((short) 1));
+        arming.process(silence((short) 2));
+        arming.process(tone());
+        assertEquals(2, spotter.chunks);
+        // 检测收到的第一块是紧接语音之前的安静音频
+        assertEquals(2, spotter.firstSample);
+        arming.stop();
+    }
+
+    @Test
+    public void sessionTimeIsExcludedFromArmedCpu() throws Exception {
+        AtomicLong cpu = new AtomicLong(100);
+        CountingSpotter spotter = new CountingSpotter();
+        KeywordArming arming = new KeywordArming(spotter, new EnergyVad(), SAMPLE_RATE, CHUNK_BYTES, cpu::get);
+        arming.start(keyword -> { });
+        cpu.set(150);
+        assertEquals(50, arming.getCpuMs());
+
+        // 会话中的 CPU 不计入待命
+        arming.markDetection();
+        arming.pause();
+        assertFalse(arming.isRunning());
+        cpu.set(500);
+        assertEquals(50, arming.getCpuMs());
+        long armedMs = arming.getArmedMs();
+        Thread.sleep(20);
+        assertEquals(armedMs, arming.getArmedMs());
+
+        arming.resume();
+        cpu.set(520);
+        assertEquals(70, arming.getCpuMs());
+        arming.stop();
+        cpu.set(900);
+        assertEquals(70, arming.getCpuMs());
+
+        JSONObject json = arming.toJson(new JSONObject());
+        assertEquals(70, json.getLong("cpuMs"));
+        assertEquals(1, json.getLong("detections"));
+        assertTrue(json.has("cpuPercent"));
+        assertTrue(json.has("wakeupsPerMinute"));
+    }
+
+    @Test
+    public void spotterStartFailureLeavesArmingStopped() {
+        CountingSpotter spotter = new CountingSpotter();
+        spotter.startResult = 240002;
+        KeywordArming arming = new KeywordArming(spotter, new EnergyVad(), SAMPLE_RATE, CHUNK_BYTES, null);
+        assertEquals(240002, arming.start(keyword -> { }));
+        assertFalse(arming.isRunning());
+        assertEquals(0, arming.getArmedMs());
+    }
+}
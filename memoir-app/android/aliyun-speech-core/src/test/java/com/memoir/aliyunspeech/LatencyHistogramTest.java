@@ -0,0 +1,82 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsRoundTripWithinRelativeError() {
+        for (long value = 0; value <= LatencyHistogram.MAX_VALUE_US; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            long low = LatencyHistogram.lowestEquivalentValue(index);
+            long high = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(value + " in [" + low + ", " + high + "]", low <= value && value <= high);
+            assertTrue("value " + value, high - low <= Math.max(1, value / 32));
+        }
+        // 相邻子桶首尾相接
+        for (int i = 1; i <= LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE_US); i++) {
+            assertEquals(LatencyHistogram.highestEquivalentValue(i - 1) + 1, LatencyHistogram.lowestEquivalentValue(i));
+        }
+    }
+
+    @Test
+    public void percentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(5000.5, histogram.getMeanMicros(), 1e-9);
+        assertEquals(10000, histogram.getMaxMicros());
+        assertEquals(5000, histogram.getValueAtPercentile(50), 5000 / 32);
+        assertEquals(9900, histogram.getValueAtPercentile(99), 9900 / 32);
+        assertEquals(10000, histogram.getValueAtPercentile(100));
+
+        JSONObject json = histogram.toJson(new JSONObject());
+        assertEquals(10000, json.getLong("count"));
+        assertEquals(10.0, json.getDouble("max"), 1e-9);
+        assertEquals(5.0, json.getDouble("p50"), 5.0 / 32);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.recordNanos(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(LatencyHistogram.MAX_VALUE_US, histogram.getMaxMicros());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void recordDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 预热，让 JIT 完成编译
+        for (int round = 0; round < 20; round++) {
+            recordSeries(histogram);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        recordSeries(histogram);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertEquals("记录时不应分配内存", 0, allocated);
+    }
+
+    private static void recordSeries(LatencyHistogram histogram) {
+        for (int i = 0; i < 100000; i++) {
+            histogram.recordNanos(i * 7919L);
+        }
+    }
+}
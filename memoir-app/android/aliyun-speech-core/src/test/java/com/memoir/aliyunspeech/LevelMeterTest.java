@@ -0,0 +1,115 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+
+import org.junit.Test;
+
+public class LevelMeterTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    // 10ms 窗口
+    private static final int WINDOW_SAMPLES = 160;
+
+    // 方波：每个窗口的幅度为 (窗口序号 + 1) * 100
+    private static ByteBuffer squareWave(int windows) {
+        ByteBuffer pcm = ByteBuffer.allocate(windows * WINDOW_SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int w = 0; w < windows; w++) {
+            for (int i = 0; i < WINDOW_SAMPLES; i++) {
+                pcm.putShort((short) ((i % 2 == 0 ? 1 : -1) * (w + 1) * 100));
+            }
+        }
+        pcm.flip();
+        return pcm;
+    }
+
+    // 按 chunkBytes 切块送入，与设备每次读取的长度无关
+    private static void feed(LevelMeter meter, ByteBuffer pcm, int chunkBytes) {
+        for (int offset = 0; offset < pcm.limit(); offset += chunkBytes) {
+            ByteBuffer chunk = pcm.duplicate();
+            chunk.position(offset).limit(Math.min(pcm.limit(), offset + chunkBytes));
+            ByteBuffer frame = chunk.slice().order(ByteOrder.LITTLE_ENDIAN);
+            meter.process(frame);
+            assertEquals(0, frame.position());
+        }
+    }
+
+    @Test
+    public void summarizesFixedWindowsRegardlessOfChunkSize() {
+        for (int chunkBytes : new int[] {2, 320, 640, 1234, 3840}) {
+            LevelMeter meter = new LevelMeter(SAMPLE_RATE);
+            feed(meter, squareWave(10), chunkBytes);
+            short[] out = new short[64 * LevelMeter.VALUES_PER_WINDOW];
+            assertEquals(10, meter.drain(out));
+            for (int w = 0; w < 10; w++) {
+                int amplitude = (w + 1) * 100;
+                assertEquals(-amplitude, out[w * 3]);
+                assertEquals(amplitude, out[w * 3 + 1]);
+                assertEquals(amplitude, out[w * 3 + 2]);
+            }
+            assertEquals(0, meter.drain(out));
+        }
+    }
+
+    @Test
+    public void incompleteWindowIsReportedOnceFilled() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE);
+        short[] out = new short[30];
+        ByteBuffer pcm = squareWave(1);
+        pcm.limit(200);
+        meter.process(pcm);
+        assertEquals(0, meter.drain(out));
+        pcm.position(200).limit(WINDOW_SAMPLES * 2);
+        meter.process(pcm.slice().order(ByteOrder.LITTLE_ENDIAN));
+        assertEquals(1, meter.drain(out));
+        assertEquals(100, out[2]);
+    }
+
+    @Test
+    public void slowConsumerGetsTheNewestWindows() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE);
+        // 容量 2 秒 = 200 个窗口
+        feed(meter, squareWave(250), 640);
+        short[] out = new short[300 * LevelMeter.VALUES_PER_WINDOW];
+        int windows = meter.drain(out);
+        assertTrue("windows " + windows, windows >= 199 && windows <= 200);
+        assertEquals(250 * 100, out[(windows - 1) * 3 + 1]);
+        assertEquals(250 - windows, meter.getOverwrittenWindows());
+
+        // out 放不下时只取最新的部分
+        feed(meter, squareWave(20), 640);
+        short[] small = new short[5 * LevelMeter.VALUES_PER_WINDOW];
+        assertEquals(5, meter.drain(small));
+        assertEquals(2000, small[4 * 3 + 1]);
+    }
+
+    @Test
+    public void resetDiscardsPendingWindows() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE);
+        ByteBuffer pcm = squareWave(3);
+        pcm.limit(pcm.limit() - 100);
+        meter.process(pcm);
+        meter.reset();
+        short[] out = new short[30];
+        assertEquals(0, meter.drain(out));
+        // 上次未满的窗口也被清空
+        feed(meter, squareWave(1), 320);
+        assertEquals(1, meter.drain(out));
+        assertEquals(100, out[1]);
+    }
+
+    @Test
+    public void packsLittleEndianBase64() {
+        short[] values = {-1, 0, 12345, -32768, 32767, 7};
+        for (int count = 0; count <= values.length; count++) {
+            ByteBuffer bytes = ByteBuffer.allocate(count * 2).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < count; i++) {
+                bytes.putShort(values[i]);
+            }
+            assertEquals(Base64.getEncoder().encodeToString(bytes.array()), SpeechParams.int16Base64(values, count));
+        }
+    }
+}
@@ -0,0 +1,665 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NuiSimulatorTest {
+
+    // 与夹具中三段语音（0.5–1.3s、2.0–2.8s、3.4–3.9s）对应的识别时间线
+    private static final String SCRIPT =
+        "# speech_pauses_16k.wav\n"
+        + "500 vad_start\n"
+        + "500 sentence_start\n"
+        + "700 partial 今天\n"
+        + "1000 partial 今天天气\n"
+        + "1400 final 今天天气很好。 0.93\n"
+        + "2100 partial 我们\n"
+        + "2500 partial 我们去公园\n"
+        + "2900 final 我们去公园散步。 0.88\n"
+        + "3500 partial 好的\n"
+        + "4000 final 好的。 0.95\n"
+        + "4100 vad_end\n";
+
+    private static final List<String> EXPECTED = Arrays.asList("今天天气很好。", "我们去公园散步。", "好的。");
+
+    private ScheduledExecutorService scheduler;
+    private byte[] pcm;
+    private final List<SimulatedSession> sessions = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        pcm = WavFixture.load("speech_pauses_16k.wav").pcm;
+    }
+
+    @After
+    public void tearDown() {
+        for (SimulatedSession session : sessions) {
+            session.release();
+        }
+        scheduler.shutdownNow();
+    }
+
+    private SimulatedSession session(byte[] pcm, double speed, NuiSimulator.Script script,
+                                     NuiSimulator.Options options, ScheduledExecutorService scheduler) throws Exception {
+        SimulatedSession session = new SimulatedSession(pcm, speed, script, options, scheduler);
+        sessions.add(session);
+        return session;
+    }
+
+    @Test
+    public void parsesScriptText() {
+        NuiSimulator.Script script = NuiSimulator.Script.parse(SCRIPT + "4200 error 240070\n");
+        List<NuiSimulator.Script.Step> steps = script.steps();
+        assertEquals(12, steps.size());
+        assertEquals(Recognizer.Event.EVENT_VAD_START, steps.get(0).event);
+        assertEquals(Recognizer.Event.EVENT_SENTENCE_START, steps.get(1).event);
+        NuiSimulator.Script.Step first = steps.get(4);
+        assertEquals(Recognizer.Event.EVENT_SENTENCE_END, first.event);
+        assertEquals("今天天气很好。", first.text);
+        assertEquals(0.93, first.confidence, 1e-9);
+        assertEquals(240070, steps.get(11).code);
+        assertEquals(4200, script.getDurationMs());
+
+        try {
+            NuiSimulator.Script.parse("100 shout 你好");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void replaysScriptAgainstWavInOrder() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start());
+        assertTrue(session.awaitClosed(5000));
+
+        assertEquals(EXPECTED, session.finals);
+        // 置信度取自识别结果
+        assertEquals(Arrays.asList(0.93, 0.88, 0.95), session.confidences);
+        assertEquals(Arrays.asList(1L, 2L, 3L), session.sdkIndexes);
+        // 中间结果的 confidence 为 0，不编造置信度
+        assertFalse(session.partialConfidences.isEmpty());
+        for (double confidence : new ArrayList<>(session.partialConfidences)) {
+            assertTrue(Double.isNaN(confidence));
+        }
+        assertTrue(session.errors.isEmpty());
+        // 所有音频都经过环形缓冲区交给了识别，并完整落盘
+        assertEquals(pcm.length, session.nui.getConsumedBytes());
+        assertEquals(pcm.length, session.closedAudioBytes);
+        assertEquals(SessionSpool.HEADER_BYTES + pcm.length, session.closedAudio.length());
+        assertFalse(session.closedFailed);
+        assertEquals(AudioCodec.PCM, session.nui.getCodec());
+        assertEquals(0, session.engine.getRingBuffer().getOverrunCount());
+        // SDK 格式的结果中带有句子起止时间
+        JSONObject last = new JSONObject(session.finalPayloads.get(2));
+        assertEquals("SentenceEnd", last.getJSONObject("header").getString("name"));
+        JSONObject payload = last.getJSONObject("payload");
+        assertEquals(3, payload.getInt("index"));
+        assertEquals(3500, payload.getLong("begin_time"));
+        assertEquals(4000, payload.getLong("time"));
+
+        List<String> timeline = session.timeline;
+        assertEquals("OPEN", timeline.get(0));
+        assertEquals("EVENT_TRANSCRIBER_COMPLETE", timeline.get(timeline.size() - 2));
+        assertEquals("CLOSE", timeline.get(timeline.size() - 1));
+    }
+
+    @Test
+    public void sessionAudioCanBeDeletedOnceClosed() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start());
+        String id = session.engine.getSessionId();
+        try {
+            session.engine.deleteSessionAudio(id);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(session.awaitClosed(5000));
+
+        assertTrue(session.engine.getSessionAudioFile(id).isFile());
+        assertTrue(session.engine.getSentenceIndexFile(id).isFile());
+        assertTrue(session.engine.deleteSessionAudio(id));
+        assertFalse(session.engine.getSessionAudioFile(id).exists());
+        assertFalse(session.engine.getSentenceIndexFile(id).exists());
+        assertFalse(session.engine.getWaveformFile(id).exists());
+    }
+
+    @Test
+    public void finalResultsAreTimedOnTheSessionAudioClock() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        long started = System.currentTimeMillis();
+        assertEquals(Recognizer.SUCCESS, session.start());
+        assertTrue(session.awaitClosed(5000));
+
+        // 句子起止取自结果中的 begin_time/time，而不是收到结果的时间
+        long[][] expected = {{500, 1400}, {2100, 2900}, {3500, 4000}};
+        assertEquals(3, session.timings.size());
+        for (int i = 0; i < expected.length; i++) {
+            SentenceTiming timing = session.timings.get(i);
+            assertEquals(i, timing.index);
+            assertEquals(expected[i][0], timing.beginOffsetMs);
+            assertEquals(expected[i][1], timing.endOffsetMs);
+            assertEquals(expected[i][1] - expected[i][0], timing.endTime - timing.beginTime);
+            assertTrue(timing.beginTime >= started);
+        }
+        // 模拟麦克风以 20 倍速播放，墙上时间按采集到的音频时长推算
+        assertEquals(2100 - 500, session.timings.get(1).beginTime - session.timings.get(0).beginTime);
+
+        // 会话结束后索引保存在 WAV 旁，按播放位置定位句子
+        String id = session.engine.getSessionId();
+        assertTrue(session.engine.getSentenceIndexFile(id).isFile());
+        SentenceIndex index = session.engine.getSentenceIndex(id);
+        assertEquals(3, index.size());
+        int bytesPerMs = SpeechEngine.SAMPLE_RATE * 2 / 1000;
+        assertEquals(-1, index.find(100 * bytesPerMs));
+        assertEquals(0, index.find(500 * bytesPerMs));
+        assertEquals(1, index.find(2500 * bytesPerMs));
+        assertEquals(2, index.find(pcm.length));
+        assertEquals(3500 * bytesPerMs, index.getBegin(2));
+        assertEquals(4000 * bytesPerMs, index.getEnd(2));
+
+        // 波形随落盘计算，保存在 WAV 旁
+        assertTrue(session.engine.getWaveformFile(id).isFile());
+        WaveformPyramid waveform = session.engine.getWaveform(id);
+        assertEquals(pcm.length / 2, waveform.getSamples());
+        short[] peaks = new short[2];
+        waveform.getPeaks(0, waveform.getSamples(), 1, peaks);
+        assertTrue(peaks[0] < -1000 && peaks[1] > 1000);
+        assertNull(session.engine.getWaveform("missing"));
+    }
+
+    @Test
+    public void transcriptPatchesReplacePartialAndFinalResults() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions().transcriptPatches(true)));
+        assertTrue(session.awaitClosed(5000));
+
+        assertTrue(session.partials.isEmpty());
+        assertTrue(session.finals.isEmpty());
+        // 按顺序应用补丁得到与引擎中相同的文本
+        StringBuilder text = new StringBuilder();
+        String tail = "";
+        int commits = 0;
+        for (TranscriptPatch patch : new ArrayList<>(session.patches)) {
+            tail = tail.substring(0, patch.keep) + patch.delta;
+            if (patch.op == TranscriptPatch.Op.COMMIT) {
+                assertEquals(commits++, patch.index);
+                assertEquals(text.length(), patch.offset);
+                assertNotNull(patch.timing);
+                text.append(tail);
+                tail = "";
+            }
+        }
+        assertEquals(3, commits);
+        assertEquals(String.join("", EXPECTED), text.toString());
+
+        Transcript transcript = session.engine.getTranscript(session.engine.getSessionId());
+        assertEquals(3, transcript.size());
+        assertEquals(text.toString(), transcript.getText(0, transcript.length()));
+        assertEquals(EXPECTED.get(1), transcript.getSentence(1));
+        assertNull(session.engine.getTranscript("other"));
+    }
+
+    @Test
+    public void parallelRecognizerReadsTheSameAudioAtItsOwnPace() throws Exception {
+        // 方言模型对第二句的识别更好，但整体置信度更低；它在音频 1s 处停顿 100ms（20 倍速下约 2s 音频）
+        NuiSimulator.Script dialect = new NuiSimulator.Script()
+            .partial(700, "今天")
+            .sentenceEnd(1400, "今天天气很好。", 0.80)
+            .sentenceEnd(2900, "我们去公园耍。", 0.91)
+            .sentenceEnd(4000, "好的。", 0.70);
+        NuiSimulator dialectNui = new NuiSimulator(dialect, new NuiSimulator.Options().speed(20).stall(1000, 100),
+            scheduler);
+        ParallelRecognizer parallel = new ParallelRecognizer("dialect", dialectNui);
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions()
+            .parallel(Collections.singletonList(parallel))));
+        assertTrue(session.awaitClosed(5000));
+        assertTrue(session.awaitParallelClosed(1, 5000));
+
+        // 主对话不受并行识别停顿的影响
+        assertEquals(EXPECTED, session.finals);
+        assertEquals(pcm.length, session.engine.getMetrics().getBytesSent());
+        assertEquals(0, session.engine.getMetrics().getOverrunCount());
+        // 并行识别读到了同样的全部音频，落后过但没有丢失
+        PcmBroadcast.Cursor cursor = parallel.getCursor();
+        assertEquals(pcm.length, cursor.getConsumedBytes());
+        assertEquals(pcm.length, dialectNui.getConsumedBytes());
+        assertEquals(0, cursor.getDroppedBytes());
+        assertTrue("max lag " + cursor.getMaxLagBytes(),
+            cursor.getMaxLagBytes() >= PcmRingBuffer.bytesForDuration(1000, SpeechEngine.SAMPLE_RATE));
+        assertTrue(session.errors.isEmpty());
+
+        String id = session.engine.getSessionId();
+        assertEquals(Collections.singletonList(parallel), session.parallelClosed);
+        assertEquals(id, parallel.getSessionId());
+        Transcript text = session.engine.getTranscript(id, "dialect");
+        assertSame(parallel.getTranscript(), text);
+        assertEquals(3, text.size());
+        assertEquals("我们去公园耍。", text.getSentence(1));
+        assertNull(session.engine.getTranscript(id, "other"));
+        // 按字符数加权：(7 * 0.80 + 7 * 0.91 + 3 * 0.70) / 17
+        assertEquals((7 * 0.80 + 7 * 0.91 + 3 * 0.70) / 17, text.getMeanConfidence(), 1e-9);
+        assertTrue(text.getMeanConfidence() < session.engine.getTranscript(id).getMeanConfidence());
+
+        org.json.JSONObject json = parallel.toJson(new org.json.JSONObject());
+        assertEquals("dialect", json.getString("name"));
+        assertFalse(json.getBoolean("active"));
+        assertEquals(pcm.length / 32, json.getLong("consumedMs"));
+        assertEquals(0, json.getLong("droppedMs"));
+        assertEquals("dialect", session.engine.getMetrics().toJson(new org.json.JSONObject())
+            .getJSONArray("parallel").getJSONObject(0).getString("name"));
+    }
+
+    @Test
+    public void primaryDialogStartsBeforeParallelRecognizersInitialize() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        NuiSimulator dialectNui = new NuiSimulator(NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        // 初始化需要 100ms 的识别服务，记录初始化时主对话是否已经开始
+        List<Boolean> primaryStarted = Collections.synchronizedList(new ArrayList<>());
+        Recognizer slowInit = new Recognizer() {
+            @Override
+            public int initialize(Callback callback, String appkey, String token, String workspace) {
+                primaryStarted.add(session.nui.getCodec() != null);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return dialectNui.initialize(callback, appkey, token, workspace);
+            }
+
+            @Override
+            public int startDialog(AudioCodec codec) {
+                return dialectNui.startDialog(codec);
+            }
+
+            @Override
+            public int stopDialog() {
+                return dialectNui.stopDialog();
+            }
+
+            @Override
+            public int release() {
+                return dialectNui.release();
+            }
+        };
+        ParallelRecognizer parallel = new ParallelRecognizer("dialect", new WarmRecognizer(slowInit, Clock.SYSTEM));
+        try {
+            assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions()
+                .parallel(Collections.singletonList(parallel))));
+            assertTrue(session.awaitClosed(5000));
+            assertTrue(session.awaitParallelClosed(1, 5000));
+
+            assertEquals(Collections.singletonList(true), primaryStarted);
+            assertEquals(EXPECTED, session.finals);
+            // 并行识别启动较晚，但从会话开头读取，没有漏掉音频
+            assertEquals(pcm.length, parallel.getCursor().getConsumedBytes());
+            assertEquals(0, parallel.getCursor().getDroppedBytes());
+            assertEquals(3, parallel.getTranscript().size());
+            assertTrue(session.errors.isEmpty());
+        } finally {
+            parallel.release();
+        }
+    }
+
+    // 送入的语音累计 200ms 后报告一次唤醒词，模拟本地唤醒词检测
+    private static class ScriptedSpotter implements KeywordSpotter {
+        private static final int WAKE_BYTES = PcmRingBuffer.bytesForDuration(200, SpeechEngine.SAMPLE_RATE);
+        private Listener listener;
+        private long bytes;
+        volatile int maxChunkBytes;
+
+        @Override
+        public int start(Listener listener) {
+            this.listener = listener;
+            bytes = 0;
+            return Recognizer.SUCCESS;
+        }
+
+        @Override
+        public void process(ByteBuffer frame) {
+            maxChunkBytes = Math.max(maxChunkBytes, frame.remaining());
+            boolean before = bytes < WAKE_BYTES;
+            bytes += frame.remaining();
+            if (before && bytes >= WAKE_BYTES) {
+                listener.onKeyword("你好小忆");
+            }
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    @Test
+    public void wakeWordPromotesArmedAudioIntoASession() throws Exception {
+        SimulatedSession session = session(pcm, 5, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20), scheduler);
+        session.engine.initialize("appkey", "token", "workspace");
+        ScriptedSpotter spotter = new ScriptedSpotter();
+        assertEquals(Recognizer.SUCCESS, session.engine.armKeyword(2000, spotter, new SpeechEngine.SessionOptions()));
+        assertTrue(session.awaitClosed(5000));
+
+        // 唤醒前的预录音频（包括唤醒词）与之后的音频一起识别，没有丢失
+        assertEquals(EXPECTED, session.finals);
+        assertEquals(pcm.length, session.closedAudioBytes);
+        assertTrue(session.errors.isEmpty());
+        String id = session.engine.getSessionId();
+        assertEquals(Collections.singletonList(id + " 你好小忆"), session.wakeWords);
+
+        // 待命时每 100ms 读取一次，只有语音附近的音频送入检测
+        KeywordArming arming = session.engine.getKeywordArming();
+        assertFalse(arming.isRunning());
+        assertEquals(1, arming.getDetections());
+        assertEquals(PcmRingBuffer.bytesForDuration(AudioPipeline.MAX_ARMED_FRAME_MS, SpeechEngine.SAMPLE_RATE),
+            spotter.maxChunkBytes);
+        long capturedMs = arming.getCapturedMs();
+        assertTrue("captured " + capturedMs, capturedMs >= 500 && capturedMs < 2000);
+        assertTrue("wakeups " + arming.getWakeups(), arming.getWakeups() <= capturedMs / 100 + 1);
+        assertTrue("spotted " + arming.getSpottedMs(), arming.getSpottedMs() < capturedMs);
+    }
+
+    @Test
+    public void levelsAreReportedInFixedRateBatches() throws Exception {
+        SimulatedSession session = session(pcm, 10, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(10), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions().levelIntervalMs(50)));
+        assertTrue(session.awaitClosed(5000));
+
+        // 10 倍速播放时每 50ms 约 50 个 10ms 窗口，批次数只取决于周期
+        int windows = 0;
+        for (int n : new ArrayList<>(session.levelBatches)) {
+            assertTrue("batch " + n, n <= 200);
+            windows += n;
+        }
+        int expected = pcm.length / 2 / (SpeechEngine.SAMPLE_RATE / 100);
+        assertTrue("windows " + windows, windows >= expected - 10 && windows <= expected);
+        assertTrue(session.levelBatches.size() >= 5);
+        short peak = 0;
+        for (short value : new ArrayList<>(session.levelPeaks)) {
+            peak = (short) Math.max(peak, value);
+        }
+        assertTrue("peak " + peak, peak > 1000);
+    }
+
+    @Test
+    public void sessionMetricsCoverTheHotPath() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().speed(20).latency(100, 0), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions().metricsIntervalMs(50)));
+        assertTrue(session.awaitClosed(5000));
+
+        SpeechMetrics metrics = session.engine.getMetrics();
+        assertEquals(pcm.length, metrics.getBytesSent());
+        assertEquals(0, metrics.getOverrunCount());
+        // 每帧写入后都被取走
+        long frames = pcm.length / session.engine.getPipeline().getFrameBytes();
+        assertTrue("handoff " + metrics.handoff.getCount(), metrics.handoff.getCount() >= frames - 2);
+        assertTrue(metrics.needAudioWait.getCount() > 0);
+        assertEquals(1, metrics.timeToFirstPartial.getCount());
+        assertTrue(metrics.timeToFirstPartial.getMaxMicros() >= 100000);
+        assertEquals(3, metrics.partialToFinal.getCount());
+        assertTrue(metrics.bridgeDispatch.getCount() >= 3 + session.partials.size() - 1);
+        // 周期报告与结束时的报告
+        assertTrue(session.metricsReports.get() >= 2);
+
+        org.json.JSONObject json = metrics.toJson(new org.json.JSONObject());
+        assertEquals(pcm.length, json.getLong("bytesSent"));
+        assertEquals(3, json.getJSONObject("partialToFinal").getLong("count"));
+    }
+
+    @Test
+    public void longFormSessionRollsOverAtSentenceEndsWithoutLosingAudio() throws Exception {
+        // 每段对话在其第 1 秒给出句子结束，超过 800ms 的段在此处切换
+        NuiSimulator.Script script = new NuiSimulator.Script().sentenceEnd(1000, "一段。", 0.9);
+        SimulatedSession session = session(pcm, 10, script, new NuiSimulator.Options().speed(10), scheduler);
+        assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions().segmentMs(800)));
+        assertTrue(session.awaitClosed(10000));
+        assertTrue(session.errors.toString(), session.errors.isEmpty());
+
+        List<String> segments = session.segments;
+        assertTrue(segments.toString(), segments.size() >= 3);
+        long overlapBytes = PcmRingBuffer.bytesForDuration(SpeechEngine.SEGMENT_OVERLAP_MS, SpeechEngine.SAMPLE_RATE);
+        long previousEnd = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            String[] parts = segments.get(i).split("[ -]");
+            assertEquals(i, Integer.parseInt(parts[0]));
+            long start = Long.parseLong(parts[1]);
+            long end = Long.parseLong(parts[2]);
+            // 每段从上一段结束前 300ms 开始，首尾相接
+            assertEquals(segments.toString(), i == 0 ? 0 : previousEnd - SpeechEngine.SEGMENT_OVERLAP_MS, start);
+            assertTrue(segments.toString(), end > start);
+            previousEnd = end;
+        }
+        assertEquals(pcm.length * 1000L / (SpeechEngine.SAMPLE_RATE * 2), previousEnd);
+
+        // 录音与落盘不中断，识别服务收到全部音频和每次切换重放的重叠部分
+        assertEquals(pcm.length, session.closedAudioBytes);
+        assertEquals(0, session.engine.getMetrics().getOverrunCount());
+        long expectedBytes = pcm.length + (segments.size() - 1) * overlapBytes;
+        assertEquals(expectedBytes, session.nui.getConsumedBytes());
+        assertEquals(expectedBytes, session.engine.getMetrics().getBytesSent());
+        assertTrue(session.finals.size() >= segments.size() - 1);
+    }
+
+    // 三遍夹具，约 13.5 秒
+    private byte[] longPcm() {
+        byte[] audio = new byte[pcm.length * 3];
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(pcm, 0, audio, i * pcm.length, pcm.length);
+        }
+        return audio;
+    }
+
+    // 10 倍速录音，识别服务在第 1 秒音频处停顿 500ms，其间到达约 5 秒音频，超过环形缓冲区的容量
+    private SimulatedSession stalledSession(byte[] audio, BackpressurePolicy policy) throws Exception {
+        return stalledSession(audio, policy, false);
+    }
+
+    private SimulatedSession stalledSession(byte[] audio, BackpressurePolicy policy, boolean live) throws Exception {
+        NuiSimulator.Script script = new NuiSimulator.Script().sentenceEnd(12000, "结束。", 0.9);
+        SimulatedSession session = new SimulatedSession(audio, 10, script,
+            new NuiSimulator.Options().speed(10).stall(1000, 500), scheduler, live);
+        sessions.add(session);
+        assertEquals(Recognizer.SUCCESS, session.start(new SpeechEngine.SessionOptions().backpressure(policy)));
+        assertTrue(session.awaitClosed(10000));
+        assertTrue(session.errors.toString(), session.errors.isEmpty());
+        // 无论哪种策略，会话音频都完整落盘
+        assertEquals(audio.length, session.closedAudioBytes);
+        return session;
+    }
+
+    @Test
+    public void recognizerStallDropsTheOldestAudioByDefault() throws Exception {
+        byte[] audio = longPcm();
+        SimulatedSession session = stalledSession(audio, BackpressurePolicy.DROP_OLDEST);
+        BackpressureBuffer backpressure = session.engine.getBackpressure();
+
+        assertTrue(backpressure.getDroppedBytes() > 0);
+        assertEquals(audio.length, session.nui.getConsumedBytes() + backpressure.getDroppedBytes());
+        assertEquals(0, session.engine.getRingBuffer().getOverrunBytes());
+        assertEquals(1, backpressure.getOverflowCount());
+        assertTrue(backpressure.getMaxDepthBytes() >= session.engine.getRingBuffer().capacity() - 640);
+        // 通知前端：积压升高、缓冲区写满、恢复
+        assertEquals(Arrays.asList(BackpressureBuffer.Level.HIGH, BackpressureBuffer.Level.OVERFLOW,
+            BackpressureBuffer.Level.NORMAL), session.backpressure);
+        // 识别服务没有收到丢弃的音频，之后的句子按丢弃的时长后移，仍然落在会话音频中的正确位置
+        assertEquals(1, session.timings.size());
+        long droppedMs = backpressure.getDroppedBytes() * 1000 / (SpeechEngine.SAMPLE_RATE * 2);
+        assertEquals(12000 + droppedMs, session.timings.get(0).endOffsetMs, 40);
+    }
+
+    @Test
+    public void recognizerStallSpillsToDiskWithoutLosingAudio() throws Exception {
+        byte[] audio = longPcm();
+        SimulatedSession session = stalledSession(audio, BackpressurePolicy.SPILL_TO_DISK);
+        BackpressureBuffer backpressure = session.engine.getBackpressure();
+
+        assertEquals(0, backpressure.getDroppedBytes());
+        assertTrue(backpressure.getSpilledBytes() > 0);
+        assertEquals(audio.length, session.nui.getConsumedBytes());
+        assertTrue(session.backpressure.contains(BackpressureBuffer.Level.OVERFLOW));
+        assertEquals(12000, session.timings.get(0).endOffsetMs, 40);
+    }
+
+    @Test
+    public void recognizerStallBlocksAPausableSource() throws Exception {
+        byte[] audio = longPcm();
+        SimulatedSession session = stalledSession(audio, BackpressurePolicy.BLOCK);
+        BackpressureBuffer backpressure = session.engine.getBackpressure();
+
+        // 模拟麦克风可以暂停，阻塞期间不读取，之后补上
+        assertEquals(0, backpressure.getDroppedBytes());
+        assertTrue(backpressure.getBlockedMillis() > 0);
+        assertEquals(audio.length, session.nui.getConsumedBytes());
+    }
+
+    @Test
+    public void blockSpillsInsteadOfPausingALiveMicrophone() throws Exception {
+        byte[] audio = longPcm();
+        SimulatedSession session = stalledSession(audio, BackpressurePolicy.BLOCK, true);
+        BackpressureBuffer backpressure = session.engine.getBackpressure();
+
+        // 实时麦克风不能暂停读取，改为溢写，录音线程从不阻塞
+        assertEquals(BackpressurePolicy.SPILL_TO_DISK, backpressure.getPolicy());
+        assertEquals(0, backpressure.getBlockedMillis());
+        assertEquals(0, backpressure.getDroppedBytes());
+        assertTrue(backpressure.getSpilledBytes() > 0);
+        assertEquals(audio.length, session.nui.getConsumedBytes());
+    }
+
+    @Test
+    public void recognizerStallDegradesTheNextSegmentToOpus() throws Exception {
+        byte[] audio = longPcm();
+        SimulatedSession session = stalledSession(audio, BackpressurePolicy.DEGRADE_BITRATE);
+
+        // 停顿的对话结束后，下一段以 Opus 传输
+        assertEquals(AudioCodec.OPUS, session.nui.getCodec());
+        assertEquals(AudioCodec.OPUS, session.engine.getStreamCodec());
+        int opens = 0;
+        for (String event : session.timeline) {
+            if ("OPEN".equals(event)) {
+                opens++;
+            }
+        }
+        assertEquals(2, opens);
+        assertTrue(session.backpressure.contains(BackpressureBuffer.Level.HIGH));
+    }
+
+    @Test
+    public void injectedLatencyDelaysEveryEvent() throws Exception {
+        NuiSimulator.Script script = new NuiSimulator.Script().sentenceEnd(0, "你好。", 0.9);
+        SimulatedSession session = session(pcm, 20, script,
+            new NuiSimulator.Options().speed(20).latency(200, 0), scheduler);
+        long start = System.nanoTime();
+        session.start();
+        while (session.finals.isEmpty() && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(5);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(1, session.finals.size());
+        assertTrue("elapsed " + elapsedMs, elapsedMs >= 200);
+        assertTrue(session.awaitClosed(5000));
+    }
+
+    @Test
+    public void scriptedErrorFlushesPartialThenClosesSession() throws Exception {
+        NuiSimulator.Script script = new NuiSimulator.Script()
+            .partial(400, "今天")
+            .partial(420, "今天天气")
+            .error(440, 240070)
+            .sentenceEnd(1400, "今天天气很好。", 0.9);
+        SimulatedSession session = session(pcm, 20, script, new NuiSimulator.Options().speed(20), scheduler);
+        session.start(new SpeechEngine.SessionOptions().partialIntervalMs(1000));
+        assertTrue(session.awaitClosed(5000));
+
+        assertEquals(Arrays.asList("ASR_ERROR 识别错误，错误码: 240070"), session.errors);
+        // 出错的会话在结束时标记为失败，交给重新识别队列
+        assertTrue(session.closedFailed);
+        assertTrue(session.finals.isEmpty());
+        // 合并中的中间结果在错误之前送达
+        assertEquals("今天天气", session.partials.get(session.partials.size() - 1));
+        List<String> timeline = session.timeline;
+        assertEquals("EVENT_ASR_ERROR", timeline.get(timeline.size() - 2));
+        assertEquals("CLOSE", timeline.get(timeline.size() - 1));
+    }
+
+    @Test
+    public void startFailureIsReturnedFromStartDialog() throws Exception {
+        SimulatedSession session = session(pcm, 20, NuiSimulator.Script.parse(SCRIPT),
+            new NuiSimulator.Options().failStart(240002), scheduler);
+        assertEquals(240002, session.start());
+        assertEquals(0, session.nui.getConsumedBytes());
+        // 未开始的会话不保留音频文件，也可以立即重新开始
+        assertFalse(session.engine.isRecording());
+        String[] files = session.dir.list();
+        assertTrue(files == null || files.length == 0);
+    }
+
+    @Test
+    public void manyConcurrentSessionsWithInjectedFailures() throws Exception {
+        int sessions = 32;
+        List<SimulatedSession> all = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            NuiSimulator.Options options = new NuiSimulator.Options()
+                .speed(10)
+                .latency(20, 10)
+                .seed(i)
+                .failureRate(0.25, NuiSimulator.DEFAULT_FAILURE_CODE);
+            all.add(session(pcm, 10, NuiSimulator.Script.parse(SCRIPT), options, scheduler));
+        }
+        for (SimulatedSession session : all) {
+            assertEquals(Recognizer.SUCCESS, session.start());
+        }
+
+        int failed = 0;
+        long maxLagNanos = 0;
+        for (SimulatedSession session : all) {
+            assertTrue(session.awaitClosed(10000));
+            maxLagNanos = Math.max(maxLagNanos, session.nui.getMaxDeliveryLagNanos());
+            if (session.errors.isEmpty()) {
+                assertEquals(EXPECTED, session.finals);
+                // 负载高时环形缓冲区可能写满，丢弃的字节与送入识别的合起来正好是整段音频
+                assertEquals(pcm.length, session.nui.getConsumedBytes() + session.engine.getRingBuffer().getOverrunBytes()
+                    + session.engine.getBackpressure().getDroppedBytes());
+            } else {
+                failed++;
+                assertEquals(Arrays.asList("ASR_ERROR 识别错误，错误码: " + NuiSimulator.DEFAULT_FAILURE_CODE), session.errors);
+                assertTrue(session.closedFailed);
+                // 出错前的句子按顺序送达，之后的不会再出现
+                assertEquals(EXPECTED.subList(0, session.finals.size()), session.finals);
+                assertEquals(session.timeline.toString(), "CLOSE", session.timeline.get(session.timeline.size() - 1));
+            }
+        }
+        // 固定种子下失败的会话数确定，且各会话互不影响
+        assertTrue("failed " + failed, failed > 0 && failed < sessions);
+        assertTrue("max lag " + TimeUnit.NANOSECONDS.toMillis(maxLagNanos) + "ms",
+            maxLagNanos < TimeUnit.MILLISECONDS.toNanos(250));
+    }
+}
@@ -0,0 +1,119 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartialResultDispatcherTest {
+
+    private ScheduledExecutorService scheduler;
+    private PartialResultDispatcher dispatcher;
+    // 按到达顺序记录发送的事件，中间结果已按增量还原为完整文本
+    private final List<String> events = new ArrayList<>();
+    private String current = "";
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        dispatcher = new PartialResultDispatcher(scheduler, (keep, delta, length) -> {
+            synchronized (events) {
+                current = current.substring(0, keep) + delta;
+                assertEquals(length, current.length());
+                events.add("partial:" + current);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private void emit(String event) {
+        synchronized (events) {
+            if (event.startsWith("final:")) {
+                current = "";
+            }
+            events.add(event);
+        }
+    }
+
+    @Test
+    public void sendsOnlyTheChangedSuffix() {
+        List<String> deltas = new ArrayList<>();
+        PartialResultDispatcher direct = new PartialResultDispatcher(scheduler,
+            (keep, delta, length) -> deltas.add(keep + "|" + delta));
+        direct.reset(0);
+        direct.submitPartial("今天");
+        direct.submitPartial("今天天气");
+        direct.submitPartial("今天天气很好");
+        direct.submitPartial("今天天汽");
+        assertEquals("0|今天", deltas.get(0));
+        assertEquals("2|天气", deltas.get(1));
+        assertEquals("4|很好", deltas.get(2));
+        assertEquals("3|汽", deltas.get(3));
+    }
+
+    @Test
+    public void coalescesBurstsToTheLatestValue() throws Exception {
+        dispatcher.reset(50);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append('字');
+            dispatcher.submitPartial(text.toString());
+        }
+        Thread.sleep(200);
+        synchronized (events) {
+            // 第一次立即发送，其余在一个间隔后合并为最新值
+            assertEquals(2, events.size());
+            assertEquals("partial:" + text, events.get(1));
+        }
+        assertEquals(200, dispatcher.getSubmittedPartials());
+        assertEquals(2, dispatcher.getDeliveredPartials());
+        assertEquals(198, dispatcher.getCoalescedPartials());
+    }
+
+    @Test
+    public void finalIsNeverOvertakenByAPendingPartial() throws Exception {
+        dispatcher.reset(50);
+        dispatcher.submitPartial("我们");
+        dispatcher.submitPartial("我们去");
+        dispatcher.submitFinal(() -> emit("final:我们去公园。"));
+        dispatcher.submitPartial("明天");
+        Thread.sleep(200);
+        synchronized (events) {
+            assertEquals("partial:我们", events.get(0));
+            assertEquals("final:我们去公园。", events.get(1));
+            // 新句子从空文本开始
+            assertEquals("partial:明天", events.get(2));
+            assertEquals(3, events.size());
+        }
+    }
+
+    @Test
+    public void errorFlushesPendingPartialFirst() {
+        dispatcher.reset(1000);
+        dispatcher.submitPartial("你好");
+        dispatcher.submitPartial("你好世界");
+        dispatcher.submitError(() -> emit("error"));
+        synchronized (events) {
+            assertEquals("partial:你好", events.get(0));
+            assertEquals("partial:你好世界", events.get(1));
+            assertEquals("error", events.get(2));
+        }
+    }
+
+    @Test
+    public void prefixDoesNotSplitSurrogatePairs() {
+        String a = "A😀";
+        String b = "A😁";
+        assertEquals(1, PartialResultDispatcher.commonPrefixLength(a, b));
+    }
+}
@@ -0,0 +1,186 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * PcmBroadcast 纯JVM测试：一个生产者、多个各自读取的 Cursor。
+ */
+public class PcmBroadcastTest {
+
+    // 第 i 个字节为 (start + i) 的低 8 位，便于校验连续性
+    private static byte[] ramp(long start, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (start + i);
+        }
+        return data;
+    }
+
+    // 第 p 个字节的值随写入的圈数变化，被下一圈覆盖的数据与原数据不同
+    private static byte stamp(long p, int capacity) {
+        return (byte) (p + p / capacity * 101);
+    }
+
+    @Test
+    public void cursorsReadIndependently() {
+        PcmBroadcast broadcast = new PcmBroadcast(1000);
+        assertEquals(1024, broadcast.capacity());
+        PcmBroadcast.Cursor fast = broadcast.open();
+        broadcast.write(ramp(0, 300), 0, 300);
+        PcmBroadcast.Cursor late = broadcast.open();
+        broadcast.write(ByteBuffer.wrap(ramp(300, 300)));
+
+        byte[] out = new byte[600];
+        assertEquals(600, fast.read(out, 0, 600));
+        assertArrayEquals(ramp(0, 600), out);
+        assertEquals(0, fast.read(out, 0, 600));
+        assertEquals(0, fast.getLagBytes());
+
+        // 之后打开的 Cursor 只读到之后写入的数据，读取不影响其他 Cursor
+        assertEquals(300, late.getLagBytes());
+        assertEquals(100, late.read(out, 0, 100));
+        assertArrayEquals(ramp(300, 100), Arrays.copyOf(out, 100));
+        assertEquals(200, late.available());
+        assertEquals(300, late.getMaxLagBytes());
+        assertEquals(100, late.getConsumedBytes());
+        assertEquals(600, fast.getConsumedBytes());
+    }
+
+    @Test
+    public void slowCursorSkipsOverwrittenAudio() {
+        PcmBroadcast broadcast = new PcmBroadcast(1024);
+        PcmBroadcast.Cursor slow = broadcast.open();
+        PcmBroadcast.Cursor fast = broadcast.open();
+        byte[] out = new byte[4096];
+        for (int i = 0; i < 10; i++) {
+            broadcast.write(ramp(i * 300L, 300), 0, 300);
+            assertEquals(300, fast.read(out, 0, 300));
+        }
+        assertEquals(0, fast.getDroppedBytes());
+
+        // 落后 3000 字节，只有最后 1024 字节仍然有效
+        assertEquals(3000, slow.getLagBytes());
+        assertEquals(1024, slow.read(out, 0, out.length));
+        assertArrayEquals(ramp(3000 - 1024, 1024), Arrays.copyOf(out, 1024));
+        assertEquals(3000 - 1024, slow.getDroppedBytes());
+        assertEquals(1024, slow.getConsumedBytes());
+        assertEquals(0, slow.getLagBytes());
+    }
+
+    @Test
+    public void writesLargerThanCapacityKeepTheNewestBytes() {
+        PcmBroadcast broadcast = new PcmBroadcast(256);
+        PcmBroadcast.Cursor cursor = broadcast.open();
+        assertEquals(1000, broadcast.write(ramp(0, 1000), 0, 1000));
+        assertEquals(1000, broadcast.getWritePosition());
+        byte[] out = new byte[1000];
+        assertEquals(256, cursor.read(out, 0, out.length));
+        assertArrayEquals(ramp(1000 - 256, 256), Arrays.copyOf(out, 256));
+        assertEquals(1000 - 256, cursor.getDroppedBytes());
+    }
+
+    @Test
+    public void concurrentCursorsSeeAContinuousStream() throws Exception {
+        PcmBroadcast broadcast = new PcmBroadcast(4096);
+        int total = 320 * 13000;
+        PcmBroadcast.Cursor[] cursors = new PcmBroadcast.Cursor[3];
+        Thread[] readers = new Thread[cursors.length];
+        AtomicReference<String> failure = new AtomicReference<>();
+        for (int c = 0; c < cursors.length; c++) {
+            PcmBroadcast.Cursor cursor = broadcast.open();
+            cursors[c] = cursor;
+            int chunk = 160 + c * 211;
+            readers[c] = new Thread(() -> {
+                byte[] out = new byte[chunk];
+                long expected = 0;
+                while (expected < total && failure.get() == null) {
+                    int n = cursor.read(out, 0, chunk);
+                    // 跳过的数据之后仍然连续
+                    expected = Math.max(expected, cursor.getConsumedBytes() + cursor.getDroppedBytes() - n);
+                    for (int i = 0; i < n; i++) {
+                        if (out[i] != (byte) (expected + i)) {
+                            failure.set("cursor at " + (expected + i) + " read " + out[i]);
+                            return;
+                        }
+                    }
+                    expected += n;
+                }
+            });
+            readers[c].start();
+        }
+        for (long written = 0; written < total; written += 320) {
+            broadcast.write(ramp(written, 320), 0, 320);
+            if (written % (64 * 1024) == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread reader : readers) {
+            reader.join(10000);
+        }
+        assertNull(failure.get());
+        for (PcmBroadcast.Cursor cursor : cursors) {
+            assertEquals(total, cursor.getConsumedBytes() + cursor.getDroppedBytes());
+        }
+    }
+
+    @Test
+    public void cursorLaggingNearCapacityNeverReadsOverwrittenAudio() throws Exception {
+        PcmBroadcast broadcast = new PcmBroadcast(4096);
+        int capacity = broadcast.capacity();
+        int frame = 320;
+        long total = (long) frame * 200000;
+        PcmBroadcast.Cursor cursor = broadcast.open();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            byte[] out = new byte[capacity];
+            long end = 0;
+            while (end < total && failure.get() == null) {
+                // 等到只差一帧就落后满容量时才读，复制与生产者的覆盖尽量重叠
+                if (cursor.available() < capacity - frame && broadcast.getWritePosition() < total) {
+                    Thread.yield();
+                    continue;
+                }
+                int n = cursor.read(out, 0, out.length);
+                end = cursor.getConsumedBytes() + cursor.getDroppedBytes();
+                long start = end - n;
+                for (int i = 0; i < n; i++) {
+                    if (out[i] != stamp(start + i, capacity)) {
+                        failure.set("read overwritten byte at " + (start + i));
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        // stamp 以 256 圈为周期，预先生成一个周期，写入时不逐字节计算
+        int period = 256 * capacity;
+        byte[] data = new byte[period + frame];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = stamp(i, capacity);
+        }
+        for (long written = 0; written < total; written += frame) {
+            int offset = (int) (written % period);
+            if ((written / frame & 1) == 0) {
+                broadcast.write(data, offset, frame);
+            } else {
+                broadcast.write(ByteBuffer.wrap(data, offset, frame));
+            }
+            // 单核上也让读取线程有机会在写入之间运行
+            if ((written / frame & 3) == 0) {
+                Thread.yield();
+            }
+        }
+        reader.join(30000);
+        assertFalse(reader.isAlive());
+        assertNull(failure.get());
+        assertEquals(total, cursor.getConsumedBytes() + cursor.getDroppedBytes());
+        assertTrue(cursor.getConsumedBytes() > 0);
+        assertTrue(cursor.getMaxLagBytes() >= capacity - frame);
+    }
+}
@@ -0,0 +1,111 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * PcmRingBuffer 纯JVM测试，用合成的 PCM 数据驱动缓冲区。
+ */
+public class PcmRingBufferTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    // 生成 16bit 小端单声道锯齿波，第 i 个采样点的值由 start + i 决定，便于校验连续性
+    private static byte[] synthPcm(int startSample, int samples) {
+        byte[] pcm = new byte[samples * PcmRingBuffer.BYTES_PER_SAMPLE];
+        for (int i = 0; i < samples; i++) {
+            short value = (short) (startSample + i);
+            pcm[i * 2] = (byte) value;
+            pcm[i * 2 + 1] = (byte) (value >> 8);
+        }
+        return pcm;
+    }
+
+    @Test
+    public void capacityIsSizedFromDuration() {
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(500, SAMPLE_RATE);
+        // 500ms * 16000 * 2 = 16000 字节，向上取整为 16384
+        assertEquals(16384, ring.capacity());
+        assertEquals(0, ring.available());
+    }
+
+    @Test
+    public void wrapsAroundWithoutCorruptingData() {
+        PcmRingBuffer ring = new PcmRingBuffer(1024);
+        byte[] out = new byte[640];
+        int sample = 0;
+        for (int round = 0; round < 100; round++) {
+            byte[] frame = synthPcm(sample, 320);
+            assertEquals(640, ring.write(frame, 0, frame.length));
+            assertEquals(640, ring.read(out, 0, out.length));
+            assertArrayEquals(frame, out);
+            sample += 320;
+        }
+        assertEquals(0, ring.getOverrunCount());
+        assertEquals(0, ring.getUnderrunCount());
+    }
+
+    @Test
+    public void countsOverrunWhenConsumerFallsBehind() {
+        PcmRingBuffer ring = new PcmRingBuffer(1024);
+        byte[] frame = synthPcm(0, 320);
+        assertEquals(640, ring.write(frame, 0, frame.length));
+        assertEquals(384, ring.write(frame, 0, frame.length));
+        assertEquals(0, ring.write(frame, 0, frame.length));
+        assertEquals(2, ring.getOverrunCount());
+        assertEquals(256 + 640, ring.getOverrunBytes());
+        assertEquals(1024, ring.available());
+    }
+
+    @Test
+    public void countsUnderrunWhenProducerFallsBehind() {
+        PcmRingBuffer ring = new PcmRingBuffer(1024);
+        byte[] out = new byte[640];
+        assertEquals(0, ring.read(out, 0, out.length));
+        byte[] frame = synthPcm(0, 100);
+        ring.write(frame, 0, frame.length);
+        assertEquals(200, ring.read(out, 0, out.length));
+        assertEquals(2, ring.getUnderrunCount());
+    }
+
+    @Test
+    public void concurrentProducerAndConsumerPreserveOrder() throws Exception {
+        final PcmRingBuffer ring = PcmRingBuffer.forDuration(100, SAMPLE_RATE);
+        final int totalSamples = SAMPLE_RATE * 10;
+        final int frameSamples = 160;
+
+        Thread producer = new Thread(() -> {
+            int sample = 0;
+            while (sample < totalSamples) {
+                byte[] frame = synthPcm(sample, frameSamples);
+                int off = 0;
+                while (off < frame.length) {
+                    int free = ring.capacity() - ring.available();
+                    if (free == 0) {
+                        Thread.yield();
+                        continue;
+                    }
+                    off += ring.write(frame, off, Math.min(free, frame.length - off));
+                }
+                sample += frameSamples;
+            }
+        });
+        producer.start();
+
+        byte[] out = new byte[2];
+        int expected = 0;
+        while (expected < totalSamples) {
+            if (ring.available() < 2) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(2, ring.read(out, 0, 2));
+            short value = (short) ((out[0] & 0xff) | (out[1] << 8));
+            assertEquals((short) expected, value);
+            expected++;
+        }
+        producer.join();
+        assertEquals(0, ring.getOverrunCount());
+    }
+}
@@ -0,0 +1,192 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * 重采样与混音：用正弦波校验通带精度、混叠抑制、分块一致性与零分配
+ */
+public class PolyphaseResamplerTest {
+
+    private static final int OUTPUT_RATE = 16000;
+    private static final double AMPLITUDE = 10000;
+
+    // 交错的多声道正弦波，各声道相同
+    private static ByteBuffer sine(int rate, int channels, double frequency, int frames) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frames * channels * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(AMPLITUDE * Math.sin(2 * Math.PI * frequency * i / rate));
+            for (int c = 0; c < channels; c++) {
+                buffer.putShort((i * channels + c) * 2, value);
+            }
+        }
+        return buffer;
+    }
+
+    private static short[] convert(PolyphaseResampler resampler, ByteBuffer input, int chunkFrames) {
+        int frameBytes = resampler.getChannels() * 2;
+        int frames = input.capacity() / frameBytes;
+        short[] output = new short[resampler.outputSamplesFor(frames) + 1];
+        ByteBuffer chunk = ByteBuffer.allocateDirect(chunkFrames * frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out = ByteBuffer.allocateDirect(output.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        int produced = 0;
+        for (int f = 0; f < frames; f += chunkFrames) {
+            int n = Math.min(chunkFrames, frames - f);
+            for (int i = 0; i < n * frameBytes; i++) {
+                chunk.put(i, input.get(f * frameBytes + i));
+            }
+            int bytes = resampler.process(chunk, n * frameBytes, out);
+            for (int i = 0; i < bytes / 2; i++) {
+                output[produced++] = out.getShort(i * 2);
+            }
+        }
+        short[] result = new short[produced];
+        System.arraycopy(output, 0, result, 0, produced);
+        return result;
+    }
+
+    // 跳过滤波器的启动段，输出与延迟后的理想正弦波之差的均方根占幅度的比例
+    private static double relativeError(PolyphaseResampler resampler, short[] output, double frequency) {
+        double delaySeconds = resampler.getDelayFrames() / resampler.getInputRate();
+        double error = 0;
+        int count = 0;
+        for (int j = OUTPUT_RATE / 10; j < output.length; j++) {
+            double t = (double) j / OUTPUT_RATE - delaySeconds;
+            double expected = AMPLITUDE * Math.sin(2 * Math.PI * frequency * t);
+            error += (output[j] - expected) * (output[j] - expected);
+            count++;
+        }
+        return Math.sqrt(error / count) / AMPLITUDE;
+    }
+
+    private static double relativeRms(short[] output) {
+        double sum = 0;
+        int count = 0;
+        for (int j = OUTPUT_RATE / 10; j < output.length; j++) {
+            sum += (double) output[j] * output[j];
+            count++;
+        }
+        return Math.sqrt(sum / count) / AMPLITUDE;
+    }
+
+    @Test
+    public void downsamplesStereo48kWithinPassbandTolerance() {
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, OUTPUT_RATE, 2);
+        short[] output = convert(resampler, sine(48000, 2, 1000, 48000), 960);
+        assertEquals(16000, output.length);
+        // 误差低于 -40dB
+        assertTrue("error " + relativeError(resampler, output, 1000), relativeError(resampler, output, 1000) < 0.01);
+    }
+
+    @Test
+    public void downsamples44100WithFractionalRatio() {
+        PolyphaseResampler resampler = new PolyphaseResampler(44100, OUTPUT_RATE, 1);
+        short[] output = convert(resampler, sine(44100, 1, 3000, 44100), 882);
+        assertEquals(16000, output.length);
+        assertTrue("error " + relativeError(resampler, output, 3000), relativeError(resampler, output, 3000) < 0.01);
+    }
+
+    @Test
+    public void rejectsContentAboveTargetNyquist() {
+        // 12kHz 与 11kHz 在 16kHz 下会混叠为 4kHz 与 5kHz
+        short[] from48k = convert(new PolyphaseResampler(48000, OUTPUT_RATE, 1), sine(48000, 1, 12000, 48000), 960);
+        assertTrue("48k alias " + relativeRms(from48k), relativeRms(from48k) < 0.01);
+        short[] from44k = convert(new PolyphaseResampler(44100, OUTPUT_RATE, 1), sine(44100, 1, 11000, 44100), 882);
+        assertTrue("44.1k alias " + relativeRms(from44k), relativeRms(from44k) < 0.01);
+    }
+
+    @Test
+    public void chunkedProcessingMatchesSinglePass() {
+        ByteBuffer input = sine(44100, 2, 440, 44100);
+        short[] whole = convert(new PolyphaseResampler(44100, OUTPUT_RATE, 2), input, 44100);
+        short[] chunked = convert(new PolyphaseResampler(44100, OUTPUT_RATE, 2), input, 331);
+        assertArrayEquals(whole, chunked);
+    }
+
+    @Test
+    public void sameRateOnlyDownmixes() {
+        ByteBuffer stereo = ByteBuffer.allocateDirect(8).order(ByteOrder.LITTLE_ENDIAN);
+        stereo.putShort(0, (short) 1000).putShort(2, (short) 3000).putShort(4, (short) -200).putShort(6, (short) 200);
+        ByteBuffer out = ByteBuffer.allocateDirect(4).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(4, new PolyphaseResampler(OUTPUT_RATE, OUTPUT_RATE, 2).process(stereo, 8, out));
+        assertEquals(2000, out.getShort(0));
+        assertEquals(0, out.getShort(2));
+    }
+
+    // 以 44.1kHz 立体声录音的设备，按请求的字节数给出正弦波
+    private static class NativeDevice implements AudioSource.Device {
+        int startedRate;
+        int startedFrameBytes;
+        private long frame;
+
+        @Override
+        public void start(int sampleRate, int frameBytes) {
+            startedRate = sampleRate;
+            startedFrameBytes = frameBytes;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer, int sizeInBytes) {
+            for (int i = 0; i + 3 < sizeInBytes; i += 4) {
+                short value = (short) Math.round(AMPLITUDE * Math.sin(2 * Math.PI * 1000 * frame++ / startedRate));
+                buffer.putShort(i, value);
+                buffer.putShort(i + 2, value);
+            }
+            return sizeInBytes;
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    @Test
+    public void sourceDeliversTargetFramesFromNativeDevice() throws IOException {
+        NativeDevice device = new NativeDevice();
+        ResamplingSource source = new ResamplingSource(device, 44100, 2);
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(2000, OUTPUT_RATE);
+        AudioPipeline pipeline = new AudioPipeline(OUTPUT_RATE, ring);
+        source.start(OUTPUT_RATE, pipeline.getFrameBytes());
+        assertEquals(44100, device.startedRate);
+        assertTrue(device.startedFrameBytes >= 882 * 4);
+
+        // 每次读取不超过一帧，一秒的原生音频得到一秒的目标音频
+        long total = 0;
+        for (int i = 0; i < 50; i++) {
+            int n = pipeline.processFrame(source);
+            assertTrue("read " + n, n > 0 && n <= pipeline.getFrameBytes());
+            total += n;
+        }
+        assertEquals(OUTPUT_RATE * 2, total, 4);
+        assertEquals(total, ring.available());
+    }
+
+    @Test
+    public void conversionDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, OUTPUT_RATE, 2);
+        ByteBuffer input = sine(48000, 2, 1000, 960);
+        ByteBuffer out = ByteBuffer.allocateDirect(640).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < 5000; i++) {
+            resampler.process(input, input.capacity(), out);
+        }
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 5000; i++) {
+            resampler.process(input, input.capacity(), out);
+        }
+        assertEquals(0, threads.getThreadAllocatedBytes(threadId) - before);
+    }
+}
@@ -0,0 +1,141 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SentenceIndexTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("session", SentenceIndex.FILE_SUFFIX);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static SentenceIndex threeSentences() {
+        SentenceIndex index = new SentenceIndex();
+        assertEquals(0, index.add(1000, 2000));
+        assertEquals(1, index.add(3000, 4000));
+        assertEquals(2, index.add(5000, 6000));
+        return index;
+    }
+
+    @Test
+    public void findLocatesTheSentenceStartedLast() {
+        SentenceIndex index = threeSentences();
+        assertEquals(-1, index.find(0));
+        assertEquals(-1, index.find(999));
+        assertEquals(0, index.find(1000));
+        // 句间的停顿属于前一句
+        assertEquals(0, index.find(2500));
+        assertEquals(1, index.find(3000));
+        assertEquals(2, index.find(5999));
+        assertEquals(2, index.find(Long.MAX_VALUE));
+        assertEquals(-1, new SentenceIndex().find(0));
+    }
+
+    @Test
+    public void overlappingSentencesStayOrdered() {
+        SentenceIndex index = new SentenceIndex();
+        index.add(3000, 4000);
+        // 分段重叠中的重复识别早于上一句，按上一句的开始位置记录
+        index.add(2000, 2500);
+        assertEquals(3000, index.getBegin(1));
+        assertEquals(3000, index.getEnd(1));
+        assertEquals(1, index.find(3000));
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        SentenceIndex index = new SentenceIndex();
+        for (int i = 0; i < 200; i++) {
+            index.add(i * 100L, i * 100L + 50);
+        }
+        assertEquals(200, index.size());
+        assertEquals(150, index.find(15_020));
+        assertEquals(19_950, index.getEnd(199));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRangeIndexIsRejected() {
+        threeSentences().getBegin(3);
+    }
+
+    @Test
+    public void roundTripsThroughAFile() throws Exception {
+        threeSentences().writeTo(file);
+        assertEquals(4 + 3 * 16, file.length());
+        SentenceIndex read = SentenceIndex.readFrom(file);
+        assertEquals(3, read.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1000 + i * 2000L, read.getBegin(i));
+            assertEquals(2000 + i * 2000L, read.getEnd(i));
+        }
+        assertEquals(1, read.find(3500));
+
+        new SentenceIndex().writeTo(file);
+        assertEquals(0, SentenceIndex.readFrom(file).size());
+    }
+
+    @Test
+    public void truncatedFilesAreRejected() throws Exception {
+        threeSentences().writeTo(file);
+        // 少了整句：句数与文件长度不符
+        truncate(file.length() - 16);
+        assertRejected();
+
+        // 最后一句只剩一半
+        threeSentences().writeTo(file);
+        truncate(file.length() - 4);
+        assertRejected();
+
+        // 连句数都不完整
+        truncate(2);
+        assertRejected();
+    }
+
+    @Test
+    public void corruptCountsAreRejected() throws Exception {
+        writeHeader(-1);
+        assertRejected();
+        // 声称的句数远超文件长度，不按它分配内存
+        writeHeader(Integer.MAX_VALUE);
+        assertRejected();
+    }
+
+    private void truncate(long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length);
+        }
+    }
+
+    private void writeHeader(int count) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(count);
+            out.writeLong(1000);
+            out.writeLong(2000);
+        }
+    }
+
+    private void assertRejected() {
+        try {
+            SentenceIndex.readFrom(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
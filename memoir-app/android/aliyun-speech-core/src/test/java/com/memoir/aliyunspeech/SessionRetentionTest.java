@@ -0,0 +1,122 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionRetentionTest {
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long NOW = 100 * DAY_MS;
+
+    private File dir;
+    private SessionRetention retention;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("sessions", "");
+        dir.delete();
+        assertTrue(dir.mkdirs());
+        retention = new SessionRetention(dir, () -> NOW);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    // 会话音频与两个附属文件，各 bytes 字节
+    private void session(String id, int bytes, long modified) throws IOException {
+        for (String suffix : new String[] {SessionRetention.AUDIO_SUFFIX, SentenceIndex.FILE_SUFFIX,
+            WaveformPyramid.FILE_SUFFIX}) {
+            File file = new File(dir, id + suffix);
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[bytes]);
+            }
+            assertTrue(file.setLastModified(modified));
+        }
+    }
+
+    private boolean exists(String id) {
+        return new File(dir, id + SessionRetention.AUDIO_SUFFIX).exists();
+    }
+
+    @Test
+    public void expiredSessionsAreDeletedWithTheirSidecars() throws Exception {
+        session("old", 100, NOW - 31 * DAY_MS);
+        session("recent", 100, NOW - DAY_MS);
+        retention.setLimits(0, 30 * DAY_MS);
+
+        assertEquals(1, retention.prune(null));
+        assertFalse(exists("old"));
+        assertFalse(new File(dir, "old" + SentenceIndex.FILE_SUFFIX).exists());
+        assertFalse(new File(dir, "old" + WaveformPyramid.FILE_SUFFIX).exists());
+        assertTrue(exists("recent"));
+    }
+
+    @Test
+    public void oldestSessionsGoFirstWhenOverTheSizeCap() throws Exception {
+        session("a", 1000, NOW - 3000);
+        session("b", 1000, NOW - 2000);
+        session("c", 1000, NOW - 1000);
+        // 每个会话 3000 字节，最多保留两个
+        retention.setLimits(6500, 0);
+
+        assertEquals(1, retention.prune(null));
+        assertFalse(exists("a"));
+        assertTrue(exists("b"));
+        assertTrue(exists("c"));
+        assertEquals(0, retention.prune(null));
+    }
+
+    @Test
+    public void retainedAndActiveSessionsAreKept() throws Exception {
+        session("queued", 1000, NOW - 3000);
+        session("active", 1000, NOW - 2000);
+        session("done", 1000, NOW - 1000);
+        Set<String> queued = new HashSet<>();
+        queued.add("queued");
+        retention.setRetainer(queued::contains);
+        retention.setLimits(1, 0);
+
+        assertEquals(1, retention.prune("active"));
+        assertTrue(exists("queued"));
+        assertTrue(exists("active"));
+        assertFalse(exists("done"));
+    }
+
+    @Test
+    public void otherFilesAreIgnored() throws Exception {
+        File spill = new File(dir, "backpressure.spill");
+        try (FileOutputStream out = new FileOutputStream(spill)) {
+            out.write(new byte[5000]);
+        }
+        assertTrue(spill.setLastModified(NOW - 50 * DAY_MS));
+        retention.setLimits(1, DAY_MS);
+
+        assertEquals(0, retention.prune(null));
+        assertTrue(spill.exists());
+    }
+
+    @Test
+    public void deleteRemovesOneSession() throws Exception {
+        session("s1", 10, NOW);
+        assertTrue(retention.delete("s1"));
+        assertEquals(0, dir.listFiles().length);
+        assertFalse(retention.delete("s1"));
+    }
+}
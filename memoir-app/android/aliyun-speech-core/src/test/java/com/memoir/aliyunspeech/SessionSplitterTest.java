@@ -0,0 +1,164 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionSplitterTest {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int MAX_PIECE_MS = 20000;
+    private static final long MAX_PIECE_BYTES = MAX_PIECE_MS * 32L;
+
+    private File file;
+    private File piece;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("splitter", ".wav");
+        piece = File.createTempFile("piece", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        piece.delete();
+    }
+
+    // 时长 durationMs 的 440Hz 音调，每 periodMs 中最后 silenceMs 为静音
+    private static byte[] speech(int durationMs, int periodMs, int silenceMs) {
+        int samples = durationMs * SAMPLE_RATE / 1000;
+        byte[] pcm = new byte[samples * 2];
+        for (int i = 0; i < samples; i++) {
+            long ms = i * 1000L / SAMPLE_RATE;
+            if (periodMs > 0 && ms % periodMs >= periodMs - silenceMs) {
+                continue;
+            }
+            short value = (short) (8000 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        return pcm;
+    }
+
+    private void writeSession(byte[] pcm) throws Exception {
+        SessionSpool spool = new SessionSpool(file, SAMPLE_RATE);
+        spool.write(pcm, 0, pcm.length);
+        spool.close();
+    }
+
+    private static void assertContiguous(List<SessionSplitter.Piece> pieces, long dataBytes) {
+        long position = 0;
+        for (SessionSplitter.Piece p : pieces) {
+            assertEquals(position, p.start);
+            assertTrue(p.getBytes() > 0);
+            assertTrue(p.getBytes() <= MAX_PIECE_BYTES);
+            assertEquals(0, p.start % 2);
+            position = p.end;
+        }
+        assertEquals(dataBytes, position);
+    }
+
+    @Test
+    public void shortSessionIsOnePiece() throws Exception {
+        byte[] pcm = speech(5000, 0, 0);
+        writeSession(pcm);
+
+        List<SessionSplitter.Piece> pieces = SessionSplitter.plan(file, null, MAX_PIECE_MS);
+        assertEquals(1, pieces.size());
+        assertContiguous(pieces, pcm.length);
+    }
+
+    @Test
+    public void emptySessionHasNoPieces() throws Exception {
+        writeSession(new byte[0]);
+        assertTrue(SessionSplitter.plan(file, null, MAX_PIECE_MS).isEmpty());
+    }
+
+    @Test
+    public void withoutSentencesCutsFallInSilence() throws Exception {
+        // 每 7 秒有 300ms 停顿
+        byte[] pcm = speech(95000, 7000, 300);
+        writeSession(pcm);
+
+        List<SessionSplitter.Piece> pieces = SessionSplitter.plan(file, null, MAX_PIECE_MS);
+        assertTrue(pieces.size() >= 5);
+        assertContiguous(pieces, pcm.length);
+        for (int i = 1; i < pieces.size(); i++) {
+            long cutMs = pieces.get(i).start / 32;
+            assertTrue("切点 " + cutMs + "ms 不在停顿中", cutMs % 7000 >= 6700);
+        }
+    }
+
+    @Test
+    public void sentenceGapsArePreferredOverQuietPoints() throws Exception {
+        // 音频中间没有停顿，但句子索引给出了句子边界：每 4 秒一句，句间 400ms
+        byte[] pcm = speech(70000, 0, 0);
+        writeSession(pcm);
+        SentenceIndex sentences = new SentenceIndex();
+        for (long begin = 0; begin < 70000; begin += 4000) {
+            sentences.add(begin * 32, Math.min(70000, begin + 3600) * 32);
+        }
+
+        List<SessionSplitter.Piece> pieces = SessionSplitter.plan(file, sentences, MAX_PIECE_MS);
+        assertContiguous(pieces, pcm.length);
+        // 取上限前最后一个句间空隙的中点，空隙越过上限时取空隙开始到上限的中点
+        assertEquals(19800 * 32, pieces.get(0).end);
+        assertEquals(39700 * 32, pieces.get(1).end);
+        for (int i = 1; i < pieces.size(); i++) {
+            long cutMs = pieces.get(i).start / 32;
+            assertTrue("切点 " + cutMs + "ms 不在句间", cutMs % 4000 >= 3600);
+        }
+    }
+
+    @Test
+    public void overlongSentenceFallsBackToQuietPoint() throws Exception {
+        byte[] pcm = speech(30000, 7000, 300);
+        writeSession(pcm);
+        // 一整句跨过了上限
+        SentenceIndex sentences = new SentenceIndex();
+        sentences.add(0, 30000 * 32);
+
+        List<SessionSplitter.Piece> pieces = SessionSplitter.plan(file, sentences, MAX_PIECE_MS);
+        assertEquals(2, pieces.size());
+        assertContiguous(pieces, pcm.length);
+        assertTrue(pieces.get(1).start / 32 % 7000 >= 6700);
+    }
+
+    @Test
+    public void writePieceCopiesTheRangeAndDetectsSpeech() throws Exception {
+        byte[] pcm = speech(3000, 0, 0);
+        byte[] session = new byte[pcm.length + 64000];
+        System.arraycopy(pcm, 0, session, 64000, pcm.length);
+        writeSession(session);
+
+        assertFalse(SessionSplitter.writePiece(file, new SessionSplitter.Piece(0, 64000), piece));
+        assertEquals(SessionSpool.HEADER_BYTES + 64000, piece.length());
+
+        assertTrue(SessionSplitter.writePiece(file, new SessionSplitter.Piece(32000, session.length), piece));
+        WavFixture wav = WavFixture.read(piece);
+        assertEquals(SAMPLE_RATE, wav.sampleRate);
+        assertEquals(session.length - 32000, wav.pcm.length);
+        for (int i = 0; i < pcm.length; i++) {
+            assertEquals(pcm[i], wav.pcm[32000 + i]);
+        }
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsNonPcmWav() throws Exception {
+        byte[] pcm = speech(1000, 0, 0);
+        writeSession(pcm);
+        File adpcm = File.createTempFile("adpcm", ".wav");
+        try {
+            ImaAdpcmEncoder.transcodeWav(file, adpcm);
+            SessionSplitter.plan(adpcm, null, MAX_PIECE_MS);
+        } finally {
+            adpcm.delete();
+        }
+    }
+}
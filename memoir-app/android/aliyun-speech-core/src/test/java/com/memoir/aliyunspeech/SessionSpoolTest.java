@@ -0,0 +1,102 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SessionSpoolTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("spool", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static byte[] synthPcm(int length) {
+        byte[] pcm = new byte[length];
+        for (int i = 0; i < length; i++) {
+            pcm[i] = (byte) (i * 31 + 7);
+        }
+        return pcm;
+    }
+
+    @Test
+    public void headerIsPatchedWithTheRealLengthOnClose() throws Exception {
+        // 映射区只有 1000 字节，写入会跨越多个映射区
+        SessionSpool spool = new SessionSpool(file, 16000, 1000);
+        byte[] pcm = synthPcm(6400);
+        ByteBuffer frame = ByteBuffer.allocateDirect(640);
+        for (int offset = 0; offset < pcm.length; offset += 640) {
+            frame.clear();
+            frame.put(pcm, offset, 640);
+            frame.flip();
+            assertEquals(640, spool.write(frame));
+            // 写入后 position 不变，后续阶段可以继续使用这一帧
+            assertEquals(0, frame.position());
+        }
+        assertEquals(200, spool.getDurationMs());
+        spool.close();
+
+        assertEquals(SessionSpool.HEADER_BYTES + pcm.length, file.length());
+        WavFixture wav = WavFixture.read(file);
+        assertEquals(16000, wav.sampleRate);
+        assertArrayEquals(pcm, wav.pcm);
+    }
+
+    @Test
+    public void preparedRegionsKeepWritesInOrder() throws Exception {
+        // 有时预先映射了下一段，有时没有，写入结果相同
+        SessionSpool spool = new SessionSpool(file, 16000, 1000);
+        byte[] pcm = synthPcm(6400);
+        for (int offset = 0; offset < pcm.length; offset += 320) {
+            if (offset % 960 == 0) {
+                spool.prepare();
+                spool.prepare();
+            }
+            assertEquals(320, spool.write(pcm, offset, 320));
+        }
+        spool.close();
+        spool.prepare();
+
+        assertEquals(SessionSpool.HEADER_BYTES + pcm.length, file.length());
+        assertArrayEquals(pcm, WavFixture.read(file).pcm);
+    }
+
+    @Test
+    public void byteArrayWritesLandInOrder() throws Exception {
+        SessionSpool spool = new SessionSpool(file, 16000, 4096);
+        byte[] pcm = synthPcm(3000);
+        spool.write(pcm, 0, 1000);
+        spool.write(pcm, 1000, 2000);
+        spool.close();
+        assertArrayEquals(pcm, WavFixture.read(file).pcm);
+    }
+
+    @Test
+    public void writesAfterCloseAreIgnored() throws Exception {
+        SessionSpool spool = new SessionSpool(file, 16000, 4096);
+        spool.write(synthPcm(100), 0, 100);
+        spool.close();
+        spool.close();
+        assertEquals(0, spool.write(synthPcm(100), 0, 100));
+        assertEquals(SessionSpool.HEADER_BYTES + 100, file.length());
+    }
+
+    @Test
+    public void emptySessionIsAValidWav() throws Exception {
+        SessionSpool spool = new SessionSpool(file, 16000);
+        spool.close();
+        assertEquals(0, WavFixture.read(file).pcm.length);
+    }
+}
@@ -0,0 +1,269 @@
+package com.memoir.aliyunspeech;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的会话：SpeechEngine 接上模拟麦克风与 NuiSimulator，记录交给 ResultSink 的结果。
+ * 识别服务与引擎之间的原始事件也记录在 timeline 中。
+ */
+class SimulatedSession implements ResultSink {
+
+    final NuiSimulator nui;
+    final SimulatedMicrophone mic;
+    final SpeechEngine engine;
+    final File dir;
+
+    final List<String> finals = Collections.synchronizedList(new ArrayList<>());
+    final List<SentenceTiming> timings = Collections.synchronizedList(new ArrayList<>());
+    final List<Double> confidences = Collections.synchronizedList(new ArrayList<>());
+    final List<Long> sdkIndexes = Collections.synchronizedList(new ArrayList<>());
+    // 每次中间结果的置信度，识别结果没有给出时为 NaN
+    final List<Double> partialConfidences = Collections.synchronizedList(new ArrayList<>());
+    final List<String> partials = Collections.synchronizedList(new ArrayList<>());
+    final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    // 识别服务的原始事件、状态变化与 SDK 格式的最终结果
+    final List<String> timeline = Collections.synchronizedList(new ArrayList<>());
+    final List<String> finalPayloads = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch closed = new CountDownLatch(1);
+    volatile File closedAudio;
+    volatile long closedAudioBytes;
+    volatile boolean closedFailed;
+    // onMetrics 的调用次数，指标本身通过 engine.getMetrics() 读取
+    final AtomicInteger metricsReports = new AtomicInteger();
+    // 长时听写的分段：index start-end（毫秒）
+    final List<String> segments = Collections.synchronizedList(new ArrayList<>());
+    // 背压级别变化
+    final List<BackpressureBuffer.Level> backpressure = Collections.synchronizedList(new ArrayList<>());
+    // 电平表：每次 onLevels 的窗口数与全部窗口的最大值
+    final List<Integer> levelBatches = Collections.synchronizedList(new ArrayList<>());
+    final List<Short> levelPeaks = Collections.synchronizedList(new ArrayList<>());
+    // transcriptPatches 模式下收到的补丁
+    final List<TranscriptPatch> patches = Collections.synchronizedList(new ArrayList<>());
+    // 已结束的并行识别
+    final List<ParallelRecognizer> parallelClosed = Collections.synchronizedList(new ArrayList<>());
+    // 唤醒词待命中检测到的唤醒词：sessionId keyword
+    final List<String> wakeWords = Collections.synchronizedList(new ArrayList<>());
+
+    private String partialText = "";
+
+    SimulatedSession(byte[] pcm, double speed, NuiSimulator.Script script, NuiSimulator.Options options,
+                     ScheduledExecutorService scheduler) throws IOException {
+        this(pcm, speed, script, options, scheduler, false);
+    }
+
+    /**
+     * @param live 模拟实时麦克风：引擎看到的设备不是 AudioSource.Pausable
+     */
+    SimulatedSession(byte[] pcm, double speed, NuiSimulator.Script script, NuiSimulator.Options options,
+                     ScheduledExecutorService scheduler, boolean live) throws IOException {
+        dir = File.createTempFile("sessions", "");
+        dir.delete();
+        mic = new SimulatedMicrophone(pcm, SpeechEngine.SAMPLE_RATE, speed);
+        nui = new NuiSimulator(script, options, scheduler);
+        engine = new SpeechEngine(new Tap(nui), live ? new LiveDevice(mic) : mic, this, dir,
+            Executors.defaultThreadFactory());
+    }
+
+    // 只转发调用，隐藏模拟麦克风可以暂停的能力
+    private static class LiveDevice implements AudioSource.Device {
+        private final AudioSource.Device device;
+
+        LiveDevice(AudioSource.Device device) {
+            this.device = device;
+        }
+
+        @Override
+        public void start(int sampleRate, int frameBytes) throws IOException {
+            device.start(sampleRate, frameBytes);
+        }
+
+        @Override
+        public int read(ByteBuffer buffer, int sizeInBytes) {
+            return device.read(buffer, sizeInBytes);
+        }
+
+        @Override
+        public void stop() {
+            device.stop();
+        }
+
+        @Override
+        public void release() {
+            device.release();
+        }
+    }
+
+    int start() {
+        return start(new SpeechEngine.SessionOptions());
+    }
+
+    int start(SpeechEngine.SessionOptions options) {
+        engine.initialize("appkey", "token", "workspace");
+        return engine.start(options);
+    }
+
+    boolean awaitClosed(long timeoutMs) throws InterruptedException {
+        return closed.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 等待 count 路并行识别结束
+     */
+    boolean awaitParallelClosed(int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (parallelClosed.size() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    void release() {
+        engine.release();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Override
+    public synchronized void onPartialResult(int keep, String delta, int length, double confidence) {
+        partialText = partialText.substring(0, keep) + delta;
+        partials.add(partialText);
+        partialConfidences.add(confidence);
+    }
+
+    @Override
+    public synchronized void onFinalResult(String text, double confidence, long sdkIndex, SentenceTiming timing) {
+        partialText = "";
+        finals.add(text);
+        timings.add(timing);
+        confidences.add(confidence);
+        sdkIndexes.add(sdkIndex);
+    }
+
+    @Override
+    public void onTranscriptPatch(String sessionId, TranscriptPatch patch) {
+        patches.add(patch);
+    }
+
+    @Override
+    public void onLevels(String sessionId, short[] levels, int windows, int windowMs) {
+        levelBatches.add(windows);
+        for (int i = 0; i < windows; i++) {
+            levelPeaks.add(levels[i * LevelMeter.VALUES_PER_WINDOW + 1]);
+        }
+    }
+
+    @Override
+    public void onSpeechStart(long frameIndex) {
+    }
+
+    @Override
+    public void onSpeechEnd(long frameIndex) {
+    }
+
+    @Override
+    public void onError(String code, String message) {
+        errors.add(code + " " + message);
+    }
+
+    @Override
+    public void onMetrics(String sessionId, SpeechMetrics metrics) {
+        metricsReports.incrementAndGet();
+    }
+
+    @Override
+    public void onBackpressure(String sessionId, BackpressureBuffer.Level level, BackpressureBuffer buffer) {
+        backpressure.add(level);
+    }
+
+    @Override
+    public void onSegment(String sessionId, int index, long startOffsetMs, long endOffsetMs) {
+        segments.add(index + " " + startOffsetMs + "-" + endOffsetMs);
+    }
+
+    @Override
+    public void onParallelClosed(String sessionId, ParallelRecognizer recognizer) {
+        parallelClosed.add(recognizer);
+    }
+
+    @Override
+    public void onWakeWord(String sessionId, String keyword) {
+        wakeWords.add(sessionId + " " + keyword);
+    }
+
+    @Override
+    public void onSessionClosed(String sessionId, File audio, long audioBytes, AudioCodec codec, boolean failed) {
+        closedAudio = audio;
+        closedAudioBytes = audioBytes;
+        closedFailed = failed;
+        closed.countDown();
+    }
+
+    // 在识别服务与引擎之间记录原始回调
+    private class Tap implements Recognizer, Recognizer.Callback {
+        private final Recognizer target;
+        private Callback callback;
+
+        Tap(Recognizer target) {
+            this.target = target;
+        }
+
+        @Override
+        public int initialize(Callback callback, String appkey, String token, String workspace) {
+            this.callback = callback;
+            return target.initialize(this, appkey, token, workspace);
+        }
+
+        @Override
+        public int startDialog(AudioCodec codec) {
+            return target.startDialog(codec);
+        }
+
+        @Override
+        public int stopDialog() {
+            return target.stopDialog();
+        }
+
+        @Override
+        public int release() {
+            return target.release();
+        }
+
+        @Override
+        public void onAudioStateChanged(boolean open) {
+            timeline.add(open ? "OPEN" : "CLOSE");
+            callback.onAudioStateChanged(open);
+        }
+
+        @Override
+        public int onNeedAudioData(byte[] buffer, int len) {
+            return callback.onNeedAudioData(buffer, len);
+        }
+
+        @Override
+        public void onEventCallback(Event event, int resultCode, String asrResult) {
+            timeline.add(event.name());
+            if (event == Event.EVENT_SENTENCE_END) {
+                finalPayloads.add(asrResult);
+            }
+            callback.onEventCallback(event, resultCode, asrResult);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TokenCacheTest {
+
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    private HttpServer server;
+    private String baseUrl;
+    private final FakeClock clock = new FakeClock();
+    private ScheduledExecutorService scheduler;
+    private TokenCache cache;
+
+    // 每次响应的有效期（相对假时钟），null 表示不返回 expireAt；负数表示返回 500
+    private final List<Long> lifetimes = new ArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> events = new ArrayList<>();
+    private volatile CountDownLatch endpointGate;
+    private volatile String lastAuthorization;
+
+    private static class FakeClock implements Clock {
+        volatile long now = 1_700_000_000_000L;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/aliyun-speech/token", exchange -> {
+            CountDownLatch gate = endpointGate;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+            int n = requests.incrementAndGet();
+            Long lifetime;
+            synchronized (lifetimes) {
+                lifetime = lifetimes.isEmpty() ? Long.valueOf(2 * HOUR_MS) : lifetimes.remove(0);
+            }
+            if (lifetime != null && lifetime < 0) {
+                respond(exchange, 500, "{\"success\":false,\"message\":\"获取阿里云语音识别Token失败\"}");
+                return;
+            }
+            String expireAt = lifetime == null ? "null" : "\"" + iso(clock.now + lifetime) + "\"";
+            respond(exchange, 200, "{\"success\":true,\"message\":\"获取阿里云语音识别Token成功\",\"data\":{"
+                + "\"token\":\"tok-" + n + "\",\"appKey\":\"app\",\"region\":\"cn-shanghai\",\"expireAt\":" + expireAt + "}}");
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        cache = new TokenCache(clock, scheduler);
+        cache.setListener(new TokenCache.Listener() {
+            @Override
+            public void onTokenRefreshed(SpeechToken token) {
+                synchronized (events) {
+                    events.add(token.token);
+                }
+            }
+
+            @Override
+            public void onRefreshFailed(IOException error, int failures) {
+                synchronized (events) {
+                    events.add("failed " + failures);
+                }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        cache.stop();
+        scheduler.shutdownNow();
+        server.stop(0);
+    }
+
+    private static String iso(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void awaitEvents(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (events) {
+                if (events.size() >= count) {
+                    return;
+                }
+            }
+            Thread.sleep(2);
+        }
+        fail("events: " + events);
+    }
+
+    @Test
+    public void fetchesInBackgroundAndSchedulesRefreshBeforeExpiry() throws Exception {
+        long start = clock.now;
+        cache.setFetcher(new BackendTokenFetcher(baseUrl + "/", "jwt"));
+        awaitEvents(1);
+
+        SpeechToken token = cache.getToken();
+        assertEquals("tok-1", token.token);
+        assertEquals("app", token.appKey);
+        assertEquals(start + 2 * HOUR_MS, token.expiresAt);
+        assertEquals("Bearer jwt", lastAuthorization);
+        assertEquals(token.expiresAt - TokenCache.REFRESH_AHEAD_MS, cache.getNextRefreshAt());
+
+        // 未到刷新时间不会请求
+        clock.now = cache.getNextRefreshAt() - 1;
+        assertFalse(cache.refreshIfDue());
+        assertEquals(1, requests.get());
+        assertEquals("tok-1", cache.getToken().token);
+
+        clock.now = cache.getNextRefreshAt();
+        assertTrue(cache.refreshIfDue());
+        assertEquals("tok-2", cache.getToken().token);
+        assertEquals(2, cache.getRefreshCount());
+        assertEquals(clock.now + 2 * HOUR_MS - TokenCache.REFRESH_AHEAD_MS, cache.getNextRefreshAt());
+    }
+
+    @Test
+    public void failedRefreshBacksOffAndKeepsServingUnexpiredToken() throws Exception {
+        lifetimes.add(2 * HOUR_MS);
+        lifetimes.add(-1L);
+        lifetimes.add(-1L);
+        cache.setFetcher(new BackendTokenFetcher(baseUrl, null));
+        awaitEvents(1);
+        SpeechToken first = cache.getToken();
+
+        clock.now = cache.getNextRefreshAt();
+        assertFalse(cache.refreshIfDue());
+        assertEquals(1, cache.getConsecutiveFailures());
+        assertEquals(clock.now + TranscriptionQueue.backoffMs(1), cache.getNextRefreshAt());
+        assertSame(first, cache.getToken());
+
+        clock.now = cache.getNextRefreshAt();
+        assertFalse(cache.refreshIfDue());
+        assertEquals(clock.now + TranscriptionQueue.backoffMs(2), cache.getNextRefreshAt());
+        synchronized (events) {
+            assertEquals("[tok-1, failed 1, failed 2]", events.toString());
+        }
+
+        // 过期后不再提供旧令牌，读取时已到刷新时间，在后台重新获取
+        clock.now = first.expiresAt;
+        assertNull(cache.getToken());
+        awaitEvents(4);
+        assertEquals("tok-4", cache.getToken().token);
+        assertEquals(0, cache.getConsecutiveFailures());
+    }
+
+    @Test
+    public void getTokenDoesNotWaitForSlowEndpoint() throws Exception {
+        endpointGate = new CountDownLatch(1);
+        cache.setFetcher(new BackendTokenFetcher(baseUrl, null));
+
+        long begin = System.nanoTime();
+        assertNull(cache.getToken());
+        assertTrue(System.nanoTime() - begin < TimeUnit.MILLISECONDS.toNanos(100));
+
+        endpointGate.countDown();
+        awaitEvents(1);
+        assertEquals("tok-1", cache.getToken().token);
+    }
+
+    @Test
+    public void overdueRefreshIsScheduledFromGetToken() throws Exception {
+        cache.setFetcher(new BackendTokenFetcher(baseUrl, null));
+        awaitEvents(1);
+
+        // 设备休眠推迟了定时任务：读取时发现已到刷新时间，在后台补上刷新
+        clock.now = cache.getNextRefreshAt() + 1;
+        assertEquals("tok-1", cache.getToken().token);
+        awaitEvents(2);
+        assertEquals("tok-2", cache.getToken().token);
+    }
+
+    @Test
+    public void missingOrShortExpiryUsesSaneRefreshTime() throws Exception {
+        lifetimes.add(null);
+        lifetimes.add(4 * 60 * 1000L);
+        cache.setFetcher(new BackendTokenFetcher(baseUrl, null));
+        awaitEvents(1);
+        long now = clock.now;
+        assertEquals(now + TokenCache.DEFAULT_LIFETIME_MS, cache.getToken().expiresAt);
+        assertEquals(now + TokenCache.DEFAULT_LIFETIME_MS - TokenCache.REFRESH_AHEAD_MS, cache.getNextRefreshAt());
+
+        // 有效期短于提前量时，在有效期过半时刷新
+        clock.now = cache.getNextRefreshAt();
+        assertTrue(cache.refreshIfDue());
+        assertEquals(clock.now + 2 * 60 * 1000L, cache.getNextRefreshAt());
+    }
+
+    @Test
+    public void parsesIsoExpiry() {
+        assertEquals(1_700_000_000_123L, BackendTokenFetcher.parseExpireAt("2023-11-14T22:13:20.123Z"));
+        assertEquals(0, BackendTokenFetcher.parseExpireAt("tomorrow"));
+        assertEquals(0, BackendTokenFetcher.parseExpireAt(null));
+    }
+}
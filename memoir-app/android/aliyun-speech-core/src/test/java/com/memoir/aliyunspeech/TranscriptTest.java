@@ -0,0 +1,126 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class TranscriptTest {
+
+    // 前端按补丁维护的文本
+    private final StringBuilder committed = new StringBuilder();
+    private String tail = "";
+
+    private void apply(TranscriptPatch patch) {
+        tail = tail.substring(0, patch.keep) + patch.delta;
+        assertEquals(patch.length, tail.length());
+        if (patch.op == TranscriptPatch.Op.COMMIT) {
+            assertEquals(committed.length(), patch.offset);
+            committed.append(tail);
+            tail = "";
+        }
+    }
+
+    @Test
+    public void patchesReproduceTheTranscript() {
+        Transcript transcript = new Transcript();
+        apply(transcript.replaceTail(0, "今天", 0.9));
+        apply(transcript.replaceTail(2, "天气", 0.9));
+        assertEquals("今天天气", transcript.getTail());
+        TranscriptPatch commit = transcript.commit("今天天气很好。", 0.98, -1, null);
+        assertEquals(TranscriptPatch.Op.COMMIT, commit.op);
+        assertEquals(4, commit.keep);
+        assertEquals("很好。", commit.delta);
+        assertEquals(0, commit.index);
+        apply(commit);
+        apply(transcript.replaceTail(0, "我们", 0.9));
+        apply(transcript.replaceTail(0, "我门去", 0.9));
+        apply(transcript.commit("我们去公园散步。", 0.98, -1, null));
+        apply(transcript.replaceTail(0, "好", 0.9));
+
+        assertEquals(2, transcript.size());
+        assertEquals("今天天气很好。我们去公园散步。", committed.toString());
+        assertEquals("好", tail);
+        assertEquals(committed.length() + 1, transcript.length());
+        assertEquals(committed + tail, transcript.getText(0, Long.MAX_VALUE));
+        assertEquals("我们去公园散步。", transcript.getSentence(1));
+        assertEquals(7, transcript.getOffset(1));
+    }
+
+    @Test
+    public void patchSizeDoesNotGrowWithTheSession() {
+        Transcript transcript = new Transcript();
+        String sentence = "这是一句用来测试的话。";
+        for (int i = 0; i < 10000; i++) {
+            TranscriptPatch partial = transcript.replaceTail(0, "这是一句", 0.9);
+            assertEquals(4, partial.length);
+            TranscriptPatch commit = transcript.commit(sentence, 0.98, -1, null);
+            assertEquals(4, commit.keep);
+            assertEquals(sentence.length() - 4, commit.delta.length());
+            assertEquals((long) i * sentence.length(), commit.offset);
+        }
+        assertEquals(10000, transcript.size());
+        assertEquals(10000L * sentence.length(), transcript.length());
+    }
+
+    @Test
+    public void findsSentencesAndSlicesCharacterRanges() {
+        Transcript transcript = new Transcript();
+        transcript.commit("一二三", 1, -1, null);
+        transcript.commit("四五", 1, -1, null);
+        transcript.commit("六七八九", 1, -1, null);
+        transcript.replaceTail(0, "十", 1);
+
+        assertEquals(-1, transcript.find(-1));
+        assertEquals(0, transcript.find(0));
+        assertEquals(0, transcript.find(2));
+        assertEquals(1, transcript.find(3));
+        assertEquals(2, transcript.find(8));
+        assertEquals(3, transcript.find(9));
+        assertEquals("三四五六", transcript.getText(2, 6));
+        assertEquals("九十", transcript.getText(8, 100));
+        assertEquals("十", transcript.getText(9, 10));
+        assertEquals("", transcript.getText(5, 5));
+        assertEquals("一二", transcript.getText(-5, 2));
+    }
+
+    @Test
+    public void pagesCommittedSentences() throws Exception {
+        Transcript transcript = new Transcript();
+        for (int i = 0; i < 100; i++) {
+            transcript.commit("第" + i + "句。", 0.98, -1, new SentenceTiming(i, i * 1000L, i * 1000L + 800, 0, 0));
+        }
+        transcript.replaceTail(0, "未完", 0.9);
+
+        JSONObject page = transcript.toJson(new JSONObject(), 95, 10);
+        assertEquals(100, page.getInt("total"));
+        assertEquals(95, page.getInt("from"));
+        assertEquals("未完", page.getString("tail"));
+        JSONArray sentences = page.getJSONArray("sentences");
+        assertEquals(5, sentences.length());
+        JSONObject first = sentences.getJSONObject(0);
+        assertEquals(95, first.getInt("index"));
+        assertEquals("第95句。", first.getString("text"));
+        assertEquals(transcript.getOffset(95), first.getLong("offset"));
+        assertEquals(95000, first.getLong("beginOffsetMs"));
+
+        assertEquals(0, transcript.toJson(new JSONObject(), 200, 10).getJSONArray("sentences").length());
+    }
+
+    @Test
+    public void sentencesWithoutConfidenceAreLeftOut() throws Exception {
+        Transcript transcript = new Transcript();
+        assertTrue(Double.isNaN(transcript.getMeanConfidence()));
+        transcript.commit("一二三", Double.NaN, -1, null);
+        assertTrue(Double.isNaN(transcript.getMeanConfidence()));
+        transcript.commit("四五", 0.8, 2, null);
+        transcript.commit("六七八九", 0.5, 3, null);
+        // 只按带置信度的句子加权：(2 * 0.8 + 4 * 0.5) / 6
+        assertEquals((2 * 0.8 + 4 * 0.5) / 6, transcript.getMeanConfidence(), 1e-12);
+
+        JSONArray sentences = transcript.toJson(new JSONObject(), 0, 10).getJSONArray("sentences");
+        assertFalse(sentences.getJSONObject(0).has("confidence"));
+        assertEquals(0.8, sentences.getJSONObject(1).getDouble("confidence"), 0);
+    }
+}
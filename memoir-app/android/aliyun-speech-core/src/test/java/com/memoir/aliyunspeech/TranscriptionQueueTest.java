@@ -0,0 +1,373 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TranscriptionQueueTest {
+
+    private File dir;
+    private File audio;
+    private HttpServer server;
+    private String baseUrl;
+    private final FakeClock clock = new FakeClock();
+
+    // 依次返回的 /speech/transcribe 状态码，用完后一直返回 200
+    private final List<Integer> transcribeStatuses = new ArrayList<>();
+    private final AtomicInteger uploads = new AtomicInteger();
+    private final AtomicInteger transcribes = new AtomicInteger();
+    private volatile String lastAuthorization;
+    private volatile int lastUploadBytes;
+    private volatile String lastUploadBody;
+    private volatile int maxUploadBytes;
+
+    private static class FakeClock implements Clock {
+        long now = 1_000_000;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dir = createTempDir();
+        audio = sessionAudio("session");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/speech/upload", exchange -> {
+            uploads.incrementAndGet();
+            lastAuthorization = exchange.getRequestHeaders().getFirst("Authorization");
+            byte[] body = readBody(exchange);
+            lastUploadBytes = body.length;
+            maxUploadBytes = Math.max(maxUploadBytes, body.length);
+            lastUploadBody = new String(body, StandardCharsets.ISO_8859_1);
+            respond(exchange, 200, "{\"success\":true,\"data\":{\"file\":{\"filename\":\"audio-1.wav\",\"size\":3244}}}");
+        });
+        server.createContext("/api/speech/transcribe", exchange -> {
+            String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+            assertTrue(body.contains("\"audio-1.wav\""));
+            int status;
+            synchronized (transcribeStatuses) {
+                status = transcribeStatuses.isEmpty() ? 200 : transcribeStatuses.remove(0);
+            }
+            transcribes.incrementAndGet();
+            if (status == 200) {
+                respond(exchange, 200, "{\"success\":true,\"data\":{\"transcript\":\"今天天气\\\"很好\\\"\"}}");
+            } else {
+                respond(exchange, status, "{\"success\":false,\"message\":\"busy\"}");
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    // 每个会话各自落盘一个 WAV，与 SpeechEngine 相同；内容为音调，静音段不会上传
+    private File sessionAudio(String sessionId) throws IOException {
+        return sessionAudio(sessionId, 100);
+    }
+
+    private File sessionAudio(String sessionId, int durationMs) throws IOException {
+        File file = new File(dir, sessionId + SessionRetention.AUDIO_SUFFIX);
+        SessionSpool spool = new SessionSpool(file, 16000);
+        byte[] pcm = new byte[durationMs * 32];
+        for (int i = 0; i < pcm.length / 2; i++) {
+            short value = (short) (8000 * Math.sin(2 * Math.PI * 440 * i / 16000));
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        spool.write(pcm, 0, pcm.length);
+        spool.close();
+        return file;
+    }
+
+    private static File createTempDir() throws IOException {
+        File file = File.createTempFile("queue", "");
+        file.delete();
+        assertTrue(file.mkdirs());
+        return file;
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private TranscriptionQueue newQueue() {
+        TranscriptionQueue queue = new TranscriptionQueue(dir, clock);
+        queue.setTranscriber(new BackendTranscriber(baseUrl, "token-1"));
+        return queue;
+    }
+
+    @Test
+    public void successfulJobStoresTranscript() throws Exception {
+        TranscriptionQueue queue = newQueue();
+        List<TranscriptionJob.Status> updates = new ArrayList<>();
+        queue.setListener((job, pending) -> updates.add(job.getStatus()));
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+
+        assertEquals(1, queue.runBatch());
+
+        TranscriptionJob job = queue.get("s1");
+        assertEquals(TranscriptionJob.Status.DONE, job.getStatus());
+        assertEquals("今天天气\"很好\"", job.getTranscript());
+        assertEquals(1, job.getAttempts());
+        assertEquals("Bearer token-1", lastAuthorization);
+        // multipart 请求体包含完整的 WAV 文件
+        assertTrue(lastUploadBytes > SessionSpool.HEADER_BYTES + 3200);
+        // 识别成功后删除会话音频
+        assertFalse(audio.exists());
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(TranscriptionJob.Status.PENDING, updates.get(0));
+        assertEquals(TranscriptionJob.Status.RUNNING, updates.get(1));
+        assertEquals(TranscriptionJob.Status.DONE, updates.get(2));
+    }
+
+    @Test
+    public void longSessionIsTranscribedInPiecesWithinBackendLimits() throws Exception {
+        File longAudio = sessionAudio("long", 2 * BackendTranscriber.MAX_PIECE_MS + 20000);
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("long", longAudio, "ASR_ERROR", AudioCodec.PCM);
+
+        assertEquals(1, queue.runBatch());
+        TranscriptionJob job = queue.get("long");
+        assertEquals(TranscriptionJob.Status.DONE, job.getStatus());
+        // 三段依次识别，结果按顺序拼接
+        assertEquals(3, uploads.get());
+        assertEquals(3, transcribes.get());
+        assertEquals("今天天气\"很好\"今天天气\"很好\"今天天气\"很好\"", job.getTranscript());
+        assertTrue(maxUploadBytes <= BackendTranscriber.MAX_PIECE_MS * 32 + 1024);
+        // 分段用的临时文件都已删除
+        assertEquals(0, dir.listFiles((d, name) -> name.startsWith("piece-")).length);
+    }
+
+    @Test
+    public void silentSessionIsNotUploaded() throws Exception {
+        File silent = new File(dir, "silent" + SessionRetention.AUDIO_SUFFIX);
+        SessionSpool spool = new SessionSpool(silent, 16000);
+        spool.write(new byte[3200], 0, 3200);
+        spool.close();
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("silent", silent, "ASR_ERROR", AudioCodec.PCM);
+
+        assertEquals(1, queue.runBatch());
+        assertEquals(TranscriptionJob.Status.DONE, queue.get("silent").getStatus());
+        assertEquals("", queue.get("silent").getTranscript());
+        assertEquals(0, uploads.get());
+    }
+
+    @Test
+    public void missingAudioIsNotRetried() throws Exception {
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+        assertTrue(audio.delete());
+
+        queue.runBatch();
+        assertEquals(TranscriptionJob.Status.FAILED, queue.get("s1").getStatus());
+    }
+
+    @Test
+    public void retryableFailuresBackOffExponentially() throws Exception {
+        transcribeStatuses.add(503);
+        transcribeStatuses.add(503);
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+
+        assertEquals(1, queue.runBatch());
+        TranscriptionJob job = queue.get("s1");
+        assertEquals(TranscriptionJob.Status.PENDING, job.getStatus());
+        assertEquals(clock.now + TranscriptionQueue.BASE_BACKOFF_MS, job.getNextAttemptAt());
+
+        // 未到期不会处理
+        clock.now += TranscriptionQueue.BASE_BACKOFF_MS - 1;
+        assertEquals(0, queue.runBatch());
+
+        clock.now += 1;
+        assertEquals(1, queue.runBatch());
+        assertEquals(clock.now + 2 * TranscriptionQueue.BASE_BACKOFF_MS, job.getNextAttemptAt());
+        assertEquals(queue.nextDueAt(), job.getNextAttemptAt());
+
+        clock.now = job.getNextAttemptAt();
+        assertEquals(1, queue.runBatch());
+        assertEquals(TranscriptionJob.Status.DONE, job.getStatus());
+        assertEquals(3, job.getAttempts());
+        assertEquals(3, transcribes.get());
+        assertEquals(-1, queue.nextDueAt());
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        assertEquals(5000, TranscriptionQueue.backoffMs(1));
+        assertEquals(10000, TranscriptionQueue.backoffMs(2));
+        assertEquals(TranscriptionQueue.MAX_BACKOFF_MS, TranscriptionQueue.backoffMs(12));
+        assertEquals(TranscriptionQueue.MAX_BACKOFF_MS, TranscriptionQueue.backoffMs(100));
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() throws Exception {
+        transcribeStatuses.add(400);
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+
+        queue.runBatch();
+        TranscriptionJob job = queue.get("s1");
+        assertEquals(TranscriptionJob.Status.FAILED, job.getStatus());
+        assertTrue(job.getLastError().contains("400"));
+
+        // 手动重试会重新排队
+        queue.retryAll();
+        assertEquals(1, queue.runBatch());
+        assertEquals(TranscriptionJob.Status.DONE, job.getStatus());
+    }
+
+    @Test
+    public void jobsGiveUpAfterMaxAttempts() throws Exception {
+        for (int i = 0; i < TranscriptionQueue.MAX_ATTEMPTS; i++) {
+            transcribeStatuses.add(500);
+        }
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+        TranscriptionJob job = queue.get("s1");
+        for (int i = 0; i < TranscriptionQueue.MAX_ATTEMPTS; i++) {
+            clock.now = Math.max(clock.now, job.getNextAttemptAt());
+            assertEquals(1, queue.runBatch());
+        }
+        assertEquals(TranscriptionJob.Status.FAILED, job.getStatus());
+        assertEquals(TranscriptionQueue.MAX_ATTEMPTS, job.getAttempts());
+    }
+
+    @Test
+    public void batchSizeLimitsJobsPerRun() throws Exception {
+        TranscriptionQueue queue = newQueue();
+        queue.setBatchSize(2);
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue("s" + i, sessionAudio("s" + i), "ASR_ERROR", AudioCodec.PCM);
+        }
+        assertEquals(2, queue.runBatch());
+        assertEquals(2, queue.runBatch());
+        assertEquals(1, queue.runBatch());
+        assertEquals(0, queue.runBatch());
+        assertEquals(5, uploads.get());
+    }
+
+    @Test
+    public void jobsSurviveRestart() throws Exception {
+        transcribeStatuses.add(503);
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+        queue.enqueue("s2", sessionAudio("s2"), "ASR_ERROR", AudioCodec.PCM);
+        queue.setBatchSize(1);
+        queue.runBatch();
+
+        // 新实例从同一目录恢复任务及退避状态
+        TranscriptionQueue restored = newQueue();
+        assertEquals(2, restored.getJobs().size());
+        TranscriptionJob first = restored.get("s1");
+        assertEquals(TranscriptionJob.Status.PENDING, first.getStatus());
+        assertEquals(1, first.getAttempts());
+        assertEquals(clock.now + TranscriptionQueue.BASE_BACKOFF_MS, first.getNextAttemptAt());
+        assertEquals(0, restored.get("s2").getAttempts());
+
+        restored.expediteBackoff();
+        assertEquals(2, restored.runBatch());
+        assertEquals("今天天气\"很好\"", restored.get("s1").getTranscript());
+
+        assertTrue(restored.remove("s1"));
+        assertEquals(1, newQueue().getJobs().size());
+    }
+
+    @Test
+    public void adpcmSessionsUploadCompressedWav() throws Exception {
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.ADPCM);
+        queue.runBatch();
+
+        assertEquals(TranscriptionJob.Status.DONE, queue.get("s1").getStatus());
+        assertTrue(lastUploadBody.contains("Content-Type: audio/wav"));
+        // fmt 块中的格式码为 0x11（IMA-ADPCM）
+        int fmt = lastUploadBody.indexOf("fmt ");
+        assertEquals(ImaAdpcmEncoder.WAV_FORMAT_IMA_ADPCM, lastUploadBody.charAt(fmt + 8));
+        assertTrue(lastUploadBytes < SessionSpool.HEADER_BYTES + 3200);
+        // 压缩用的临时文件与识别成功的会话音频都已删除
+        assertEquals(0, dir.listFiles((d, name) -> name.startsWith("piece-")).length);
+    }
+
+    @Test
+    public void failedJobsKeepTheirAudioUntilRemoved() throws Exception {
+        transcribeStatuses.add(400);
+        File sentences = new File(dir, "session" + SentenceIndex.FILE_SUFFIX);
+        new SentenceIndex().writeTo(sentences);
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+        queue.runBatch();
+
+        // 失败的任务可以重试，音频保留
+        assertEquals(TranscriptionJob.Status.FAILED, queue.get("s1").getStatus());
+        assertTrue(audio.exists());
+        assertTrue(queue.remove("s1"));
+        assertFalse(audio.exists());
+        assertFalse(sentences.exists());
+    }
+
+    @Test
+    public void missingAudioFailsWithoutNetwork() throws Exception {
+        TranscriptionQueue queue = newQueue();
+        queue.enqueue("s1", new File(dir, "missing.wav"), "ASR_ERROR", AudioCodec.PCM);
+        queue.runBatch();
+        assertEquals(TranscriptionJob.Status.FAILED, queue.get("s1").getStatus());
+        assertEquals(0, uploads.get());
+    }
+
+    @Test
+    public void nothingRunsWithoutTranscriber() throws Exception {
+        TranscriptionQueue queue = new TranscriptionQueue(dir, clock);
+        queue.enqueue("s1", audio, "ASR_ERROR", AudioCodec.PCM);
+        assertEquals(0, queue.runBatch());
+        assertEquals(1, queue.getPendingCount());
+    }
+}
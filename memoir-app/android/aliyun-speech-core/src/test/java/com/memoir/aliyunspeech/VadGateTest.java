@@ -0,0 +1,122 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 本地语音门限测试，输入为 src/test/resources/fixtures 下的 WAV 夹具：
+ * speech_pauses_16k.wav 含三段语音（0.5-1.3s、2.0-2.8s、3.4-3.9s），其余为 -62dBFS 底噪；
+ * room_noise_16k.wav 为 2s 的 -52dBFS 环境噪声。
+ */
+public class VadGateTest {
+
+    private static final int FRAME_MS = AudioPipeline.FRAME_MS;
+
+    private static class RecordingListener implements VadGate.Listener {
+        final List<Long> starts = new ArrayList<>();
+        final List<Long> ends = new ArrayList<>();
+
+        @Override
+        public void onSpeechStart(long frameIndex) {
+            starts.add(frameIndex);
+        }
+
+        @Override
+        public void onSpeechEnd(long frameIndex) {
+            ends.add(frameIndex);
+        }
+    }
+
+    private static RecordingListener runGate(WavFixture wav, VadGate gate) {
+        RecordingListener listener = new RecordingListener();
+        gate.setListener(listener);
+        int frameBytes = PcmRingBuffer.bytesForDuration(FRAME_MS, wav.sampleRate);
+        ByteBuffer frame = ByteBuffer.allocateDirect(frameBytes);
+        AudioSource source = wav.source();
+        for (int i = 0; i < wav.frameCount(frameBytes); i++) {
+            frame.clear();
+            source.read(frame, frameBytes);
+            gate.process(frame);
+        }
+        return listener;
+    }
+
+    private static long framesAt(double seconds) {
+        return Math.round(seconds * 1000 / FRAME_MS);
+    }
+
+    @Test
+    public void detectsEachUtteranceOnce() throws Exception {
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        VadGate gate = new VadGate(new EnergyVad(), VadGate.Mode.GATE, 60, 400);
+        RecordingListener listener = runGate(wav, gate);
+
+        assertEquals(3, listener.starts.size());
+        assertEquals(3, listener.ends.size());
+        double[] onsets = { 0.5, 2.0, 3.4 };
+        double[] offsets = { 1.3, 2.8, 3.9 };
+        for (int i = 0; i < 3; i++) {
+            // 起点取首个语音帧，允许 1 帧误差（帧序号从 1 开始）
+            assertEquals("onset " + i, framesAt(onsets[i]) + 1, listener.starts.get(i), 1);
+            // 终点在语音结束后约 hangover(400ms)
+            assertEquals("offset " + i, framesAt(offsets[i] + 0.4) + 1, listener.ends.get(i), 2);
+        }
+    }
+
+    @Test
+    public void attackIgnoresShortBursts() throws Exception {
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        // attack 比最短的语音段（500ms）还长，不应触发
+        VadGate gate = new VadGate(new EnergyVad(), VadGate.Mode.GATE, 600, 400);
+        RecordingListener listener = runGate(wav, gate);
+        assertEquals(2, listener.starts.size());
+    }
+
+    @Test
+    public void roomNoiseNeverOpensTheGate() throws Exception {
+        WavFixture wav = WavFixture.load("room_noise_16k.wav");
+        VadGate gate = new VadGate(new EnergyVad(), VadGate.Mode.GATE, 60, 400);
+        RecordingListener listener = runGate(wav, gate);
+        assertTrue(listener.starts.isEmpty());
+        assertEquals(0, gate.getPassedFrames());
+        assertEquals(wav.frameCount(640), gate.getHeldFrames());
+    }
+
+    @Test
+    public void compressModeKeepsSparseKeepAliveFrames() throws Exception {
+        WavFixture wav = WavFixture.load("room_noise_16k.wav");
+        VadGate gate = new VadGate(new EnergyVad(), VadGate.Mode.COMPRESS, 60, 400);
+        runGate(wav, gate);
+        assertEquals(wav.frameCount(640) / 10, gate.getPassedFrames());
+    }
+
+    @Test
+    public void pipelineDropsSilenceButKeepsOnsets() throws Exception {
+        WavFixture wav = WavFixture.load("speech_pauses_16k.wav");
+        PcmRingBuffer ring = PcmRingBuffer.forDuration(5000, wav.sampleRate);
+        AudioPipeline pipeline = new AudioPipeline(wav.sampleRate, ring);
+        pipeline.setVadGate(new VadGate(new EnergyVad(), VadGate.Mode.GATE, 60, 400));
+
+        AudioSource source = wav.source();
+        while (pipeline.processFrame(source) > 0) {
+            // 逐帧送入
+        }
+
+        int speechBytes = PcmRingBuffer.bytesForDuration(800 + 800 + 500, wav.sampleRate);
+        int hangoverBytes = 3 * PcmRingBuffer.bytesForDuration(400, wav.sampleRate);
+        int lookbackBytes = 3 * PcmRingBuffer.bytesForDuration(60 + VadGate.LOOKBACK_PADDING_MS, wav.sampleRate);
+        // 语音段全部保留，外加 hangover 与起始回看，其余静音被丢弃
+        assertTrue(ring.available() >= speechBytes + hangoverBytes);
+        assertTrue(ring.available() <= speechBytes + hangoverBytes + lookbackBytes + 3 * 640);
+
+        // 第一段输出以回看中的底噪开始，语音起点之前保留了至少 attack 时长
+        byte[] head = new byte[PcmRingBuffer.bytesForDuration(VadGate.LOOKBACK_PADDING_MS, wav.sampleRate)];
+        ring.read(head, 0, head.length);
+        assertTrue(EnergyVad.levelDb(ByteBuffer.wrap(head, 0, 640)) < -50);
+    }
+}
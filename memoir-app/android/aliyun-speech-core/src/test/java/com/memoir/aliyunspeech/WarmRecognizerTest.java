@@ -0,0 +1,220 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WarmRecognizerTest {
+
+    // 模拟 SDK 初始化耗时
+    private static final long INIT_COST_MS = 350;
+
+    private final FakeClock clock = new FakeClock();
+    private FakeRecognizer target;
+    private WarmRecognizer warm;
+    private final List<String> ready = Collections.synchronizedList(new ArrayList<>());
+    private ExecutorService caller;
+
+    private static class FakeClock implements Clock {
+        volatile long now = 1_000_000;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    // 记录初始化的凭据；可以让初始化阻塞或返回错误码
+    private class FakeRecognizer implements Recognizer {
+        final List<String> initialized = Collections.synchronizedList(new ArrayList<>());
+        volatile Callback callback;
+        volatile CountDownLatch gate;
+        volatile int initCode = SUCCESS;
+        volatile int dialogs;
+        volatile boolean released;
+
+        @Override
+        public int initialize(Callback callback, String appkey, String token, String workspace) {
+            CountDownLatch current = gate;
+            if (current != null) {
+                try {
+                    current.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            this.callback = callback;
+            clock.now += INIT_COST_MS;
+            initialized.add(token + "@" + workspace);
+            return initCode;
+        }
+
+        @Override
+        public int startDialog(AudioCodec codec) {
+            dialogs++;
+            callback.onAudioStateChanged(true);
+            return SUCCESS;
+        }
+
+        @Override
+        public int stopDialog() {
+            return SUCCESS;
+        }
+
+        @Override
+        public int release() {
+            released = true;
+            return SUCCESS;
+        }
+
+        void close() {
+            callback.onAudioStateChanged(false);
+        }
+    }
+
+    // 记录转发到引擎一侧的回调
+    private static class RecordingCallback implements Recognizer.Callback {
+        final List<String> states = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onAudioStateChanged(boolean open) {
+            states.add(open ? "OPEN" : "CLOSE");
+        }
+
+        @Override
+        public int onNeedAudioData(byte[] buffer, int len) {
+            return 0;
+        }
+
+        @Override
+        public void onEventCallback(Recognizer.Event event, int resultCode, String asrResult) {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        target = new FakeRecognizer();
+        warm = new WarmRecognizer(target, clock);
+        warm.setListener((resultCode, timeToReadyMs) -> ready.add(resultCode + " " + timeToReadyMs));
+        caller = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        warm.release();
+        caller.shutdownNow();
+    }
+
+    private void awaitInitializations(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (ready.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(2);
+        }
+        assertEquals(count, ready.size());
+    }
+
+    @Test
+    public void prewarmsAndReusesInstanceForSameCredentials() throws Exception {
+        warm.prepare("appkey", "token", "workspace");
+        awaitInitializations(1);
+        assertTrue(warm.isReady());
+        assertEquals("0 " + INIT_COST_MS, ready.get(0));
+        assertEquals(INIT_COST_MS, warm.getTimeToReadyMs());
+
+        // 会话开始时凭据不变：不再初始化，直接开始对话
+        RecordingCallback callback = new RecordingCallback();
+        assertEquals(Recognizer.SUCCESS, warm.initialize(callback, "appkey", "token", "workspace"));
+        assertEquals(Recognizer.SUCCESS, warm.startDialog(AudioCodec.PCM));
+        target.close();
+        assertEquals(Recognizer.SUCCESS, warm.initialize(callback, "appkey", "token", "workspace"));
+        assertEquals(Recognizer.SUCCESS, warm.startDialog(AudioCodec.PCM));
+
+        assertEquals(1, warm.getInitializations());
+        assertEquals(2, warm.getReuses());
+        assertEquals(2, target.dialogs);
+        assertEquals("[OPEN, CLOSE, OPEN]", callback.states.toString());
+    }
+
+    @Test
+    public void startDialogWaitsForBackgroundInitialization() throws Exception {
+        target.gate = new CountDownLatch(1);
+        warm.initialize(new RecordingCallback(), "appkey", "token", "workspace");
+        assertFalse(warm.isReady());
+
+        Future<Integer> started = caller.submit(() -> warm.startDialog(AudioCodec.PCM));
+        Thread.sleep(50);
+        assertFalse(started.isDone());
+        assertEquals(0, target.dialogs);
+
+        target.gate.countDown();
+        assertEquals(Recognizer.SUCCESS, (int) started.get(2, TimeUnit.SECONDS));
+        assertEquals(1, target.dialogs);
+    }
+
+    @Test
+    public void reinitializesAfterDialogWhenTokenChanges() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        warm.initialize(callback, "appkey", "token-1", "workspace");
+        assertEquals(Recognizer.SUCCESS, warm.startDialog(AudioCodec.PCM));
+
+        // 对话进行中换了 token：推迟到对话关闭后
+        warm.prepare("appkey", "token-2", "workspace");
+        Thread.sleep(50);
+        assertEquals(1, target.initialized.size());
+
+        target.close();
+        awaitInitializations(2);
+        assertEquals("[token-1@workspace, token-2@workspace]", target.initialized.toString());
+        assertTrue(warm.isReady());
+
+        warm.prepare("appkey", "token-2", "other-workspace");
+        awaitInitializations(3);
+        assertEquals("other-workspace", target.initialized.get(2).split("@")[1]);
+        assertEquals(3, warm.getInitializations());
+    }
+
+    @Test
+    public void initializationErrorIsReturnedFromStartDialogAndRetried() throws Exception {
+        target.initCode = 240011;
+        warm.initialize(new RecordingCallback(), "appkey", "token", "workspace");
+        assertEquals(240011, warm.startDialog(AudioCodec.PCM));
+        assertEquals(0, target.dialogs);
+        awaitInitializations(1);
+        assertEquals("240011 " + INIT_COST_MS, ready.get(0));
+
+        // 同样的凭据再次提交时重试
+        target.initCode = Recognizer.SUCCESS;
+        warm.prepare("appkey", "token", "workspace");
+        assertEquals(Recognizer.SUCCESS, warm.startDialog(AudioCodec.PCM));
+        assertEquals(2, target.initialized.size());
+    }
+
+    @Test
+    public void startDialogWithoutCredentialsIsNotReady() {
+        assertEquals(WarmRecognizer.ERROR_NOT_READY, warm.startDialog(AudioCodec.PCM));
+        assertEquals(-1, warm.getTimeToReadyMs());
+    }
+
+    @Test
+    public void releaseRunsOnInitThreadAndStopsReinitialization() throws Exception {
+        warm.prepare("appkey", "token", "workspace");
+        awaitInitializations(1);
+        warm.release();
+        assertTrue(target.released);
+
+        warm.prepare("appkey", "token-2", "workspace");
+        assertEquals(WarmRecognizer.ERROR_NOT_READY, warm.startDialog(AudioCodec.PCM));
+        assertEquals(1, target.initialized.size());
+    }
+}
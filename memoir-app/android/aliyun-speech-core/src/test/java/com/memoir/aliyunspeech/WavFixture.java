@@ -0,0 +1,96 @@
+package com.memoir.aliyunspeech;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+/**
+ * 测试用 WAV 夹具，读取 src/test/resources/fixtures 下的 16bit 单声道 PCM 文件。
+ */
+class WavFixture {
+
+    final int sampleRate;
+    final byte[] pcm;
+
+    private WavFixture(int sampleRate, byte[] pcm) {
+        this.sampleRate = sampleRate;
+        this.pcm = pcm;
+    }
+
+    static WavFixture load(String name) throws IOException {
+        try (InputStream in = WavFixture.class.getClassLoader().getResourceAsStream("fixtures/" + name)) {
+            if (in == null) {
+                throw new IOException("找不到夹具: " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+            return parse(out.toByteArray());
+        }
+    }
+
+    static WavFixture read(File file) throws IOException {
+        return parse(Files.readAllBytes(file.toPath()));
+    }
+
+    private static WavFixture parse(byte[] wav) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(wav).order(ByteOrder.LITTLE_ENDIAN);
+        if (wav.length < 44 || buffer.getInt(0) != 0x46464952 || buffer.getInt(8) != 0x45564157) {
+            throw new IOException("不是 RIFF/WAVE 文件");
+        }
+        int sampleRate = 0;
+        int position = 12;
+        while (position + 8 <= wav.length) {
+            int id = buffer.getInt(position);
+            int size = buffer.getInt(position + 4);
+            int body = position + 8;
+            if (id == 0x20746d66) {
+                // "fmt "
+                if (buffer.getShort(body + 2) != 1 || buffer.getShort(body + 14) != 16) {
+                    throw new IOException("只支持 16bit 单声道 PCM");
+                }
+                sampleRate = buffer.getInt(body + 4);
+            } else if (id == 0x61746164) {
+                // "data"
+                if (size > wav.length - body) {
+                    throw new IOException("data 块长度超出文件: " + size);
+                }
+                byte[] pcm = new byte[size];
+                System.arraycopy(wav, body, pcm, 0, pcm.length);
+                return new WavFixture(sampleRate, pcm);
+            }
+            position = body + size + (size & 1);
+        }
+        throw new IOException("缺少 data 块");
+    }
+
+    int frameCount(int frameBytes) {
+        return pcm.length / frameBytes;
+    }
+
+    /**
+     * 按帧回放的音频源，读完后返回 0
+     */
+    AudioSource source() {
+        return new AudioSource() {
+            private int offset;
+
+            @Override
+            public int read(ByteBuffer buffer, int sizeInBytes) {
+                int n = Math.min(sizeInBytes, pcm.length - offset);
+                for (int i = 0; i < n; i++) {
+                    buffer.put(i, pcm[offset + i]);
+                }
+                offset += n;
+                return n;
+            }
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package com.memoir.aliyunspeech;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WaveformPyramidTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private File wav;
+    private File peaks;
+
+    @Before
+    public void setUp() throws Exception {
+        wav = File.createTempFile("waveform", ".wav");
+        peaks = File.createTempFile("waveform", WaveformPyramid.FILE_SUFFIX);
+    }
+
+    @After
+    public void tearDown() {
+        wav.delete();
+        peaks.delete();
+    }
+
+    // 幅度随时间缓慢变化的随机信号
+    private static short[] signal(int length) {
+        Random random = new Random(23);
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            double envelope = 0.5 + 0.5 * Math.sin(i / 30000.0);
+            samples[i] = (short) ((random.nextDouble() * 2 - 1) * 30000 * envelope);
+        }
+        return samples;
+    }
+
+    private static void write(WaveformPyramid pyramid, short[] samples, int from, int to, int chunk) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(chunk * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = from; offset < to; offset += chunk) {
+            frame.clear();
+            for (int i = offset; i < Math.min(to, offset + chunk); i++) {
+                frame.putShort(samples[i]);
+            }
+            frame.flip();
+            pyramid.write(frame);
+            assertEquals(0, frame.position());
+        }
+    }
+
+    // 逐个采样计算 [start, end) 按 block 对齐扩展后的最小值与最大值
+    private static short[] bruteForce(short[] samples, long start, long end, long block, long limit) {
+        int from = (int) (start / block * block);
+        int to = (int) Math.min(limit, (end + block - 1) / block * block);
+        int min = Short.MAX_VALUE;
+        int max = Short.MIN_VALUE;
+        for (int i = from; i < to; i++) {
+            min = Math.min(min, samples[i]);
+            max = Math.max(max, samples[i]);
+        }
+        return min > max ? new short[] {0, 0} : new short[] {(short) min, (short) max};
+    }
+
+    @Test
+    public void everyZoomLevelMatchesTheSamples() {
+        short[] samples = signal(300000);
+        WaveformPyramid pyramid = new WaveformPyramid(SAMPLE_RATE);
+        write(pyramid, samples, 0, samples.length, 333);
+        pyramid.finish();
+        assertEquals(samples.length, pyramid.getSamples());
+        assertEquals((samples.length + 255) / 256, pyramid.getBlockCount(0));
+        assertEquals((samples.length + 4095) / 4096, pyramid.getBlockCount(1));
+        assertEquals((samples.length + 65535) / 65536, pyramid.getBlockCount(2));
+
+        // 整段 4 列用第 2 级，1 秒 40 列用第 0 级，中间的缩放用第 1 级
+        long[][] views = {{0, samples.length, 4, 65536}, {0, samples.length, 64, 4096},
+            {16000, 32000, 40, 256}, {100000, 100100, 10, 256}};
+        for (long[] view : views) {
+            int pixels = (int) view[2];
+            short[] out = new short[pixels * 2];
+            pyramid.getPeaks(view[0], view[1], pixels, out);
+            long span = view[1] - view[0];
+            for (int p = 0; p < pixels; p++) {
+                long start = view[0] + span * p / pixels;
+                long end = Math.max(start + 1, view[0] + span * (p + 1) / pixels);
+                short[] expected = bruteForce(samples, start, end, view[3], samples.length);
+                assertEquals("min " + p, expected[0], out[p * 2]);
+                assertEquals("max " + p, expected[1], out[p * 2 + 1]);
+            }
+        }
+
+        // 超出音频的列为 0
+        short[] out = new short[4];
+        pyramid.getPeaks(samples.length + 1000, samples.length + 2000, 2, out);
+        assertArrayEquals(new short[4], out);
+    }
+
+    @Test
+    public void reservedCapacityDoesNotChangeThePeaks() {
+        short[] samples = signal(300000);
+        WaveformPyramid grown = new WaveformPyramid(SAMPLE_RATE);
+        WaveformPyramid reserved = new WaveformPyramid(SAMPLE_RATE);
+        for (int offset = 0; offset < samples.length; offset += 32000) {
+            reserved.reserve(40000);
+            int end = Math.min(samples.length, offset + 32000);
+            write(grown, samples, offset, end, 320);
+            write(reserved, samples, offset, end, 320);
+        }
+        grown.finish();
+        reserved.finish();
+        for (int level = 0; level < WaveformPyramid.LEVELS; level++) {
+            assertEquals(grown.getBlockCount(level), reserved.getBlockCount(level));
+        }
+        short[] expected = new short[400];
+        short[] actual = new short[400];
+        grown.getPeaks(0, samples.length, 200, expected);
+        reserved.getPeaks(0, samples.length, 200, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void liveQueriesIncludeBlocksNotYetCompleteAtCoarseLevels() {
+        short[] samples = signal(70000);
+        WaveformPyramid pyramid = new WaveformPyramid(SAMPLE_RATE);
+        write(pyramid, samples, 0, samples.length, 640);
+        // 第 2 级只有 1 块，之后的 4464 个采样来自第 1 级与第 0 级（未满 256 的末尾不计）
+        assertEquals(1, pyramid.getBlockCount(2));
+        short[] out = new short[2];
+        pyramid.getPeaks(0, samples.length, 1, out);
+        short[] expected = bruteForce(samples, 0, samples.length / 256 * 256, 1, samples.length);
+        assertEquals(expected[0], out[0]);
+        assertEquals(expected[1], out[1]);
+    }
+
+    @Test
+    public void roundTripsThroughTheSidecarAndTheWav() throws Exception {
+        short[] samples = signal(100000);
+        SessionSpool spool = new SessionSpool(wav, SAMPLE_RATE);
+        ByteBuffer frame = ByteBuffer.allocateDirect(640).order(ByteOrder.LITTLE_ENDIAN);
+        for (int offset = 0; offset < samples.length; offset += 320) {
+            frame.clear();
+            for (int i = offset; i < Math.min(samples.length, offset + 320); i++) {
+                frame.putShort(samples[i]);
+            }
+            frame.flip();
+            spool.write(frame);
+        }
+        spool.close();
+        WaveformPyramid live = spool.getWaveform();
+        live.writeTo(peaks);
+        // 3 级约为音频的 1/128
+        assertTrue("sidecar " + peaks.length(), peaks.length() < samples.length * 2 / 100);
+
+        WaveformPyramid saved = WaveformPyramid.readFrom(peaks);
+        WaveformPyramid rebuilt = WaveformPyramid.fromWav(wav);
+        assertEquals(samples.length, saved.getSamples());
+        assertEquals(samples.length, rebuilt.getSamples());
+        assertEquals(6250, saved.getDurationMs());
+        for (int pixels : new int[] {1, 7, 100, 1000}) {
+            short[] expected = new short[pixels * 2];
+            short[] a = new short[pixels * 2];
+            short[] b = new short[pixels * 2];
+            live.getPeaks(0, samples.length, pixels, expected);
+            saved.getPeaks(0, samples.length, pixels, a);
+            rebuilt.getPeaks(0, samples.length, pixels, b);
+            assertArrayEquals(expected, a);
+            assertArrayEquals(expected, b);
+        }
+
+        // 结束后的写入被忽略
+        write(live, samples, 0, 1000, 100);
+        assertEquals(samples.length, live.getSamples());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void rejectsOtherFiles() throws Exception {
+        java.nio.file.Files.write(peaks.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        WaveformPyramid.readFrom(peaks);
+    }
+}
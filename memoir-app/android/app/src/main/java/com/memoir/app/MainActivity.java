@@ -6,12 +6,9 @@ import com.memoir.aliyunspeech.AliyunSpeechPlugin;
 public class MainActivity extends BridgeActivity {
     @Override
     public void onCreate(android.os.Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        
-        // 注册阿里云语音插件
+        // 注册阿里云语音插件，必须在 super.onCreate 之前，Bridge 在其中创建并加载已注册的插件
         registerPlugin(AliyunSpeechPlugin.class);
         
-        // 调试：检查插件是否注册成功
-        System.out.println("🔧 阿里云插件注册完成");
+        super.onCreate(savedInstanceState);
     }
 }
@@ -1,5 +1,6 @@
 package com.memoir.aliyunspeech;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
@@ -9,32 +10,38 @@ import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
 
 import android.Manifest;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.media.AudioFormat;
-import android.media.AudioRecord;
-import android.media.MediaRecorder;
-import android.os.Build;
-import androidx.core.app.ActivityCompat;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
 import androidx.core.content.ContextCompat;
 
-import java.util.concurrent.ExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-// 阿里云SDK导入
-import com.alibaba.idst.nui.CommonUtils;
-import com.alibaba.idst.nui.NativeNui;
-import com.alibaba.idst.nui.INativeNuiCallback;
-import com.alibaba.idst.nui.Constants;
-import com.alibaba.idst.nui.AudioState;
-import com.alibaba.idst.nui.NuiEvent;
-import com.alibaba.idst.nui.AsrResult;
-import com.alibaba.idst.nui.KwsResult;
-import com.alibaba.idst.nui.VadMode;
-import com.alibaba.idst.nui.Utils;
-
-import org.json.JSONObject;
+import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 
+/**
+ * Capacitor 插件：参数转换、权限与结果转发。录音与识别逻辑都在 SpeechEngine 中，
+ * 麦克风为 AudioRecordSource，识别服务为 NuiRecognizer。
+ */
 @CapacitorPlugin(
     name = "AliyunSpeech",
     permissions = {
@@ -44,12 +51,86 @@ import org.json.JSONException;
         )
     }
 )
-public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
+public class AliyunSpeechPlugin extends Plugin implements ResultSink {
+    
+    // 会话音频落盘目录（应用私有目录下）
+    private static final String SESSION_AUDIO_DIR = "speech-sessions";
+    private SpeechEngine engine;
+    // 麦克风设备，以探测到的原生输入格式录音并重采样
+    private AudioRecordSource.NativeInput microphone;
+    // 常驻初始化的识别服务，凭据不变时跨会话复用
+    private WarmRecognizer recognizer;
+    private boolean debuggable;
+    
+    // 并行识别：每个名称一个常驻初始化的 NativeNui 实例，参数不变时跨会话复用；
+    // 凭据变化时在各自的后台线程上重新初始化，不占用开始录音的线程
+    private static final int MAX_PARALLEL_RECOGNIZERS = 2;
+    private final Map<String, ParallelRecognizer> parallelRecognizers = new ConcurrentHashMap<>();
+    private final Map<String, String> parallelParams = new HashMap<>();
+    
+    // 唤醒词待命的本地检测，单独的 NativeNui 实例，第一次 arm 时创建
+    private NuiKeywordSpotter keywordSpotter;
+    
+    // getTranscript 每页的默认与最大句数
+    private static final int DEFAULT_TRANSCRIPT_PAGE = 50;
+    private static final int MAX_TRANSCRIPT_PAGE = 500;
+    // getWaveform 一次最多返回的列数
+    private static final int MAX_WAVEFORM_PIXELS = 10000;
+    
+    // 最近一次带过期时间的凭据，加密保存，下次启动时在 load() 中预先初始化
+    private CredentialStore credentialStore;
+    
+    // 令牌缓存：配置令牌来源后在后台提前刷新，startRecording 不等待网络；
+    // 凭据的读取与保存也在这个线程上执行
+    private TokenCache tokenCache;
+    private ScheduledExecutorService tokenExecutor;
+    private volatile boolean tokenSourceConfigured;
+    private volatile String tokenAppkey;
+    private volatile String tokenWorkspace;
+    
+    // 失败会话的重新识别队列，任务在单独的后台线程上执行
+    private static final String TRANSCRIPTION_QUEUE_DIR = "speech-queue";
+    private TranscriptionQueue transcriptionQueue;
+    private ScheduledExecutorService queueExecutor;
+    private ScheduledFuture<?> queueRun;
+    private ConnectivityManager.NetworkCallback networkCallback;
     
     @Override
     public void load() {
         super.load();
-        System.out.println("🔧 阿里云语音插件已加载");
+        debuggable = (getContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        recognizer = new WarmRecognizer(new NuiRecognizer(debuggable), Clock.SYSTEM);
+        recognizer.setListener((resultCode, timeToReadyMs) -> notifyListeners("onEngineReady", createEngineReadyEvent(resultCode, timeToReadyMs)));
+        microphone = AudioRecordSource.createNative();
+        engine = new SpeechEngine(recognizer, microphone, this,
+            new File(getContext().getFilesDir(), SESSION_AUDIO_DIR), new AudioThreadFactory());
+        // 唤醒词待命的 CPU 占用按进程 CPU 时间统计
+        engine.setCpuClock(android.os.Process::getElapsedCpuTime);
+        
+        tokenExecutor = Executors.newSingleThreadScheduledExecutor();
+        credentialStore = new EncryptedCredentialStore(getContext());
+        tokenExecutor.execute(this::restoreCredentials);
+        tokenCache = new TokenCache(Clock.SYSTEM, tokenExecutor);
+        tokenCache.setListener(new TokenCache.Listener() {
+            @Override
+            public void onTokenRefreshed(SpeechToken token) {
+                applyToken(token);
+            }
+            
+            @Override
+            public void onRefreshFailed(IOException error, int failures) {
+                if (tokenCache.getToken() == null) {
+                    notifyListeners("onError", createError("TOKEN_REFRESH_FAILED", "获取语音识别令牌失败: " + error.getMessage()));
+                }
+            }
+        });
+        
+        queueExecutor = Executors.newSingleThreadScheduledExecutor();
+        transcriptionQueue = new TranscriptionQueue(new File(getContext().getFilesDir(), TRANSCRIPTION_QUEUE_DIR), Clock.SYSTEM);
+        transcriptionQueue.setListener((job, pendingCount) -> notifyListeners("onTranscriptionProgress", createJobObject(job, pendingCount)));
+        // 队列中的会话等待重新识别，清理旧会话时保留其音频
+        engine.getRetention().setRetainer(id -> transcriptionQueue.get(id) != null);
+        registerNetworkCallback();
     }
     
     @PluginMethod
@@ -60,27 +141,6 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
         call.resolve(result);
     }
     
-    private static final int REQUEST_RECORD_AUDIO_PERMISSION = 200;
-    private AudioRecord audioRecord;
-    private boolean isRecording = false;
-    private ExecutorService executorService;
-    private int sampleRate = 16000;
-    private int channelConfig = AudioFormat.CHANNEL_IN_MONO;
-    private int audioFormat = AudioFormat.ENCODING_PCM_16BIT;
-    private int bufferSize;
-    
-    // 阿里云SDK相关
-    private NativeNui nuiInstance;
-    private String appkey;
-    private String token;
-    private String workspace;
-    
-    @Override
-    public void load() {
-        super.load();
-        executorService = Executors.newSingleThreadExecutor();
-    }
-    
     @PluginMethod
     public void initialize(PluginCall call) {
         try {
@@ -93,22 +153,16 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
                 return;
             }
             
-            this.appkey = appkey;
-            this.token = token;
-            this.workspace = workspace;
-            
-            // 初始化阿里云SDK
-            nuiInstance = new NativeNui();
-            
-            // 生成初始化参数
-            String initParams = generateInitParams(workspace);
-            
-            // 初始化SDK
-            int ret = nuiInstance.initialize(this, initParams, Constants.LogLevel.LOG_LEVEL_VERBOSE, true);
+            // 凭据与已初始化的相同时直接复用，否则在后台重新初始化，完成后发出 onEngineReady
+            int ret = engine.initialize(appkey, token, workspace);
             
             if (ret == 0) {
+                prepareParallel(appkey, token, workspace);
+                // 只有给出过期时间的令牌才保存，否则下次启动可能用已过期的令牌初始化
+                saveCredentials(appkey, token, workspace, call.getLong("expiresAt", 0L));
                 JSObject result = new JSObject();
                 result.put("success", true);
+                result.put("ready", recognizer.isReady());
                 call.resolve(result);
             } else {
                 call.reject("SDK初始化失败，错误码: " + ret);
@@ -119,14 +173,42 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
         }
     }
     
+    @PluginMethod
+    public void configureTokenSource(PluginCall call) {
+        String baseUrl = call.getString("baseUrl");
+        String workspace = call.getString("workspace");
+        if (baseUrl == null || baseUrl.isEmpty() || workspace == null) {
+            call.reject("缺少必要参数: baseUrl, workspace");
+            return;
+        }
+        
+        tokenAppkey = call.getString("appkey");
+        tokenWorkspace = workspace;
+        tokenSourceConfigured = true;
+        tokenCache.setFetcher(new BackendTokenFetcher(baseUrl, call.getString("authToken")));
+        
+        // 已有未过期的令牌时直接可用，否则在后台获取，完成后发出 onTokenRefreshed
+        SpeechToken token = tokenCache.getToken();
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("hasToken", token != null);
+        call.resolve(result);
+    }
+    
     @PluginMethod
     public void startRecording(PluginCall call) {
-        if (isRecording) {
+        if (engine.isRecording()) {
             call.reject("已经在录音中");
             return;
         }
         
-        if (nuiInstance == null) {
+        // 只读取缓存，令牌临近过期时 TokenCache 会在后台刷新
+        if (tokenSourceConfigured && tokenCache.getToken() == null) {
+            call.reject("语音识别令牌不可用，正在后台获取");
+            return;
+        }
+        
+        if (!engine.isInitialized()) {
             call.reject("SDK未初始化，请先调用initialize方法");
             return;
         }
@@ -136,18 +218,21 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
             return;
         }
         
+        SpeechEngine.SessionOptions options;
         try {
-            // 设置识别参数
-            String params = generateRecognitionParams();
-            nuiInstance.setParams(params);
-            
-            // 开始识别
-            int ret = nuiInstance.startDialog(VadMode.TYPE_P2T, generateDialogParams());
+            options = createSessionOptions(call);
+        } catch (IllegalArgumentException | JSONException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        
+        try {
+            int ret = engine.start(options);
             
             if (ret == 0) {
-                isRecording = true;
                 JSObject result = new JSObject();
                 result.put("success", true);
+                result.put("sessionId", engine.getSessionId());
                 call.resolve(result);
             } else {
                 call.reject("开始识别失败，错误码: " + ret);
@@ -160,16 +245,13 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
     
     @PluginMethod
     public void stopRecording(PluginCall call) {
-        if (!isRecording) {
+        if (!engine.isRecording()) {
             call.reject("当前没有在录音");
             return;
         }
         
         try {
-            if (nuiInstance != null) {
-                nuiInstance.stopDialog();
-            }
-            isRecording = false;
+            engine.stop();
             
             JSObject result = new JSObject();
             result.put("success", true);
@@ -180,6 +262,300 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
         }
     }
     
+    @PluginMethod
+    public void arm(PluginCall call) {
+        if (!hasPermission(Manifest.permission.RECORD_AUDIO)) {
+            requestPermissionForAlias("microphone", call, "recordAudioPermissionCallback");
+            return;
+        }
+        
+        int preRollMs = call.getInt("preRollMs", SpeechEngine.DEFAULT_PRE_ROLL_MS);
+        JSObject wakeWord = call.getObject("wakeWord");
+        try {
+            if (wakeWord == null) {
+                engine.arm(preRollMs);
+            } else {
+                // 唤醒词待命：检测到唤醒词后按 wakeWord 中的录音参数开始会话
+                if (!engine.isInitialized()) {
+                    call.reject("SDK未初始化，请先调用initialize方法");
+                    return;
+                }
+                String workspace = wakeWord.getString("workspace", engine.getWorkspace());
+                if (workspace == null) {
+                    call.reject("缺少必要参数: workspace");
+                    return;
+                }
+                if (keywordSpotter == null) {
+                    keywordSpotter = new NuiKeywordSpotter(debuggable);
+                }
+                keywordSpotter.configure(engine.getAppkey(), engine.getToken(), workspace);
+                int ret = engine.armKeyword(preRollMs, keywordSpotter, createSessionOptions(wakeWord));
+                if (ret != 0) {
+                    call.reject("唤醒词检测启动失败，错误码: " + ret);
+                    return;
+                }
+            }
+        } catch (IllegalArgumentException | JSONException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("preRollMs", preRollMs);
+        result.put("wakeWord", wakeWord != null);
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void disarm(PluginCall call) {
+        engine.disarm();
+        
+        JSObject result = new JSObject();
+        result.put("success", true);
+        KeywordArming arming = engine.getKeywordArming();
+        if (arming != null) {
+            result.put("armed", arming.toJson(new JSObject()));
+        }
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void getArmedStats(PluginCall call) {
+        KeywordArming arming = engine.getKeywordArming();
+        if (arming == null) {
+            call.reject("没有唤醒词待命的记录");
+            return;
+        }
+        call.resolve(arming.toJson(new JSObject()));
+    }
+    
+    @PluginMethod
+    public void getSessionAudio(PluginCall call) {
+        String id = call.getString("sessionId");
+        if (id == null || !id.matches("[A-Za-z0-9_-]+")) {
+            call.reject("无效的 sessionId");
+            return;
+        }
+        
+        File file = engine.getSessionAudioFile(id);
+        if (!file.isFile()) {
+            call.reject("找不到会话音频: " + id);
+            return;
+        }
+        
+        SessionSpool spool = engine.getActiveSpool(id);
+        boolean inProgress = spool != null;
+        int sampleRate = engine.getSampleRate();
+        long dataBytes = inProgress ? spool.getDataBytes() : Math.max(0, file.length() - SessionSpool.HEADER_BYTES);
+        
+        JSObject result = new JSObject();
+        result.put("sessionId", id);
+        result.put("path", file.getAbsolutePath());
+        result.put("bytes", dataBytes);
+        result.put("durationMs", dataBytes * 1000 / ((long) sampleRate * PcmRingBuffer.BYTES_PER_SAMPLE));
+        result.put("sampleRate", sampleRate);
+        result.put("complete", !inProgress);
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void deleteSessionAudio(PluginCall call) {
+        String id = call.getString("sessionId");
+        if (id == null || !id.matches("[A-Za-z0-9_-]+")) {
+            call.reject("无效的 sessionId");
+            return;
+        }
+        
+        try {
+            JSObject result = new JSObject();
+            result.put("success", engine.deleteSessionAudio(id));
+            call.resolve(result);
+        } catch (IllegalStateException e) {
+            call.reject(e.getMessage());
+        }
+    }
+    
+    @PluginMethod
+    public void configureSessionRetention(PluginCall call) {
+        SessionRetention retention = engine.getRetention();
+        retention.setLimits(call.getLong("maxBytes", retention.getMaxBytes()),
+            call.getLong("maxAgeMs", retention.getMaxAgeMs()));
+        // 立即按新的上限清理一次，之后每次会话开始前清理
+        int removed = retention.prune(engine.isRecording() ? engine.getSessionId() : null);
+        
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("removed", removed);
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void findSentence(PluginCall call) {
+        String id = call.getString("sessionId");
+        if (id == null || !id.matches("[A-Za-z0-9_-]+")) {
+            call.reject("无效的 sessionId");
+            return;
+        }
+        Long offsetMs = call.getLong("offsetMs");
+        if (offsetMs == null) {
+            call.reject("缺少必要参数: offsetMs");
+            return;
+        }
+        
+        SentenceIndex index;
+        try {
+            index = engine.getSentenceIndex(id);
+        } catch (IOException e) {
+            call.reject("读取句子索引失败: " + e.getMessage());
+            return;
+        }
+        if (index == null) {
+            call.reject("找不到句子索引: " + id);
+            return;
+        }
+        
+        long bytesPerMs = (long) engine.getSampleRate() * PcmRingBuffer.BYTES_PER_SAMPLE / 1000;
+        int i = index.find(Math.max(0, offsetMs) * bytesPerMs);
+        JSObject result = new JSObject();
+        result.put("sessionId", id);
+        result.put("count", index.size());
+        result.put("index", i);
+        if (i >= 0) {
+            long begin = index.getBegin(i);
+            result.put("beginOffsetMs", begin / bytesPerMs);
+            result.put("endOffsetMs", index.getEnd(i) / bytesPerMs);
+            // 在 WAV 文件中的字节位置，可以直接定位播放
+            result.put("byteOffset", SessionSpool.HEADER_BYTES + begin);
+        }
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void getWaveform(PluginCall call) {
+        String id = call.getString("sessionId");
+        if (id == null || !id.matches("[A-Za-z0-9_-]+")) {
+            call.reject("无效的 sessionId");
+            return;
+        }
+        Integer pixels = call.getInt("pixels");
+        if (pixels == null) {
+            call.reject("缺少必要参数: pixels");
+            return;
+        }
+        if (pixels <= 0 || pixels > MAX_WAVEFORM_PIXELS) {
+            call.reject("pixels 应在 1 到 " + MAX_WAVEFORM_PIXELS + " 之间");
+            return;
+        }
+        
+        WaveformPyramid waveform;
+        try {
+            waveform = engine.getWaveform(id);
+        } catch (IOException e) {
+            call.reject("读取波形失败: " + e.getMessage());
+            return;
+        }
+        if (waveform == null) {
+            call.reject("找不到会话音频: " + id);
+            return;
+        }
+        
+        long durationMs = waveform.getDurationMs();
+        long fromMs = Math.max(0, call.getLong("fromMs", 0L));
+        long toMs = Math.max(fromMs, call.getLong("toMs", durationMs));
+        long sampleRate = waveform.getSampleRate();
+        short[] peaks = new short[pixels * 2];
+        waveform.getPeaks(fromMs * sampleRate / 1000, toMs * sampleRate / 1000, pixels, peaks);
+        
+        JSObject result = new JSObject();
+        result.put("sessionId", id);
+        result.put("durationMs", durationMs);
+        result.put("fromMs", fromMs);
+        result.put("toMs", toMs);
+        result.put("pixels", pixels);
+        result.put("complete", engine.getActiveSpool(id) == null);
+        result.put("peaks", SpeechParams.int16Base64(peaks, peaks.length));
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void getTranscript(PluginCall call) {
+        String id = call.getString("sessionId");
+        if (id == null || !id.matches("[A-Za-z0-9_-]+")) {
+            call.reject("无效的 sessionId");
+            return;
+        }
+        
+        // name 为并行识别的名称，省略时为主对话的文本
+        String name = call.getString("name");
+        Transcript transcript = name == null ? engine.getTranscript(id) : engine.getTranscript(id, name);
+        if (transcript == null) {
+            call.reject("找不到会话文本: " + id);
+            return;
+        }
+        
+        int count = Math.max(0, Math.min(call.getInt("count", DEFAULT_TRANSCRIPT_PAGE), MAX_TRANSCRIPT_PAGE));
+        JSObject result = transcript.toJson(new JSObject(), call.getInt("from", 0), count);
+        result.put("sessionId", id);
+        SpeechParams.putConfidence(result, "meanConfidence", transcript.getMeanConfidence());
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void configureTranscriptionQueue(PluginCall call) {
+        String baseUrl = call.getString("baseUrl");
+        if (baseUrl == null || baseUrl.isEmpty()) {
+            call.reject("缺少必要参数: baseUrl");
+            return;
+        }
+        
+        transcriptionQueue.setTranscriber(new BackendTranscriber(baseUrl, call.getString("authToken")));
+        transcriptionQueue.setBatchSize(call.getInt("batchSize", TranscriptionQueue.DEFAULT_BATCH_SIZE));
+        scheduleQueueRun(0);
+        
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("pending", transcriptionQueue.getPendingCount());
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void getTranscriptionQueue(PluginCall call) {
+        JSArray jobs = new JSArray();
+        for (TranscriptionJob job : transcriptionQueue.getJobs()) {
+            jobs.put(createJobObject(job, -1));
+        }
+        
+        JSObject result = new JSObject();
+        result.put("jobs", jobs);
+        result.put("pending", transcriptionQueue.getPendingCount());
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void retryTranscriptions(PluginCall call) {
+        transcriptionQueue.retryAll();
+        scheduleQueueRun(0);
+        
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("pending", transcriptionQueue.getPendingCount());
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void removeTranscription(PluginCall call) {
+        String id = call.getString("sessionId");
+        if (id == null) {
+            call.reject("缺少必要参数: sessionId");
+            return;
+        }
+        
+        JSObject result = new JSObject();
+        result.put("success", transcriptionQueue.remove(id));
+        call.resolve(result);
+    }
+    
     @PluginMethod
     public void checkPermission(PluginCall call) {
         boolean granted = hasPermission(Manifest.permission.RECORD_AUDIO);
@@ -204,6 +580,50 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
         }
     }
     
+    @PluginMethod
+    public void getAudioStats(PluginCall call) {
+        PcmRingBuffer ringBuffer = engine.getRingBuffer();
+        AudioPipeline audioPipeline = engine.getPipeline();
+        PartialResultDispatcher partialDispatcher = engine.getPartialDispatcher();
+        JSObject result = new JSObject();
+        result.put("overrunCount", ringBuffer.getOverrunCount());
+        result.put("overrunBytes", ringBuffer.getOverrunBytes());
+        result.put("underrunCount", ringBuffer.getUnderrunCount());
+        result.put("bufferedBytes", ringBuffer.available());
+        result.put("capacityBytes", ringBuffer.capacity());
+        result.put("state", engine.getState().name());
+        result.put("framesCaptured", audioPipeline.getFramesCaptured());
+        result.put("droppedFrames", audioPipeline.getDroppedFrames());
+        result.put("captureSampleRate", microphone.getNativeRate());
+        result.put("captureChannels", microphone.getChannels());
+        VadGate gate = audioPipeline.getVadGate();
+        if (gate != null) {
+            result.put("vadPassedFrames", gate.getPassedFrames());
+            result.put("vadHeldFrames", gate.getHeldFrames());
+        }
+        result.put("partialsSubmitted", partialDispatcher.getSubmittedPartials());
+        result.put("partialsDelivered", partialDispatcher.getDeliveredPartials());
+        result.put("partialsCoalesced", partialDispatcher.getCoalescedPartials());
+        result.put("deliveriesPerSecond", partialDispatcher.getDeliveriesPerSecond());
+        result.put("engineReady", recognizer.isReady());
+        result.put("timeToReadyMs", recognizer.getTimeToReadyMs());
+        result.put("engineInitializations", recognizer.getInitializations());
+        result.put("engineReuses", recognizer.getReuses());
+        SpeechToken token = tokenCache.getToken();
+        if (token != null) {
+            result.put("tokenExpiresAt", token.expiresAt);
+        }
+        result.put("tokenRefreshes", tokenCache.getRefreshCount());
+        call.resolve(result);
+    }
+    
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        JSObject result = engine.getMetrics().toJson(new JSObject());
+        result.put("sessionId", engine.getSessionId());
+        call.resolve(result);
+    }
+    
     @PermissionCallback
     private void recordAudioPermissionCallback(PluginCall call) {
         if (hasPermission(Manifest.permission.RECORD_AUDIO)) {
@@ -221,74 +641,229 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
         }
     }
     
-    private void startAudioRecording() {
+    private void enqueueTranscription(String id, File audio, AudioCodec codec) {
         try {
-            bufferSize = AudioRecord.getMinBufferSize(sampleRate, channelConfig, audioFormat);
-            audioRecord = new AudioRecord(
-                MediaRecorder.AudioSource.MIC,
-                sampleRate,
-                channelConfig,
-                audioFormat,
-                bufferSize
-            );
-            
-            if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
-                notifyListeners("onError", createError("AUDIO_INIT_FAILED", "音频初始化失败"));
+            transcriptionQueue.enqueue(id, audio, "ASR_ERROR", codec);
+            scheduleQueueRun(0);
+        } catch (IOException e) {
+            notifyListeners("onError", createError("QUEUE_FAILED", "加入重新识别队列失败: " + e.getMessage()));
+        }
+    }
+    
+    // 在队列线程上处理一批任务，然后按最早到期的任务安排下一次执行
+    private synchronized void scheduleQueueRun(long delayMs) {
+        if (queueExecutor == null || queueExecutor.isShutdown()) {
+            return;
+        }
+        if (queueRun != null && !queueRun.isDone()) {
+            if (queueRun.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
                 return;
             }
-            
-            audioRecord.startRecording();
-            isRecording = true;
-            
-            // 开始录音线程
-            executorService.execute(() -> {
-                byte[] buffer = new byte[bufferSize];
-                while (isRecording && audioRecord != null) {
-                    int bytesRead = audioRecord.read(buffer, 0, bufferSize);
-                    if (bytesRead > 0) {
-                        // 这里应该调用阿里云SDK进行识别
-                        // 模拟识别结果
-                        simulateRecognitionResult();
-                    }
-                }
-            });
-            
-        } catch (Exception e) {
-            notifyListeners("onError", createError("RECORDING_FAILED", "录音失败: " + e.getMessage()));
+            queueRun.cancel(false);
         }
+        queueRun = queueExecutor.schedule(this::runQueueBatch, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
     }
     
-    private void stopAudioRecording() {
-        isRecording = false;
-        
-        if (audioRecord != null) {
+    private void runQueueBatch() {
+        synchronized (this) {
+            queueRun = null;
+        }
+        while (transcriptionQueue.runBatch() > 0) {
+            // 连续处理到没有到期任务为止
+        }
+        long next = transcriptionQueue.nextDueAt();
+        if (next >= 0) {
+            scheduleQueueRun(next - System.currentTimeMillis());
+        }
+    }
+    
+    // 网络恢复时让退避中的任务立即重试
+    private void registerNetworkCallback() {
+        ConnectivityManager connectivity = (ConnectivityManager) getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return;
+        }
+        networkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                transcriptionQueue.expediteBackoff();
+                scheduleQueueRun(0);
+            }
+        };
+        NetworkRequest request = new NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build();
+        try {
+            connectivity.registerNetworkCallback(request, networkCallback);
+        } catch (RuntimeException e) {
+            networkCallback = null;
+        }
+    }
+    
+    private void unregisterNetworkCallback() {
+        if (networkCallback == null) {
+            return;
+        }
+        ConnectivityManager connectivity = (ConnectivityManager) getContext().getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity != null) {
             try {
-                audioRecord.stop();
-                audioRecord.release();
-                audioRecord = null;
-            } catch (Exception e) {
-                notifyListeners("onError", createError("STOP_RECORDING_FAILED", "停止录音失败: " + e.getMessage()));
+                connectivity.unregisterNetworkCallback(networkCallback);
+            } catch (RuntimeException e) {
+                // 已经注销
             }
         }
+        networkCallback = null;
     }
     
-    private void simulateRecognitionResult() {
-        // 模拟识别结果，实际应该调用阿里云SDK
-        // 这里只是演示如何发送结果到前端
-        
-        // 模拟中间结果
-        JSObject partialResult = new JSObject();
-        partialResult.put("text", "模拟识别结果");
-        partialResult.put("confidence", 0.95);
-        notifyListeners("onPartialResult", partialResult);
+    // 在 tokenExecutor 上执行：用上次保存且未过期的凭据预先初始化，前端已经先调用了 initialize 时跳过
+    private void restoreCredentials() {
+        CredentialStore.Credentials saved = credentialStore.load(System.currentTimeMillis());
+        if (saved != null && !engine.isInitialized()) {
+            engine.initialize(saved.appkey, saved.token, saved.workspace);
+            prepareParallel(saved.appkey, saved.token, saved.workspace);
+        }
+    }
+    
+    // 凭据交给已配置的各路并行识别，只登记后立即返回，初始化在后台进行
+    private void prepareParallel(String appkey, String token, String workspace) {
+        for (ParallelRecognizer parallel : parallelRecognizers.values()) {
+            parallel.initialize(appkey, token, workspace);
+        }
+    }
+    
+    // expiresAt 不大于 0（过期时间未知）时清除已保存的凭据
+    private void saveCredentials(String appkey, String token, String workspace, long expiresAt) {
+        tokenExecutor.execute(() -> credentialStore.save(appkey, token, workspace, expiresAt));
+    }
+    
+    // 新令牌交给常驻的识别服务，在后台重新初始化（对话中则等对话结束）
+    private void applyToken(SpeechToken token) {
+        String appkey = token.appKey != null ? token.appKey : tokenAppkey;
+        String workspace = tokenWorkspace;
+        if (appkey == null || workspace == null) {
+            notifyListeners("onError", createError("TOKEN_REFRESH_FAILED", "令牌响应缺少 appKey"));
+            return;
+        }
+        engine.initialize(appkey, token.token, workspace);
+        prepareParallel(appkey, token.token, workspace);
+        saveCredentials(appkey, token.token, workspace, token.expiresAt);
         
-        // 模拟最终结果
-        JSObject finalResult = new JSObject();
-        finalResult.put("text", "模拟最终识别结果");
-        finalResult.put("confidence", 0.98);
-        finalResult.put("beginTime", System.currentTimeMillis());
-        finalResult.put("endTime", System.currentTimeMillis() + 1000);
-        notifyListeners("onFinalResult", finalResult);
+        JSObject event = new JSObject();
+        event.put("expiresAt", token.expiresAt);
+        notifyListeners("onTokenRefreshed", event);
+    }
+    
+    private JSObject createEngineReadyEvent(int resultCode, long timeToReadyMs) {
+        JSObject event = new JSObject();
+        event.put("success", resultCode == 0);
+        event.put("code", resultCode);
+        event.put("timeToReadyMs", timeToReadyMs);
+        return event;
+    }
+    
+    private JSObject createJobObject(TranscriptionJob job, int pendingCount) {
+        JSObject object = new JSObject();
+        object.put("sessionId", job.sessionId);
+        object.put("status", job.getStatus().name());
+        object.put("attempts", job.getAttempts());
+        object.put("nextAttemptAt", job.getNextAttemptAt());
+        if (job.getTranscript() != null) {
+            object.put("transcript", job.getTranscript());
+        }
+        if (job.getLastError() != null) {
+            object.put("error", job.getLastError());
+        }
+        if (pendingCount >= 0) {
+            object.put("pending", pendingCount);
+        }
+        return object;
+    }
+    
+    private VadGate createVadGate(JSObject options) {
+        if (options == null) {
+            return null;
+        }
+        VadGate.Mode mode;
+        try {
+            mode = VadGate.Mode.valueOf(options.getString("mode", "off").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            mode = VadGate.Mode.OFF;
+        }
+        if (mode == VadGate.Mode.OFF) {
+            return null;
+        }
+        double thresholdDb = options.optDouble("thresholdDb", EnergyVad.DEFAULT_THRESHOLD_DB);
+        int attackMs = options.getInteger("attackMs", VadGate.DEFAULT_ATTACK_MS);
+        int hangoverMs = options.getInteger("hangoverMs", VadGate.DEFAULT_HANGOVER_MS);
+        return new VadGate(new EnergyVad((float) thresholdDb), mode, attackMs, hangoverMs);
+    }
+    
+    // startRecording 与唤醒词待命共用的会话参数，options 为 PluginCall 的参数或 arm 的 wakeWord
+    private SpeechEngine.SessionOptions createSessionOptions(PluginCall call) throws JSONException {
+        return createSessionOptions(call.getData());
+    }
+    
+    private SpeechEngine.SessionOptions createSessionOptions(JSObject options) throws JSONException {
+        return new SpeechEngine.SessionOptions()
+            .codec(AudioCodec.fromFormat(options.getString("format")))
+            .preRollMs(options.getInteger("preRollMs", 0))
+            .partialIntervalMs(options.getInteger("partialIntervalMs", PartialResultDispatcher.DEFAULT_INTERVAL_MS))
+            // 本地语音门限，默认关闭
+            .vadGate(createVadGate(options.getJSObject("vad")))
+            .metricsIntervalMs(options.getInteger("metricsIntervalMs", SpeechEngine.DEFAULT_METRICS_INTERVAL_MS))
+            .segmentMs(options.getInteger("segmentMs", 0))
+            .backpressure(BackpressurePolicy.fromName(options.getString("backpressure")))
+            .transcriptPatches(options.getBoolean("transcriptPatches", false))
+            // 录音界面的电平表，默认关闭
+            .levelIntervalMs(options.getInteger("levelIntervalMs", 0))
+            // 同一段音频的其他识别参数，默认没有
+            .parallel(createParallel(options.optJSONArray("parallel")));
+    }
+    
+    // 并行识别的配置：[{ name, params }]，params 覆盖 nls_config 的默认值
+    private List<ParallelRecognizer> createParallel(JSONArray configs) throws JSONException {
+        if (configs == null || configs.length() == 0) {
+            return Collections.emptyList();
+        }
+        if (configs.length() > MAX_PARALLEL_RECOGNIZERS) {
+            throw new IllegalArgumentException("并行识别最多 " + MAX_PARALLEL_RECOGNIZERS + " 路");
+        }
+        List<ParallelRecognizer> result = new ArrayList<>();
+        for (int i = 0; i < configs.length(); i++) {
+            JSONObject config = configs.getJSONObject(i);
+            String name = config.optString("name", "");
+            if (!name.matches("[A-Za-z0-9_-]+")) {
+                throw new IllegalArgumentException("无效的并行识别名称: " + name);
+            }
+            JSONObject params = config.optJSONObject("params");
+            String key = params != null ? params.toString() : "";
+            ParallelRecognizer recognizer = parallelRecognizers.get(name);
+            if (recognizer != null && result.contains(recognizer)) {
+                throw new IllegalArgumentException("并行识别名称重复: " + name);
+            }
+            if (recognizer == null || !key.equals(parallelParams.get(name))) {
+                if (recognizer != null) {
+                    recognizer.release();
+                }
+                recognizer = new ParallelRecognizer(name,
+                    new WarmRecognizer(new NuiRecognizer(debuggable, params), Clock.SYSTEM));
+                parallelRecognizers.put(name, recognizer);
+                parallelParams.put(name, key);
+                // 配置时就开始在后台初始化，不等到会话开始
+                if (engine.isInitialized()) {
+                    recognizer.initialize(engine.getAppkey(), engine.getToken(), engine.getWorkspace());
+                }
+            }
+            result.add(recognizer);
+        }
+        return result;
+    }
+    
+    private JSObject createSpeechEvent(long frameIndex) {
+        JSObject event = new JSObject();
+        event.put("frameIndex", frameIndex);
+        event.put("offsetMs", frameIndex * AudioPipeline.FRAME_MS);
+        return event;
     }
     
     private JSObject createError(String code, String message) {
@@ -302,123 +877,130 @@ public class AliyunSpeechPlugin extends Plugin implements INativeNuiCallback {
         return ContextCompat.checkSelfPermission(getContext(), permission) == PackageManager.PERMISSION_GRANTED;
     }
     
-    // 生成初始化参数
-    private String generateInitParams(String workspace) {
-        try {
-            JSONObject object = new JSONObject();
-            object.put("appkey", appkey);
-            object.put("token", token);
-            object.put("device_id", Utils.getDeviceId());
-            object.put("url", "wss://nls-gateway.cn-shanghai.aliyuncs.com:443/ws/v1");
-            object.put("workspace", workspace);
-            object.put("service_mode", Constants.ModeFullCloud);
-            return object.toString();
-        } catch (JSONException e) {
-            return "{}";
-        }
+    // SpeechEngine 的结果，转发给前端
+    @Override
+    public void onPartialResult(int keep, String delta, int length, double confidence) {
+        notifyListeners("onPartialResult", SpeechParams.partialResult(new JSObject(), keep, delta, length, confidence));
     }
     
-    // 生成识别参数
-    private String generateRecognitionParams() {
-        try {
-            JSONObject nlsConfig = new JSONObject();
-            nlsConfig.put("enable_intermediate_result", true);
-            nlsConfig.put("enable_punctuation_prediction", true);
-            nlsConfig.put("enable_inverse_text_normalization", true);
-            
-            JSONObject parameters = new JSONObject();
-            parameters.put("nls_config", nlsConfig);
-            parameters.put("service_type", Constants.kServiceTypeSpeechTranscriber);
-            
-            return parameters.toString();
-        } catch (JSONException e) {
-            return "{}";
-        }
+    @Override
+    public void onFinalResult(String text, double confidence, long sdkIndex, SentenceTiming timing) {
+        notifyListeners("onFinalResult", SpeechParams.finalResult(new JSObject(), text, confidence, sdkIndex, timing));
     }
     
-    // 生成对话参数
-    private String generateDialogParams() {
-        try {
-            JSONObject dialogParam = new JSONObject();
-            dialogParam.put("token", token);
-            return dialogParam.toString();
-        } catch (JSONException e) {
-            return "{}";
-        }
+    @Override
+    public void onTranscriptPatch(String sessionId, TranscriptPatch patch) {
+        JSObject event = SpeechParams.transcriptPatch(new JSObject(), patch);
+        event.put("sessionId", sessionId);
+        notifyListeners("onTranscriptPatch", event);
     }
     
-    // 阿里云SDK回调方法
     @Override
-    public void onNuiAudioStateChanged(AudioState state) {
-        if (state == AudioState.STATE_OPEN) {
-            startAudioRecording();
-        } else if (state == AudioState.STATE_CLOSE) {
-            stopAudioRecording();
-        }
+    public void onLevels(String sessionId, short[] levels, int windows, int windowMs) {
+        JSObject event = new JSObject();
+        event.put("sessionId", sessionId);
+        event.put("windowMs", windowMs);
+        event.put("windows", windows);
+        event.put("levels", SpeechParams.int16Base64(levels, windows * LevelMeter.VALUES_PER_WINDOW));
+        notifyListeners("onLevels", event);
     }
     
     @Override
-    public int onNuiNeedAudioData(byte[] buffer, int len) {
-        if (audioRecord != null && audioRecord.getState() == AudioRecord.STATE_INITIALIZED) {
-            return audioRecord.read(buffer, 0, len);
-        }
-        return 0;
+    public void onSpeechStart(long frameIndex) {
+        notifyListeners("onSpeechStart", createSpeechEvent(frameIndex));
     }
     
     @Override
-    public void onNuiEventCallback(NuiEvent event, int resultCode, int arg2, KwsResult kwsResult, AsrResult asrResult) {
-        switch (event) {
-            case EVENT_ASR_PARTIAL_RESULT:
-                // 中间识别结果
-                if (asrResult != null && asrResult.asrResult != null) {
-                    JSObject partialResult = new JSObject();
-                    partialResult.put("text", asrResult.asrResult);
-                    partialResult.put("confidence", 0.95);
-                    notifyListeners("onPartialResult", partialResult);
-                }
-                break;
-            case EVENT_SENTENCE_END:
-                // 完整识别结果
-                if (asrResult != null && asrResult.asrResult != null) {
-                    JSObject finalResult = new JSObject();
-                    finalResult.put("text", asrResult.asrResult);
-                    finalResult.put("confidence", 0.98);
-                    finalResult.put("beginTime", System.currentTimeMillis());
-                    finalResult.put("endTime", System.currentTimeMillis() + 1000);
-                    notifyListeners("onFinalResult", finalResult);
-                }
-                break;
-            case EVENT_ASR_ERROR:
-                // 识别错误
-                JSObject error = new JSObject();
-                error.put("code", "ASR_ERROR");
-                error.put("message", "识别错误，错误码: " + resultCode);
-                notifyListeners("onError", error);
-                break;
-            case EVENT_MIC_ERROR:
-                // 麦克风错误
-                JSObject micError = new JSObject();
-                micError.put("code", "MIC_ERROR");
-                micError.put("message", "麦克风错误");
-                notifyListeners("onError", micError);
-                break;
+    public void onSpeechEnd(long frameIndex) {
+        notifyListeners("onSpeechEnd", createSpeechEvent(frameIndex));
+    }
+    
+    @Override
+    public void onError(String code, String message) {
+        notifyListeners("onError", createError(code, message));
+    }
+    
+    @Override
+    public void onMetrics(String sessionId, SpeechMetrics metrics) {
+        JSObject event = metrics.toJson(new JSObject());
+        event.put("sessionId", sessionId);
+        notifyListeners("onMetrics", event);
+    }
+    
+    @Override
+    public void onBackpressure(String sessionId, BackpressureBuffer.Level level, BackpressureBuffer buffer) {
+        JSObject event = buffer.toJson(new JSObject());
+        event.put("sessionId", sessionId);
+        event.put("level", level.name().toLowerCase());
+        event.put("streamFormat", engine.getStreamCodec().getStreamFormat());
+        notifyListeners("onBackpressure", event);
+    }
+    
+    @Override
+    public void onSegment(String sessionId, int index, long startOffsetMs, long endOffsetMs) {
+        JSObject event = new JSObject();
+        event.put("sessionId", sessionId);
+        event.put("index", index);
+        event.put("startOffsetMs", startOffsetMs);
+        event.put("endOffsetMs", endOffsetMs);
+        notifyListeners("onSegment", event);
+    }
+    
+    @Override
+    public void onParallelClosed(String sessionId, ParallelRecognizer recognizer) {
+        JSObject event = recognizer.toJson(new JSObject());
+        event.put("sessionId", sessionId);
+        notifyListeners("onParallelResult", event);
+    }
+    
+    @Override
+    public void onWakeWord(String sessionId, String keyword) {
+        JSObject event = new JSObject();
+        event.put("sessionId", sessionId);
+        event.put("keyword", keyword);
+        KeywordArming arming = engine.getKeywordArming();
+        if (arming != null) {
+            event.put("armed", arming.toJson(new JSObject()));
         }
+        notifyListeners("onWakeWord", event);
     }
     
     @Override
-    public void onNuiAudioRMSChanged(float val) {
-        // 音频能量值回调，可用于UI动效
+    public void onSessionClosed(String sessionId, File audio, long audioBytes, AudioCodec codec, boolean failed) {
+        // 识别出错的会话在音频保存后交给重新识别队列
+        if (failed && audio != null && audioBytes > 0) {
+            enqueueTranscription(sessionId, audio, codec);
+        }
     }
     
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
-        if (executorService != null) {
-            executorService.shutdown();
+        engine.release();
+        for (ParallelRecognizer parallel : parallelRecognizers.values()) {
+            parallel.release();
         }
-        if (nuiInstance != null) {
-            nuiInstance.release();
+        if (keywordSpotter != null) {
+            keywordSpotter.release();
+        }
+        unregisterNetworkCallback();
+        SpeechEngine.shutdownExecutor(queueExecutor);
+        tokenCache.stop();
+        SpeechEngine.shutdownExecutor(tokenExecutor);
+    }
+    
+    // 录音线程：以 URGENT_AUDIO 优先级运行，避免在负载下被调度出去
+    private static class AudioThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_URGENT_AUDIO);
+                runnable.run();
+            }, "AliyunSpeech-Audio-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
         }
-        stopAudioRecording();
     }
 }
@@ -0,0 +1,157 @@
+package com.memoir.aliyunspeech;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 麦克风：基于 AudioRecord 的 16bit 音频设备，声道由构造参数决定
+ */
+public class AudioRecordSource implements AudioSource.Device {
+
+    private static final int AUDIO_FORMAT = AudioFormat.ENCODING_PCM_16BIT;
+    // 内部缓冲至少容纳的帧数
+    private static final int BUFFER_FRAMES = 4;
+    // 依次探测的原生输入采样率，都不可用时直接以 16kHz 录音
+    private static final int[] INPUT_RATES = { 48000, 44100 };
+
+    private final int channelConfig;
+    private volatile AudioRecord audioRecord;
+
+    public AudioRecordSource() {
+        this(AudioFormat.CHANNEL_IN_MONO);
+    }
+
+    /**
+     * @param channelConfig AudioFormat.CHANNEL_IN_MONO 或 CHANNEL_IN_STEREO
+     */
+    public AudioRecordSource(int channelConfig) {
+        this.channelConfig = channelConfig;
+    }
+
+    /**
+     * 以设备原生输入采样率录音的麦克风，在录音线程上混音并重采样为 SpeechEngine 需要的格式，
+     * 避免音频 HAL 内部重采样带来的延迟或 16kHz 初始化失败。
+     * 按 INPUT_RATES 的顺序以 getMinBufferSize 探测输入格式（每个采样率先单声道后立体声），最后为 16kHz 单声道直接录音；
+     * getMinBufferSize 成功不代表 AudioRecord 一定能在该格式下初始化，失败时在 start 中依次改用下一个格式
+     */
+    public static NativeInput createNative() {
+        List<ResamplingSource> candidates = new ArrayList<>();
+        for (int rate : INPUT_RATES) {
+            if (AudioRecord.getMinBufferSize(rate, AudioFormat.CHANNEL_IN_MONO, AUDIO_FORMAT) > 0) {
+                candidates.add(new ResamplingSource(new AudioRecordSource(AudioFormat.CHANNEL_IN_MONO), rate, 1));
+            }
+            if (AudioRecord.getMinBufferSize(rate, AudioFormat.CHANNEL_IN_STEREO, AUDIO_FORMAT) > 0) {
+                candidates.add(new ResamplingSource(new AudioRecordSource(AudioFormat.CHANNEL_IN_STEREO), rate, 2));
+            }
+        }
+        // 与目标格式相同，ResamplingSource 直接转发
+        candidates.add(new ResamplingSource(new AudioRecordSource(), SpeechEngine.SAMPLE_RATE, 1));
+        return new NativeInput(candidates);
+    }
+
+    /**
+     * 按顺序尝试几种输入格式的麦克风：使用上次成功打开的格式，打开失败时依次改用之后的格式
+     */
+    public static class NativeInput implements AudioSource.Device {
+        private final List<ResamplingSource> candidates;
+        private volatile int active;
+
+        NativeInput(List<ResamplingSource> candidates) {
+            this.candidates = candidates;
+        }
+
+        @Override
+        public void start(int sampleRate, int frameBytes) throws IOException {
+            IOException failure = null;
+            for (int i = active; i < candidates.size(); i++) {
+                try {
+                    candidates.get(i).start(sampleRate, frameBytes);
+                    active = i;
+                    return;
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            // 都失败（例如没有录音权限）时下次仍从第一个格式开始
+            active = 0;
+            throw failure;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer, int sizeInBytes) {
+            return candidates.get(active).read(buffer, sizeInBytes);
+        }
+
+        @Override
+        public void stop() {
+            candidates.get(active).stop();
+        }
+
+        @Override
+        public void release() {
+            candidates.get(active).release();
+        }
+
+        /**
+         * @return 当前（或下次首先尝试的）输入格式的采样率
+         */
+        public int getNativeRate() {
+            return candidates.get(active).getNativeRate();
+        }
+
+        public int getChannels() {
+            return candidates.get(active).getChannels();
+        }
+    }
+
+    @Override
+    public void start(int sampleRate, int frameBytes) throws IOException {
+        // AudioRecord 内部缓冲至少容纳几帧，每次按一帧(20ms)读取
+        int minBufferSize = AudioRecord.getMinBufferSize(sampleRate, channelConfig, AUDIO_FORMAT);
+        int bufferSize = Math.max(minBufferSize, frameBytes * BUFFER_FRAMES);
+        AudioRecord recorder;
+        try {
+            recorder = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate, channelConfig, AUDIO_FORMAT, bufferSize);
+        } catch (IllegalArgumentException | SecurityException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        if (recorder.getState() != AudioRecord.STATE_INITIALIZED) {
+            recorder.release();
+            throw new IOException("AudioRecord 初始化失败");
+        }
+        recorder.startRecording();
+        audioRecord = recorder;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer, int sizeInBytes) {
+        AudioRecord recorder = audioRecord;
+        if (recorder == null || recorder.getRecordingState() != AudioRecord.RECORDSTATE_RECORDING) {
+            return AudioRecord.ERROR_INVALID_OPERATION;
+        }
+        return recorder.read(buffer, sizeInBytes);
+    }
+
+    @Override
+    public void stop() {
+        AudioRecord recorder = audioRecord;
+        if (recorder != null) {
+            recorder.stop();
+        }
+    }
+
+    @Override
+    public void release() {
+        AudioRecord recorder = audioRecord;
+        audioRecord = null;
+        if (recorder != null) {
+            recorder.release();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.memoir.aliyunspeech;
+
+/**
+ * 上次使用的识别凭证，应用启动时用来预先初始化 SDK。
+ * 令牌连同真实的过期时间一起保存；过期时间未知的令牌不保存，已过期或即将过期的令牌不恢复。
+ * 实现可能访问 Keystore 等较慢的存储，应在后台线程调用。
+ */
+public interface CredentialStore {
+
+    // 剩余有效期不足时不恢复，初始化完成前令牌就会过期
+    long MIN_REMAINING_MS = 60 * 1000;
+
+    class Credentials {
+        public final String appkey;
+        public final String token;
+        public final String workspace;
+        public final long expiresAt;
+
+        public Credentials(String appkey, String token, String workspace, long expiresAt) {
+            this.appkey = appkey;
+            this.token = token;
+            this.workspace = workspace;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @return 剩余有效期不少于 MIN_REMAINING_MS 的凭证，没有时返回 null
+     */
+    Credentials load(long now);
+
+    /**
+     * @param expiresAt 令牌的过期时间（毫秒时间戳），不大于 0 表示未知，此时清除已保存的凭证
+     */
+    void save(String appkey, String token, String workspace, long expiresAt);
+}
@@ -0,0 +1,85 @@
+package com.memoir.aliyunspeech;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.security.crypto.EncryptedSharedPreferences;
+import androidx.security.crypto.MasterKey;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
+/**
+ * 以 EncryptedSharedPreferences 保存凭证的 CredentialStore，密钥由 Android Keystore 管理。
+ * 设备不支持加密存储时不保存，不退回明文。打开加密存储需要访问 Keystore，应在后台线程调用。
+ *
+ * androidx.security:security-crypto 只有 1.1.0 的 alpha 版本支持 minSdk 23 以下（1.0.0 要求 23），
+ * 本项目为 minSdk 22，因此依赖 alpha 版本。这里只用到 MasterKey 与 EncryptedSharedPreferences.create，
+ * 依赖都限制在这个类中，更换实现（例如直接使用 Keystore）不影响插件的其他部分。
+ */
+public class EncryptedCredentialStore implements CredentialStore {
+
+    private static final String PREFS_NAME = "aliyun_speech_credentials";
+    // 旧版本以明文保存凭证的文件，打开时清空
+    private static final String LEGACY_PREFS_NAME = "aliyun_speech";
+
+    private final Context context;
+    private SharedPreferences prefs;
+    private boolean opened;
+
+    public EncryptedCredentialStore(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public synchronized Credentials load(long now) {
+        SharedPreferences store = open();
+        if (store == null) {
+            return null;
+        }
+        String appkey = store.getString("appkey", null);
+        String token = store.getString("token", null);
+        String workspace = store.getString("workspace", null);
+        long expiresAt = store.getLong("expiresAt", 0);
+        if (appkey == null || token == null || workspace == null || expiresAt - now < MIN_REMAINING_MS) {
+            return null;
+        }
+        return new Credentials(appkey, token, workspace, expiresAt);
+    }
+
+    @Override
+    public synchronized void save(String appkey, String token, String workspace, long expiresAt) {
+        SharedPreferences store = open();
+        if (store == null) {
+            return;
+        }
+        if (expiresAt <= 0) {
+            store.edit().clear().apply();
+            return;
+        }
+        store.edit()
+            .putString("appkey", appkey)
+            .putString("token", token)
+            .putString("workspace", workspace)
+            .putLong("expiresAt", expiresAt)
+            .apply();
+    }
+
+    private SharedPreferences open() {
+        if (opened) {
+            return prefs;
+        }
+        opened = true;
+        context.getSharedPreferences(LEGACY_PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+        try {
+            MasterKey key = new MasterKey.Builder(context)
+                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                .build();
+            prefs = EncryptedSharedPreferences.create(context, PREFS_NAME, key,
+                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+        } catch (GeneralSecurityException | IOException e) {
+            // 部分设备的 Keystore 不可用，此时不保存凭证，启动后等待 initialize 或令牌刷新
+        }
+        return prefs;
+    }
+}
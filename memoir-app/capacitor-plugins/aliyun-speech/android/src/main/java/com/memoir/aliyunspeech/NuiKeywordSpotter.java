@@ -0,0 +1,161 @@
+package com.memoir.aliyunspeech;
+
+import com.alibaba.idst.nui.AsrResult;
+import com.alibaba.idst.nui.AudioState;
+import com.alibaba.idst.nui.Constants;
+import com.alibaba.idst.nui.INativeNuiCallback;
+import com.alibaba.idst.nui.KwsResult;
+import com.alibaba.idst.nui.NativeNui;
+import com.alibaba.idst.nui.NuiEvent;
+import com.alibaba.idst.nui.Utils;
+import com.alibaba.idst.nui.VadMode;
+
+import java.nio.ByteBuffer;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * 基于阿里云 NativeNui 本地唤醒（VadMode.TYPE_KWS）的 KeywordSpotter，唤醒词模型来自 workspace 中的资源。
+ * 单独创建一个 NativeNui 实例，不占用主对话的识别服务。录音线程送入的语音段写入一个小的环形缓冲区，
+ * SDK 在 onNuiNeedAudioData 中取数；没有语音时 SDK 线程阻塞等待，不轮询。
+ */
+public class NuiKeywordSpotter implements KeywordSpotter, INativeNuiCallback {
+
+    // 录音线程按 100ms 的块送入，SDK 取数稍慢时不丢失唤醒词
+    private static final int BUFFER_MS = 1000;
+
+    private final Constants.LogLevel logLevel;
+    private final boolean saveLog;
+    private final PcmRingBuffer buffer = PcmRingBuffer.forDuration(BUFFER_MS, SpeechEngine.SAMPLE_RATE);
+    private final Object dataLock = new Object();
+    private NativeNui nui;
+    private boolean nuiInitialized;
+    // 上次初始化使用的凭证，变化后下次 start 时重新初始化
+    private String credentials;
+    private String appkey;
+    private String token;
+    private String workspace;
+    private volatile Listener listener;
+    private volatile boolean running;
+
+    /**
+     * @param debug 调试包输出详细日志并保存日志文件，正式包只输出错误日志
+     */
+    public NuiKeywordSpotter(boolean debug) {
+        this.logLevel = debug ? Constants.LogLevel.LOG_LEVEL_VERBOSE : Constants.LogLevel.LOG_LEVEL_ERROR;
+        this.saveLog = debug;
+    }
+
+    /**
+     * 设置下次 start 使用的凭证与唤醒词模型所在的 workspace
+     */
+    public synchronized void configure(String appkey, String token, String workspace) {
+        this.appkey = appkey;
+        this.token = token;
+        this.workspace = workspace;
+    }
+
+    @Override
+    public synchronized int start(Listener listener) {
+        String key = appkey + '\n' + token + '\n' + workspace;
+        if (!key.equals(credentials)) {
+            if (nui == null) {
+                nui = new NativeNui();
+            } else if (nuiInitialized) {
+                nui.release();
+            }
+            String initParams = SpeechParams.initParams(appkey, token, Utils.getDeviceId(), workspace, Constants.ModeFullLocal);
+            int ret = nui.initialize(this, initParams, logLevel, saveLog);
+            nuiInitialized = ret == Recognizer.SUCCESS;
+            credentials = nuiInitialized ? key : null;
+            if (!nuiInitialized) {
+                return ret;
+            }
+        }
+        this.listener = listener;
+        buffer.clear();
+        running = true;
+        int ret = nui.startDialog(VadMode.TYPE_KWS, SpeechParams.dialogParams(token));
+        if (ret != Recognizer.SUCCESS) {
+            running = false;
+        }
+        return ret;
+    }
+
+    @Override
+    public void process(ByteBuffer frame) {
+        buffer.write(frame);
+        synchronized (dataLock) {
+            dataLock.notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        synchronized (dataLock) {
+            dataLock.notifyAll();
+        }
+        nui.stopDialog();
+    }
+
+    @Override
+    public synchronized void release() {
+        stop();
+        if (nuiInitialized) {
+            nui.release();
+            nuiInitialized = false;
+        }
+        credentials = null;
+    }
+
+    // 阿里云SDK回调方法
+    @Override
+    public void onNuiAudioStateChanged(AudioState state) {
+    }
+
+    @Override
+    public int onNuiNeedAudioData(byte[] data, int len) {
+        synchronized (dataLock) {
+            while (running && buffer.available() == 0) {
+                try {
+                    dataLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return 0;
+                }
+            }
+        }
+        return running ? buffer.read(data, 0, len) : 0;
+    }
+
+    @Override
+    public void onNuiEventCallback(NuiEvent event, int resultCode, int arg2, KwsResult kwsResult, AsrResult asrResult) {
+        if (event != NuiEvent.EVENT_WUW || kwsResult == null || kwsResult.kws == null) {
+            return;
+        }
+        String word = keywordOf(kwsResult.kws);
+        Listener l = listener;
+        if (running && l != null) {
+            l.onKeyword(word);
+        }
+    }
+
+    // kws 为 JSON，唤醒词在 word 字段中；无法解析时原样返回
+    private static String keywordOf(String kws) {
+        try {
+            String word = new JSONObject(kws).optString("word", null);
+            return word != null ? word : kws;
+        } catch (JSONException e) {
+            return kws;
+        }
+    }
+
+    @Override
+    public void onNuiAudioRMSChanged(float val) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.memoir.aliyunspeech;
+
+import com.alibaba.idst.nui.AsrResult;
+import com.alibaba.idst.nui.AudioState;
+import com.alibaba.idst.nui.Constants;
+import com.alibaba.idst.nui.INativeNuiCallback;
+import com.alibaba.idst.nui.KwsResult;
+import com.alibaba.idst.nui.NativeNui;
+import com.alibaba.idst.nui.NuiEvent;
+import com.alibaba.idst.nui.Utils;
+import com.alibaba.idst.nui.VadMode;
+
+import org.json.JSONObject;
+
+/**
+ * 基于阿里云 NativeNui 的 Recognizer：参数由 SpeechParams 生成，SDK 回调转换为 Recognizer.Callback。
+ * 主对话只创建一个 NativeNui，重新初始化时先 release 再 initialize 同一个实例；
+ * 并行识别（ParallelRecognizer）每一路各自创建一个实例，同时进行的对话数受 SDK 与账号并发数限制。
+ */
+public class NuiRecognizer implements Recognizer, INativeNuiCallback {
+
+    private final Constants.LogLevel logLevel;
+    private final boolean saveLog;
+    // 覆盖 nls_config 默认值的识别参数，可以为 null
+    private final JSONObject nlsConfig;
+    private NativeNui nui;
+    private boolean nuiInitialized;
+    private volatile Callback callback;
+    private volatile String token;
+
+    /**
+     * @param debug 调试包输出详细日志并保存日志文件，正式包只输出错误日志
+     */
+    public NuiRecognizer(boolean debug) {
+        this(debug, null);
+    }
+
+    /**
+     * @param nlsConfig 覆盖 nls_config 默认值的识别参数，例如 customization_id、vocabulary_id
+     */
+    public NuiRecognizer(boolean debug, JSONObject nlsConfig) {
+        this.nlsConfig = nlsConfig;
+        this.logLevel = debug ? Constants.LogLevel.LOG_LEVEL_VERBOSE : Constants.LogLevel.LOG_LEVEL_ERROR;
+        this.saveLog = debug;
+    }
+
+    @Override
+    public synchronized int initialize(Callback callback, String appkey, String token, String workspace) {
+        if (nui == null) {
+            nui = new NativeNui();
+        } else if (nuiInitialized) {
+            nui.release();
+        }
+        this.callback = callback;
+        this.token = token;
+        String initParams = SpeechParams.initParams(appkey, token, Utils.getDeviceId(), workspace, Constants.ModeFullCloud);
+        int ret = nui.initialize(this, initParams, logLevel, saveLog);
+        nuiInitialized = ret == SUCCESS;
+        return ret;
+    }
+
+    @Override
+    public synchronized int startDialog(AudioCodec codec) {
+        if (!nuiInitialized) {
+            return WarmRecognizer.ERROR_NOT_READY;
+        }
+        nui.setParams(SpeechParams.recognitionParams(codec, Constants.kServiceTypeSpeechTranscriber, nlsConfig));
+        return nui.startDialog(VadMode.TYPE_P2T, SpeechParams.dialogParams(token));
+    }
+
+    @Override
+    public synchronized int stopDialog() {
+        return nuiInitialized ? nui.stopDialog() : SUCCESS;
+    }
+
+    @Override
+    public synchronized int release() {
+        int ret = SUCCESS;
+        if (nuiInitialized) {
+            ret = nui.release();
+            nuiInitialized = false;
+        }
+        return ret;
+    }
+
+    // 阿里云SDK回调方法
+    @Override
+    public void onNuiAudioStateChanged(AudioState state) {
+        if (state == AudioState.STATE_OPEN) {
+            callback.onAudioStateChanged(true);
+        } else if (state == AudioState.STATE_CLOSE) {
+            callback.onAudioStateChanged(false);
+        }
+    }
+
+    @Override
+    public int onNuiNeedAudioData(byte[] buffer, int len) {
+        return callback.onNeedAudioData(buffer, len);
+    }
+
+    @Override
+    public void onNuiEventCallback(NuiEvent event, int resultCode, int arg2, KwsResult kwsResult, AsrResult asrResult) {
+        Event mapped = toEvent(event);
+        if (mapped != null) {
+            callback.onEventCallback(mapped, resultCode, asrResult != null ? asrResult.asrResult : null);
+        }
+    }
+
+    @Override
+    public void onNuiAudioRMSChanged(float val) {
+        // 音频能量值回调，可用于UI动效
+    }
+
+    private static Event toEvent(NuiEvent event) {
+        switch (event) {
+            case EVENT_VAD_START:
+                return Event.EVENT_VAD_START;
+            case EVENT_VAD_END:
+                return Event.EVENT_VAD_END;
+            case EVENT_SENTENCE_START:
+                return Event.EVENT_SENTENCE_START;
+            case EVENT_ASR_PARTIAL_RESULT:
+                return Event.EVENT_ASR_PARTIAL_RESULT;
+            case EVENT_SENTENCE_END:
+                return Event.EVENT_SENTENCE_END;
+            case EVENT_ASR_ERROR:
+                return Event.EVENT_ASR_ERROR;
+            case EVENT_MIC_ERROR:
+                return Event.EVENT_MIC_ERROR;
+            case EVENT_TRANSCRIBER_COMPLETE:
+                return Event.EVENT_TRANSCRIBER_COMPLETE;
+            default:
+                return null;
+        }
+    }
+}
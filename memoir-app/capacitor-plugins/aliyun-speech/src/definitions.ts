@@ -2,20 +2,99 @@ import type { PluginListenerHandle } from '@capacitor/core';
 
 export interface AliyunSpeechPlugin {
   /**
-   * 初始化阿里云语音识别
+   * 初始化阿里云语音识别。SDK 在后台初始化，完成后发出 onEngineReady；
+   * 凭据与上次相同时直接复用已初始化的实例（应用启动时会用上次保存且未过期的凭据预先初始化）
    */
   initialize(options: InitializeOptions): Promise<void>;
 
+  /**
+   * 配置令牌来源：插件通过后端 GET /aliyun-speech/token 获取令牌并在过期前后台刷新，
+   * 之后无需在每次录音前获取令牌和调用 initialize
+   */
+  configureTokenSource(options: TokenSourceOptions): Promise<{ success: boolean; hasToken: boolean }>;
+
   /**
    * 开始录音和识别
    */
-  startRecording(options: StartRecordingOptions): Promise<void>;
+  startRecording(options: StartRecordingOptions): Promise<StartRecordingResult>;
 
   /**
    * 停止录音和识别
    */
   stopRecording(): Promise<void>;
 
+  /**
+   * 预录待命：麦克风常开并保留最近 preRollMs 的音频，开始识别时先送入这段历史。
+   * 设置 wakeWord 后在本地检测唤醒词，检测到后直接开始识别（见 onWakeWord），识别结束后回到待命
+   */
+  arm(options?: ArmOptions): Promise<ArmResult>;
+
+  /**
+   * 退出预录待命并关闭麦克风（录音中则在识别结束后关闭）
+   */
+  disarm(): Promise<DisarmResult>;
+
+  /**
+   * 当前或最近一次唤醒词待命的 CPU 占用与唤醒次数
+   */
+  getArmedStats(): Promise<ArmedStats>;
+
+  /**
+   * 获取会话落盘的 WAV 文件，可用于重新识别或上传
+   */
+  getSessionAudio(options: { sessionId: string }): Promise<SessionAudio>;
+
+  /**
+   * 删除会话的 WAV 与句子索引、波形文件；正在录音的会话不能删除。success 为 false 表示文件已不存在
+   */
+  deleteSessionAudio(options: { sessionId: string }): Promise<{ success: boolean }>;
+
+  /**
+   * 设置会话音频（约 115MB/小时）的保留上限，默认 1GB、30 天。立即清理一次，之后每次会话开始前清理：
+   * 先删除超过保留时长的会话，再从最旧的开始删除直到总大小不超过上限；重新识别队列中的会话不删除。
+   * 重新识别成功或从队列移除的会话，其音频随即删除
+   */
+  configureSessionRetention(options: SessionRetentionOptions): Promise<{ success: boolean; removed: number }>;
+
+  /**
+   * 按会话音频中的播放位置查找所在的句子（开始位置不晚于 offsetMs 的最后一句），
+   * 录音中的会话使用内存中的索引，已结束的会话读取保存在 WAV 旁的索引
+   */
+  findSentence(options: { sessionId: string; offsetMs: number }): Promise<SentenceLocation>;
+
+  /**
+   * 会话音频在 [fromMs, toMs) 内按 pixels 列的波形峰值，从录音时生成的多级峰值中取出，
+   * 不读取音频；录音中的会话返回已录制的部分
+   */
+  getWaveform(options: GetWaveformOptions): Promise<Waveform>;
+
+  /**
+   * 分页读取原生维护的会话文本，只保留当前或最近一次会话
+   */
+  getTranscript(options: GetTranscriptOptions): Promise<TranscriptPage>;
+
+  /**
+   * 配置重新识别队列：识别出错的会话在音频保存后自动排队，经后端接口重新识别。
+   * 后端单次上传不超过 10MB、单次识别不超过 60 秒，会话音频按句子边界（没有时按停顿）切成不超过 50 秒的多段
+   * 依次识别后拼接；没有语音的段不上传。音频缺失或格式不对的任务直接放弃，不再重试
+   */
+  configureTranscriptionQueue(options: TranscriptionQueueOptions): Promise<{ success: boolean; pending: number }>;
+
+  /**
+   * 获取重新识别队列中的全部任务
+   */
+  getTranscriptionQueue(): Promise<{ jobs: TranscriptionJob[]; pending: number }>;
+
+  /**
+   * 立即重试所有等待中与已放弃的任务
+   */
+  retryTranscriptions(): Promise<{ success: boolean; pending: number }>;
+
+  /**
+   * 从队列中移除任务（取走识别结果后调用），同时删除会话音频
+   */
+  removeTranscription(options: { sessionId: string }): Promise<{ success: boolean }>;
+
   /**
    * 检查录音权限
    */
@@ -26,6 +105,16 @@ export interface AliyunSpeechPlugin {
    */
   requestPermission(): Promise<PermissionResult>;
 
+  /**
+   * 获取音频缓冲区统计（溢出/欠载次数）
+   */
+  getAudioStats(): Promise<AudioStats>;
+
+  /**
+   * 获取当前（或最近一次）会话的热路径指标
+   */
+  getMetrics(): Promise<SessionMetrics>;
+
   /**
    * 监听识别结果
    */
@@ -39,11 +128,100 @@ export interface AliyunSpeechPlugin {
     listenerFunc: (result: FinalResult) => void,
   ): Promise<PluginListenerHandle> & PluginListenerHandle;
 
+  /**
+   * startRecording 开启 transcriptPatches 时代替 onPartialResult/onFinalResult
+   */
+  addListener(
+    eventName: 'onTranscriptPatch',
+    listenerFunc: (patch: TranscriptPatch) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
   addListener(
     eventName: 'onError',
     listenerFunc: (error: SpeechError) => void,
   ): Promise<PluginListenerHandle> & PluginListenerHandle;
 
+  /**
+   * 本地语音门限检测到语音开始/结束（需在 startRecording 中开启 vad）
+   */
+  addListener(
+    eventName: 'onSpeechStart' | 'onSpeechEnd',
+    listenerFunc: (event: SpeechActivityEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 录音中按 metricsIntervalMs 周期发送会话指标，会话结束时再发送一次
+   */
+  addListener(
+    eventName: 'onMetrics',
+    listenerFunc: (metrics: SessionMetrics) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 电平表：startRecording 设置 levelIntervalMs 后按该周期发送一批窗口的峰值与 RMS
+   */
+  addListener(
+    eventName: 'onLevels',
+    listenerFunc: (event: LevelsEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * startRecording 的 parallel 中的一路识别结束，可能晚于主对话；
+   * 与 getTranscript 返回的 meanConfidence 比较后，用 getTranscript({ sessionId, name }) 取出更好的一份
+   */
+  addListener(
+    eventName: 'onParallelResult',
+    listenerFunc: (event: ParallelResultEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 唤醒词待命中检测到唤醒词，已按 wakeWord 的参数开始识别
+   */
+  addListener(
+    eventName: 'onWakeWord',
+    listenerFunc: (event: WakeWordEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 长时听写中一段识别对话结束（包括最后一段）
+   */
+  addListener(
+    eventName: 'onSegment',
+    listenerFunc: (segment: SegmentEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 识别服务取数停顿导致音频积压：积压超过高水位、缓冲区写满开始按 backpressure 策略处理、积压回落
+   */
+  addListener(
+    eventName: 'onBackpressure',
+    listenerFunc: (event: BackpressureEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * SDK 后台初始化完成
+   */
+  addListener(
+    eventName: 'onEngineReady',
+    listenerFunc: (event: EngineReadyEvent) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 令牌来源刷新了令牌（SDK 随后在后台重新初始化）
+   */
+  addListener(
+    eventName: 'onTokenRefreshed',
+    listenerFunc: (event: { expiresAt: number }) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
+  /**
+   * 重新识别任务状态变化
+   */
+  addListener(
+    eventName: 'onTranscriptionProgress',
+    listenerFunc: (job: TranscriptionJob) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+
   /**
    * 移除所有监听器
    */
@@ -54,14 +232,245 @@ export interface InitializeOptions {
   appkey: string;
   token: string;
   workspace: string;
+  /**
+   * 令牌的过期时间（毫秒时间戳）。给出时凭据加密保存，应用下次启动时在过期前用它预先初始化；
+   * 不给出时不保存令牌
+   */
+  expiresAt?: number;
+}
+
+export interface TokenSourceOptions {
+  /**
+   * 后端 API 地址，例如 https://example.com/api
+   */
+  baseUrl: string;
+  /**
+   * 登录后的 JWT
+   */
+  authToken?: string;
+  workspace: string;
+  /**
+   * 后端响应中没有 appKey 时使用
+   */
+  appkey?: string;
 }
 
 export interface StartRecordingOptions {
   sampleRate?: number;
-  format?: string;
+  /**
+   * 传输编码，默认 pcm。
+   * opus：SDK 在本地把实时上行音频压缩为 Opus；
+   * adpcm：实时流仍为 PCM，识别失败后补传的会话音频压缩为 IMA-ADPCM（约 1/4 大小）
+   */
+  format?: 'pcm' | 'opus' | 'adpcm';
   enableIntermediateResult?: boolean;
   enablePunctuationPrediction?: boolean;
   enableInverseTextNormalization?: boolean;
+  /**
+   * 未待命时，在开始识别前提前打开麦克风并保留的历史时长（毫秒，最大 2000）
+   */
+  preRollMs?: number;
+  /**
+   * 中间结果合并发送的间隔（毫秒），间隔内只发送最新一次，默认 80，0 表示不合并
+   */
+  partialIntervalMs?: number;
+  /**
+   * 本地语音门限，关闭期间的静音不发送到云端
+   */
+  vad?: VadOptions;
+  /**
+   * onMetrics 的发送间隔（毫秒），默认 1000，0 表示只在会话结束时发送
+   */
+  metricsIntervalMs?: number;
+  /**
+   * 长时听写：识别对话超过该时长（毫秒）后在下一个静音处切换到新的对话，录音不中断；默认 0 不分段
+   */
+  segmentMs?: number;
+  /**
+   * 识别服务停顿、缓冲区写满时的处理方式，会话音频始终完整落盘，默认 drop-oldest：
+   * block：暂停读取音频源等待（最长 1 秒），只适用于可以暂停的音频源；
+   * 实时麦克风暂停读取会在系统缓冲区中丢失音频，因此录音时按 spill 处理，onMetrics 中的 policy 为 spill；
+   * drop-oldest：丢弃最旧的音频；spill：溢写到文件，恢复后按顺序补发；
+   * degrade：积压升高时下一段对话改用 Opus 传输以降低码率
+   */
+  backpressure?: BackpressurePolicy;
+  /**
+   * 以 onTranscriptPatch 代替 onPartialResult/onFinalResult，文本由原生端维护，默认 false
+   */
+  transcriptPatches?: boolean;
+  /**
+   * onLevels 的发送周期（毫秒），建议 100，最长 1000；默认 0 不发送
+   */
+  levelIntervalMs?: number;
+  /**
+   * 同时用其他参数识别同一段音频（例如方言模型），麦克风只读取一次，最多 2 路；
+   * 结果不通过 onPartialResult/onFinalResult 发送，见 onParallelResult
+   */
+  parallel?: ParallelRecognizerOptions[];
+}
+
+export interface ParallelRecognizerOptions {
+  /**
+   * 区分各路结果的名称，只能包含字母、数字、下划线与连字符
+   */
+  name: string;
+  /**
+   * 覆盖 nls_config 默认值的识别参数，例如 customization_id、vocabulary_id；sr_format 由 format 决定
+   */
+  params?: Record<string, unknown>;
+}
+
+export type BackpressurePolicy = 'block' | 'drop-oldest' | 'spill' | 'degrade';
+
+export interface VadOptions {
+  /**
+   * off: 关闭；gate: 丢弃静音；compress: 静音中每 10 帧保留 1 帧，默认 off
+   */
+  mode?: 'off' | 'gate' | 'compress';
+  /**
+   * 判为语音的最低电平（dBFS），默认 -45
+   */
+  thresholdDb?: number;
+  /**
+   * 连续多久的语音才打开门限（毫秒），默认 60
+   */
+  attackMs?: number;
+  /**
+   * 语音结束后保持打开的时长（毫秒），默认 400
+   */
+  hangoverMs?: number;
+}
+
+export interface SpeechActivityEvent {
+  frameIndex: number;
+  offsetMs: number;
+}
+
+export interface StartRecordingResult {
+  success: boolean;
+  /**
+   * 本次会话的 ID，会话音频保存在应用私有目录 speech-sessions/<sessionId>.wav
+   */
+  sessionId: string;
+}
+
+export interface SessionAudio {
+  sessionId: string;
+  path: string;
+  bytes: number;
+  durationMs: number;
+  sampleRate: number;
+  /**
+   * 会话仍在录音时为 false
+   */
+  complete: boolean;
+}
+
+export interface SessionRetentionOptions {
+  /**
+   * 会话文件的总大小上限（字节），0 表示不限；不给出时保持当前设置
+   */
+  maxBytes?: number;
+  /**
+   * 按最后修改时间的保留时长（毫秒），0 表示不限；不给出时保持当前设置
+   */
+  maxAgeMs?: number;
+}
+
+export interface TranscriptionQueueOptions {
+  /**
+   * 后端 API 地址，例如 https://example.com/api
+   */
+  baseUrl: string;
+  /**
+   * 登录后的 JWT
+   */
+  authToken?: string;
+  /**
+   * 每批处理的任务数，默认 3
+   */
+  batchSize?: number;
+}
+
+export interface TranscriptionJob {
+  sessionId: string;
+  /**
+   * DONE 时会话音频已删除，识别结果在 transcript 中
+   */
+  status: 'PENDING' | 'RUNNING' | 'DONE' | 'FAILED';
+  attempts: number;
+  /**
+   * 下一次尝试的时间（毫秒时间戳）
+   */
+  nextAttemptAt: number;
+  transcript?: string;
+  error?: string;
+  /**
+   * 事件发出时队列中尚未完成的任务数
+   */
+  pending?: number;
+}
+
+export interface ArmOptions {
+  /**
+   * 保留的历史时长（毫秒），默认 1500，最大 2000
+   */
+  preRollMs?: number;
+  /**
+   * 唤醒词待命：待命时录音线程每 100ms 读取一次，只有语音段送入本地唤醒词检测；
+   * 检测到唤醒词后按这里的录音参数开始识别，预录的音频（包括唤醒词）先送入识别。需要先调用 initialize
+   */
+  wakeWord?: WakeWordOptions;
+}
+
+export interface WakeWordOptions extends Omit<StartRecordingOptions, 'preRollMs'> {
+  /**
+   * 唤醒词模型所在的资源目录，默认与 initialize 的 workspace 相同
+   */
+  workspace?: string;
+}
+
+export interface ArmResult {
+  success: boolean;
+  preRollMs: number;
+  wakeWord: boolean;
+}
+
+export interface DisarmResult {
+  success: boolean;
+  /**
+   * 唤醒词待命的统计，没有使用过唤醒词待命时不返回
+   */
+  armed?: ArmedStats;
+}
+
+/**
+ * 唤醒词待命的统计，不含会话进行中的时间；时长单位为毫秒
+ */
+export interface ArmedStats {
+  armedMs: number;
+  /**
+   * 录音线程在待命期间被唤醒（读取一次麦克风）的次数，SDK 自身的线程不计入
+   */
+  wakeups: number;
+  wakeupsPerMinute: number;
+  capturedMs: number;
+  /**
+   * 送入唤醒词检测的音频，安静时不送入
+   */
+  spottedMs: number;
+  detections: number;
+  /**
+   * 待命期间进程使用的 CPU 时间与其占待命时长的百分比（多核时可能超过 100）
+   */
+  cpuMs: number;
+  cpuPercent: number;
+}
+
+export interface WakeWordEvent {
+  sessionId: string;
+  keyword: string;
+  armed?: ArmedStats;
 }
 
 export interface PermissionResult {
@@ -70,16 +479,355 @@ export interface PermissionResult {
   neverAsked: boolean;
 }
 
+/**
+ * 中间结果以增量发送：当前句文本 = 上次文本.slice(0, keep) + delta。
+ * 收到最终结果后，下一句从空文本开始。
+ */
 export interface PartialResult {
-  text: string;
-  confidence: number;
+  keep: number;
+  delta: string;
+  length: number;
+  /**
+   * 识别服务给出的置信度（0–1），没有给出时省略；中间结果通常没有
+   */
+  confidence?: number;
 }
 
 export interface FinalResult {
   text: string;
-  confidence: number;
-  beginTime: number;
-  endTime: number;
+  /**
+   * 识别服务给出的置信度（0–1），没有给出时省略
+   */
+  confidence?: number;
+  /**
+   * 识别服务在本次识别对话中从 1 开始的句子序号，没有给出时省略；长时听写分段后重新从 1 开始
+   */
+  sdkIndex?: number;
+  /**
+   * 句子起止对应的墙上时间（毫秒时间戳），由会话音频时钟推算；
+   * 以下时间与位置字段在还没有采集到音频时一并省略
+   */
+  beginTime?: number;
+  endTime?: number;
+  /**
+   * 在会话中的序号，与 findSentence 返回的 index 一致
+   */
+  index?: number;
+  /**
+   * 相对会话音频（getSessionAudio 返回的 WAV）开头的偏移（毫秒）
+   */
+  beginOffsetMs?: number;
+  endOffsetMs?: number;
+}
+
+/**
+ * 会话文本的一次变化，按顺序应用：尾部 = 尾部.slice(0, keep) + delta；
+ * op 为 commit 时尾部确认为第 index 句，追加到已确认的文本后并清空尾部。
+ */
+export interface TranscriptPatch {
+  sessionId: string;
+  op: 'replaceTail' | 'commit';
+  keep: number;
+  delta: string;
+  /**
+   * 应用后尾部的长度
+   */
+  length: number;
+  /**
+   * 识别服务给出的置信度，没有给出时省略
+   */
+  confidence?: number;
+  /**
+   * 以下字段只在 commit 时存在，offset 为该句在会话文本中的字符偏移，sdkIndex 见 FinalResult
+   */
+  index?: number;
+  offset?: number;
+  sdkIndex?: number;
+  beginOffsetMs?: number;
+  endOffsetMs?: number;
+  beginTime?: number;
+  endTime?: number;
+}
+
+export interface GetWaveformOptions {
+  sessionId: string;
+  /**
+   * 默认 0
+   */
+  fromMs?: number;
+  /**
+   * 默认为音频时长
+   */
+  toMs?: number;
+  /**
+   * 列数，1~10000
+   */
+  pixels: number;
+}
+
+export interface Waveform {
+  sessionId: string;
+  durationMs: number;
+  fromMs: number;
+  toMs: number;
+  pixels: number;
+  /**
+   * 会话是否已结束；录音中 durationMs 会继续增长
+   */
+  complete: boolean;
+  /**
+   * base64 编码的小端 int16 数组，每列依次为最小值与最大值，解码方式同 LevelsEvent.levels
+   */
+  peaks: string;
+}
+
+export interface GetTranscriptOptions {
+  sessionId: string;
+  /**
+   * 起始句子序号，默认 0
+   */
+  from?: number;
+  /**
+   * 最多返回的句数，默认 50，最大 500
+   */
+  count?: number;
+  /**
+   * 并行识别的名称，省略时返回主对话的文本
+   */
+  name?: string;
+}
+
+export interface TranscriptSentence {
+  index: number;
+  offset: number;
+  text: string;
+  confidence?: number;
+  beginOffsetMs?: number;
+  endOffsetMs?: number;
+  beginTime?: number;
+  endTime?: number;
+}
+
+export interface TranscriptPage {
+  sessionId: string;
+  /**
+   * 已确认的句数
+   */
+  total: number;
+  /**
+   * 整段文本（含尾部）的字符数
+   */
+  length: number;
+  from: number;
+  sentences: TranscriptSentence[];
+  /**
+   * 尚未确认的当前句
+   */
+  tail: string;
+  /**
+   * 带置信度的已确认句子按字符数加权的平均置信度，没有这样的句子时省略
+   */
+  meanConfidence?: number;
+}
+
+export interface SentenceLocation {
+  sessionId: string;
+  /**
+   * 会话中的句子数
+   */
+  count: number;
+  /**
+   * 句子序号，offsetMs 在第一句之前时为 -1，此时没有以下字段
+   */
+  index: number;
+  beginOffsetMs?: number;
+  endOffsetMs?: number;
+  /**
+   * 句子开始在 WAV 文件中的字节位置（含文件头）
+   */
+  byteOffset?: number;
+}
+
+export interface AudioStats {
+  overrunCount: number;
+  overrunBytes: number;
+  underrunCount: number;
+  bufferedBytes: number;
+  capacityBytes: number;
+  /**
+   * 录音引擎状态
+   */
+  state: 'IDLE' | 'ARMED' | 'CAPTURING' | 'DRAINING' | 'STOPPED';
+  framesCaptured: number;
+  droppedFrames: number;
+  /**
+   * 麦克风实际录音的采样率与声道数，与 16kHz 单声道不同时在录音线程上重采样
+   */
+  captureSampleRate?: number;
+  captureChannels?: number;
+  vadPassedFrames?: number;
+  vadHeldFrames?: number;
+  partialsSubmitted: number;
+  partialsDelivered: number;
+  partialsCoalesced: number;
+  deliveriesPerSecond: number;
+  /**
+   * 当前凭据的 SDK 实例已初始化完成
+   */
+  engineReady: boolean;
+  /**
+   * 最近一次初始化从提交凭据到完成的时长（毫秒），未初始化过为 -1
+   */
+  timeToReadyMs: number;
+  engineInitializations: number;
+  /**
+   * 凭据未变而复用已有实例的次数
+   */
+  engineReuses: number;
+  /**
+   * 缓存令牌的过期时间（毫秒时间戳），没有可用令牌时不返回
+   */
+  tokenExpiresAt?: number;
+  tokenRefreshes: number;
+}
+
+export interface EngineReadyEvent {
+  success: boolean;
+  /**
+   * SDK 错误码，成功为 0
+   */
+  code: number;
+  timeToReadyMs: number;
+}
+
+/**
+ * 延迟分布，单位毫秒（分位值相对误差约 3%）
+ */
+export interface LatencyStats {
+  count: number;
+  mean: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  max: number;
+}
+
+export interface SegmentEvent {
+  sessionId: string;
+  /**
+   * 从 0 开始的段序号
+   */
+  index: number;
+  /**
+   * 相对会话开始的偏移（毫秒），按送入识别服务的音频计算；除第一段外，开头包含上一段末尾 300ms 的重叠音频
+   */
+  startOffsetMs: number;
+  endOffsetMs: number;
+}
+
+export interface SessionMetrics {
+  sessionId: string;
+  durationMs: number;
+  /**
+   * 发送给识别服务的字节数
+   */
+  bytesSent: number;
+  overrunCount: number;
+  overrunBytes: number;
+  /**
+   * 一帧写入缓冲区到被 SDK 取走
+   */
+  handoff: LatencyStats;
+  /**
+   * SDK 取数时等待数据的时间
+   */
+  needAudioWait: LatencyStats;
+  /**
+   * 开始录音到第一个中间结果
+   */
+  timeToFirstPartial: LatencyStats;
+  /**
+   * 一句话的第一个中间结果到最终结果
+   */
+  partialToFinal: LatencyStats;
+  /**
+   * notifyListeners 发送结果事件的耗时
+   */
+  bridgeDispatch: LatencyStats;
+  backpressure: BackpressureStats;
+  /**
+   * 本次会话的并行识别，没有时省略
+   */
+  parallel?: ParallelRecognizerStats[];
+}
+
+export interface ParallelRecognizerStats {
+  name: string;
+  /**
+   * 对话是否仍在进行
+   */
+  active: boolean;
+  failed: boolean;
+  sentences: number;
+  length: number;
+  meanConfidence?: number;
+  /**
+   * 落后于录音的音频时长（毫秒），下同
+   */
+  lagMs: number;
+  maxLagMs: number;
+  /**
+   * 落后超过 5 秒后跳过、没有送入识别的音频
+   */
+  droppedMs: number;
+  consumedMs: number;
+}
+
+export interface ParallelResultEvent extends ParallelRecognizerStats {
+  sessionId: string;
+}
+
+export interface BackpressureStats {
+  policy: BackpressurePolicy;
+  /**
+   * high：积压超过缓冲区容量的 75%；overflow：缓冲区已满，正在按策略处理；回落到 25% 以下后为 normal
+   */
+  level: 'normal' | 'high' | 'overflow';
+  /**
+   * 未送往识别服务的积压（缓冲区与溢写文件），单位为毫秒音频，下同
+   */
+  depthMs: number;
+  maxDepthMs: number;
+  capacityMs: number;
+  droppedMs: number;
+  spilledMs: number;
+  /**
+   * 录音线程阻塞等待的总时长
+   */
+  blockedMs: number;
+  overflowCount: number;
+}
+
+export interface BackpressureEvent extends BackpressureStats {
+  sessionId: string;
+  /**
+   * 当前识别对话的传输编码，degrade 策略降级后为 opus
+   */
+  streamFormat: 'pcm' | 'opus';
+}
+
+/**
+ * 一批电平窗口。levels 为 base64 编码的小端 int16 数组，每个窗口依次为最小值、最大值与 RMS（-32768~32767），
+ * 可用 new Int16Array(Uint8Array.from(atob(levels), (c) => c.charCodeAt(0)).buffer) 解码
+ */
+export interface LevelsEvent {
+  sessionId: string;
+  /**
+   * 每个窗口的时长（毫秒）
+   */
+  windowMs: number;
+  windows: number;
+  levels: string;
 }
 
 export interface SpeechError {
@@ -1,5 +1,5 @@
 import { WebPlugin } from '@capacitor/core';
-import type { AliyunSpeechPlugin, InitializeOptions, StartRecordingOptions, PermissionResult, PartialResult, FinalResult, SpeechError } from './definitions';
+import type { AliyunSpeechPlugin, InitializeOptions, TokenSourceOptions, StartRecordingOptions, StartRecordingResult, SessionAudio, SessionRetentionOptions, SentenceLocation, GetTranscriptOptions, TranscriptPage, GetWaveformOptions, Waveform, TranscriptionQueueOptions, TranscriptionJob, ArmOptions, ArmResult, DisarmResult, ArmedStats, PermissionResult, AudioStats, SessionMetrics, PartialResult, FinalResult, SpeechError } from './definitions';
 
 export class AliyunSpeechWeb extends WebPlugin implements AliyunSpeechPlugin {
   async initialize(options: InitializeOptions): Promise<void> {
@@ -7,7 +7,11 @@ export class AliyunSpeechWeb extends WebPlugin implements AliyunSpeechPlugin {
     throw new Error('Web端不支持阿里云语音识别');
   }
 
-  async startRecording(options: StartRecordingOptions): Promise<void> {
+  async configureTokenSource(options: TokenSourceOptions): Promise<{ success: boolean; hasToken: boolean }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async startRecording(options: StartRecordingOptions): Promise<StartRecordingResult> {
     console.log('Web端不支持阿里云语音识别，请使用移动端');
     throw new Error('Web端不支持阿里云语音识别');
   }
@@ -17,6 +21,58 @@ export class AliyunSpeechWeb extends WebPlugin implements AliyunSpeechPlugin {
     throw new Error('Web端不支持阿里云语音识别');
   }
 
+  async arm(options?: ArmOptions): Promise<ArmResult> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async disarm(): Promise<DisarmResult> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async getArmedStats(): Promise<ArmedStats> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async getSessionAudio(options: { sessionId: string }): Promise<SessionAudio> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async deleteSessionAudio(options: { sessionId: string }): Promise<{ success: boolean }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async configureSessionRetention(options: SessionRetentionOptions): Promise<{ success: boolean; removed: number }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async findSentence(options: { sessionId: string; offsetMs: number }): Promise<SentenceLocation> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async getWaveform(options: GetWaveformOptions): Promise<Waveform> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async getTranscript(options: GetTranscriptOptions): Promise<TranscriptPage> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async configureTranscriptionQueue(options: TranscriptionQueueOptions): Promise<{ success: boolean; pending: number }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async getTranscriptionQueue(): Promise<{ jobs: TranscriptionJob[]; pending: number }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async retryTranscriptions(): Promise<{ success: boolean; pending: number }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async removeTranscription(options: { sessionId: string }): Promise<{ success: boolean }> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
   async checkPermission(): Promise<PermissionResult> {
     return {
       granted: false,
@@ -32,4 +88,12 @@ export class AliyunSpeechWeb extends WebPlugin implements AliyunSpeechPlugin {
       neverAsked: false
     };
   }
+
+  async getAudioStats(): Promise<AudioStats> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
+
+  async getMetrics(): Promise<SessionMetrics> {
+    throw new Error('Web端不支持阿里云语音识别');
+  }
 }